@@ -0,0 +1,14 @@
+@echo off
+REM Compile core sources and run the headless BatchRunner
+REM Usage: run_batch.bat [--config=FILE] [--KEY=VALUE ...] [--format=json|csv] [--out=FILE] program.txt
+set SRC_DIR=src
+set OUT_DIR=bin\classes
+if not exist %OUT_DIR% mkdir %OUT_DIR%
+
+javac -encoding Cp1252 -d %OUT_DIR% -sourcepath %SRC_DIR% %SRC_DIR%\core\*.java
+if errorlevel 1 (
+  echo Compilation failed
+  exit /b 1
+)
+
+java -cp %OUT_DIR% core.BatchRunner %*
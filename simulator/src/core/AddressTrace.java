@@ -0,0 +1,52 @@
+package core;
+
+import java.util.Arrays;
+
+/**
+ * Data address stream of a run, recorded by a cache level with
+ * Cache.setTrace: one entry per loadNoLatency / storeNoLatency, in the
+ * order the engine performed them, with a flag telling stores apart.
+ *
+ * Entries go into primitive arrays that double when full, so recording a
+ * long run costs one array store per access. The trace is not part of the
+ * cycle history: stepping back does not remove entries.
+ */
+public class AddressTrace {
+
+    private long[] addresses = new long[1024];
+    private long[] storeBits = new long[1024 / 64]; // bitset over entries
+    private int size;
+
+    public void record(long address, boolean isStore) {
+        if (size == addresses.length) {
+            addresses = Arrays.copyOf(addresses, 2 * size);
+            storeBits = Arrays.copyOf(storeBits, addresses.length / 64);
+        }
+        addresses[size] = address;
+        if (isStore) storeBits[size >>> 6] |= 1L << size;
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long getAddress(int i) {
+        return addresses[i];
+    }
+
+    public boolean isStore(int i) {
+        return (storeBits[i >>> 6] & (1L << i)) != 0;
+    }
+
+    public long getStores() {
+        long n = 0;
+        for (long w : storeBits) n += Long.bitCount(w);
+        return n;
+    }
+
+    public void clear() {
+        Arrays.fill(storeBits, 0);
+        size = 0;
+    }
+}
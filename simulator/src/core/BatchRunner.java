@@ -0,0 +1,118 @@
+package core;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Writer;
+
+/**
+ * Headless entry point: runs one program until the pipeline drains and
+ * prints machine-readable results.
+ *
+ * Usage:
+ *   java -cp bin/classes core.BatchRunner [options] program.txt
+ *
+ * Options:
+ *   --config=FILE        .properties file with any SimConfig keys
+ *   --KEY=VALUE          override one SimConfig key (e.g. --numFpAddRS=8)
+ *   --format=json|csv    output format (default json)
+ *   --out=FILE           write to FILE instead of stdout (csv appends)
+ *   --no-header          csv only: omit the header row (for appending)
+ *
+ * Exit code is 0 when the program drained, 3 when maxCycles was hit.
+ */
+public class BatchRunner {
+
+    public static void main(String[] args) throws Exception {
+        String programPath = null;
+        String format = "json";
+        String outPath = null;
+        boolean header = true;
+
+        SimConfig config = new SimConfig();
+
+        // config file first, so individual flags override it regardless of order
+        for (String arg : args) {
+            if (arg.startsWith("--config=")) {
+                config = SimConfig.load(new File(arg.substring("--config=".length())));
+            }
+        }
+
+        for (String arg : args) {
+            if (arg.startsWith("--config=")) {
+                continue;
+            } else if (arg.startsWith("--format=")) {
+                format = arg.substring("--format=".length());
+            } else if (arg.startsWith("--out=")) {
+                outPath = arg.substring("--out=".length());
+            } else if (arg.equals("--no-header")) {
+                header = false;
+            } else if (arg.startsWith("--") && arg.indexOf('=') > 2) {
+                int eq = arg.indexOf('=');
+                config.set(arg.substring(2, eq), arg.substring(eq + 1));
+            } else if (!arg.startsWith("--")) {
+                programPath = arg;
+            } else {
+                usage("Unknown option: " + arg);
+                return;
+            }
+        }
+
+        if (programPath == null) {
+            usage("No program file given");
+            return;
+        }
+        if (!format.equals("json") && !format.equals("csv")) {
+            usage("Unknown format: " + format);
+            return;
+        }
+
+        RunResult result = run(new File(programPath), config);
+
+        String text = format.equals("csv")
+                ? (header ? RunResult.csvHeader() + System.lineSeparator() : "") + result.toCsvRow()
+                : result.toJson();
+
+        if (outPath == null) {
+            System.out.println(text);
+        } else {
+            // csv appends so many runs can share one file
+            try (Writer w = new FileWriter(outPath, format.equals("csv"))) {
+                w.write(text);
+                w.write(System.lineSeparator());
+            }
+        }
+
+        System.exit(result.isDrained() ? 0 : 3);
+    }
+
+    /** Parse and run one program to completion with the given config. */
+    public static RunResult run(File programFile, SimConfig config) throws IOException {
+        Program prog = new Parser().parse(programFile);
+        return run(programFile.getName(), prog, config);
+    }
+
+    public static RunResult run(String programName, Program prog, SimConfig config) {
+        TomasuloEngine engine = config.createEngine(prog);
+        engine.setHistoryEnabled(false);
+
+        long start = System.nanoTime();
+        if (config.fastForward > 0) engine.fastForward(config.fastForward);
+        boolean drained = engine.runUntilDrained(config.maxCycles);
+        long elapsed = System.nanoTime() - start;
+
+        return new RunResult(programName, config, engine, drained, elapsed);
+    }
+
+    private static void usage(String error) {
+        PrintStream err = System.err;
+        err.println(error);
+        err.println("Usage: java core.BatchRunner [--config=FILE] [--KEY=VALUE ...]"
+                + " [--format=json|csv] [--out=FILE] [--no-header] program.txt");
+        err.print("Keys:");
+        for (String key : SimConfig.KEYS) err.print(" " + key);
+        err.println();
+        System.exit(1);
+    }
+}
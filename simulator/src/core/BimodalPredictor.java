@@ -0,0 +1,26 @@
+package core;
+
+/** Per-branch 2-bit saturating counters indexed by the low bits of the pc. */
+public class BimodalPredictor implements BranchPredictor {
+
+    private final CounterTable counters;
+
+    public BimodalPredictor(int tableBits) {
+        this.counters = new CounterTable(tableBits, CounterTable.WEAKLY_NOT_TAKEN);
+    }
+
+    @Override
+    public long lookup(int pc, int target) {
+        return counters.predictsTaken(pc) ? 1 : 0;
+    }
+
+    @Override
+    public void train(int pc, int target, boolean taken, long lookup) {
+        counters.train(pc, taken);
+    }
+
+    @Override public void reset() { counters.reset(); }
+    @Override public String getName() { return "bimodal"; }
+    @Override public void saveState(StateVector out) { counters.saveState(out); }
+    @Override public void restoreState(StateVector in) { counters.restoreState(in); }
+}
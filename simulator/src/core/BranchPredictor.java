@@ -0,0 +1,70 @@
+package core;
+
+/**
+ * Direction predictor consulted at issue for BEQ / BNE in speculative mode.
+ *
+ * Branches are identified by their static index in the program
+ * ({@link Instruction#getPcIndex()}). lookup() is called when the branch
+ * issues and train() when it commits, so tables and global history are
+ * trained only with outcomes of branches on the architectural path (a
+ * wrong-path branch may resolve before an older mispredict squashes it).
+ * The engine keeps the lookup word in the ROB entry meanwhile: other
+ * branches may commit in between and move the global history, and
+ * train() must update the counters the prediction actually read.
+ *
+ * Implementations keep their tables in primitive arrays and encode them in
+ * saveState so the cycle history can step back across predictor updates.
+ */
+public interface BranchPredictor {
+
+    /**
+     * Predict the branch at pc with the given target index. Bit 0 of the
+     * result is the predicted direction; the other bits record what the
+     * prediction read (table index, component predictions) for train().
+     */
+    long lookup(int pc, int target);
+
+    /** Train the entries a lookup() of this branch read with the resolved direction. */
+    void train(int pc, int target, boolean taken, long lookup);
+
+    /** Predicted direction for the branch at pc with the given target index. */
+    default boolean predict(int pc, int target) {
+        return (lookup(pc, target) & 1) != 0;
+    }
+
+    /** Look up and train at once (no other branch in between). */
+    default void update(int pc, int target, boolean taken) {
+        train(pc, target, taken, lookup(pc, target));
+    }
+
+    /** Forget everything learned (engine reset). */
+    void reset();
+
+    /** Short name used in configs and reports ("bimodal", "gshare", ...). */
+    String getName();
+
+    void saveState(StateVector out);
+
+    void restoreState(StateVector in);
+
+    /** Names accepted by {@link #create}. */
+    String[] NAMES = {"taken", "nottaken", "btfn", "bimodal", "gshare", "tournament"};
+
+    /**
+     * Build a predictor by name.
+     * @param tableBits   log2 of the counter table size (bimodal, gshare, tournament)
+     * @param historyBits global history length (gshare, tournament)
+     */
+    static BranchPredictor create(String name, int tableBits, int historyBits) {
+        switch (name) {
+            case "taken": return new StaticPredictor(StaticPredictor.Mode.TAKEN);
+            case "nottaken": return new StaticPredictor(StaticPredictor.Mode.NOT_TAKEN);
+            case "btfn": return new StaticPredictor(StaticPredictor.Mode.BTFN);
+            case "bimodal": return new BimodalPredictor(tableBits);
+            case "gshare": return new GSharePredictor(tableBits, historyBits);
+            case "tournament": return new TournamentPredictor(tableBits, historyBits);
+            default:
+                throw new IllegalArgumentException("Unknown branch predictor: " + name);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package core;
+
+import java.util.Arrays;
+
+/**
+ * Committed-branch counters for speculative runs: global and per static
+ * branch (indexed by pc), plus the cycles lost to mispredicts, counted from
+ * the branch's issue to its resolution on the CDB (the wrong-path window).
+ * Branches are recorded at commit, so squashed wrong-path branches are not
+ * counted.
+ */
+public class BranchStats {
+
+    private final long[] resolved;
+    private final long[] mispredicted;
+    private long branches;
+    private long mispredicts;
+    private long penaltyCycles;
+
+    public BranchStats(int programSize) {
+        this.resolved = new long[Math.max(1, programSize)];
+        this.mispredicted = new long[resolved.length];
+    }
+
+    public void record(int pc, boolean mispredict, int penalty) {
+        resolved[pc]++;
+        branches++;
+        if (mispredict) {
+            mispredicted[pc]++;
+            mispredicts++;
+            penaltyCycles += penalty;
+        }
+    }
+
+    public void reset() {
+        Arrays.fill(resolved, 0);
+        Arrays.fill(mispredicted, 0);
+        branches = 0;
+        mispredicts = 0;
+        penaltyCycles = 0;
+    }
+
+    public long getBranches() { return branches; }
+    public long getMispredicts() { return mispredicts; }
+    public long getPenaltyCycles() { return penaltyCycles; }
+
+    /** Fraction predicted correctly (1.0 when no branch has resolved). */
+    public double getAccuracy() {
+        return branches > 0 ? 1.0 - (double) mispredicts / branches : 1.0;
+    }
+
+    /** Static pcs of the branches that resolved at least once, in program order. */
+    public int[] getBranchPcs() {
+        int n = 0;
+        for (long r : resolved) if (r > 0) n++;
+        int[] pcs = new int[n];
+        n = 0;
+        for (int pc = 0; pc < resolved.length; pc++) if (resolved[pc] > 0) pcs[n++] = pc;
+        return pcs;
+    }
+
+    public long getResolved(int pc) { return resolved[pc]; }
+    public long getMispredicted(int pc) { return mispredicted[pc]; }
+
+    public double getAccuracy(int pc) {
+        return resolved[pc] > 0 ? 1.0 - (double) mispredicted[pc] / resolved[pc] : 1.0;
+    }
+
+    void saveState(StateVector out) {
+        out.put(branches);
+        out.put(mispredicts);
+        out.put(penaltyCycles);
+        for (int pc = 0; pc < resolved.length; pc++) {
+            out.put(resolved[pc]);
+            out.put(mispredicted[pc]);
+        }
+    }
+
+    void restoreState(StateVector in) {
+        branches = in.next();
+        mispredicts = in.next();
+        penaltyCycles = in.next();
+        for (int pc = 0; pc < resolved.length; pc++) {
+            resolved[pc] = in.next();
+            mispredicted[pc] = in.next();
+        }
+    }
+}
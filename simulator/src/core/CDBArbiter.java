@@ -1,5 +1,316 @@
 package core;
 
+import java.util.Arrays;
+
+/**
+ * Arbitration for the common data buses.
+ *
+ * Every cycle the engine offers each producer that finished execution in an
+ * earlier cycle and has not written back yet; {@link #arbitrate()} grants up
+ * to {@code buses} of them, in priority order, according to the policy:
+ *
+ *   - MOST_DEPENDENTS: most waiting consumers first, then earliest start
+ *     (the original single-bus rule, and the default)
+ *   - OLDEST_FIRST:    lowest dynamic sequence number first
+ *   - CATEGORY:        fixed priority between station categories, oldest
+ *                      first within a category
+ *   - ROUND_ROBIN:     rotates over the producer slots, starting after the
+ *                      last slot that was granted
+ *
+ * Producers that lose stay in their station and are offered again next cycle.
+ *
+ * The arbiter also keeps the end-cycle reservations used when starting
+ * execution: with end reservation on, an instruction only starts if fewer
+ * than {@code buses} executing instructions are due to finish in the same
+ * cycle, so finished results rarely have to wait for a bus.
+ *
+ * Candidates and counters are kept in primitive arrays; nothing is allocated
+ * per cycle once the arrays have grown to the number of stations.
+ */
 public class CDBArbiter {
 
+    public enum Policy { MOST_DEPENDENTS, OLDEST_FIRST, CATEGORY, ROUND_ROBIN }
+
+    /** Config names of the policies, in enum order. */
+    public static final String[] POLICY_NAMES = {"dependents", "oldest", "category", "roundrobin"};
+
+    public static Policy policyOf(String name) {
+        for (int i = 0; i < POLICY_NAMES.length; i++) {
+            if (POLICY_NAMES[i].equals(name)) return Policy.values()[i];
+        }
+        throw new IllegalArgumentException("Unknown CDB policy: " + name);
+    }
+
+    private final int buses;
+    private final Policy policy;
+    private boolean reserveEnds = true;
+
+    // category -> priority rank (lower goes first) for Policy.CATEGORY
+    private final int[] categoryRank = new int[RSCategory.values().length];
+
+    // this cycle's candidates
+    private int count;
+    private int[] slot = new int[16];
+    private long[] seq = new long[16];
+    private int[] start = new int[16];
+    private int[] dependents = new int[16];
+    private int[] category = new int[16];
+    private boolean[] granted = new boolean[16];
+    private final int[] winners;
+    private int winnerCount;
+
+    // end-cycle reservations for startReadyExecutions: (cycle, count) pairs
+    private int reservations;
+    private int[] reservedCycle = new int[16];
+    private int[] reservedCount = new int[16];
+
+    // round-robin position (slot granted last)
+    private int lastSlot;
+
+    // contention counters
+    private long cycles;
+    private long requestCycles;   // cycles with at least one producer waiting
+    private long contendedCycles; // cycles with more producers than buses
+    private long requests;        // producer-cycles offered
+    private long grants;
+    private int maxRequests;
+    private final long[] busyHistogram; // [k] = cycles with exactly k buses used
+    private int lastRequests;
+    private int lastGrants;
+
+    public CDBArbiter(int buses, Policy policy) {
+        if (buses < 1) throw new IllegalArgumentException("Need at least one CDB: " + buses);
+        if (policy == null) throw new IllegalArgumentException("policy must not be null");
+        this.buses = buses;
+        this.policy = policy;
+        this.winners = new int[buses];
+        this.busyHistogram = new long[buses + 1];
+        setCategoryOrder(RSCategory.INT_ALU, RSCategory.LOAD, RSCategory.FP_MUL, RSCategory.FP_ADD, RSCategory.STORE);
+    }
+
+    public int getBuses() {
+        return buses;
+    }
+
+    public Policy getPolicy() {
+        return policy;
+    }
+
+    /** Priority order for Policy.CATEGORY; unlisted categories go last. */
+    public void setCategoryOrder(RSCategory... order) {
+        Arrays.fill(categoryRank, order.length);
+        for (int i = 0; i < order.length; i++) categoryRank[order[i].ordinal()] = i;
+    }
+
+    /** Hold back execution starts that would finish in an already full cycle (default on). */
+    public void setReserveEnds(boolean reserveEnds) {
+        this.reserveEnds = reserveEnds;
+    }
+
+    public boolean isReserveEnds() {
+        return reserveEnds;
+    }
+
+    // ---------- end-cycle reservations ----------
+
+    /** Start collecting this cycle's reservations. */
+    public void clearReservations() {
+        reservations = 0;
+    }
+
+    /** An executing instruction that will finish in endCycle (always recorded). */
+    public void holdEnd(int endCycle) {
+        int i = reservationIndex(endCycle);
+        reservedCount[i]++;
+    }
+
+    /**
+     * Reserve a bus for an instruction that would finish in endCycle.
+     * @return false if that cycle already has a finishing instruction per bus
+     */
+    public boolean tryReserveEnd(int endCycle) {
+        if (!reserveEnds) return true;
+        int i = reservationIndex(endCycle);
+        if (reservedCount[i] >= buses) return false;
+        reservedCount[i]++;
+        return true;
+    }
+
+    private int reservationIndex(int endCycle) {
+        for (int i = 0; i < reservations; i++) {
+            if (reservedCycle[i] == endCycle) return i;
+        }
+        if (reservations == reservedCycle.length) {
+            reservedCycle = Arrays.copyOf(reservedCycle, reservations * 2);
+            reservedCount = Arrays.copyOf(reservedCount, reservations * 2);
+        }
+        reservedCycle[reservations] = endCycle;
+        reservedCount[reservations] = 0;
+        return reservations++;
+    }
+
+    // ---------- arbitration ----------
+
+    /** Start collecting this cycle's candidates. */
+    public void beginCycle() {
+        count = 0;
+        winnerCount = 0;
+    }
+
+    /**
+     * Offer a finished producer. Candidates are numbered in offer order,
+     * which is also the final tie-breaker.
+     * @param producerSlot stable station tag (used by round-robin)
+     * @return the candidate index
+     */
+    public int offer(int producerSlot, long seqNo, int startCycle, int waiting, RSCategory cat) {
+        if (count == slot.length) grow();
+        slot[count] = producerSlot;
+        seq[count] = seqNo;
+        start[count] = startCycle;
+        dependents[count] = waiting;
+        category[count] = cat.ordinal();
+        granted[count] = false;
+        return count++;
+    }
+
+    private void grow() {
+        int n = slot.length * 2;
+        slot = Arrays.copyOf(slot, n);
+        seq = Arrays.copyOf(seq, n);
+        start = Arrays.copyOf(start, n);
+        dependents = Arrays.copyOf(dependents, n);
+        category = Arrays.copyOf(category, n);
+        granted = Arrays.copyOf(granted, n);
+    }
+
+    /**
+     * Grant up to {@code buses} candidates and update the contention
+     * counters. Call once per cycle, even when nothing was offered.
+     * @return number of winners; read them with {@link #winner(int)}
+     */
+    public int arbitrate() {
+        winnerCount = 0;
+        while (winnerCount < buses && winnerCount < count) {
+            int best = -1;
+            for (int i = 0; i < count; i++) {
+                if (granted[i]) continue;
+                if (best == -1 || before(i, best)) best = i;
+            }
+            granted[best] = true;
+            winners[winnerCount++] = best;
+        }
+        if (policy == Policy.ROUND_ROBIN && winnerCount > 0) {
+            lastSlot = slot[winners[winnerCount - 1]];
+        }
+
+        cycles++;
+        requests += count;
+        grants += winnerCount;
+        if (count > 0) requestCycles++;
+        if (count > buses) contendedCycles++;
+        if (count > maxRequests) maxRequests = count;
+        busyHistogram[winnerCount]++;
+        lastRequests = count;
+        lastGrants = winnerCount;
+        return winnerCount;
+    }
+
+    /** Candidate index of the i-th winner (highest priority first). */
+    public int winner(int i) {
+        return winners[i];
+    }
+
+    /** True if candidate a goes before candidate b; ties keep offer order. */
+    private boolean before(int a, int b) {
+        switch (policy) {
+            case MOST_DEPENDENTS:
+                if (dependents[a] != dependents[b]) return dependents[a] > dependents[b];
+                return start[a] < start[b];
+            case OLDEST_FIRST:
+                return seq[a] < seq[b];
+            case CATEGORY: {
+                int ra = categoryRank[category[a]];
+                int rb = categoryRank[category[b]];
+                if (ra != rb) return ra < rb;
+                return seq[a] < seq[b];
+            }
+            case ROUND_ROBIN:
+                return rotated(slot[a]) < rotated(slot[b]);
+            default:
+                return false;
+        }
+    }
+
+    /** Distance after the last granted slot (slots at or before it wrap around). */
+    private long rotated(int s) {
+        return s > lastSlot ? s : (long) s + Integer.MAX_VALUE;
+    }
+
+    // ---------- statistics ----------
+
+    public void resetStats() {
+        lastSlot = 0;
+        cycles = 0;
+        requestCycles = 0;
+        contendedCycles = 0;
+        requests = 0;
+        grants = 0;
+        maxRequests = 0;
+        Arrays.fill(busyHistogram, 0);
+        lastRequests = 0;
+        lastGrants = 0;
+    }
+
+    public long getCycles() { return cycles; }
+    public long getRequestCycles() { return requestCycles; }
+    public long getContendedCycles() { return contendedCycles; }
+    public long getRequests() { return requests; }
+    public long getGrants() { return grants; }
+    public int getMaxRequests() { return maxRequests; }
+
+    /** Producer-cycles spent waiting for a bus after finishing execution. */
+    public long getDeferred() {
+        return requests - grants;
+    }
+
+    /** Cycles in which exactly k buses carried a result. */
+    public long getBusyCycles(int k) {
+        return busyHistogram[k];
+    }
+
+    /** Producers offered / granted in the last arbitrated cycle. */
+    public int getLastRequests() { return lastRequests; }
+    public int getLastGrants() { return lastGrants; }
+
+    /** Fraction of bus slots used. */
+    public double getUtilisation() {
+        return cycles > 0 ? (double) grants / (cycles * buses) : 0.0;
+    }
+
+    void saveState(StateVector out) {
+        out.put(lastSlot);
+        out.put(cycles);
+        out.put(requestCycles);
+        out.put(contendedCycles);
+        out.put(requests);
+        out.put(grants);
+        out.put(maxRequests);
+        out.put(lastRequests);
+        out.put(lastGrants);
+        for (long c : busyHistogram) out.put(c);
+    }
+
+    void restoreState(StateVector in) {
+        lastSlot = in.nextInt();
+        cycles = in.next();
+        requestCycles = in.next();
+        contendedCycles = in.next();
+        requests = in.next();
+        grants = in.next();
+        maxRequests = in.nextInt();
+        lastRequests = in.nextInt();
+        lastGrants = in.nextInt();
+        for (int i = 0; i < busyHistogram.length; i++) busyHistogram[i] = in.next();
+    }
 }
@@ -1,7 +1,10 @@
 package core;
 
+import java.util.Arrays;
+
 /**
- * Set-Associative Cache with Write-Through and No-Write-Allocate Policy.
+ * Set-Associative Cache with a configurable write policy (default:
+ * Write-Through and No-Write-Allocate).
  * 
  * ============================================================================
  * USER-CONFIGURABLE PARAMETERS:
@@ -27,6 +30,26 @@ package core;
  * WHERE:
  *   - numSets = cacheSize / (blockSize * associativity)
  * 
+ * When blockSize and numSets are powers of two (the usual case) the
+ * division and modulo are done as shifts and a mask.
+ * 
+ * SET INDEXING (setSetIndexing) can replace the modulo, which makes arrays
+ * whose distance is a multiple of numSets * blockSize share sets:
+ *   - XOR:    the low index bits XOR the higher block number bits folded
+ *             down to the same width
+ *   - PRIME:  blockNumber % (largest prime <= numSets); the sets above it
+ *             stay unused
+ *   - SKEWED: skewed-associative (Seznec); every way has its own XOR
+ *             function (the folded bits rotated by the way number), and the
+ *             least recently used of the candidate lines is replaced instead
+ *             of asking the replacement policy
+ * These store the whole block number as the tag.
+ * 
+ * The lines are stored as parallel arrays indexed by
+ * setIndex * associativity + way: tags and last-use stamps in long[], valid
+ * and dirty flags in bitsets. getSets() builds CacheLine objects from them
+ * for display.
+ * 
  * EXAMPLE: Cache = 64 bytes, Block = 8 bytes, Associativity = 2-way
  *   - numSets = 64 / (8 * 2) = 4 sets
  *   - Each set has 2 ways (columns)
@@ -49,30 +72,42 @@ package core;
  *    - HIT: If any way has valid=true AND tag matches
  *    - MISS: If no valid matching tag found in any way
  * 
- * 3. ON CACHE MISS - LRU REPLACEMENT:
+ * 3. ON CACHE MISS - REPLACEMENT (setReplacementPolicy):
  *    - Select victim way in the set:
  *      a) First invalid line (if any exists)
- *      b) Otherwise, line with smallest lruCounter (least recently used)
+ *      b) Otherwise, the victim of the replacement policy: LRU (the
+ *         default), tree PLRU, FIFO, seeded random, SRRIP or BRRIP
  *    - Install new block metadata (valid=true, tag, lruCounter)
  * 
- * 4. LRU TRACKING:
- *    - Each cache line has lruCounter timestamp
- *    - Updated on every access (hit or miss)
- *    - Smaller lruCounter = older, more likely to be replaced
+ * 4. REPLACEMENT TRACKING:
+ *    - The policy keeps its own per-set metadata in primitive arrays and is
+ *      told about every hit, fill and invalidation (see ReplacementPolicy)
+ *    - Each cache line also keeps lruCounter, the access count of its last
+ *      use (shown by the GUI; a long, so it never wraps)
  * 
  * ============================================================================
- * WRITE POLICY - WRITE-THROUGH + NO-WRITE-ALLOCATE:
+ * WRITE POLICY (setWritePolicy):
  * ============================================================================
  * 
- * WRITE-THROUGH:
- *   - All stores immediately update BOTH cache (if hit) AND main memory
- *   - Ensures cache and memory are always coherent
- *   - No dirty bits needed
- * 
- * NO-WRITE-ALLOCATE:
- *   - On STORE MISS: Write only to memory, do NOT fetch block into cache
+ * WRITE_THROUGH (write-through + no-write-allocate, the default):
+ *   - All stores immediately update BOTH cache (if hit) AND the level below
+ *   - On STORE MISS: Write only below, do NOT fetch block into cache
  *   - Prevents cache pollution from write-only patterns
- *   - Block will only enter cache on subsequent read (load miss)
+ * 
+ * WRITE_THROUGH_ALLOCATE (write-through + write-allocate):
+ *   - Stores still go to the level below, but a store miss fetches the
+ *     block like a load miss first
+ * 
+ * WRITE_BACK (write-back + write-allocate):
+ *   - Stores only mark the line dirty; a store miss fetches the block
+ *   - A dirty line is written to the level below when it is evicted, and a
+ *     miss whose victim is dirty costs the write-back latency on top (the
+ *     next level's hit latency, or missPenalty when backed by memory)
+ * 
+ * The cache only models metadata: memory always holds the current data, so
+ * the policy changes timing and traffic, never the values loaded. Per level
+ * the cache counts store bytes arriving, bytes written to the level below
+ * and dirty write-backs; the difference is the write traffic it saved.
  * 
  * ============================================================================
  * CACHE MISSES - DATA ONLY, NOT INSTRUCTIONS:
@@ -107,25 +142,176 @@ package core;
  *    - Latency is determined at execution start via probeLatency()
  * 
  * ============================================================================
+ * MULTI-LEVEL HIERARCHY:
+ * ============================================================================
+ * 
+ * A cache can back onto another Cache instead of memory (setNextLevel), so
+ * L1 -> L2 -> L3 -> memory chains are built from the same class. Each level
+ * has its own size, block size, associativity, hit latency and counters.
+ * 
+ * LATENCY accumulates down the chain. A miss in one level costs an access
+ * to the next: its hit latency, plus (if it misses too) the level below it,
+ * and so on. Only the last level pays missPenalty, the memory latency; the
+ * missPenalty of a level with a next level is unused.
+ * 
+ * INCLUSION is set on the lower level and describes what it holds relative
+ * to the levels above it:
+ *   - INCLUSIVE: every block above is also here; evicting a block here
+ *                back-invalidates it in all levels above
+ *   - EXCLUSIVE: a block lives in only one of the two levels; a hit here
+ *                moves the block up, fills from below bypass this level and
+ *                blocks evicted from the level above are inserted here
+ *                (needs the same block size as the level above)
+ *   - NINE:      non-inclusive non-exclusive; fills go into both levels and
+ *                evictions are independent (the default)
+ * 
+ * A store that a level writes through reaches the next level as a store
+ * (counted as a hit or miss there, handled by that level's write policy);
+ * a dirty eviction reaches it as a block write-back.
+ * 
+ * ============================================================================
+ * VICTIM CACHE (setVictimCache):
+ * ============================================================================
+ * 
+ * A small fully-associative VictimCache behind the sets holds the blocks
+ * they replace. A miss that finds its block there swaps it back in, costing
+ * hitLatency plus the victim cache latency, and counts as a hit of the
+ * level. Only blocks the victim cache drops leave the level (written back
+ * if dirty, back-invalidated above if inclusive).
+ * 
+ * With a victim cache or non-modulo indexing, a shadow tag store with plain
+ * modulo indexing and no victim cache sees the same demand accesses;
+ * getConflictMissesRemoved() is its miss count minus this level's.
+ * 
+ * ============================================================================
+ * PREFETCHING (setPrefetcher):
+ * ============================================================================
+ * 
+ * A Prefetcher sees every demand access from the processor (with the
+ * instruction's program index when the engine passes it) and names blocks
+ * to fetch early. Blocks already present are skipped; the others are filled
+ * from the level below like a miss, but without counting as a demand hit or
+ * miss here, and marked as prefetched. The fill is immediate: a prefetched
+ * block is present for every access after the one that triggered it.
+ * 
+ * Counters:
+ *   - issued:    prefetch fills
+ *   - useful:    prefetched blocks later hit by a demand access (first use)
+ *   - unused:    prefetched blocks evicted or invalidated before any use
+ *   - pollution: demand misses to blocks that a prefetch had evicted
+ *                (remembered in a table with one slot per line)
+ * coverage = useful / (useful + demand misses), accuracy = useful / issued.
+ * 
+ * ============================================================================
+ * PROFILING (setProfiler / enableProfiling):
+ * ============================================================================
+ * 
+ * A CacheProfiler sees the same demand accesses with their hit or miss
+ * outcome. It splits the misses into compulsory, capacity and conflict
+ * misses and keeps a reuse-distance histogram and per-pc miss counts.
+ * 
+ * ============================================================================
  */
 public class Cache {
 
+    public enum Inclusion { INCLUSIVE, EXCLUSIVE, NINE }
+
+    /** Config names of the inclusion policies, in enum order. */
+    public static final String[] INCLUSION_NAMES = {"inclusive", "exclusive", "nine"};
+
+    public static Inclusion inclusionOf(String name) {
+        for (int i = 0; i < INCLUSION_NAMES.length; i++) {
+            if (INCLUSION_NAMES[i].equals(name)) return Inclusion.values()[i];
+        }
+        throw new IllegalArgumentException("Unknown inclusion policy: " + name);
+    }
+
+    public enum WritePolicy { WRITE_BACK, WRITE_THROUGH_ALLOCATE, WRITE_THROUGH }
+
+    /** Config names of the write policies, in enum order. */
+    public static final String[] WRITE_POLICY_NAMES = {"writeback", "writethrough-allocate", "writethrough"};
+
+    public static WritePolicy writePolicyOf(String name) {
+        for (int i = 0; i < WRITE_POLICY_NAMES.length; i++) {
+            if (WRITE_POLICY_NAMES[i].equals(name)) return WritePolicy.values()[i];
+        }
+        throw new IllegalArgumentException("Unknown write policy: " + name);
+    }
+
+    public enum SetIndexing { MODULO, XOR, PRIME, SKEWED }
+
+    /** Config names of the set-index functions, in enum order. */
+    public static final String[] SET_INDEXING_NAMES = {"modulo", "xor", "prime", "skewed"};
+
+    public static SetIndexing setIndexingOf(String name) {
+        for (int i = 0; i < SET_INDEXING_NAMES.length; i++) {
+            if (SET_INDEXING_NAMES[i].equals(name)) return SetIndexing.values()[i];
+        }
+        throw new IllegalArgumentException("Unknown set indexing: " + name);
+    }
+
     private final int cacheSize;
     private final int blockSize;
     private final int associativity;
     private final int numSets;
 
-    private final CacheLine[][] sets; // [numSets][associativity]
+    // Tag store as parallel arrays, line = setIndex * associativity + way
+    private final long[] tags;
+    private final long[] lastUse;   // accessCounter at the line's last use (lruCounter)
+    private final long[] validBits; // bitset over lines
+    private final long[] dirtyBits; // bitset over lines
+
+    // Shift/mask decoding when blockSize and numSets are both powers of two
+    private final boolean pow2;
+    private final int offsetBits;
+    private final int tagShift;
+    private final long setMask;
+    private final int indexBits;    // log2(numSets) when numSets is a power of two
+
+    // set-index function (setSetIndexing); hashed functions store the whole block number as tag
+    private SetIndexing indexing = SetIndexing.MODULO;
+    private int primeSets;          // sets used by PRIME: the largest prime <= numSets
+
+    // CacheLine view for the GUI, built on the first getSets()
+    private CacheLine[][] view;
+    private boolean viewStale = true;
 
     private final int hitLatency;
     private final int missPenalty;
 
     private final Memory memory; // to access main memory
-    private long accessCounter = 0; // for LRU timestamping
+
+    // hierarchy: level below (null = memory) and level above (null = top)
+    private Cache next;
+    private Cache above;
+    private Inclusion inclusion = Inclusion.NINE;
+    private WritePolicy writePolicy = WritePolicy.WRITE_THROUGH;
+    private ReplacementPolicy replacement;
+    private long replacementSeed;
+    private long accessCounter = 0; // stamps lruCounter
+    private VictimCache victimCache; // null = none
+    private Cache baseline;          // modulo-indexed shadow without victim cache, see updateBaseline
+
+    // prefetching: null = no prefetcher
+    private Prefetcher prefetcher;
+    private long[] candidates;      // prefetcher output buffer
+    private long[] prefetchedBits;  // bitset over lines: prefetched, not used yet
+    private long[] evictedByPrefetch; // block numbers, slot = block mod lines; NO_BLOCK = empty
+    private static final long NO_BLOCK = Long.MIN_VALUE;
+
+    private CacheProfiler profiler; // null = not profiling
+    private AddressTrace trace;     // null = not recording
 
     // stats
     private long hits = 0;
     private long misses = 0;
+    private long writebacks = 0;        // dirty blocks written to the level below
+    private long storeBytes = 0;        // bytes of stores reaching this level
+    private long bytesWrittenBelow = 0; // write-throughs + write-backs sent down
+    private long prefetchesIssued = 0;
+    private long prefetchHits = 0;      // first demand use of a prefetched block
+    private long prefetchesUnused = 0;  // prefetched blocks dropped before any use
+    private long pollutionMisses = 0;   // demand misses to blocks a prefetch evicted
 
     /**
      * Constructs a cache with user-configurable parameters from the GUI.
@@ -154,12 +340,19 @@ public class Cache {
 
         // Compute number of sets based on user configuration
         this.numSets = cacheSize / (blockSize * associativity);
-        this.sets = new CacheLine[numSets][associativity];
-        for (int s = 0; s < numSets; s++) {
-            for (int w = 0; w < associativity; w++) {
-                sets[s][w] = new CacheLine(blockSize);
-            }
-        }
+        int lines = numSets * associativity;
+        this.tags = new long[lines];
+        this.lastUse = new long[lines];
+        this.validBits = new long[(lines + 63) >>> 6];
+        this.dirtyBits = new long[(lines + 63) >>> 6];
+
+        this.pow2 = Integer.bitCount(blockSize) == 1 && Integer.bitCount(numSets) == 1;
+        this.offsetBits = Integer.numberOfTrailingZeros(blockSize);
+        this.tagShift = offsetBits + Integer.numberOfTrailingZeros(numSets);
+        this.setMask = numSets - 1;
+        this.indexBits = Integer.numberOfTrailingZeros(numSets);
+
+        this.replacement = ReplacementPolicy.create("lru", numSets, associativity, 0);
     }
 
     // ---------- Load (word or double) ----------
@@ -169,58 +362,46 @@ public class Cache {
      * Used by DATA LOADS only (not instruction fetches).
      * 
      * Returns: CacheAccessResult containing value and actual latency
-     *   - On HIT: latency = hitLatency
+     *   - On HIT: latency = hitLatency (+ the victim cache latency for a hit there)
      *   - On MISS: latency = hitLatency + missPenalty
      */
     public CacheAccessResult load(long address, boolean isDouble) {
-        // STEP 1: Compute addressing components
-        // blockNumber identifies which memory block this address belongs to
-        long blockNumber = address / blockSize;
-        
-        // setIndex determines which set (row) to check - direct mapping
-        int setIndex = (int) (blockNumber % numSets);
-        
-        // tag is the identifier stored in cache line to distinguish blocks
-        long tag = blockNumber / numSets;
-
+        if (baseline != null) baseline.lookupOrFill(address);
         accessCounter++;
 
-        // STEP 2: Tag comparison - search all ways in the selected set
-        CacheLine[] ways = sets[setIndex];
-        for (int w = 0; w < associativity; w++) {
-            CacheLine line = ways[w];
-            if (line.valid && line.tag == tag) {
-                // CACHE HIT: Block found in cache
-                // Update LRU timestamp (most recently used)
-                line.lruCounter = (int) accessCounter;
-                hits++;
-                long value = isDouble ? memory.loadDouble(address) : memory.loadWord(address);
-                return new CacheAccessResult(value, hitLatency);
-            }
+        // STEP 1 + 2: Select the set (row) of the address and compare the tag
+        // in every way; a block found in the victim cache is swapped back in
+        int line = findLine(address);
+        int extra = 0;
+        if (line < 0 && (line = swapIn(address)) >= 0) extra = victimCache.getLatency();
+        if (line >= 0) {
+            // CACHE HIT: Block found in cache
+            // Tell the replacement policy (and stamp lruCounter)
+            touch(line);
+            hits++;
+            if (profiler != null) profiler.record(-1, blockOf(address), false);
+            if (prefetcher != null) afterDemand(-1, address, false, claimPrefetch(line));
+            long value = isDouble ? memory.loadDouble(address) : memory.loadWord(address);
+            return new CacheAccessResult(value, hitLatency + extra);
         }
 
         // STEP 3: CACHE MISS - Block not found in any way of the selected set
         misses++;
+        if (profiler != null) profiler.record(-1, blockOf(address), true);
+        int penalty = missCost(address, false); // before the fill changes the levels below
+        boolean dirty = fetchBelow(address);
 
-        // STEP 4: LRU Replacement - Select victim way in the set
-        // Priority: first invalid line, otherwise least recently used
-        int victim = -1;
-        int oldest = Integer.MAX_VALUE;
-        for (int w = 0; w < associativity; w++) {
-            CacheLine line = ways[w];
-            if (!line.valid) { victim = w; break; }
-            if (line.lruCounter < oldest) { oldest = line.lruCounter; victim = w; }
-        }
+        // STEP 4: Replacement - Select victim way in the set
+        // Priority: first invalid line, otherwise the replacement policy's victim
+        line = victimLine(address);
 
-        CacheLine chosen = ways[victim];
-
-        // STEP 5: Install new block metadata
-        chosen.valid = true;
-        chosen.tag = tag;
-        chosen.lruCounter = (int) accessCounter;
+        // STEP 5: Evict the victim and install new block metadata
+        // (dirty only if an exclusive level below handed up a dirty block)
+        fill(line, tagOf(address), dirty);
+        if (prefetcher != null) afterDemand(-1, address, true, false);
 
         long value = isDouble ? memory.loadDouble(address) : memory.loadWord(address);
-        int latency = hitLatency + missPenalty;
+        int latency = hitLatency + penalty;
         return new CacheAccessResult(value, latency);
     }
 
@@ -229,24 +410,21 @@ public class Cache {
      * If isWrite==true, this is for a store; otherwise a load.
      */
     public int probeLatency(long address, boolean isDouble, boolean isWrite) {
-        long blockNumber = address / blockSize;
-        int setIndex = (int) (blockNumber % numSets);
-        long tag = blockNumber / numSets;
-
-        CacheLine[] ways = sets[setIndex];
-        for (int w = 0; w < associativity; w++) {
-            CacheLine line = ways[w];
-            if (line.valid && line.tag == tag) {
-                return hitLatency;
-            }
+        if (findLine(address) >= 0) {
+            return hitLatency;
+        }
+        if (victimEntry(address) >= 0) {
+            return hitLatency + victimCache.getLatency();
         }
-        return hitLatency + missPenalty;
+        return hitLatency + missCost(address, isWrite);
     }
 
     /**
      * Probe for cache access penalty (used by Tomasulo to add to base latency).
-     * On HIT: returns hitLatency
-     * On MISS: returns missPenalty (NOT hitLatency + missPenalty)
+     * On HIT: returns hitLatency (plus the victim cache latency for a hit there)
+     * On MISS: returns missPenalty (NOT hitLatency + missPenalty), or with a
+     * next level the latency of looking the block up further down the chain;
+     * plus the write-back latency if the miss allocates over a dirty victim
      * 
      * A cache access is EITHER a hit OR a miss, never both.
      * 
@@ -256,20 +434,16 @@ public class Cache {
      * @return hitLatency if hit, missPenalty if miss
      */
     public int probeMissPenalty(long address, boolean isDouble, boolean isWrite) {
-        long blockNumber = address / blockSize;
-        int setIndex = (int) (blockNumber % numSets);
-        long tag = blockNumber / numSets;
-
-        CacheLine[] ways = sets[setIndex];
-        for (int w = 0; w < associativity; w++) {
-            CacheLine line = ways[w];
-            if (line.valid && line.tag == tag) {
-                // CACHE HIT: return hit latency only
-                return hitLatency;
-            }
+        if (findLine(address) >= 0) {
+            // CACHE HIT: return hit latency only
+            return hitLatency;
+        }
+        if (victimEntry(address) >= 0) {
+            // swapped in from the victim cache
+            return hitLatency + victimCache.getLatency();
         }
         // CACHE MISS: return miss penalty only (not hit + miss)
-        return missPenalty;
+        return missCost(address, isWrite);
     }
 
     /**
@@ -278,128 +452,820 @@ public class Cache {
      * This method does NOT account for latency (caller must have modeled it).
      */
     public long loadNoLatency(long address, boolean isDouble) {
-        long blockNumber = address / blockSize;
-        int setIndex = (int) (blockNumber % numSets);
-        long tag = blockNumber / numSets;
+        return loadNoLatency(address, isDouble, -1);
+    }
 
+    /** loadNoLatency for the instruction at program index pc (seen by the prefetcher and profiler). */
+    public long loadNoLatency(long address, boolean isDouble, int pc) {
+        if (trace != null) trace.record(address, false);
+        if (baseline != null) baseline.lookupOrFill(address);
         accessCounter++;
 
-        CacheLine[] ways = sets[setIndex];
-        for (int w = 0; w < associativity; w++) {
-            CacheLine line = ways[w];
-            if (line.valid && line.tag == tag) {
-                // hit: update LRU and read from memory (data kept coherent via write-through)
-                line.lruCounter = (int) accessCounter;
-                hits++;
-                return isDouble ? memory.loadDouble(address) : memory.loadWord(address);
-            }
+        int line = findLine(address);
+        if (line < 0) line = swapIn(address);
+        if (line >= 0) {
+            // hit: update replacement state and read from memory (memory always holds the data)
+            touch(line);
+            hits++;
+            if (profiler != null) profiler.record(pc, blockOf(address), false);
+            if (prefetcher != null) afterDemand(pc, address, false, claimPrefetch(line));
+            return isDouble ? memory.loadDouble(address) : memory.loadWord(address);
         }
 
         // miss: fetch block into victim
         misses++;
-        int victim = -1;
-        int oldest = Integer.MAX_VALUE;
-        for (int w = 0; w < associativity; w++) {
-            CacheLine line = ways[w];
-            if (!line.valid) { victim = w; break; }
-            if (line.lruCounter < oldest) { oldest = line.lruCounter; victim = w; }
-        }
-        CacheLine chosen = ways[victim];
-        // miss: install metadata and read from memory
-        chosen.valid = true;
-        chosen.tag = tag;
-        chosen.lruCounter = (int) accessCounter;
+        if (profiler != null) profiler.record(pc, blockOf(address), true);
+        boolean dirty = fetchBelow(address);
+        // miss: install metadata over the victim and read from memory
+        fill(victimLine(address), tagOf(address), dirty);
+        if (prefetcher != null) afterDemand(pc, address, true, false);
         return isDouble ? memory.loadDouble(address) : memory.loadWord(address);
     }
 
     /**
-     * Perform a store (write-through + no-write-allocate) and update cache state.
+     * Perform a store and update cache state according to the write policy.
      * This method performs the write immediately (no latency accounting here).
      */
     public void storeNoLatency(long address, long value, boolean isDouble) {
-        long blockNumber = address / blockSize;
-        int setIndex = (int) (blockNumber % numSets);
-        long tag = blockNumber / numSets;
-
-        accessCounter++;
-
-        CacheLine[] ways = sets[setIndex];
-        for (int w = 0; w < associativity; w++) {
-            CacheLine line = ways[w];
-            if (line.valid && line.tag == tag) {
-                // hit: update metadata LRU and write through to memory
-                line.lruCounter = (int) accessCounter;
-                if (isDouble) memory.storeDouble(address, value);
-                else memory.storeWord(address, value);
-                hits++;
-                return;
-            }
-        }
+        storeNoLatency(address, value, isDouble, -1);
+    }
 
-        // miss: no-write-allocate -> write only to memory
+    /** storeNoLatency for the instruction at program index pc (seen by the prefetcher and profiler). */
+    public void storeNoLatency(long address, long value, boolean isDouble, int pc) {
+        if (trace != null) trace.record(address, true);
+        // memory always holds the data; the policy only decides what the cache tracks
         if (isDouble) memory.storeDouble(address, value);
         else memory.storeWord(address, value);
-        misses++;
+        if (prefetcher == null && profiler == null) {
+            storeAccess(address, isDouble ? 8 : 4);
+            return;
+        }
+        int line = findLine(address);
+        boolean miss = line < 0 && victimEntry(address) < 0;
+        boolean prefetchHit = prefetcher != null && line >= 0 && claimPrefetch(line);
+        if (profiler != null) profiler.record(pc, blockOf(address), miss);
+        storeAccess(address, isDouble ? 8 : 4);
+        if (prefetcher != null) afterDemand(pc, address, miss, prefetchHit);
     }
 
-    // ---------- Store (write-through + no-write-allocate) ----------
+    // ---------- Store ----------
 
     /**
      * Perform a store operation with cache hit/miss simulation.
      * Used by DATA STORES only.
      * 
-     * WRITE-THROUGH POLICY:
-     *   - On HIT: Update cache metadata AND write to memory
-     *   - On MISS: Write only to memory (no-write-allocate)
-     * 
-     * NO-WRITE-ALLOCATE POLICY:
-     *   - Store misses do NOT fetch the block into cache
-     *   - Prevents cache pollution from write-only data
+     * WRITE-THROUGH (default, no-write-allocate):
+     *   - On HIT: Update cache metadata AND write to the level below
+     *   - On MISS: Write only below (the block is NOT fetched)
+     * WRITE-THROUGH + ALLOCATE: a miss fetches the block, then writes through
+     * WRITE-BACK: a hit only marks the line dirty; a miss fetches the block
+     *   (writing back a dirty victim) and marks it dirty
      * 
      * Returns: CacheAccessResult with latency (value unused for stores)
      *   - On HIT: latency = hitLatency
-     *   - On MISS: latency = hitLatency + missPenalty
+     *   - On MISS: latency = hitLatency + missPenalty (+ write-back of a dirty victim)
      */
     public CacheAccessResult store(long address, long value, boolean isDouble) {
-        // Compute addressing components (same as loads)
-        long blockNumber = address / blockSize;
-        int setIndex = (int) (blockNumber % numSets);
-        long tag = blockNumber / numSets;
+        int latency = probeLatency(address, isDouble, true);
+        storeNoLatency(address, value, isDouble);
+        return new CacheAccessResult(0L, latency);
+    }
 
-        accessCounter++;
+    /** True if the block of address is in this level, victim cache included (no state change). */
+    public boolean contains(long address) {
+        return findLine(address) >= 0 || victimEntry(address) >= 0;
+    }
+
+    // ---------- Hierarchy ----------
+
+    /**
+     * Back this cache onto another level instead of memory. Link the levels
+     * before creating the engine (the whole chain is part of its history).
+     */
+    public void setNextLevel(Cache next) {
+        if (next == this) throw new IllegalArgumentException("A cache cannot back onto itself");
+        if (next != null && next.above != null && next.above != this) {
+            throw new IllegalArgumentException("Cache level already has a level above it");
+        }
+        if (next != null && next.inclusion == Inclusion.EXCLUSIVE && next.blockSize != blockSize) {
+            throw new IllegalArgumentException("Exclusive level needs the block size of the level above");
+        }
+        if (this.next != null) this.next.above = null;
+        this.next = next;
+        if (next != null) next.above = this;
+    }
+
+    public Cache getNextLevel() {
+        return next;
+    }
+
+    /** How this level relates to the level above it (default NINE). */
+    public void setInclusion(Inclusion inclusion) {
+        if (inclusion == null) throw new IllegalArgumentException("inclusion must not be null");
+        if (inclusion == Inclusion.EXCLUSIVE && above != null && above.blockSize != blockSize) {
+            throw new IllegalArgumentException("Exclusive level needs the block size of the level above");
+        }
+        this.inclusion = inclusion;
+    }
+
+    public Inclusion getInclusion() {
+        return inclusion;
+    }
+
+    /** Write policy of this level (default WRITE_THROUGH, i.e. no write-allocate). */
+    public void setWritePolicy(WritePolicy writePolicy) {
+        if (writePolicy == null) throw new IllegalArgumentException("writePolicy must not be null");
+        this.writePolicy = writePolicy;
+        if (baseline != null) updateBaseline();
+    }
+
+    public WritePolicy getWritePolicy() {
+        return writePolicy;
+    }
+
+    /**
+     * Replacement policy of this level by name (see ReplacementPolicy.NAMES;
+     * default "lru"). Set it before creating the engine: the policy's
+     * metadata is part of the history. The seed drives "random" and "brrip".
+     */
+    public void setReplacementPolicy(String name, long seed) {
+        this.replacement = ReplacementPolicy.create(name, numSets, associativity, seed);
+        this.replacementSeed = seed;
+        if (baseline != null) updateBaseline();
+    }
+
+    public ReplacementPolicy getReplacementPolicy() {
+        return replacement;
+    }
+
+    /**
+     * Prefetcher watching this level's demand accesses (null = none, the
+     * default). Set it before creating the engine: its tables and the
+     * prefetch bookkeeping are part of the history.
+     */
+    public void setPrefetcher(Prefetcher prefetcher) {
+        this.prefetcher = prefetcher;
+        if (prefetcher == null) {
+            candidates = null;
+            prefetchedBits = null;
+            evictedByPrefetch = null;
+            return;
+        }
+        candidates = new long[prefetcher.getDegree()];
+        prefetchedBits = new long[validBits.length];
+        evictedByPrefetch = new long[tags.length];
+        Arrays.fill(evictedByPrefetch, NO_BLOCK);
+    }
+
+    public Prefetcher getPrefetcher() {
+        return prefetcher;
+    }
+
+    /**
+     * Profile this level's demand accesses (null = no profiling, the
+     * default). The profile is kept outside the history, see CacheProfiler.
+     */
+    public void setProfiler(CacheProfiler profiler) {
+        this.profiler = profiler;
+    }
+
+    /** Profile with a shadow fully-associative cache of this level's size. */
+    public void enableProfiling() {
+        setProfiler(new CacheProfiler(numSets * associativity));
+    }
+
+    public CacheProfiler getProfiler() {
+        return profiler;
+    }
+
+    /**
+     * Record the addresses of loadNoLatency / storeNoLatency into trace
+     * (null = stop recording), for CacheSweep. Like the profile, the trace
+     * is kept outside the history.
+     */
+    public void setTrace(AddressTrace trace) {
+        this.trace = trace;
+    }
+
+    public AddressTrace getTrace() {
+        return trace;
+    }
+
+    /**
+     * Set-index function of this level (default MODULO). XOR and SKEWED need
+     * a power-of-two number of sets. Set it before the first access (the
+     * lines already stored would be looked up in the wrong sets) and before
+     * creating the engine.
+     */
+    public void setSetIndexing(SetIndexing indexing) {
+        if (indexing == null) throw new IllegalArgumentException("indexing must not be null");
+        if ((indexing == SetIndexing.XOR || indexing == SetIndexing.SKEWED) && Integer.bitCount(numSets) != 1) {
+            throw new IllegalArgumentException("XOR and skewed indexing need a power-of-two number of sets: " + numSets);
+        }
+        this.indexing = indexing;
+        primeSets = numSets;
+        while (indexing == SetIndexing.PRIME && primeSets > 2 && !isPrime(primeSets)) primeSets--;
+        updateBaseline();
+    }
+
+    public SetIndexing getSetIndexing() {
+        return indexing;
+    }
+
+    private static boolean isPrime(int n) {
+        for (int d = 2; (long) d * d <= n; d++) {
+            if (n % d == 0) return false;
+        }
+        return n >= 2;
+    }
+
+    /**
+     * Attach a fully-associative victim cache of the given number of blocks
+     * (0 = none, the default); a hit there costs latency cycles over a hit
+     * here. Set it before creating the engine: it is part of the history.
+     */
+    public void setVictimCache(int entries, int latency) {
+        victimCache = entries == 0 ? null : new VictimCache(entries, latency);
+        updateBaseline();
+    }
+
+    public VictimCache getVictimCache() {
+        return victimCache;
+    }
+
+    /** 1 for the top level, 2 for the level below it, ... */
+    public int getLevel() {
+        int level = 1;
+        for (Cache c = above; c != null; c = c.above) level++;
+        return level;
+    }
+
+    public int getCacheSize() { return cacheSize; }
+    public int getBlockSize() { return blockSize; }
+    public int getAssociativity() { return associativity; }
+    public int getHitLatency() { return hitLatency; }
+    public int getMissPenalty() { return missPenalty; }
 
-        // Check for hit in selected set
-        CacheLine[] ways = sets[setIndex];
+    /** Block number of the valid line. */
+    private long blockNumberOf(int line) {
+        if (indexing != SetIndexing.MODULO) return tags[line]; // hashed indexing keeps the whole block number
+        return tags[line] * numSets + line / associativity;
+    }
+
+    private long blockOf(long address) {
+        return Math.floorDiv(address, (long) blockSize);
+    }
+
+    private int setOf(long address) {
+        if (indexing != SetIndexing.MODULO) return hashedSet(blockOf(address), 0);
+        if (pow2) return (int) ((address >> offsetBits) & setMask);
+        return (int) Math.floorMod(Math.floorDiv(address, (long) blockSize), (long) numSets);
+    }
+
+    private long tagOf(long address) {
+        if (indexing != SetIndexing.MODULO) return blockOf(address);
+        if (pow2) return address >> tagShift; // arithmetic shift = floorDiv
+        return Math.floorDiv(Math.floorDiv(address, (long) blockSize), (long) numSets);
+    }
+
+    /** Set of block in way under XOR, prime-modulo or skewed indexing. */
+    private int hashedSet(long block, int way) {
+        if (indexing == SetIndexing.PRIME) return (int) Math.floorMod(block, (long) primeSets);
+        if (indexBits == 0) return 0;
+        // the block number bits above the index, XOR-folded down to indexBits
+        int high = 0;
+        for (long x = block >>> indexBits; x != 0; x >>>= indexBits) high ^= (int) (x & setMask);
+        // skewed: rotate the folded bits by the way, a different function per way
+        int r = indexing == SetIndexing.SKEWED ? way % indexBits : 0;
+        if (r != 0) high = ((high << r) | (high >>> (indexBits - r))) & (int) setMask;
+        return (int) (block & setMask) ^ high;
+    }
+
+    private boolean isValid(int line) {
+        return (validBits[line >>> 6] & (1L << line)) != 0;
+    }
+
+    private boolean isDirty(int line) {
+        return (dirtyBits[line >>> 6] & (1L << line)) != 0;
+    }
+
+    private boolean isPrefetched(int line) {
+        return prefetchedBits != null && (prefetchedBits[line >>> 6] & (1L << line)) != 0;
+    }
+
+    private static void setBit(long[] bits, int line, boolean on) {
+        if (on) bits[line >>> 6] |= 1L << line;
+        else bits[line >>> 6] &= ~(1L << line);
+    }
+
+    private void setDirty(int line) {
+        setBit(dirtyBits, line, true);
+        viewStale = true;
+    }
+
+    /** Line (setIndex * associativity + way) of the valid block holding address, or -1. */
+    private int findLine(long address) {
+        long tag = tagOf(address);
+        if (indexing == SetIndexing.SKEWED) {
+            for (int w = 0; w < associativity; w++) {
+                int line = hashedSet(tag, w) * associativity + w;
+                if (tags[line] == tag && isValid(line)) return line;
+            }
+            return -1;
+        }
+        int base = setOf(address) * associativity;
         for (int w = 0; w < associativity; w++) {
-            CacheLine line = ways[w];
-            if (line.valid && line.tag == tag) {
-                // STORE HIT: Update LRU and write through to memory
-                line.lruCounter = (int) accessCounter;
-                if (isDouble) memory.storeDouble(address, value);
-                else memory.storeWord(address, value);
-                hits++;
-                return new CacheAccessResult(0L, hitLatency);
+            if (tags[base + w] == tag && isValid(base + w)) return base + w;
+        }
+        return -1;
+    }
+
+    /** A hit on a valid line: stamp it and update the policy. */
+    private void touch(int line) {
+        lastUse[line] = accessCounter;
+        replacement.onHit(line / associativity, line % associativity);
+        viewStale = true;
+    }
+
+    /** Replace the line with the block tag, evicting what it held. */
+    private void fill(int line, long tag, boolean dirty) {
+        if (isValid(line)) {
+            if (isPrefetched(line)) prefetchesUnused++;
+            if (victimCache != null) toVictimCache(blockNumberOf(line), isDirty(line));
+            else evicted(blockNumberOf(line) * blockSize, isDirty(line));
+        }
+        if (prefetchedBits != null) setBit(prefetchedBits, line, false);
+        setBit(validBits, line, true);
+        setBit(dirtyBits, line, dirty);
+        tags[line] = tag;
+        lastUse[line] = accessCounter;
+        replacement.onFill(line / associativity, line % associativity);
+        viewStale = true;
+    }
+
+    private void invalidate(int line) {
+        if (isPrefetched(line)) {
+            prefetchesUnused++;
+            setBit(prefetchedBits, line, false);
+        }
+        setBit(validBits, line, false);
+        setBit(dirtyBits, line, false);
+        replacement.onInvalidate(line / associativity, line % associativity);
+        viewStale = true;
+    }
+
+    /** Cycles a miss in this level costs: memory, or an access to the next level. */
+    private int missLatencyBelow(long address) {
+        return next == null ? missPenalty : next.accessLatency(address);
+    }
+
+    /** Miss latency, plus writing back the victim if the miss allocates over a dirty line. */
+    private int missCost(long address, boolean isWrite) {
+        int cost = missLatencyBelow(address);
+        boolean allocates = !isWrite || writePolicy != WritePolicy.WRITE_THROUGH;
+        if (allocates && evictionDirty(address)) cost += writebackLatency();
+        return cost;
+    }
+
+    private int accessLatency(long address) {
+        if (findLine(address) >= 0) return hitLatency;
+        if (victimEntry(address) >= 0) return hitLatency + victimCache.getLatency();
+        int cost = hitLatency + missLatencyBelow(address);
+        if (inclusion != Inclusion.EXCLUSIVE && evictionDirty(address)) cost += writebackLatency();
+        return cost;
+    }
+
+    /** Cycles to write a dirty block to the level below. */
+    private int writebackLatency() {
+        return next == null ? missPenalty : next.hitLatency;
+    }
+
+    /**
+     * Line a fill of address's block replaces: the first invalid line of its
+     * set, otherwise the replacement policy's choice. Under skewed indexing
+     * the candidates are one line per way, and the least recently used
+     * one is replaced.
+     */
+    private int victimLine(long address) {
+        if (indexing == SetIndexing.SKEWED) {
+            long block = tagOf(address);
+            int victim = -1;
+            for (int w = 0; w < associativity; w++) {
+                int line = hashedSet(block, w) * associativity + w;
+                if (!isValid(line)) return line;
+                if (victim < 0 || lastUse[line] < lastUse[victim]) victim = line;
+            }
+            return victim;
+        }
+        int setIndex = setOf(address);
+        int base = setIndex * associativity;
+        int end = base + associativity;
+        // first clear bit of the valid bitset in [base, end), a word at a time
+        for (int i = base; i < end; i = (i | 63) + 1) {
+            long free = ~validBits[i >>> 6] >>> (i & 63);
+            if (free != 0) {
+                int line = i + Long.numberOfTrailingZeros(free);
+                if (line < end) return line;
+                break;
             }
         }
+        return base + replacement.victim(setIndex);
+    }
 
-        // STORE MISS: No-write-allocate → write ONLY to memory, do NOT fetch block
-        if (isDouble) memory.storeDouble(address, value);
-        else memory.storeWord(address, value);
+    /** True if filling address's block would write a dirty block to the level below. */
+    private boolean evictionDirty(long address) {
+        int line = victimLine(address);
+        if (victimCache == null) return isDirty(line);
+        // the replaced line moves to the victim cache, whose own victim leaves
+        if (!isValid(line)) return false;
+        int v = victimCache.victim();
+        return victimCache.isValid(v) && victimCache.isDirty(v);
+    }
+
+    /**
+     * This level missed: bring the block up from the next level (if any).
+     * @return true if an exclusive level below handed up a dirty block
+     */
+    private boolean fetchBelow(long address) {
+        return next != null && next.fetchForAbove(address);
+    }
+
+    /** The level above missed on address; look it up here and fill as the policy says. */
+    private boolean fetchForAbove(long address) {
+        if (baseline != null) baseline.lookupOrFill(address);
+        accessCounter++;
+        int line = findLine(address);
+        if (line < 0) line = swapIn(address);
+        if (line >= 0) {
+            hits++;
+            if (inclusion == Inclusion.EXCLUSIVE) { // moves up, dirty or not
+                boolean dirty = isDirty(line);
+                invalidate(line);
+                return dirty;
+            }
+            touch(line);
+            return false;
+        }
         misses++;
-        int latency = hitLatency + missPenalty;
-        return new CacheAccessResult(0L, latency);
+        boolean dirty = fetchBelow(address);
+        if (inclusion == Inclusion.EXCLUSIVE) return dirty;
+        install(address, dirty);
+        return false;
+    }
+
+    /** A block evicted from the level above (exclusive levels only). */
+    private void insertVictim(long address, boolean dirty) {
+        accessCounter++;
+        int line = findLine(address);
+        if (line >= 0) {
+            touch(line);
+            if (dirty) setDirty(line);
+            return;
+        }
+        int v = victimEntry(address);
+        if (v >= 0) {
+            dirty |= victimCache.isDirty(v);
+            victimCache.remove(v);
+        }
+        install(address, dirty);
+    }
+
+    /** Put address's block into the victim line of its set, handling the eviction. */
+    private void install(long address, boolean dirty) {
+        fill(victimLine(address), tagOf(address), dirty);
+    }
+
+    /** A valid block is about to be replaced in this level. */
+    private void evicted(long blockAddress, boolean dirty) {
+        if (inclusion == Inclusion.INCLUSIVE) {
+            // copies above go too; a dirty one makes this eviction dirty
+            for (Cache c = above; c != null; c = c.above) dirty |= c.invalidateRange(blockAddress, blockSize);
+        }
+        if (dirty) {
+            writebacks++;
+            bytesWrittenBelow += blockSize;
+        }
+        if (next != null && next.inclusion == Inclusion.EXCLUSIVE) next.insertVictim(blockAddress, dirty);
+        else if (dirty && next != null) next.writeBlock(blockAddress, blockSize);
+    }
+
+    /**
+     * Drop every block overlapping [start, start + length).
+     * @return true if one of them was dirty
+     */
+    private boolean invalidateRange(long start, int length) {
+        boolean dirty = false;
+        long first = Math.floorDiv(start, (long) blockSize) * blockSize;
+        for (long a = first; a < start + length; a += blockSize) {
+            int line = findLine(a);
+            if (line >= 0) {
+                dirty |= isDirty(line);
+                invalidate(line);
+            }
+            int v = victimEntry(a);
+            if (v >= 0) {
+                dirty |= victimCache.isDirty(v);
+                victimCache.remove(v);
+            }
+        }
+        return dirty;
+    }
+
+    /** A store of size bytes at address, handled by this level's write policy. */
+    private void storeAccess(long address, int size) {
+        if (baseline != null) baseline.storeAccess(address, size);
+        accessCounter++;
+        storeBytes += size;
+        int line = findLine(address);
+        if (line < 0) line = swapIn(address);
+        if (line >= 0) {
+            touch(line);
+            hits++;
+            if (writePolicy == WritePolicy.WRITE_BACK) setDirty(line);
+            else writeThrough(address, size);
+            return;
+        }
+        misses++;
+        // a store from above must not allocate in an exclusive level
+        boolean allocate = writePolicy != WritePolicy.WRITE_THROUGH
+                && !(inclusion == Inclusion.EXCLUSIVE && above != null);
+        if (allocate) {
+            boolean dirty = fetchBelow(address); // may back-invalidate lines here
+            line = victimLine(address);
+            fill(line, tagOf(address), dirty);
+            if (writePolicy == WritePolicy.WRITE_BACK) {
+                setDirty(line);
+                return;
+            }
+        }
+        writeThrough(address, size);
+    }
+
+    private void writeThrough(long address, int size) {
+        bytesWrittenBelow += size;
+        if (next != null) next.storeAccess(address, size);
+    }
+
+    /** A dirty block [start, start + length) written back from the level above. */
+    private void writeBlock(long start, int length) {
+        long first = Math.floorDiv(start, (long) blockSize) * blockSize;
+        for (long a = first; a < start + length; a += blockSize) {
+            accessCounter++;
+            int line = findLine(a);
+            int v;
+            if (line >= 0) {
+                touch(line);
+                if (writePolicy == WritePolicy.WRITE_BACK) setDirty(line);
+            } else if ((v = victimEntry(a)) >= 0) {
+                if (writePolicy == WritePolicy.WRITE_BACK) victimCache.setDirty(v);
+            } else if (writePolicy == WritePolicy.WRITE_BACK) {
+                install(a, true); // the whole block arrives, nothing to fetch
+            }
+        }
+        if (writePolicy != WritePolicy.WRITE_BACK) {
+            bytesWrittenBelow += length;
+            if (next != null) next.writeBlock(start, length);
+        }
+    }
+
+    // ---------- Victim cache and baseline ----------
+
+    /** Victim cache entry holding address's block, or -1. */
+    private int victimEntry(long address) {
+        return victimCache == null ? -1 : victimCache.find(blockOf(address));
+    }
+
+    /**
+     * Move address's block from the victim cache back into the cache (the
+     * line it replaces takes its place there).
+     * @return the line now holding it, or -1 if the victim cache does not have it
+     */
+    private int swapIn(long address) {
+        int v = victimEntry(address);
+        if (v < 0) return -1;
+        boolean dirty = victimCache.isDirty(v);
+        victimCache.take(v);
+        int line = victimLine(address);
+        fill(line, tagOf(address), dirty);
+        return line;
+    }
+
+    /** A block replaced in the cache goes to the victim cache, whose oldest entry leaves the level. */
+    private void toVictimCache(long blockNumber, boolean dirty) {
+        int v = victimCache.victim();
+        if (victimCache.isValid(v)) evicted(victimCache.getBlock(v) * blockSize, victimCache.isDirty(v));
+        victimCache.put(v, blockNumber, dirty);
+    }
+
+    /**
+     * Keep a shadow of this level with plain modulo indexing and no victim
+     * cache while either option is in use; it sees the same demand accesses,
+     * so its misses minus ours are the misses the options removed.
+     */
+    private void updateBaseline() {
+        if (indexing == SetIndexing.MODULO && victimCache == null) {
+            baseline = null;
+            return;
+        }
+        if (baseline == null) baseline = new Cache(cacheSize, blockSize, associativity, hitLatency, missPenalty, memory);
+        baseline.writePolicy = writePolicy;
+        baseline.setReplacementPolicy(replacement.getName(), replacementSeed);
+    }
+
+    /** A load in the baseline: hit, or fill with nothing below. */
+    private void lookupOrFill(long address) {
+        accessCounter++;
+        int line = findLine(address);
+        if (line >= 0) {
+            touch(line);
+            hits++;
+            return;
+        }
+        misses++;
+        install(address, false);
+    }
+
+    // ---------- Prefetching ----------
+
+    /** First demand use of a prefetched line: count it and clear the mark. */
+    private boolean claimPrefetch(int line) {
+        if (!isPrefetched(line)) return false;
+        setBit(prefetchedBits, line, false);
+        prefetchHits++;
+        return true;
+    }
+
+    /** Show a demand access to the prefetcher and fetch what it asks for. */
+    private void afterDemand(int pc, long address, boolean miss, boolean prefetchHit) {
+        if (miss) {
+            long block = blockOf(address);
+            int slot = (int) Math.floorMod(block, (long) evictedByPrefetch.length);
+            if (evictedByPrefetch[slot] == block) {
+                pollutionMisses++;
+                evictedByPrefetch[slot] = NO_BLOCK;
+            }
+        }
+        int n = prefetcher.observe(pc, address, miss, prefetchHit, candidates);
+        for (int i = 0; i < n; i++) prefetch(candidates[i]);
+    }
+
+    /** Fill address's block as a prefetch unless it is already here. */
+    private void prefetch(long address) {
+        if (contains(address)) return;
+        accessCounter++;
+        prefetchesIssued++;
+        boolean dirty = fetchBelow(address); // may back-invalidate lines here
+        int line = victimLine(address);
+        if (isValid(line) && !isPrefetched(line)) {
+            long victimBlock = blockNumberOf(line);
+            evictedByPrefetch[(int) Math.floorMod(victimBlock, (long) evictedByPrefetch.length)] = victimBlock;
+        }
+        long block = blockOf(address);
+        int slot = (int) Math.floorMod(block, (long) evictedByPrefetch.length);
+        if (evictedByPrefetch[slot] == block) evictedByPrefetch[slot] = NO_BLOCK; // back before a demand miss
+        fill(line, tagOf(address), dirty);
+        setBit(prefetchedBits, line, true);
     }
 
     // Note: byte-level block storage removed in metadata-only cache
 
     public long getHits() { return hits; }
     public long getMisses() { return misses; }
+    public long getWritebacks() { return writebacks; }
+    public long getStoreBytes() { return storeBytes; }
+    public long getBytesWrittenBelow() { return bytesWrittenBelow; }
+
+    /** Store bytes this level kept from the level below (0 for write-through). */
+    public long getWriteTrafficSaved() {
+        return storeBytes - bytesWrittenBelow;
+    }
+
+    public long getPrefetchesIssued() { return prefetchesIssued; }
+    public long getPrefetchHits() { return prefetchHits; }
+    public long getPrefetchesUnused() { return prefetchesUnused; }
+    public long getPollutionMisses() { return pollutionMisses; }
+
+    /** Misses turned into hits by the victim cache (0 without one). */
+    public long getVictimHits() {
+        return victimCache == null ? 0 : victimCache.getHits();
+    }
+
+    /**
+     * Misses of a plain modulo-indexed level of the same geometry without a
+     * victim cache, fed the same demand accesses (equal to getMisses() when
+     * neither option is on).
+     */
+    public long getBaselineMisses() {
+        return baseline == null ? misses : baseline.misses;
+    }
+
+    /**
+     * Misses the victim cache and set indexing removed against the
+     * baseline. Both have the same capacity, so these are conflict misses.
+     * Prime-modulo indexing leaves sets unused and can come out negative.
+     */
+    public long getConflictMissesRemoved() {
+        return getBaselineMisses() - misses;
+    }
+
+    /** Share of would-be demand misses that prefetches turned into hits. */
+    public double getPrefetchCoverage() {
+        long wouldMiss = prefetchHits + misses;
+        return wouldMiss > 0 ? (double) prefetchHits / wouldMiss : 0.0;
+    }
+
+    /** Share of prefetched blocks that a demand access used. */
+    public double getPrefetchAccuracy() {
+        return prefetchesIssued > 0 ? (double) prefetchHits / prefetchesIssued : 0.0;
+    }
 
     public int getNumSets() {
         return numSets;
     }
 
+    /**
+     * The lines as CacheLine[numSets][associativity], for display. The
+     * objects are created on the first call and refreshed from the tag store
+     * when it changed since the previous call, so they reflect the state at
+     * the time of the call (later calls update the same objects).
+     */
     public CacheLine[][] getSets() {
-        return sets;
+        if (view == null) {
+            view = new CacheLine[numSets][associativity];
+            for (int s = 0; s < numSets; s++) {
+                for (int w = 0; w < associativity; w++) {
+                    view[s][w] = new CacheLine(blockSize);
+                }
+            }
+        }
+        if (viewStale) {
+            for (int s = 0; s < numSets; s++) {
+                for (int w = 0; w < associativity; w++) {
+                    int line = s * associativity + w;
+                    CacheLine l = view[s][w];
+                    l.valid = isValid(line);
+                    l.dirty = isDirty(line);
+                    l.tag = tags[line];
+                    l.lruCounter = lastUse[line];
+                }
+            }
+            viewStale = false;
+        }
+        return view;
+    }
+
+    // ---------- History ----------
+
+    void saveState(StateVector out) {
+        out.put(accessCounter);
+        out.put(hits);
+        out.put(misses);
+        out.put(writebacks);
+        out.put(storeBytes);
+        out.put(bytesWrittenBelow);
+        for (long bits : validBits) out.put(bits);
+        for (long bits : dirtyBits) out.put(bits);
+        for (long tag : tags) out.put(tag);
+        for (long t : lastUse) out.put(t);
+        replacement.saveState(out);
+        if (prefetcher != null) {
+            out.put(prefetchesIssued);
+            out.put(prefetchHits);
+            out.put(prefetchesUnused);
+            out.put(pollutionMisses);
+            for (long bits : prefetchedBits) out.put(bits);
+            for (long b : evictedByPrefetch) out.put(b);
+            prefetcher.saveState(out);
+        }
+        if (victimCache != null) victimCache.saveState(out);
+        if (baseline != null) baseline.saveState(out);
+        if (next != null) next.saveState(out);
+    }
+
+    void restoreState(StateVector in) {
+        accessCounter = in.next();
+        hits = in.next();
+        misses = in.next();
+        writebacks = in.next();
+        storeBytes = in.next();
+        bytesWrittenBelow = in.next();
+        for (int i = 0; i < validBits.length; i++) validBits[i] = in.next();
+        for (int i = 0; i < dirtyBits.length; i++) dirtyBits[i] = in.next();
+        for (int i = 0; i < tags.length; i++) tags[i] = in.next();
+        for (int i = 0; i < lastUse.length; i++) lastUse[i] = in.next();
+        viewStale = true;
+        replacement.restoreState(in);
+        if (prefetcher != null) {
+            prefetchesIssued = in.next();
+            prefetchHits = in.next();
+            prefetchesUnused = in.next();
+            pollutionMisses = in.next();
+            for (int i = 0; i < prefetchedBits.length; i++) prefetchedBits[i] = in.next();
+            for (int i = 0; i < evictedByPrefetch.length; i++) evictedByPrefetch[i] = in.next();
+            prefetcher.restoreState(in);
+        }
+        if (victimCache != null) victimCache.restoreState(in);
+        if (baseline != null) baseline.restoreState(in);
+        if (next != null) next.restoreState(in);
     }
 }
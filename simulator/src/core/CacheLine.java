@@ -1,9 +1,14 @@
 package core;
 
+/**
+ * One line of a Cache as shown by the GUI. The cache keeps its lines in
+ * arrays and fills these in when Cache.getSets() is called.
+ */
 public class CacheLine {
     boolean valid;
+    boolean dirty; // written since the fill (write-back policy)
     long tag;
-    int lruCounter;
+    long lruCounter; // access count of the last use
 
     public CacheLine(int blockSize){
         // blockSize parameter kept for compatibility but not used in metadata-only model
@@ -13,6 +18,7 @@ public class CacheLine {
     }
 
     public boolean isValid() { return valid; }
+    public boolean isDirty() { return dirty; }
     public long getTag() { return tag; }
-    public int getLruCounter() { return lruCounter; }
+    public long getLruCounter() { return lruCounter; }
 }
\ No newline at end of file
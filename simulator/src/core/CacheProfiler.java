@@ -0,0 +1,132 @@
+package core;
+
+import java.util.Arrays;
+
+/**
+ * Miss profile of a cache level, attached with Cache.setProfiler. It sees
+ * the demand accesses made through load, loadNoLatency and storeNoLatency
+ * (the processor's accesses to the top level) and records:
+ *
+ *   - the 3C class of every miss (Hill and Smith, 1989), against a shadow
+ *     fully-associative LRU cache of the same number of blocks:
+ *       compulsory: first access to the block
+ *       capacity:   the shadow misses too
+ *       conflict:   the shadow would have hit
+ *   - a histogram of reuse distances, bucketed by powers of two
+ *   - accesses and misses per program index (pc), for accesses that carry one
+ *
+ * The shadow cache is not simulated line by line: it hits exactly when the
+ * reuse distance is below its size in blocks, so ReuseDistance answers both
+ * questions with one lookup. The shadow allocates on every access, so with
+ * a no-write-allocate policy a miss after a store miss counts as conflict.
+ *
+ * All tables are primitive arrays that grow with the number of distinct
+ * blocks and pcs, so profiling long runs allocates nothing per access.
+ * Because they grow, the profile is not part of the cycle history: stepping
+ * back does not undo what it has recorded.
+ */
+public class CacheProfiler {
+
+    /** Buckets of the reuse histogram: 0 for distance 0, b for [2^(b-1), 2^b). */
+    public static final int BUCKETS = 64;
+
+    private final int capacityBlocks;
+    private final ReuseDistance distances = new ReuseDistance();
+
+    private long accesses;
+    private long compulsory;
+    private long capacity;
+    private long conflict;
+    private final long[] histogram = new long[BUCKETS];
+    private long coldAccesses; // first touches, distance -1
+
+    private long[] pcAccesses = new long[64];
+    private long[] pcMisses = new long[64];
+    private int pcLimit; // one past the highest pc seen
+
+    /** @param capacityBlocks blocks of the profiled level (its shadow cache size) */
+    public CacheProfiler(int capacityBlocks) {
+        if (capacityBlocks < 1) throw new IllegalArgumentException("Profiled cache needs at least one block: " + capacityBlocks);
+        this.capacityBlocks = capacityBlocks;
+    }
+
+    /** A demand access by pc (-1 = unknown) to block, a hit or a miss of the profiled level. */
+    public void record(int pc, long block, boolean miss) {
+        long d = distances.access(block);
+        accesses++;
+        if (d < 0) coldAccesses++;
+        else histogram[bucketOf(d)]++;
+        if (pc >= 0) {
+            if (pc >= pcAccesses.length) {
+                int n = Math.max(pc + 1, 2 * pcAccesses.length);
+                pcAccesses = Arrays.copyOf(pcAccesses, n);
+                pcMisses = Arrays.copyOf(pcMisses, n);
+            }
+            pcLimit = Math.max(pcLimit, pc + 1);
+            pcAccesses[pc]++;
+            if (miss) pcMisses[pc]++;
+        }
+        if (!miss) return;
+        if (d < 0) compulsory++;
+        else if (d >= capacityBlocks) capacity++;
+        else conflict++;
+    }
+
+    /** Histogram bucket of a reuse distance >= 0. */
+    public static int bucketOf(long distance) {
+        return 64 - Long.numberOfLeadingZeros(distance);
+    }
+
+    /** Smallest distance in bucket b; bucket b holds distances below bucketLimit(b). */
+    public static long bucketStart(int b) {
+        return b == 0 ? 0 : 1L << (b - 1);
+    }
+
+    public static long bucketLimit(int b) {
+        return 1L << b;
+    }
+
+    public int getCapacityBlocks() { return capacityBlocks; }
+    public long getAccesses() { return accesses; }
+    public long getCompulsoryMisses() { return compulsory; }
+    public long getCapacityMisses() { return capacity; }
+    public long getConflictMisses() { return conflict; }
+    public long getColdAccesses() { return coldAccesses; }
+    public int getDistinctBlocks() { return distances.getDistinct(); }
+
+    /** Accesses with a reuse distance in bucket b. */
+    public long getReuseCount(int b) {
+        return histogram[b];
+    }
+
+    /** Number of buckets up to the last non-empty one. */
+    public int getUsedBuckets() {
+        int n = BUCKETS;
+        while (n > 0 && histogram[n - 1] == 0) n--;
+        return n;
+    }
+
+    /** One past the highest pc recorded. */
+    public int getPcLimit() { return pcLimit; }
+
+    public long getAccesses(int pc) {
+        return pc < pcLimit ? pcAccesses[pc] : 0;
+    }
+
+    public long getMisses(int pc) {
+        return pc < pcLimit ? pcMisses[pc] : 0;
+    }
+
+    public void reset() {
+        distances.reset();
+        accesses = 0;
+        compulsory = 0;
+        capacity = 0;
+        conflict = 0;
+        Arrays.fill(histogram, 0);
+        coldAccesses = 0;
+        Arrays.fill(pcAccesses, 0);
+        Arrays.fill(pcMisses, 0);
+        pcLimit = 0;
+    }
+}
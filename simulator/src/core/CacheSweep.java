@@ -0,0 +1,116 @@
+package core;
+
+import java.util.Arrays;
+
+/**
+ * Hit counts of many LRU cache geometries from one pass over an address
+ * stream (Mattson et al., 1970; Hill and Smith, 1989).
+ *
+ * LRU is a stack algorithm: an access hits in a set of A ways exactly when
+ * its block is among the A most recently used blocks of that set. So one
+ * recency stack per set, kept maxAssoc deep, gives the hits of every
+ * associativity up to maxAssoc at once, as a histogram of stack depths.
+ * This is done for every power-of-two set count from minSets to maxSets
+ * (modulo indexing). A fully-associative column comes from ReuseDistance
+ * for every size up to maxSets * maxAssoc blocks.
+ *
+ * The numbers are those of a single Cache level with this block size, LRU
+ * replacement, modulo indexing and a policy that allocates on every
+ * access (writeback or writethrough-allocate). With no prefetcher or
+ * victim cache, getHits(sets, assoc) equals the hits of
+ * new Cache(sets * assoc * blockSize, blockSize, assoc, ...) fed the same
+ * accesses.
+ */
+public class CacheSweep {
+
+    private static final long EMPTY = Long.MIN_VALUE;
+
+    private final int blockSize;
+    private final int minSets;
+    private final int maxAssoc;
+    private final long[][] stacks;     // per set count: sets * maxAssoc blocks, most recent first
+    private final long[][] depthHits;  // per set count: hits at each stack depth
+    private final ReuseDistance distances = new ReuseDistance();
+    private final long[] faHits;       // hits at each reuse distance below maxSets * maxAssoc
+    private long accesses;
+
+    /**
+     * @param minSets  smallest set count, a power of two
+     * @param maxSets  largest set count, a power of two >= minSets
+     * @param maxAssoc largest associativity reported
+     */
+    public CacheSweep(int blockSize, int minSets, int maxSets, int maxAssoc) {
+        if (blockSize < 1) throw new IllegalArgumentException("Block size must be positive: " + blockSize);
+        if (Integer.bitCount(minSets) != 1 || Integer.bitCount(maxSets) != 1 || minSets > maxSets) {
+            throw new IllegalArgumentException("Set counts must be powers of two with min <= max: "
+                    + minSets + ".." + maxSets);
+        }
+        if (maxAssoc < 1) throw new IllegalArgumentException("Associativity must be positive: " + maxAssoc);
+        if ((long) maxSets * maxAssoc > (1 << 24)) {
+            throw new IllegalArgumentException("Sweep too large: " + maxSets + " sets x " + maxAssoc + " ways");
+        }
+        this.blockSize = blockSize;
+        this.minSets = minSets;
+        this.maxAssoc = maxAssoc;
+        int levels = Integer.numberOfTrailingZeros(maxSets) - Integer.numberOfTrailingZeros(minSets) + 1;
+        stacks = new long[levels][];
+        depthHits = new long[levels][maxAssoc];
+        for (int i = 0; i < levels; i++) {
+            stacks[i] = new long[(minSets << i) * maxAssoc];
+            Arrays.fill(stacks[i], EMPTY);
+        }
+        faHits = new long[maxSets * maxAssoc];
+    }
+
+    /** Sweep a whole recorded trace. */
+    public void run(AddressTrace trace) {
+        for (int i = 0; i < trace.size(); i++) access(trace.getAddress(i));
+    }
+
+    public void access(long address) {
+        long block = Math.floorDiv(address, (long) blockSize);
+        accesses++;
+        for (int i = 0; i < stacks.length; i++) {
+            long[] stack = stacks[i];
+            int base = (int) (block & ((minSets << i) - 1)) * maxAssoc;
+            int d = 0;
+            while (d < maxAssoc && stack[base + d] != block) d++;
+            if (d < maxAssoc) depthHits[i][d]++;
+            else d = maxAssoc - 1; // miss everywhere: the deepest block drops out
+            System.arraycopy(stack, base, stack, base + 1, d);
+            stack[base] = block;
+        }
+        long distance = distances.access(block);
+        if (distance >= 0 && distance < faHits.length) faHits[(int) distance]++;
+    }
+
+    public int getBlockSize() { return blockSize; }
+    public long getAccesses() { return accesses; }
+    public int getMinSets() { return minSets; }
+    public int getMaxSets() { return minSets << (stacks.length - 1); }
+    public int getMaxAssociativity() { return maxAssoc; }
+
+    /** Hits of an LRU cache of sets x assoc blocks; sets must be a swept set count. */
+    public long getHits(int sets, int assoc) {
+        if (assoc < 1 || assoc > maxAssoc) throw new IllegalArgumentException("Associativity out of range: " + assoc);
+        int i = Integer.numberOfTrailingZeros(sets) - Integer.numberOfTrailingZeros(minSets);
+        if (Integer.bitCount(sets) != 1 || i < 0 || i >= stacks.length) {
+            throw new IllegalArgumentException("Set count not swept: " + sets);
+        }
+        long hits = 0;
+        for (int d = 0; d < assoc; d++) hits += depthHits[i][d];
+        return hits;
+    }
+
+    /** Hits of a fully-associative LRU cache of the given number of blocks. */
+    public long getFullyAssociativeHits(int blocks) {
+        if (blocks < 1 || blocks > faHits.length) throw new IllegalArgumentException("Block count out of range: " + blocks);
+        long hits = 0;
+        for (int d = 0; d < blocks; d++) hits += faHits[d];
+        return hits;
+    }
+
+    public double getHitRate(int sets, int assoc) {
+        return accesses > 0 ? (double) getHits(sets, assoc) / accesses : 0.0;
+    }
+}
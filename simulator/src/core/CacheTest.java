@@ -1,5 +1,9 @@
 package core;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
 public class CacheTest {
 
     public static void main(String[] args) throws Exception {
@@ -7,6 +11,15 @@ public class CacheTest {
             testBasicHitMiss();
             testWriteThroughNoAllocate();
             testLRUEviction();
+            testHierarchyLatency();
+            testInclusion();
+            testWritePolicies();
+            testReplacementPolicies();
+            testTagStoreDecoding();
+            testPrefetchers();
+            testVictimCacheAndIndexing();
+            testProfiling();
+            testStackSweep();
             System.out.println("ALL CACHE TESTS PASSED");
         } catch (AssertionError e) {
             System.err.println("TEST FAILED: " + e.getMessage());
@@ -99,4 +112,412 @@ public class CacheTest {
 
         System.out.println("testLRUEviction passed");
     }
+
+    private static void testHierarchyLatency() {
+        Memory mem = new Memory();
+        // L1: 32 bytes direct-mapped (4 sets); L2: 64 bytes 2-way, memory 20 cycles away
+        Cache l1 = new Cache(32, 8, 1, 1, 99, mem);
+        Cache l2 = new Cache(64, 8, 2, 4, 20, mem);
+        l1.setNextLevel(l2);
+
+        assertEquals(l1.probeMissPenalty(0, true, false), 24, "probe walks to memory");
+        CacheAccessResult r = l1.load(0, true);
+        assertEquals(r.getLatency(), 25, "L1 + L2 + memory");
+        r = l1.load(32, true); // same L1 set as 0
+        assertEquals(r.getLatency(), 25, "second block misses both");
+        assertEquals(l1.probeMissPenalty(0, true, false), 4, "evicted from L1, still in L2");
+        r = l1.load(0, true);
+        assertEquals(r.getLatency(), 5, "L1 miss, L2 hit");
+        assertEquals(l1.getMisses(), 3, "L1 misses");
+        assertEquals(l2.getHits(), 1, "L2 hits");
+        assertEquals(l2.getMisses(), 2, "L2 misses");
+        assertEquals(l2.getLevel(), 2, "level number");
+        System.out.println("testHierarchyLatency passed");
+    }
+
+    private static void testInclusion() {
+        Memory mem = new Memory();
+        // inclusive L2 smaller than L1: its eviction must back-invalidate L1
+        Cache l1 = new Cache(64, 8, 2, 1, 10, mem);
+        Cache l2 = new Cache(32, 8, 1, 4, 10, mem);
+        l2.setInclusion(Cache.Inclusion.INCLUSIVE);
+        l1.setNextLevel(l2);
+        l1.loadNoLatency(0, true);
+        l1.loadNoLatency(32, true); // L2 set 0 again: evicts block 0 there
+        assertEquals(l1.probeMissPenalty(0, true, false), 14, "inclusive: back-invalidated in L1");
+        assertEquals(l1.probeMissPenalty(32, true, false), 1, "inclusive: new block in L1");
+
+        // same sequence with NINE keeps block 0 in L1
+        l1 = new Cache(64, 8, 2, 1, 10, mem);
+        l2 = new Cache(32, 8, 1, 4, 10, mem);
+        l1.setNextLevel(l2);
+        l1.loadNoLatency(0, true);
+        l1.loadNoLatency(32, true);
+        assertEquals(l1.probeMissPenalty(0, true, false), 1, "nine: no back-invalidation");
+
+        // exclusive: fills bypass L2, L1 victims go to L2, L2 hits move up
+        l1 = new Cache(16, 8, 1, 1, 10, mem); // 2 sets
+        l2 = new Cache(64, 8, 2, 4, 10, mem);
+        l2.setInclusion(Cache.Inclusion.EXCLUSIVE);
+        l1.setNextLevel(l2);
+        l1.loadNoLatency(0, true);
+        assertEquals(l2.probeMissPenalty(0, true, false), 10, "exclusive: fill bypasses L2");
+        l1.loadNoLatency(16, true); // evicts block 0 from L1 into L2
+        assertEquals(l2.probeMissPenalty(0, true, false), 4, "exclusive: victim inserted");
+        assertEquals(l1.probeMissPenalty(0, true, false), 4, "exclusive: L1 miss hits L2");
+        l1.loadNoLatency(0, true);
+        assertEquals(l2.probeMissPenalty(0, true, false), 10, "exclusive: hit moved the block up");
+        assertEquals(l2.probeMissPenalty(16, true, false), 4, "exclusive: swapped victim");
+        System.out.println("testInclusion passed");
+    }
+
+    private static void testWritePolicies() {
+        Memory mem = new Memory();
+        // 32 bytes, block 8, 2-way => 2 sets; blocks 0, 2, 4 share set 0
+        Cache cache = new Cache(32, 8, 2, 1, 10, mem);
+        cache.setWritePolicy(Cache.WritePolicy.WRITE_BACK);
+
+        assertEquals(cache.store(0, 7, true).getLatency(), 11, "wb: store miss fetches");
+        assertEquals(mem.loadDouble(0), 7, "wb: memory still holds the data");
+        assertEquals(cache.load(0, true).getLatency(), 1, "wb: store allocated the block");
+        assertEquals(cache.store(16, 8, true).getLatency(), 11, "wb: second block");
+        assertEquals(cache.getBytesWrittenBelow(), 0, "wb: nothing written below yet");
+        assertEquals(cache.probeMissPenalty(32, true, false), 20, "wb: dirty victim adds write-back");
+        assertEquals(cache.load(32, true).getLatency(), 21, "wb: miss over a dirty victim");
+        assertEquals(cache.getWritebacks(), 1, "wb: one dirty eviction");
+        assertEquals(cache.getWriteTrafficSaved(), 16 - 8, "wb: two stores, one block written");
+
+        cache = new Cache(32, 8, 2, 1, 10, mem);
+        cache.setWritePolicy(Cache.WritePolicy.WRITE_THROUGH_ALLOCATE);
+        assertEquals(cache.store(0, 7, true).getLatency(), 11, "wt-alloc: store miss");
+        assertEquals(cache.load(0, true).getLatency(), 1, "wt-alloc: block allocated");
+        cache.load(16, true);
+        assertEquals(cache.load(32, true).getLatency(), 11, "wt-alloc: lines never dirty");
+        assertEquals(cache.getWriteTrafficSaved(), 0, "wt-alloc: every store written through");
+
+        // write-back L1 over a write-back L2: the L1 victim is absorbed by L2
+        Cache l1 = new Cache(16, 8, 1, 1, 10, mem); // 2 sets, direct-mapped
+        Cache l2 = new Cache(64, 8, 2, 3, 10, mem);
+        l1.setWritePolicy(Cache.WritePolicy.WRITE_BACK);
+        l2.setWritePolicy(Cache.WritePolicy.WRITE_BACK);
+        l1.setNextLevel(l2);
+        l1.storeNoLatency(0, 1, true);
+        assertEquals(l1.probeMissPenalty(16, true, false), 3 + 10 + 3, "L2 miss + write-back into L2");
+        l1.loadNoLatency(16, true);
+        assertEquals(l1.getWritebacks(), 1, "L1 wrote back");
+        assertEquals(l2.getBytesWrittenBelow(), 0, "L2 kept the dirty block");
+        System.out.println("testWritePolicies passed");
+    }
+
+    private static void testReplacementPolicies() {
+        Memory mem = new Memory();
+        // one set of 4 ways: fill blocks 0..3, reuse block 0, then block 4 replaces
+        String[] names = {"lru", "fifo", "plru", "srrip"};
+        long[] evicted = {8, 0, 16, 8};
+        for (int i = 0; i < names.length; i++) {
+            Cache cache = new Cache(32, 8, 4, 1, 10, mem);
+            cache.setReplacementPolicy(names[i], 0);
+            for (long a = 0; a < 32; a += 8) cache.loadNoLatency(a, true);
+            cache.loadNoLatency(0, true);
+            cache.loadNoLatency(32, true);
+            for (long a = 0; a < 32; a += 8) {
+                int expected = a == evicted[i] ? 10 : 1;
+                assertEquals(cache.probeMissPenalty(a, true, false), expected, names[i] + ": block " + a);
+            }
+        }
+
+        // every policy: probes agree with the access that follows, the same
+        // seed replays the same run, and restoring the state replays it too
+        for (String name : ReplacementPolicy.NAMES) {
+            Cache a = new Cache(256, 8, 8, 1, 10, mem); // 4 sets of 8 ways
+            Cache b = new Cache(256, 8, 8, 1, 10, mem);
+            a.setReplacementPolicy(name, 5);
+            b.setReplacementPolicy(name, 5);
+            Random rnd = new Random(9);
+            StateVector saved = new StateVector();
+            long hitsAtSave = 0;
+            long[] tail = new long[500];
+            for (int i = 0; i < 2000; i++) {
+                long addr = 8L * rnd.nextInt(64);
+                int probe = a.probeMissPenalty(addr, true, false);
+                assertEquals(a.load(addr, true).getLatency(), probe == 1 ? 1 : 1 + probe, name + ": probe at " + i);
+                b.loadNoLatency(addr, true);
+                if (i == 1500) {
+                    a.saveState(saved);
+                    hitsAtSave = a.getHits();
+                }
+                if (i > 1500) tail[i - 1501] = addr;
+            }
+            assertEquals(b.getHits(), a.getHits(), name + ": same seed, same run");
+            long hitsAfter = a.getHits() - hitsAtSave;
+            saved.rewind();
+            a.restoreState(saved);
+            for (int i = 0; i < 499; i++) a.loadNoLatency(tail[i], true);
+            assertEquals(a.getHits() - hitsAtSave, hitsAfter, name + ": replay after restore");
+        }
+
+        try {
+            new Cache(48, 8, 6, 1, 10, mem).setReplacementPolicy("plru", 0);
+            throw new AssertionError("tree PLRU accepted 6 ways");
+        } catch (IllegalArgumentException expected) {
+            // ok
+        }
+        System.out.println("testReplacementPolicies passed");
+    }
+
+    private static void testTagStoreDecoding() {
+        Memory mem = new Memory(new PagedMemory());
+        // power-of-two geometry (shift/mask) and 3 sets (division), 4 ways each,
+        // against a list-per-set LRU model; negative addresses included
+        int[][] geometries = {{512, 16, 4}, {384, 32, 4}};
+        for (int[] g : geometries) {
+            Cache cache = new Cache(g[0], g[1], g[2], 1, 10, mem);
+            int sets = cache.getNumSets();
+            List<List<Long>> model = new ArrayList<>();
+            for (int s = 0; s < sets; s++) model.add(new ArrayList<>());
+            Random rnd = new Random(11);
+            long modelHits = 0;
+            for (int i = 0; i < 5000; i++) {
+                long addr = 4L * (rnd.nextInt(400) - 200) + (i % 3 == 0 ? (1L << 40) : 0);
+                long block = Math.floorDiv(addr, (long) g[1]);
+                List<Long> set = model.get((int) Math.floorMod(block, (long) sets));
+                if (set.remove(Long.valueOf(block))) modelHits++;
+                else if (set.size() == g[2]) set.remove(0);
+                set.add(block);
+                cache.loadNoLatency(addr, false);
+            }
+            assertEquals(cache.getHits(), modelHits, g[0] + "B: hits match the LRU model");
+
+            CacheLine[][] view = cache.getSets();
+            int valid = 0;
+            for (CacheLine[] ways : view) for (CacheLine line : ways) if (line.isValid()) valid++;
+            int expected = 0;
+            for (List<Long> set : model) expected += set.size();
+            assertEquals(valid, expected, g[0] + "B: view shows the valid lines");
+            cache.loadNoLatency(1L << 41, false); // a new block changes the view
+            assertTrue(cache.getSets() == view, g[0] + "B: view objects are reused");
+            long newest = 0;
+            for (CacheLine[] ways : view) for (CacheLine line : ways) newest = Math.max(newest, line.getLruCounter());
+            assertEquals(newest, 5001, g[0] + "B: view refreshed");
+        }
+        System.out.println("testTagStoreDecoding passed");
+    }
+
+    private static void testPrefetchers() {
+        Memory mem = new Memory();
+        // tagged next-line: the miss on block 0 fetches block 1, whose first use fetches block 2
+        Cache cache = new Cache(64, 8, 2, 1, 10, mem);
+        cache.setPrefetcher(Prefetcher.create("nextline", 8, 1, 1));
+        for (long a = 0; a < 24; a += 8) cache.loadNoLatency(a, true);
+        assertEquals(cache.getMisses(), 1, "next-line: only the first block misses");
+        assertEquals(cache.getPrefetchHits(), 2, "next-line: two prefetches used");
+        assertEquals(cache.getPrefetchesIssued(), 3, "next-line: block 3 fetched ahead");
+        assertEquals(cache.probeMissPenalty(24, true, false), 1, "next-line: block 3 present");
+
+        // PC stride: a load walking down by 8 bytes (as in test_loop) is covered after training
+        cache = new Cache(1024, 16, 2, 1, 10, mem);
+        cache.setPrefetcher(Prefetcher.create("stride", 16, 1, 1));
+        for (long a = 400; a > 0; a -= 8) cache.loadNoLatency(a, true, 7);
+        assertEquals(cache.getMisses(), 2, "stride: misses while training");
+        assertTrue(cache.getPrefetchAccuracy() > 0.9, "stride: accurate on a constant stride");
+        Cache noPc = new Cache(1024, 16, 2, 1, 10, mem);
+        noPc.setPrefetcher(Prefetcher.create("stride", 16, 1, 1));
+        for (long a = 400; a > 0; a -= 8) noPc.loadNoLatency(a, true);
+        assertEquals(noPc.getPrefetchesIssued(), 0, "stride: needs a program index");
+
+        // stream: follows descending misses without a program index
+        cache = new Cache(1024, 16, 2, 1, 10, mem);
+        cache.setPrefetcher(Prefetcher.create("stream", 16, 2, 1));
+        for (long a = 400; a > 0; a -= 8) cache.loadNoLatency(a, true);
+        assertEquals(cache.getMisses(), 2, "stream: misses while training");
+
+        // pollution: direct-mapped, the prefetch of block 1 evicts demand block 5
+        cache = new Cache(32, 8, 1, 1, 10, mem);
+        cache.setPrefetcher(Prefetcher.create("nextline", 8, 1, 1));
+        cache.loadNoLatency(40, true); // block 5, prefetches block 6
+        cache.loadNoLatency(0, true);  // block 0, prefetches block 1 over block 5
+        cache.loadNoLatency(40, true); // misses because of the prefetch, evicting unused block 1
+        assertEquals(cache.getPollutionMisses(), 1, "pollution miss counted");
+        assertEquals(cache.getPrefetchesUnused(), 1, "unused prefetch counted");
+        assertEquals(cache.getPrefetchesIssued(), 2, "present block not prefetched again");
+
+        try {
+            Prefetcher.create("stride", 16, 0, 1);
+            throw new AssertionError("degree 0 accepted");
+        } catch (IllegalArgumentException expected) {
+            // ok
+        }
+        System.out.println("testPrefetchers passed");
+    }
+
+    private static void testVictimCacheAndIndexing() {
+        Memory mem = new Memory(new PagedMemory()); // negative addresses below
+        // direct-mapped, 4 sets of 16 bytes: blocks 0 and 4 share set 0 under modulo indexing
+        Cache plain = new Cache(64, 16, 1, 1, 10, mem);
+        Cache victim = new Cache(64, 16, 1, 1, 10, mem);
+        victim.setVictimCache(2, 1);
+        for (int i = 0; i < 3; i++) {
+            plain.loadNoLatency(0, true);
+            plain.loadNoLatency(64, true);
+            victim.loadNoLatency(0, true);
+            victim.loadNoLatency(64, true);
+        }
+        assertEquals(plain.getMisses(), 6, "modulo: every access conflicts");
+        assertEquals(victim.getMisses(), 2, "victim cache: only the first two miss");
+        assertEquals(victim.getVictimHits(), 4, "victim cache hits");
+        assertEquals(victim.getConflictMissesRemoved(), 4, "victim cache: conflict misses removed");
+        assertEquals(victim.probeMissPenalty(0, true, false), 2, "victim cache hit costs its latency");
+        assertTrue(victim.contains(0), "victim cache counts as part of the level");
+
+        for (String name : new String[]{"xor", "prime", "skewed"}) {
+            Cache hashed = new Cache(64, 16, name.equals("skewed") ? 2 : 1, 1, 10, mem);
+            hashed.setSetIndexing(Cache.setIndexingOf(name));
+            for (int i = 0; i < 3; i++) {
+                hashed.loadNoLatency(0, true);
+                hashed.loadNoLatency(64, true);
+            }
+            assertEquals(hashed.getMisses(), 2, name + ": blocks 0 and 4 no longer conflict");
+        }
+
+        // a dirty block leaves the level only when the victim cache evicts it
+        Cache wb = new Cache(64, 16, 1, 1, 10, mem);
+        wb.setWritePolicy(Cache.WritePolicy.WRITE_BACK);
+        wb.setVictimCache(1, 1);
+        wb.storeNoLatency(0, 1, true);
+        wb.loadNoLatency(64, true);
+        assertEquals(wb.getWritebacks(), 0, "dirty block parked in the victim cache");
+        assertEquals(wb.probeMissPenalty(128, true, false), 10 + 10, "next fill pushes it out");
+        wb.loadNoLatency(128, true);
+        assertEquals(wb.getWritebacks(), 1, "written back when the victim cache evicts it");
+
+        // every option: probes agree with the access that follows, and restoring the state replays the run
+        String[] names = Cache.SET_INDEXING_NAMES;
+        for (int k = 0; k < 2 * names.length; k++) {
+            Cache c = new Cache(512, 16, 4, 1, 10, mem);
+            c.setSetIndexing(Cache.setIndexingOf(names[k % names.length]));
+            if (k >= names.length) c.setVictimCache(4, 2);
+            String what = names[k % names.length] + (k >= names.length ? "+victim" : "");
+            Random rnd = new Random(k);
+            StateVector saved = new StateVector();
+            long hitsAtSave = 0;
+            long[] tail = new long[499];
+            for (int i = 0; i < 2000; i++) {
+                long addr = 16L * rnd.nextInt(200) - 800;
+                int probe = c.probeLatency(addr, true, false);
+                assertEquals(c.load(addr, true).getLatency(), probe, what + ": probe at " + i);
+                if (i == 1500) {
+                    c.saveState(saved);
+                    hitsAtSave = c.getHits();
+                }
+                if (i > 1500) tail[i - 1501] = addr;
+            }
+            long hitsAfter = c.getHits() - hitsAtSave;
+            saved.rewind();
+            c.restoreState(saved);
+            for (long addr : tail) c.loadNoLatency(addr, true);
+            assertEquals(c.getHits() - hitsAtSave, hitsAfter, what + ": replay after restore");
+        }
+
+        try {
+            new Cache(48, 16, 1, 1, 10, mem).setSetIndexing(Cache.SetIndexing.XOR);
+            throw new AssertionError("XOR indexing accepted 3 sets");
+        } catch (IllegalArgumentException expected) {
+            // ok
+        }
+        System.out.println("testVictimCacheAndIndexing passed");
+    }
+
+    private static void testProfiling() {
+        Memory mem = new Memory(new PagedMemory()); // addresses past the flat default below
+        // direct-mapped, 4 sets: blocks 0 and 4 share set 0 although two blocks fit
+        Cache dm = new Cache(64, 16, 1, 1, 10, mem);
+        dm.enableProfiling();
+        for (int i = 0; i < 3; i++) {
+            dm.loadNoLatency(0, true, 7);
+            dm.loadNoLatency(64, true, 8);
+        }
+        CacheProfiler p = dm.getProfiler();
+        assertEquals(p.getCompulsoryMisses(), 2, "3C: first touches");
+        assertEquals(p.getConflictMisses(), 4, "3C: a fully-associative cache would have hit");
+        assertEquals(p.getCapacityMisses(), 0, "3C: no capacity misses");
+        assertEquals(p.getReuseCount(CacheProfiler.bucketOf(1)), 4, "reuse distance 1");
+        assertEquals(p.getMisses(7), 3, "misses of pc 7");
+        assertEquals(p.getAccesses(8), 3, "accesses of pc 8");
+
+        // five blocks cycling through four fully-associative lines: capacity misses
+        Cache fa = new Cache(64, 16, 4, 1, 10, mem);
+        fa.enableProfiling();
+        for (int i = 0; i < 20; i++) fa.loadNoLatency(16 * (i % 5), true);
+        p = fa.getProfiler();
+        assertEquals(p.getCompulsoryMisses(), 5, "cyclic: first touches");
+        assertEquals(p.getCapacityMisses(), 15, "cyclic: LRU thrashes");
+        assertEquals(p.getConflictMisses(), 0, "cyclic: no conflict misses");
+
+        // a fully-associative LRU cache that allocates on stores is its own shadow
+        Cache big = new Cache(1024, 16, 64, 1, 10, mem);
+        big.setWritePolicy(Cache.WritePolicy.WRITE_BACK);
+        big.enableProfiling();
+        Random rnd = new Random(3);
+        for (int i = 0; i < 20000; i++) {
+            long addr = 16L * (rnd.nextInt(8) == 0 ? rnd.nextInt(3000) : rnd.nextInt(80));
+            if (rnd.nextBoolean()) big.loadNoLatency(addr, true);
+            else big.storeNoLatency(addr, 1, true);
+        }
+        p = big.getProfiler();
+        assertEquals(p.getConflictMisses(), 0, "fully associative: no conflict misses");
+        assertEquals(p.getCompulsoryMisses() + p.getCapacityMisses(), big.getMisses(), "fully associative: 3C total");
+
+        // reuse distances against an explicit LRU stack, through several compactions
+        ReuseDistance rd = new ReuseDistance();
+        List<Long> stack = new ArrayList<>();
+        rnd = new Random(4);
+        for (int i = 0; i < 20000; i++) {
+            long block = rnd.nextInt(4) == 0 ? rnd.nextInt(2500) : rnd.nextInt(40);
+            int depth = stack.indexOf(block);
+            assertEquals(rd.access(block), depth, "reuse distance at " + i);
+            if (depth >= 0) stack.remove(depth);
+            stack.add(0, block);
+        }
+        assertEquals(rd.getDistinct(), stack.size(), "distinct blocks");
+        System.out.println("testProfiling passed");
+    }
+
+    private static void testStackSweep() {
+        Memory mem = new Memory(new PagedMemory());
+        Cache recorder = new Cache(256, 16, 2, 1, 10, mem);
+        AddressTrace trace = new AddressTrace();
+        recorder.setTrace(trace);
+        Random rnd = new Random(5);
+        for (int i = 0; i < 5000; i++) {
+            long addr = 8L * (rnd.nextInt(6) == 0 ? rnd.nextInt(4000) : rnd.nextInt(300)) - 1024;
+            if (rnd.nextInt(3) == 0) recorder.storeNoLatency(addr, i, true);
+            else recorder.loadNoLatency(addr, true);
+        }
+        assertEquals(trace.size(), 5000, "every access recorded");
+
+        // one pass gives what a separate allocating LRU cache per geometry sees
+        CacheSweep sweep = new CacheSweep(16, 1, 32, 8);
+        sweep.run(trace);
+        for (int sets = 1; sets <= 32; sets *= 2) {
+            for (int assoc = 1; assoc <= 8; assoc++) {
+                Cache c = new Cache(sets * assoc * 16, 16, assoc, 1, 10, mem);
+                c.setWritePolicy(Cache.WritePolicy.WRITE_BACK);
+                for (int i = 0; i < trace.size(); i++) {
+                    if (trace.isStore(i)) c.storeNoLatency(trace.getAddress(i), 0, true);
+                    else c.loadNoLatency(trace.getAddress(i), true);
+                }
+                assertEquals(sweep.getHits(sets, assoc), c.getHits(), "sweep " + sets + "x" + assoc);
+                if (sets == 1) {
+                    assertEquals(sweep.getFullyAssociativeHits(assoc), c.getHits(), "fully associative " + assoc);
+                }
+            }
+        }
+        try {
+            sweep.getHits(3, 1);
+            throw new AssertionError("sweep reported a set count it did not simulate");
+        } catch (IllegalArgumentException expected) {
+            // ok
+        }
+        System.out.println("testStackSweep passed");
+    }
 }
@@ -0,0 +1,69 @@
+package core;
+
+import java.util.Arrays;
+
+/**
+ * Table of 2-bit saturating counters packed 32 to a long.
+ *
+ * Values 0..1 predict not taken, 2..3 predict taken. Packing keeps large
+ * predictor tables cheap to encode in the cycle history.
+ */
+public class CounterTable {
+
+    public static final int WEAKLY_NOT_TAKEN = 1;
+    public static final int WEAKLY_TAKEN = 2;
+
+    private final long[] words;
+    private final int mask;
+    private final int initial;
+
+    /** @param bits log2 of the number of counters */
+    public CounterTable(int bits, int initial) {
+        if (bits < 0 || bits > 24) {
+            throw new IllegalArgumentException("Counter table bits out of range: " + bits);
+        }
+        int entries = 1 << bits;
+        this.words = new long[(entries + 31) / 32];
+        this.mask = entries - 1;
+        this.initial = initial;
+        reset();
+    }
+
+    public void reset() {
+        long pattern = 0;
+        for (int i = 0; i < 32; i++) pattern |= (long) initial << (2 * i);
+        Arrays.fill(words, pattern);
+    }
+
+    public int size() {
+        return mask + 1;
+    }
+
+    /** Counter at index (masked to the table size). */
+    public int get(int index) {
+        int i = index & mask;
+        return (int) (words[i >>> 5] >>> ((i & 31) << 1)) & 3;
+    }
+
+    public boolean predictsTaken(int index) {
+        return get(index) >= 2;
+    }
+
+    /** Saturating increment on taken, decrement on not taken. */
+    public void train(int index, boolean taken) {
+        int i = index & mask;
+        int c = get(i);
+        int next = taken ? Math.min(3, c + 1) : Math.max(0, c - 1);
+        if (next == c) return;
+        int shift = (i & 31) << 1;
+        words[i >>> 5] = (words[i >>> 5] & ~(3L << shift)) | ((long) next << shift);
+    }
+
+    void saveState(StateVector out) {
+        for (long w : words) out.put(w);
+    }
+
+    void restoreState(StateVector in) {
+        for (int i = 0; i < words.length; i++) words[i] = in.next();
+    }
+}
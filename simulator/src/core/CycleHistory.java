@@ -0,0 +1,270 @@
+package core;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Iterator;
+
+/**
+ * Bounded, delta-encoded cycle history used to step the engine backwards.
+ *
+ * At the end of every cycle the machine state (a {@link StateVector}) is
+ * diffed against the state at the start of the cycle and only the changed
+ * slots are kept, old and new value, together with the memory stores the
+ * cycle made ({@link MemoryJournal}). Every {@code checkpointInterval} cycles
+ * a full copy of the vector is kept as well, so a long jump back replays a
+ * few forward deltas from a checkpoint instead of undoing every cycle in
+ * between. Memory itself is never copied; it is rolled back through the
+ * journals of the undone cycles.
+ *
+ * At most {@code window} deltas are kept (0 = unbounded); cycles older than
+ * that can no longer be restored, so memory use does not grow with run length.
+ */
+public class CycleHistory {
+
+    /** The machine whose state is recorded (the engine). */
+    public interface Machine {
+        void saveState(StateVector out);
+        void restoreState(StateVector in);
+    }
+
+    public static final int DEFAULT_WINDOW = 100_000;
+    public static final int DEFAULT_CHECKPOINT_INTERVAL = 1_000;
+
+    /** Changes made by one cycle: state(cycle - 1) -> state(cycle). */
+    private static final class Delta {
+        final int cycle;
+        final int[] slots;
+        final long[] before;
+        final long[] after;
+        final long[] memory; // MemoryJournal entries, or null if no stores
+
+        Delta(int cycle, int[] slots, long[] before, long[] after, long[] memory) {
+            this.cycle = cycle;
+            this.slots = slots;
+            this.before = before;
+            this.after = after;
+            this.memory = memory;
+        }
+    }
+
+    private static final class Checkpoint {
+        final int cycle;
+        final long[] state;
+
+        Checkpoint(int cycle, long[] state) {
+            this.cycle = cycle;
+            this.state = state;
+        }
+    }
+
+    private final Machine machine;
+    private final Memory memory;
+    private final MemoryJournal journal = new MemoryJournal();
+
+    private final ArrayDeque<Delta> deltas = new ArrayDeque<>();
+    private final ArrayDeque<Checkpoint> checkpoints = new ArrayDeque<>();
+
+    private StateVector current = new StateVector(); // state at currentCycle
+    private StateVector next = new StateVector();    // scratch for endCycle
+
+    // scratch for diffing
+    private int[] changedSlots = new int[64];
+    private long[] changedBefore = new long[64];
+    private long[] changedAfter = new long[64];
+
+    private int window = DEFAULT_WINDOW;
+    private int checkpointInterval = DEFAULT_CHECKPOINT_INTERVAL;
+    private int currentCycle;
+    private boolean active;
+
+    public CycleHistory(Machine machine, Memory memory) {
+        this.machine = machine;
+        this.memory = memory;
+    }
+
+    /** Max cycles that can be stepped back (0 = unbounded). */
+    public void setWindow(int window) {
+        this.window = window;
+        evict();
+    }
+
+    public int getWindow() {
+        return window;
+    }
+
+    /** Cycles between full checkpoints (0 = only the initial one). */
+    public void setCheckpointInterval(int interval) {
+        this.checkpointInterval = interval;
+    }
+
+    public int getCheckpointInterval() {
+        return checkpointInterval;
+    }
+
+    /** Drop everything and start recording from the machine's current state. */
+    public void start(int cycle) {
+        deltas.clear();
+        checkpoints.clear();
+        current.clear();
+        machine.saveState(current);
+        currentCycle = cycle;
+        checkpoints.add(new Checkpoint(cycle, current.toArray()));
+        journal.clear();
+        memory.setJournal(journal);
+        active = true;
+    }
+
+    /** Stop recording and release all history. */
+    public void stop() {
+        deltas.clear();
+        checkpoints.clear();
+        journal.clear();
+        if (memory.getJournal() == journal) memory.setJournal(null);
+        active = false;
+    }
+
+    public boolean isActive() {
+        return active;
+    }
+
+    /**
+     * Call before simulating a cycle. Changes made between cycles (test set-up
+     * writing memory or registers) become part of the baseline instead of
+     * being undone by the next step back.
+     */
+    public void beginCycle() {
+        if (!active) return;
+        journal.clear();
+        current.clear();
+        machine.saveState(current);
+        // a checkpoint of this very cycle must include those changes too
+        Checkpoint last = checkpoints.peekLast();
+        if (last != null && last.cycle == currentCycle && last.state.length == current.size()) {
+            for (int i = 0; i < last.state.length; i++) last.state[i] = current.get(i);
+        }
+    }
+
+    /** Call after simulating a cycle: store its delta. */
+    public void endCycle(int cycle) {
+        if (!active) return;
+        next.clear();
+        machine.saveState(next);
+        if (next.size() != current.size()) {
+            throw new IllegalStateException("Machine state size changed from "
+                    + current.size() + " to " + next.size() + " slots");
+        }
+
+        int n = 0;
+        for (int i = 0; i < next.size(); i++) {
+            long before = current.get(i);
+            long after = next.get(i);
+            if (before == after) continue;
+            if (n == changedSlots.length) {
+                changedSlots = Arrays.copyOf(changedSlots, n * 2);
+                changedBefore = Arrays.copyOf(changedBefore, n * 2);
+                changedAfter = Arrays.copyOf(changedAfter, n * 2);
+            }
+            changedSlots[n] = i;
+            changedBefore[n] = before;
+            changedAfter[n] = after;
+            n++;
+        }
+        deltas.addLast(new Delta(cycle,
+                Arrays.copyOf(changedSlots, n),
+                Arrays.copyOf(changedBefore, n),
+                Arrays.copyOf(changedAfter, n),
+                journal.drain()));
+
+        StateVector t = current;
+        current = next;
+        next = t;
+        currentCycle = cycle;
+
+        if (checkpointInterval > 0 && cycle % checkpointInterval == 0) {
+            checkpoints.addLast(new Checkpoint(cycle, current.toArray()));
+        }
+        evict();
+    }
+
+    /** Oldest cycle that restore() can still reach. */
+    public int getOldestCycle() {
+        return deltas.isEmpty() ? currentCycle : deltas.peekFirst().cycle - 1;
+    }
+
+    public int getCurrentCycle() {
+        return currentCycle;
+    }
+
+    /** Number of cycles that can be stepped back. */
+    public int size() {
+        return deltas.size();
+    }
+
+    public int getCheckpointCount() {
+        return checkpoints.size();
+    }
+
+    public boolean stepBack() {
+        return restore(currentCycle - 1);
+    }
+
+    /**
+     * Put the whole machine (state vector and memory) back to the end of the
+     * given cycle and forget every later cycle.
+     * @return false if the cycle is outside the window
+     */
+    public boolean restore(int cycle) {
+        if (!active || cycle < getOldestCycle() || cycle >= currentCycle) return false;
+
+        // 1) memory: undo the stores of every later cycle, newest first
+        memory.setJournal(null);
+        Iterator<Delta> back = deltas.descendingIterator();
+        while (back.hasNext()) {
+            Delta d = back.next();
+            if (d.cycle <= cycle) break;
+            if (d.memory != null) MemoryJournal.undo(d.memory, memory);
+        }
+
+        // 2) state vector: replay forward from a near checkpoint, or undo backwards
+        Checkpoint base = null;
+        for (Checkpoint cp : checkpoints) {
+            if (cp.cycle > cycle) break;
+            base = cp;
+        }
+        if (base != null && cycle - base.cycle < currentCycle - cycle) {
+            current.load(base.state);
+            for (Delta d : deltas) {
+                if (d.cycle <= base.cycle) continue;
+                if (d.cycle > cycle) break;
+                for (int i = 0; i < d.slots.length; i++) current.set(d.slots[i], d.after[i]);
+            }
+        } else {
+            back = deltas.descendingIterator();
+            while (back.hasNext()) {
+                Delta d = back.next();
+                if (d.cycle <= cycle) break;
+                for (int i = 0; i < d.slots.length; i++) current.set(d.slots[i], d.before[i]);
+            }
+        }
+
+        // 3) forget the undone cycles
+        while (!deltas.isEmpty() && deltas.peekLast().cycle > cycle) deltas.pollLast();
+        while (!checkpoints.isEmpty() && checkpoints.peekLast().cycle > cycle) checkpoints.pollLast();
+        currentCycle = cycle;
+
+        current.rewind();
+        machine.restoreState(current);
+        journal.clear();
+        memory.setJournal(journal);
+        return true;
+    }
+
+    private void evict() {
+        if (window > 0) {
+            while (deltas.size() > window) deltas.pollFirst();
+        }
+        int oldest = getOldestCycle();
+        // keep checkpoints usable as replay bases (at or after the oldest cycle)
+        while (!checkpoints.isEmpty() && checkpoints.peekFirst().cycle < oldest) checkpoints.pollFirst();
+    }
+}
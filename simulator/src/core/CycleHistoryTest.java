@@ -0,0 +1,413 @@
+package core;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Runs each sample program forward, then steps back cycle by cycle (and by
+ * long jumps) and checks that the whole visible machine state matches what
+ * was seen on the way forward.
+ *
+ * Usage (from the simulator directory): java -cp bin/classes core.CycleHistoryTest
+ */
+public class CycleHistoryTest {
+
+    private static final String[] PROGRAMS = {
+            "src/test1.txt", "src/test_cache.txt", "src/test_int.txt", "src/test_loop.txt"
+    };
+
+    public static void main(String[] args) throws Exception {
+        for (boolean speculative : new boolean[] {false, true}) {
+            for (String path : PROGRAMS) {
+                testStepBack(path, speculative);
+                testJumpAndReplay(path, speculative);
+                testFastForward(path, speculative);
+                testSampling(path, speculative);
+            }
+        }
+        testWindow();
+        testMshrHeldByStore();
+        testWrongPathFault();
+        testWrongPathBranch();
+        testDeferredTraining();
+        testCommitWidth();
+        System.out.println("ALL CYCLE HISTORY TESTS PASSED");
+    }
+
+    private static TomasuloEngine newEngine(Program prog, boolean speculative) {
+        Memory mem = new Memory();
+        Cache cache = new Cache(1024, 16, 2, 1, 10, mem);
+        if (speculative) {
+            // small L1 over an inclusive L2: both levels are restored
+            cache = new Cache(64, 16, 2, 1, 10, mem);
+            Cache l2 = new Cache(256, 16, 2, 3, 10, mem);
+            l2.setInclusion(Cache.Inclusion.INCLUSIVE);
+            cache.setWritePolicy(Cache.WritePolicy.WRITE_BACK); // dirty bits are restored too
+            cache.setNextLevel(l2);
+            cache.setPrefetcher(Prefetcher.create("stride", 16, 2, 1)); // prefetch tables and marks too
+            cache.setVictimCache(2, 1); // victim cache and the baseline shadow too
+        }
+        TomasuloEngine engine = new TomasuloEngine(
+                prog, new RegisterFile(), new RegisterStatus(), mem,
+                cache,
+                3, 2, 3, 3, 3,
+                2, 4, 40, 1, 2, 2
+        );
+        if (speculative) {
+            engine.setSpeculative(true, 6);
+            // predictor tables and history are part of the restored state too
+            engine.setBranchPredictor(BranchPredictor.create("tournament", 6, 4));
+            engine.setIssueWidth(2);
+            CDBArbiter cdb = new CDBArbiter(2, CDBArbiter.Policy.ROUND_ROBIN);
+            cdb.setReserveEnds(false);
+            engine.setCdbArbiter(cdb);
+            engine.setFunctionalUnit(new FunctionalUnit(FunctionalUnit.Kind.FP_MUL, 1, FunctionalUnit.UNPIPELINED));
+            engine.setFunctionalUnit(new FunctionalUnit(FunctionalUnit.Kind.LOAD, 1, 2));
+            engine.setMshrs(2); // outstanding misses are restored too
+        }
+        return engine;
+    }
+
+    /** Non-zero registers and memory so stores actually change memory. */
+    private static void seed(TomasuloEngine engine) {
+        for (int i = 0; i < 32; i++) {
+            engine.getRegisterFile().setFp(i, Double.doubleToLongBits(1.5 + i));
+            engine.getRegisterFile().setInt(i, 8 * i);
+        }
+        for (int a = 0; a < 256; a += 8) {
+            engine.getMemory().storeDouble(a, Double.doubleToLongBits(a / 8.0 + 0.25));
+        }
+    }
+
+    private static List<String> runForward(TomasuloEngine engine) {
+        seed(engine);
+        List<String> seen = new ArrayList<>();
+        seen.add(fingerprint(engine));
+        while (!engine.isDrained() && engine.getCurrentCycle() < 10_000) {
+            engine.nextCycle();
+            seen.add(fingerprint(engine));
+        }
+        return seen;
+    }
+
+    private static void testStepBack(String path, boolean speculative) throws Exception {
+        TomasuloEngine engine = newEngine(new Parser().parse(new java.io.File(path)), speculative);
+        engine.setHistoryCheckpointInterval(7);
+        List<String> seen = runForward(engine);
+
+        for (int c = seen.size() - 2; c >= 0; c--) {
+            engine.previousCycle();
+            check(engine.getCurrentCycle() == c, path + ": expected cycle " + c);
+            check(fingerprint(engine).equals(seen.get(c)), path + ": state differs after stepping back to " + c);
+        }
+        System.out.println("testStepBack passed: " + path + (speculative ? " [rob]" : "")
+                + " (" + (seen.size() - 1) + " cycles)");
+    }
+
+    private static void testJumpAndReplay(String path, boolean speculative) throws Exception {
+        TomasuloEngine engine = newEngine(new Parser().parse(new java.io.File(path)), speculative);
+        engine.setHistoryCheckpointInterval(5);
+        List<String> seen = runForward(engine);
+        int last = seen.size() - 1;
+
+        // jumps that use a checkpoint and jumps that undo backwards
+        int[] targets = {last * 3 / 4, last / 2, 6, 1};
+        for (int target : targets) {
+            if (target >= engine.getCurrentCycle()) continue; // short programs
+            check(engine.restoreCycle(target), path + ": restore to " + target + " refused");
+            check(fingerprint(engine).equals(seen.get(target)), path + ": state differs after jump to " + target);
+        }
+
+        // replaying from a restored state must reproduce the original run
+        for (int c = 2; c <= last; c++) {
+            engine.nextCycle();
+            check(fingerprint(engine).equals(seen.get(c)), path + ": replay diverges at cycle " + c);
+        }
+        System.out.println("testJumpAndReplay passed: " + path + (speculative ? " [rob]" : ""));
+    }
+
+    /** Fast-forwarding any part of a run leaves the same registers and memory as running it in detail. */
+    private static void testFastForward(String path, boolean speculative) throws Exception {
+        Program prog = new Parser().parse(new java.io.File(path));
+        TomasuloEngine ref = newEngine(prog, speculative);
+        seed(ref);
+        check(ref.runUntilDrained(10_000), path + ": reference run did not drain");
+        String expected = architecturalState(ref);
+
+        for (int skip : new int[] {1, 3, 1000}) {
+            TomasuloEngine engine = newEngine(prog, speculative);
+            seed(engine);
+            engine.fastForward(skip);
+            check(engine.getOldestRestorableCycle() == 0, path + ": history should restart at the fast-forward");
+            check(engine.runUntilDrained(10_000), path + ": run after fast-forward did not drain");
+            check(architecturalState(engine).equals(expected), path + ": state differs after fast-forwarding " + skip);
+        }
+
+        // detailed, drained, fast-forwarded, detailed again
+        TomasuloEngine engine = newEngine(prog, speculative);
+        seed(engine);
+        for (int c = 0; c < 6; c++) engine.nextCycle();
+        if (!engine.isIdle()) {
+            try {
+                engine.fastForward(1);
+                check(false, path + ": fast-forward accepted a busy pipeline");
+            } catch (IllegalStateException expectedError) {
+                // ok
+            }
+        }
+        check(engine.drain(10_000), path + ": drain did not finish");
+        int drainedAt = engine.getCurrentCycle();
+        engine.fastForward(4);
+        check(engine.getOldestRestorableCycle() == drainedAt, path + ": stepping back should stop at the fast-forward");
+        check(engine.runUntilDrained(10_000), path + ": run after drain and fast-forward did not drain");
+        check(architecturalState(engine).equals(expected), path + ": state differs after drain and fast-forward");
+        System.out.println("testFastForward passed: " + path + (speculative ? " [rob]" : ""));
+    }
+
+    /** A sampled run alternates fast-forward, detailed windows and drains, and ends in the same state. */
+    private static void testSampling(String path, boolean speculative) throws Exception {
+        Program prog = new Parser().parse(new java.io.File(path));
+        TomasuloEngine ref = newEngine(prog, speculative);
+        seed(ref);
+        check(ref.runUntilDrained(10_000), path + ": reference run did not drain");
+
+        TomasuloEngine engine = newEngine(prog, speculative);
+        seed(engine);
+        SamplingController sampler = new SamplingController(engine, 7, 2, 2);
+        check(sampler.run(10_000), path + ": sampled run did not finish");
+        check(architecturalState(engine).equals(architecturalState(ref)), path + ": state differs after sampling");
+        check(sampler.getTotalInstructions() == ref.getCompletedInstructions(),
+                path + ": sampled run executed " + sampler.getTotalInstructions() + " instructions, expected "
+                        + ref.getCompletedInstructions());
+        for (int i = 0; i < sampler.getSampleCount(); i++) {
+            check(sampler.getSample(i) > 0, path + ": sample " + i + " has no cycles");
+        }
+        check(Math.abs(SamplingController.zScore(0.95) - 1.96) < 1e-3, "95% normal quantile");
+        System.out.println("testSampling passed: " + path + (speculative ? " [rob]" : "")
+                + " (" + sampler.getSampleCount() + " samples)");
+    }
+
+    private static String architecturalState(TomasuloEngine engine) {
+        return Arrays.toString(engine.getRegisterFile().getIntRegsCopy())
+                + Arrays.toString(engine.getRegisterFile().getFpRegsCopy())
+                + memoryChecksum(engine.getMemory());
+    }
+
+    private static void testWindow() throws Exception {
+        TomasuloEngine engine = newEngine(new Parser().parse(new java.io.File("src/test1.txt")), false);
+        engine.setHistoryWindow(10);
+        engine.setHistoryCheckpointInterval(4);
+        List<String> seen = runForward(engine);
+        int last = seen.size() - 1;
+
+        check(engine.getOldestRestorableCycle() == last - 10, "window should keep 10 cycles");
+        check(!engine.restoreCycle(last - 11), "restore beyond the window must be refused");
+        check(engine.restoreCycle(last - 10), "restore at the window edge refused");
+        check(fingerprint(engine).equals(seen.get(last - 10)), "state differs at the window edge");
+        System.out.println("testWindow passed");
+    }
+
+    /**
+     * A younger speculative store that merged into the only MSHR must not
+     * keep it until commit: the older load that needs a register is the ROB
+     * head the store waits for.
+     */
+    private static void testMshrHeldByStore() throws Exception {
+        SimConfig config = new SimConfig();
+        config.speculative = 1;
+        config.mshrs = 1;
+        config.writePolicy = "writeback"; // store misses take an MSHR too
+        TomasuloEngine engine = config.createEngine(parse("LD R2,0(R0)\nLD R3,256(R2)\nSD R4,8(R0)\n"));
+        check(engine.runUntilDrained(1_000), "MSHR held by an executed store: run deadlocked");
+        check(engine.getCompletedInstructions() == 3, "MSHR held by an executed store: not all committed");
+        System.out.println("testMshrHeldByStore passed");
+    }
+
+    /** A wrong-path load to an invalid address is squashed without faulting; on the committed path it faults. */
+    private static void testWrongPathFault() throws Exception {
+        SimConfig config = new SimConfig();
+        config.numLoadBuffers = 6;
+        config.speculative = 1;
+        config.predictor = "nottaken";
+        // the loads chain to R2 = 0, so the branch is taken late and L.D is only on the wrong path
+        String source = "DADDI R1,R0,4000\nLD R2,0(R0)\nLD R2,0(R2)\nLD R2,0(R2)\n"
+                + "BEQ R2,R0,END\nL.D F0,200(R1)\nEND: DADDI R3,R0,1\n";
+        TomasuloEngine engine = config.createEngine(parse(source));
+        check(engine.runUntilDrained(10_000), "wrong-path fault: run did not drain");
+        check(engine.getRegisterFile().getInt(3) == 1, "wrong-path fault: DADDI after the branch did not commit");
+        boolean squashed = false;
+        for (DynamicInstruction d : engine.getCurrentState().getInstructionsWithTiming()) {
+            if (d.getPcIndex() == 5) squashed = d.getSquashCycle() != -1 && d.getWriteBackCycle() != -1;
+        }
+        check(squashed, "wrong-path fault: L.D should have executed and been squashed");
+
+        TomasuloEngine committed = config.createEngine(parse("DADDI R1,R0,4000\nL.D F0,200(R1)\n"));
+        try {
+            committed.runUntilDrained(10_000);
+            check(false, "wrong-path fault: committed out-of-range load did not fault");
+        } catch (IllegalArgumentException expected) {
+            check(expected.getMessage().contains("4200"), "wrong-path fault: unexpected error " + expected.getMessage());
+        }
+        System.out.println("testWrongPathFault passed");
+    }
+
+    /** A wrong-path branch that resolves before the older mispredict neither trains the predictor nor counts. */
+    private static void testWrongPathBranch() throws Exception {
+        SimConfig config = new SimConfig();
+        config.speculative = 1;
+        config.predictor = "bimodal";
+        // BEQ at 2 waits for the loads and is taken; the BEQ at 3 is only on its wrong path and resolves first
+        String source = "LD R2,0(R0)\nLD R2,0(R2)\nBEQ R2,R0,END\nBEQ R0,R0,END\nDADDI R3,R0,7\n"
+                + "END: DADDI R4,R0,1\n";
+        TomasuloEngine engine = config.createEngine(parse(source));
+        check(engine.runUntilDrained(10_000), "wrong-path branch: run did not drain");
+        DynamicInstruction older = null, younger = null;
+        for (DynamicInstruction d : engine.getCurrentState().getInstructionsWithTiming()) {
+            if (d.getPcIndex() == 2) older = d;
+            if (d.getPcIndex() == 3) younger = d;
+        }
+        check(younger != null && younger.getSquashCycle() != -1, "wrong-path branch: younger branch not squashed");
+        check(younger.getWriteBackCycle() != -1 && younger.getWriteBackCycle() < older.getWriteBackCycle(),
+                "wrong-path branch: younger branch should resolve first");
+        check(engine.getBranchStats().getBranches() == 1, "wrong-path branch: only the committed branch counts, got "
+                + engine.getBranchStats().getBranches());
+        check(engine.getBranchStats().getMispredicts() == 1, "wrong-path branch: one mispredict expected");
+        check(!engine.getBranchPredictor().predict(3, 5), "wrong-path branch: predictor trained by a squashed branch");
+        check(engine.getBranchPredictor().predict(2, 5), "wrong-path branch: committed branch not trained");
+        check(engine.getRegisterFile().getInt(3) == 0 && engine.getRegisterFile().getInt(4) == 1,
+                "wrong-path branch: wrong registers committed");
+        System.out.println("testWrongPathBranch passed");
+    }
+
+    /** Training at commit updates the counters read at lookup, even after the history has moved on. */
+    private static void testDeferredTraining() {
+        for (String name : new String[] {"gshare", "tournament"}) {
+            BranchPredictor p = BranchPredictor.create(name, 4, 2);
+            long lookup = p.lookup(1, 0);       // history 0: counter 1
+            p.update(5, 0, true);               // another branch commits first, history 1
+            p.train(1, 0, true, lookup);        // history 3
+            // gshare counter 1 is now weakly taken; at history 3, pc 2 reads it
+            long later = p.lookup(2, 0);
+            long g = name.equals("gshare") ? later : later >>> 2;
+            check(g >>> 1 == 1 && (g & 1) == 1, name + ": commit trained the wrong counter");
+        }
+        System.out.println("testDeferredTraining passed");
+    }
+
+    /** A 4-wide speculative machine retires up to 4 entries per cycle, so straight-line code exceeds IPC 1. */
+    private static void testCommitWidth() throws Exception {
+        StringBuilder source = new StringBuilder();
+        for (int i = 0; i < 64; i++) source.append("DADDI R").append(1 + i % 31).append(",R0,").append(i).append('\n');
+        Program prog = parse(source.toString());
+        SimConfig config = new SimConfig();
+        config.speculative = 1;
+        config.issueWidth = 4;
+        config.numIntAluRS = 8;
+        config.cdbBuses = 4;
+        TomasuloEngine engine = config.createEngine(prog);
+        check(engine.runUntilDrained(10_000), "commit width: run did not drain");
+        double ipc = (double) engine.getCompletedInstructions() / engine.getCurrentCycle();
+        check(ipc > 1, "commit width: speculative IPC " + ipc + " should exceed 1 at width 4");
+
+        config.commitWidth = 1;
+        TomasuloEngine narrow = config.createEngine(prog);
+        check(narrow.runUntilDrained(10_000), "commit width 1: run did not drain");
+        check(narrow.getCompletedInstructions() <= narrow.getCurrentCycle(), "commit width 1 retired more than one per cycle");
+        check(architecturalState(narrow).equals(architecturalState(engine)), "commit width changed the results");
+        System.out.println("testCommitWidth passed (IPC " + String.format("%.2f", ipc) + ")");
+    }
+
+    private static Program parse(String source) throws IOException {
+        java.io.File file = java.io.File.createTempFile("cycle-history-test", ".txt");
+        file.deleteOnExit();
+        java.nio.file.Files.writeString(file.toPath(), source);
+        return new Parser().parse(file);
+    }
+
+    /** Everything the GUI shows, plus memory, register status and cache counters. */
+    private static String fingerprint(TomasuloEngine engine) {
+        CycleState s = engine.getCurrentState();
+        StringBuilder sb = new StringBuilder();
+        sb.append(s.getCycleNumber()).append('/').append(s.getPc()).append('\n');
+        sb.append(Arrays.toString(s.getIntRegs())).append(Arrays.toString(s.getFpRegs())).append('\n');
+        RegisterStatus rs = engine.getRegisterStatus();
+        for (int i = 0; i < 32; i++) sb.append(rs.getIntOwner(i)).append(',').append(rs.getFpOwner(i)).append(';');
+        sb.append('\n');
+        List<ReservationStation> stations = new ArrayList<>(s.getFpAddStations());
+        stations.addAll(s.getFpMulStations());
+        stations.addAll(s.getIntAluStations());
+        for (ReservationStation r : stations) {
+            sb.append(r.getName()).append(r.isBusy()).append(r.getOp()).append(r.getVj()).append(r.getVk())
+              .append(r.getQj()).append(r.getQk()).append(r.getA()).append(r.getDest())
+              .append(r.getRemainingCycles()).append(seqOf(r.getInstruction())).append('\n');
+        }
+        for (LoadBufferEntry lb : s.getLoadBuffers()) {
+            sb.append(lb.getName()).append(lb.isBusy()).append(lb.getAddress()).append(lb.getAddressQ())
+              .append(lb.getDestReg()).append(lb.getValue()).append(lb.getRemainingCycles())
+              .append(seqOf(lb.getInstruction())).append('\n');
+        }
+        for (StoreBufferEntry st : s.getStoreBuffers()) {
+            sb.append(st.getName()).append(st.isBusy()).append(st.getAddress()).append(st.getAddressQ())
+              .append(st.getValue()).append(st.getValueQ()).append(st.getRemainingCycles())
+              .append(seqOf(st.getInstruction())).append('\n');
+        }
+        for (DynamicInstruction d : s.getInstructionsWithTiming()) {
+            sb.append(d.getSeq()).append(':').append(d.getPcIndex()).append(' ').append(d.getIssueCycle())
+              .append(' ').append(d.getStartExecCycle()).append(' ').append(d.getEndExecCycle())
+              .append(' ').append(d.getWriteBackCycle()).append(' ').append(d.getCommitCycle())
+              .append(' ').append(d.getSquashCycle()).append('\n');
+        }
+        Cache cache = engine.getCache();
+        for (Cache c = cache; c != null; c = c.getNextLevel()) {
+            sb.append(c.getHits()).append('/').append(c.getMisses()).append('/').append(c.getWritebacks())
+              .append('/').append(c.getPrefetchesIssued()).append('/').append(c.getPrefetchHits())
+              .append('/').append(c.getVictimHits()).append('/').append(c.getBaselineMisses()).append(' ');
+        }
+        MshrFile mshrs = engine.getMshrFile();
+        if (mshrs != null) {
+            for (int i = 0; i < mshrs.getEntries(); i++) {
+                sb.append(mshrs.isBusy(i)).append(mshrs.getBlock(i)).append('@').append(mshrs.getReadyCycle(i)).append(' ');
+            }
+            sb.append(mshrs.getMerges()).append('/').append(mshrs.getStalls());
+        }
+        sb.append('\n');
+        for (CacheLine[] set : s.getCacheSnapshot()) {
+            for (CacheLine line : set) {
+                sb.append(line.isValid()).append(line.isDirty()).append(line.getTag()).append(line.getLruCounter()).append(' ');
+            }
+        }
+        sb.append('\n').append(memoryChecksum(engine.getMemory()));
+        sb.append('\n').append(engine.getCompletedInstructions());
+        for (ReorderBufferEntry e : engine.getReorderBuffer().inOrder()) {
+            sb.append(' ').append(e.getName()).append(seqOf(e.getInstruction())).append(e.getDest())
+              .append(e.getValue()).append(e.isReady()).append(e.isPredictedTaken());
+        }
+        return sb.toString();
+    }
+
+    private static long memoryChecksum(Memory memory) {
+        CRC32 crc = new CRC32();
+        try (OutputStream out = new CheckedOutputStream(OutputStream.nullOutputStream(), crc)) {
+            memory.exportTo(out);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return crc.getValue();
+    }
+
+    private static long seqOf(DynamicInstruction d) {
+        return d == null ? -1 : d.getSeq();
+    }
+
+    private static void check(boolean cond, String msg) {
+        if (!cond) {
+            System.err.println("CycleHistoryTest FAILED: " + msg);
+            System.exit(2);
+        }
+    }
+}
@@ -18,7 +18,7 @@ public class CycleState {
 
     private final CacheLine[][] cacheSnapshot;
 
-    private final List<Instruction> instructionsWithTiming;
+    private final List<DynamicInstruction> instructionsWithTiming;
 
     public CycleState(
             int cycleNumber,
@@ -31,7 +31,7 @@ public class CycleState {
             long[] intRegs,
             long[] fpRegs,
             CacheLine[][] cacheSnapshot,
-            List<Instruction> instructionsWithTiming
+            List<DynamicInstruction> instructionsWithTiming
     ) {
         this.cycleNumber = cycleNumber;
         this.pc = pc;
@@ -60,7 +60,7 @@ public class CycleState {
 
     public CacheLine[][] getCacheSnapshot() { return cacheSnapshot; }
 
-    public List<Instruction> getInstructionsWithTiming() {
+    public List<DynamicInstruction> getInstructionsWithTiming() {
         return instructionsWithTiming;
     }
 }
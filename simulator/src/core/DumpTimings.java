@@ -27,7 +27,7 @@ public class DumpTimings {
 
         System.out.println("Instruction timing table:");
         System.out.println("Idx | Text | I | S | E | W");
-        for (Instruction instr : prog.getInstructions()) {
+        for (DynamicInstruction instr : engine.getTimingLog().getRecords()) {
             System.out.printf("%2d | %s | %d | %d | %d | %d\n",
                     instr.getPcIndex(), instr.getRawText(), instr.getIssueCycle(), instr.getStartExecCycle(), instr.getEndExecCycle(), instr.getWriteBackCycle());
         }
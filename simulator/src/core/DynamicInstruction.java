@@ -0,0 +1,108 @@
+package core;
+
+/**
+ * One dynamic (issued) instance of a static {@link Instruction}.
+ *
+ * Every issue creates a new record with its own sequence number and timing,
+ * so loop iterations no longer overwrite each other's issue / execute /
+ * write-back cycles. Records are recycled by {@link TimingLog} once they have
+ * retired and fallen out of the timing window.
+ */
+public class DynamicInstruction {
+
+    private long seq;                // global issue order
+    private Instruction instruction; // static (decoded) instruction
+
+    // timing info
+    private int issueCycle;
+    private int startExecCycle;
+    private int endExecCycle;
+    private int writeBackCycle;
+
+    // speculative mode: the instance retires at commit, or when squashed
+    private boolean inRob;
+    private int commitCycle;
+    private int squashCycle;
+
+    DynamicInstruction() {
+    }
+
+    /** (Re)initialise for a new issue; used for fresh and recycled records. */
+    void init(long seq, Instruction instruction, int issueCycle) {
+        this.seq = seq;
+        this.instruction = instruction;
+        this.issueCycle = issueCycle;
+        this.startExecCycle = -1;
+        this.endExecCycle = -1;
+        this.writeBackCycle = -1;
+        this.inRob = false;
+        this.commitCycle = -1;
+        this.squashCycle = -1;
+    }
+
+    /** Frozen copy for snapshots. */
+    public DynamicInstruction copy() {
+        DynamicInstruction c = new DynamicInstruction();
+        c.seq = seq;
+        c.instruction = instruction;
+        c.issueCycle = issueCycle;
+        c.startExecCycle = startExecCycle;
+        c.endExecCycle = endExecCycle;
+        c.writeBackCycle = writeBackCycle;
+        c.inRob = inRob;
+        c.commitCycle = commitCycle;
+        c.squashCycle = squashCycle;
+        return c;
+    }
+
+    /** Forget stamps made after the given cycle (cycle history step-back). */
+    void clearAfter(int cycle) {
+        if (startExecCycle > cycle) startExecCycle = -1;
+        if (endExecCycle > cycle) endExecCycle = -1;
+        if (writeBackCycle > cycle) writeBackCycle = -1;
+        if (commitCycle > cycle) commitCycle = -1;
+        if (squashCycle > cycle) squashCycle = -1;
+    }
+
+    public long getSeq() { return seq; }
+    public Instruction getInstruction() { return instruction; }
+
+    // static fields, for the timing tables
+    public InstructionType getType() { return instruction.getType(); }
+    public String getRawText() { return instruction.getRawText(); }
+    public int getPcIndex() { return instruction.getPcIndex(); }
+
+    public int getIssueCycle() { return issueCycle; }
+    public void setIssueCycle(int issueCycle) { this.issueCycle = issueCycle; }
+
+    public int getStartExecCycle() { return startExecCycle; }
+    public void setStartExecCycle(int startExecCycle) { this.startExecCycle = startExecCycle; }
+
+    public int getEndExecCycle() { return endExecCycle; }
+    public void setEndExecCycle(int endExecCycle) { this.endExecCycle = endExecCycle; }
+
+    public int getWriteBackCycle() { return writeBackCycle; }
+    public void setWriteBackCycle(int writeBackCycle) { this.writeBackCycle = writeBackCycle; }
+
+    public int getCommitCycle() { return commitCycle; }
+    public void setCommitCycle(int commitCycle) { this.commitCycle = commitCycle; }
+
+    public int getSquashCycle() { return squashCycle; }
+    public void setSquashCycle(int squashCycle) { this.squashCycle = squashCycle; }
+
+    public boolean isSquashed() { return squashCycle != -1; }
+
+    /** Set when the instance holds a reorder buffer entry (speculative mode). */
+    public boolean isInRob() { return inRob; }
+    public void setInRob(boolean inRob) { this.inRob = inRob; }
+
+    /** Cycle the instance left the machine: write-back, or commit / squash with a ROB. */
+    public int getRetireCycle() {
+        if (squashCycle != -1) return squashCycle;
+        return inRob ? commitCycle : writeBackCycle;
+    }
+
+    public boolean isRetired() {
+        return getRetireCycle() != -1;
+    }
+}
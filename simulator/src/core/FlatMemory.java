@@ -0,0 +1,136 @@
+package core;
+
+import java.util.Arrays;
+
+/**
+ * Contiguous byte array covering addresses [0, size). Any access outside it
+ * throws. This is the original 4 KB memory and still the default for the
+ * small test programs.
+ */
+public class FlatMemory implements MemoryBackend {
+
+    public static final int DEFAULT_SIZE = 4096; // 4 KB
+
+    private final byte[] data;
+
+    public FlatMemory() {
+        this(DEFAULT_SIZE);
+    }
+
+    public FlatMemory(int size) {
+        if (size <= 0) throw new IllegalArgumentException("Memory size must be positive: " + size);
+        this.data = new byte[size];
+    }
+
+    public int getSize() {
+        return data.length;
+    }
+
+    @Override
+    public void reset() {
+        Arrays.fill(data, (byte) 0);
+    }
+
+    @Override
+    public long getExtent() {
+        return data.length;
+    }
+
+    private void checkAddress(long address, int size) {
+        if (address < 0 || address + size > data.length) {
+            throw new IllegalArgumentException("Memory access out of bounds at address " + address);
+        }
+    }
+
+    // ---------- 4-byte word (for LW, SW, L.S, S.S) ----------
+
+    @Override
+    public long loadWord(long address) {
+        // assume naturally aligned (multiple of 4)
+        checkAddress(address, 4);
+        int addr = (int) address;
+        int b0 = (data[addr]     & 0xFF);
+        int b1 = (data[addr + 1] & 0xFF);
+        int b2 = (data[addr + 2] & 0xFF);
+        int b3 = (data[addr + 3] & 0xFF);
+
+        // treat as signed 32-bit then extend to 64-bit
+        int value = (b0 << 24) | (b1 << 16) | (b2 << 8) | b3;
+        return (long) value;
+    }
+
+    @Override
+    public void storeWord(long address, long value) {
+        checkAddress(address, 4);
+        int addr = (int) address;
+        int v = (int) value; // low 32 bits
+        data[addr]     = (byte) ((v >>> 24) & 0xFF);
+        data[addr + 1] = (byte) ((v >>> 16) & 0xFF);
+        data[addr + 2] = (byte) ((v >>> 8)  & 0xFF);
+        data[addr + 3] = (byte) (v & 0xFF);
+    }
+
+    // ---------- 8-byte double/64-bit (for LD, SD, L.D, S.D) ----------
+
+    @Override
+    public long loadDouble(long address) {
+        // assume naturally aligned (multiple of 8)
+        checkAddress(address, 8);
+        int addr = (int) address;
+
+        long b0 = (data[addr]     & 0xFFL);
+        long b1 = (data[addr + 1] & 0xFFL);
+        long b2 = (data[addr + 2] & 0xFFL);
+        long b3 = (data[addr + 3] & 0xFFL);
+        long b4 = (data[addr + 4] & 0xFFL);
+        long b5 = (data[addr + 5] & 0xFFL);
+        long b6 = (data[addr + 6] & 0xFFL);
+        long b7 = (data[addr + 7] & 0xFFL);
+
+        return (b0 << 56) | (b1 << 48) | (b2 << 40) | (b3 << 32)
+             | (b4 << 24) | (b5 << 16) | (b6 << 8)  | b7;
+    }
+
+    @Override
+    public void storeDouble(long address, long value) {
+        checkAddress(address, 8);
+        int addr = (int) address;
+
+        data[addr]     = (byte) ((value >>> 56) & 0xFF);
+        data[addr + 1] = (byte) ((value >>> 48) & 0xFF);
+        data[addr + 2] = (byte) ((value >>> 40) & 0xFF);
+        data[addr + 3] = (byte) ((value >>> 32) & 0xFF);
+        data[addr + 4] = (byte) ((value >>> 24) & 0xFF);
+        data[addr + 5] = (byte) ((value >>> 16) & 0xFF);
+        data[addr + 6] = (byte) ((value >>> 8)  & 0xFF);
+        data[addr + 7] = (byte) (value & 0xFF);
+    }
+
+    @Override
+    public void readBytes(long address, byte[] dst, int offset, int len) {
+        checkAddress(address, len);
+        System.arraycopy(data, (int) address, dst, offset, len);
+    }
+
+    @Override
+    public void writeBytes(long address, byte[] src, int offset, int len) {
+        checkAddress(address, len);
+        System.arraycopy(src, offset, data, (int) address, len);
+    }
+
+    @Override
+    public void fill(long address, long length, byte value) {
+        if (length < 0) throw new IllegalArgumentException("Negative length: " + length);
+        checkAddress(address, (int) Math.min(length, Integer.MAX_VALUE));
+        Arrays.fill(data, (int) address, (int) (address + length), value);
+    }
+
+    @Override
+    public void copy(long from, long to, long length) {
+        if (length < 0) throw new IllegalArgumentException("Negative length: " + length);
+        int len = (int) Math.min(length, Integer.MAX_VALUE);
+        checkAddress(from, len);
+        checkAddress(to, len);
+        System.arraycopy(data, (int) from, data, (int) to, len);
+    }
+}
@@ -0,0 +1,182 @@
+package core;
+
+/**
+ * Architectural (non-timing) execution of a Program: each instruction
+ * updates the RegisterFile and Memory at once, in program order. There are
+ * no stations, buses or cycles. The program is decoded once into primitive
+ * arrays, so run() is a tight interpreter loop.
+ *
+ * Results match the detailed engine: the same integer arithmetic for the FP
+ * operations (division by zero gives 0), R0 hard-wired to zero, and the
+ * same word / double memory accesses.
+ *
+ * Warming (used by TomasuloEngine.fastForward):
+ *   - with a Cache, loads and stores go through loadNoLatency /
+ *     storeNoLatency with the instruction's program index. Tags, replacement
+ *     state, prefetcher and profile follow the stream as in a detailed run.
+ *   - with a BranchPredictor, every branch is predicted and then trained
+ *     with its outcome, as at issue and resolve in speculative mode.
+ * Without a cache, memory is accessed directly.
+ */
+public class FunctionalSimulator {
+
+    private static final int ALU_ADD = 0, ALU_SUB = 1, FP_ADD = 2, FP_SUB = 3, FP_MUL = 4, FP_DIV = 5,
+            LOAD = 6, STORE = 7, BEQ = 8, BNE = 9;
+
+    private final RegisterFile registers;
+    private final Memory memory;
+    private final Cache cache;
+    private BranchPredictor predictor;
+
+    // decoded program, indexed by program index
+    private final int size;
+    private final byte[] op;
+    private final int[] rd;
+    private final int[] rs;
+    private final int[] rt;
+    private final long[] imm;
+    private final boolean[] fpReg;    // memory instructions: F register operand
+    private final boolean[] isDouble; // memory instructions: 8 bytes
+
+    private int pc;
+    private long executed;
+    private long loads;
+    private long stores;
+    private long branches;
+
+    /** @param cache level to warm with the data accesses, or null to bypass caches */
+    public FunctionalSimulator(Program program, RegisterFile registers, Memory memory, Cache cache) {
+        this.registers = registers;
+        this.memory = memory;
+        this.cache = cache;
+        this.size = program.size();
+        this.op = new byte[size];
+        this.rd = new int[size];
+        this.rs = new int[size];
+        this.rt = new int[size];
+        this.imm = new long[size];
+        this.fpReg = new boolean[size];
+        this.isDouble = new boolean[size];
+        for (int i = 0; i < size; i++) decode(i, program.getInstruction(i));
+    }
+
+    private void decode(int i, Instruction instr) {
+        rd[i] = instr.getRd();
+        rs[i] = instr.getRs();
+        rt[i] = instr.getRt();
+        imm[i] = instr.getImmediate();
+        fpReg[i] = instr.isMemRegFp();
+        switch (instr.getType()) {
+            case DADDI: op[i] = ALU_ADD; break;
+            case DSUBI: op[i] = ALU_SUB; break;
+            case ADD_S: case ADD_D: op[i] = FP_ADD; break;
+            case SUB_S: case SUB_D: op[i] = FP_SUB; break;
+            case MUL_S: case MUL_D: op[i] = FP_MUL; break;
+            case DIV_S: case DIV_D: op[i] = FP_DIV; break;
+            case LD: case L_D: isDouble[i] = true; op[i] = LOAD; break;
+            case LW: case L_S: op[i] = LOAD; break;
+            case SD: case S_D: isDouble[i] = true; op[i] = STORE; break;
+            case SW: case S_S: op[i] = STORE; break;
+            case BEQ: op[i] = BEQ; break;
+            case BNE: op[i] = BNE; break;
+            default:
+                throw new IllegalArgumentException("Unsupported instruction: " + instr.getRawText());
+        }
+    }
+
+    /** Predictor to train on every branch (null = none, the default). */
+    public void setBranchPredictor(BranchPredictor predictor) {
+        this.predictor = predictor;
+    }
+
+    public int getPc() { return pc; }
+
+    /** Continue from program index pc (e.g. where the detailed engine stopped). */
+    public void setPc(int pc) {
+        if (pc < 0) throw new IllegalArgumentException("pc must not be negative: " + pc);
+        this.pc = pc;
+    }
+
+    /** True once pc is past the last instruction. */
+    public boolean isFinished() {
+        return pc >= size;
+    }
+
+    public long getExecuted() { return executed; }
+    public long getLoads() { return loads; }
+    public long getStores() { return stores; }
+    public long getBranches() { return branches; }
+
+    /**
+     * Execute up to maxInstructions instructions, stopping early at the end
+     * of the program.
+     * @return the number executed
+     */
+    public long run(long maxInstructions) {
+        RegisterFile r = registers;
+        long n = 0;
+        int p = pc;
+        while (n < maxInstructions && p < size) {
+            switch (op[p]) {
+                case ALU_ADD:
+                    r.setInt(rd[p], r.getInt(rs[p]) + imm[p]);
+                    break;
+                case ALU_SUB:
+                    r.setInt(rd[p], r.getInt(rs[p]) - imm[p]);
+                    break;
+                case FP_ADD:
+                    r.setFp(rd[p], r.getFp(rs[p]) + r.getFp(rt[p]));
+                    break;
+                case FP_SUB:
+                    r.setFp(rd[p], r.getFp(rs[p]) - r.getFp(rt[p]));
+                    break;
+                case FP_MUL:
+                    r.setFp(rd[p], r.getFp(rs[p]) * r.getFp(rt[p]));
+                    break;
+                case FP_DIV: {
+                    long divisor = r.getFp(rt[p]);
+                    r.setFp(rd[p], divisor == 0 ? 0 : r.getFp(rs[p]) / divisor);
+                    break;
+                }
+                case LOAD: {
+                    long address = r.getInt(rs[p]) + imm[p];
+                    long value = cache != null ? cache.loadNoLatency(address, isDouble[p], p)
+                            : isDouble[p] ? memory.loadDouble(address) : memory.loadWord(address);
+                    if (fpReg[p]) r.setFp(rd[p], value);
+                    else r.setInt(rd[p], value);
+                    loads++;
+                    break;
+                }
+                case STORE: {
+                    long address = r.getInt(rs[p]) + imm[p];
+                    long value = fpReg[p] ? r.getFp(rd[p]) : r.getInt(rd[p]);
+                    if (cache != null) cache.storeNoLatency(address, value, isDouble[p], p);
+                    else if (isDouble[p]) memory.storeDouble(address, value);
+                    else memory.storeWord(address, value);
+                    stores++;
+                    break;
+                }
+                default: { // BEQ, BNE
+                    long a = r.getInt(rs[p]), b = r.getInt(rt[p]);
+                    boolean taken = op[p] == BEQ ? a == b : a != b;
+                    int target = (int) imm[p];
+                    if (predictor != null) {
+                        predictor.update(p, target, taken);
+                    }
+                    branches++;
+                    if (taken) {
+                        p = target;
+                        n++;
+                        continue;
+                    }
+                    break;
+                }
+            }
+            p++;
+            n++;
+        }
+        pc = p;
+        executed += n;
+        return n;
+    }
+}
@@ -1,5 +1,149 @@
 package core;
 
+import java.util.Arrays;
+
+/**
+ * A group of identical execution units of one kind (FP adders, dividers,
+ * load ports, ...) that ready stations compete for.
+ *
+ * A unit accepts a new operation every {@code initiationInterval} cycles:
+ * 1 is fully pipelined, 0 means unpipelined (busy for the whole latency of
+ * the operation it started). With {@code count == 0} there is one unit per
+ * station, i.e. an instruction never waits for a unit; this is the original
+ * behaviour and the default.
+ *
+ * Each cycle in which a ready instruction could not start because every
+ * unit was busy counts as a structural stall cycle for the group.
+ */
 public class FunctionalUnit {
 
+    public enum Kind {
+        FP_ADD("fpAdd"), FP_MUL("fpMul"), FP_DIV("fpDiv"), INT_ALU("intAlu"), LOAD("load"), STORE("store");
+
+        private final String configName;
+
+        Kind(String configName) {
+            this.configName = configName;
+        }
+
+        /** Prefix of the SimConfig keys ({@code fpAddUnits}, {@code fpAddII}, ...). */
+        public String getConfigName() {
+            return configName;
+        }
+    }
+
+    public static final int UNPIPELINED = 0;
+
+    private final Kind kind;
+    private final int count;
+    private final int initiationInterval;
+
+    // first cycle in which each unit can accept a new operation
+    private final int[] nextFree;
+
+    private long starts;
+    private long occupiedCycles;   // unit-cycles not available for a new start
+    private long stallCycles;      // cycles with a ready instruction and no free unit
+    private long stalledRequests;  // instruction-cycles spent waiting for a unit
+    private int lastStallCycle = -1;
+
+    /**
+     * @param count              units in the group (0 = one per station, never stalls)
+     * @param initiationInterval cycles between starts on one unit (0 = unpipelined)
+     */
+    public FunctionalUnit(Kind kind, int count, int initiationInterval) {
+        if (count < 0) throw new IllegalArgumentException("Unit count must be >= 0: " + count);
+        if (initiationInterval < 0) {
+            throw new IllegalArgumentException("Initiation interval must be >= 0: " + initiationInterval);
+        }
+        this.kind = kind;
+        this.count = count;
+        this.initiationInterval = initiationInterval;
+        this.nextFree = new int[count];
+    }
+
+    public Kind getKind() { return kind; }
+    public int getCount() { return count; }
+    public int getInitiationInterval() { return initiationInterval; }
+
+    public boolean isUnlimited() {
+        return count == 0;
+    }
+
+    public boolean isPipelined() {
+        return initiationInterval != UNPIPELINED;
+    }
+
+    /**
+     * True if some unit can accept an operation this cycle. A false answer
+     * is recorded as a structural stall.
+     */
+    public boolean isAvailable(int cycle) {
+        if (count == 0) return true;
+        for (int free : nextFree) {
+            if (free <= cycle) return true;
+        }
+        stalledRequests++;
+        if (lastStallCycle != cycle) {
+            lastStallCycle = cycle;
+            stallCycles++;
+        }
+        return false;
+    }
+
+    /** Start an operation of the given latency on a free unit (check isAvailable first). */
+    public void start(int cycle, int latency) {
+        starts++;
+        int busy = isPipelined() ? initiationInterval : latency;
+        occupiedCycles += busy;
+        if (count == 0) return;
+        for (int i = 0; i < count; i++) {
+            if (nextFree[i] <= cycle) {
+                nextFree[i] = cycle + busy;
+                return;
+            }
+        }
+        throw new IllegalStateException("No free " + kind + " unit in cycle " + cycle);
+    }
+
+    public void reset() {
+        Arrays.fill(nextFree, 0);
+        starts = 0;
+        occupiedCycles = 0;
+        stallCycles = 0;
+        stalledRequests = 0;
+        lastStallCycle = -1;
+    }
+
+    public long getStarts() { return starts; }
+    public long getStallCycles() { return stallCycles; }
+    public long getStalledRequests() { return stalledRequests; }
+
+    /**
+     * Fraction of unit-cycles that could not accept a new operation over the
+     * given number of cycles (for unlimited groups: average such units).
+     */
+    public double getUtilisation(int cycles) {
+        if (cycles <= 0) return 0.0;
+        // occupancy of operations still in flight past the end is not trimmed
+        return count == 0 ? (double) occupiedCycles / cycles : Math.min(1.0, (double) occupiedCycles / ((long) cycles * count));
+    }
+
+    void saveState(StateVector out) {
+        out.put(starts);
+        out.put(occupiedCycles);
+        out.put(stallCycles);
+        out.put(stalledRequests);
+        out.put(lastStallCycle);
+        for (int free : nextFree) out.put(free);
+    }
+
+    void restoreState(StateVector in) {
+        starts = in.next();
+        occupiedCycles = in.next();
+        stallCycles = in.next();
+        stalledRequests = in.next();
+        lastStallCycle = in.nextInt();
+        for (int i = 0; i < nextFree.length; i++) nextFree[i] = in.nextInt();
+    }
 }
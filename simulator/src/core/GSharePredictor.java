@@ -0,0 +1,61 @@
+package core;
+
+/**
+ * gshare: 2-bit counters indexed by pc XOR the global history of committed
+ * branch outcomes (most recent outcome in bit 0).
+ */
+public class GSharePredictor implements BranchPredictor {
+
+    private final CounterTable counters;
+    private final int historyMask;
+    private int history;
+
+    public GSharePredictor(int tableBits, int historyBits) {
+        if (historyBits < 0 || historyBits > 30) {
+            throw new IllegalArgumentException("History bits out of range: " + historyBits);
+        }
+        this.counters = new CounterTable(tableBits, CounterTable.WEAKLY_NOT_TAKEN);
+        this.historyMask = (1 << historyBits) - 1;
+    }
+
+    private int index(int pc) {
+        return pc ^ history;
+    }
+
+    /** Bit 0: the prediction; above it the counter index (pc XOR history at lookup). */
+    @Override
+    public long lookup(int pc, int target) {
+        int index = index(pc);
+        return ((long) index << 1) | (counters.predictsTaken(index) ? 1 : 0);
+    }
+
+    @Override
+    public void train(int pc, int target, boolean taken, long lookup) {
+        counters.train((int) (lookup >>> 1), taken);
+        history = ((history << 1) | (taken ? 1 : 0)) & historyMask;
+    }
+
+    int getHistory() {
+        return history;
+    }
+
+    @Override
+    public void reset() {
+        counters.reset();
+        history = 0;
+    }
+
+    @Override public String getName() { return "gshare"; }
+
+    @Override
+    public void saveState(StateVector out) {
+        out.put(history);
+        counters.saveState(out);
+    }
+
+    @Override
+    public void restoreState(StateVector in) {
+        history = in.nextInt();
+        counters.restoreState(in);
+    }
+}
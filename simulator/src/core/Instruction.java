@@ -1,5 +1,10 @@
 package core;
 
+/**
+ * Static (decoded) instruction as produced by the Parser. Timing lives in
+ * the per-issue {@link DynamicInstruction} records, not here. The setters
+ * are for the Parser; engines never change an instruction.
+ */
 public class Instruction {
     private final InstructionType type;
     private final String rawText;
@@ -27,12 +32,6 @@ public class Instruction {
     // branch target label (if textual)
     private String branchLabel;
 
-    // timing info
-    private int issueCycle = -1;
-    private int startExecCycle = -1;
-    private int endExecCycle = -1;
-    private int writeBackCycle = -1;
-
     public Instruction(InstructionType type, String rawText, int pcIndex) {
         this.type = type;
         this.rawText = rawText;
@@ -62,16 +61,4 @@ public class Instruction {
 
     public String getBranchLabel() { return branchLabel; }
     public void setBranchLabel(String branchLabel) { this.branchLabel = branchLabel; }
-
-    public int getIssueCycle() { return issueCycle; }
-    public void setIssueCycle(int issueCycle) { this.issueCycle = issueCycle; }
-
-    public int getStartExecCycle() { return startExecCycle; }
-    public void setStartExecCycle(int startExecCycle) { this.startExecCycle = startExecCycle; }
-
-    public int getEndExecCycle() { return endExecCycle; }
-    public void setEndExecCycle(int endExecCycle) { this.endExecCycle = endExecCycle; }
-
-    public int getWriteBackCycle() { return writeBackCycle; }
-    public void setWriteBackCycle(int writeBackCycle) { this.writeBackCycle = writeBackCycle; }
 }
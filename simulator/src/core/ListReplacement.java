@@ -0,0 +1,125 @@
+package core;
+
+/**
+ * True LRU and FIFO as a doubly linked list of the ways of each set, most
+ * recently filled (or, for LRU, used) at the head and the victim at the tail.
+ *
+ * The links are short[] arrays indexed by set * ways + way, so a hit moves
+ * one way to the head and the victim is read off the tail, both in O(1)
+ * whatever the associativity. Unlike timestamps the order cannot overflow.
+ * FIFO only reorders on fills, so hits leave the insertion order alone.
+ * Invalidated ways go to the tail; they are refilled first anyway.
+ */
+public class ListReplacement implements ReplacementPolicy {
+
+    public enum Mode { LRU, FIFO }
+
+    private static final int MAX_WAYS = Short.MAX_VALUE;
+
+    private final Mode mode;
+    private final int ways;
+    private final short[] prev; // toward the head (MRU), -1 at the head
+    private final short[] next; // toward the tail (victim), -1 at the tail
+    private final short[] head;
+    private final short[] tail;
+
+    public ListReplacement(Mode mode, int sets, int ways) {
+        if (sets <= 0 || ways <= 0 || ways > MAX_WAYS) {
+            throw new IllegalArgumentException("Bad cache geometry: " + sets + " sets of " + ways + " ways");
+        }
+        this.mode = mode;
+        this.ways = ways;
+        this.prev = new short[sets * ways];
+        this.next = new short[sets * ways];
+        this.head = new short[sets];
+        this.tail = new short[sets];
+        reset();
+    }
+
+    @Override
+    public void reset() {
+        for (int s = 0; s < head.length; s++) {
+            int base = s * ways;
+            for (int w = 0; w < ways; w++) {
+                prev[base + w] = (short) (w - 1);
+                next[base + w] = (short) (w + 1 < ways ? w + 1 : -1);
+            }
+            head[s] = 0;
+            tail[s] = (short) (ways - 1);
+        }
+    }
+
+    @Override
+    public int victim(int set) {
+        return tail[set];
+    }
+
+    @Override
+    public void onHit(int set, int way) {
+        if (mode == Mode.LRU) moveToHead(set, way);
+    }
+
+    @Override
+    public void onFill(int set, int way) {
+        moveToHead(set, way);
+    }
+
+    @Override
+    public void onInvalidate(int set, int way) {
+        if (tail[set] == way) return;
+        unlink(set, way);
+        int base = set * ways;
+        prev[base + way] = tail[set];
+        next[base + way] = -1;
+        next[base + tail[set]] = (short) way;
+        tail[set] = (short) way;
+    }
+
+    private void moveToHead(int set, int way) {
+        if (head[set] == way) return;
+        unlink(set, way);
+        int base = set * ways;
+        prev[base + way] = -1;
+        next[base + way] = head[set];
+        prev[base + head[set]] = (short) way;
+        head[set] = (short) way;
+    }
+
+    /** Take way out of its set's list (it is not the only element). */
+    private void unlink(int set, int way) {
+        int base = set * ways;
+        short p = prev[base + way];
+        short n = next[base + way];
+        if (p < 0) head[set] = n; else next[base + p] = n;
+        if (n < 0) tail[set] = p; else prev[base + n] = p;
+    }
+
+    @Override
+    public String getName() {
+        return mode == Mode.LRU ? "lru" : "fifo";
+    }
+
+    @Override
+    public void saveState(StateVector out) {
+        for (int i = 0; i < prev.length; i++) {
+            out.put(((long) prev[i] << 16) | (next[i] & 0xFFFF));
+        }
+        for (int s = 0; s < head.length; s++) {
+            out.put(((long) head[s] << 16) | (tail[s] & 0xFFFF));
+        }
+    }
+
+    @Override
+    public void restoreState(StateVector in) {
+        for (int i = 0; i < prev.length; i++) {
+            long v = in.next();
+            prev[i] = (short) (v >> 16);
+            next[i] = (short) v;
+        }
+        for (int s = 0; s < head.length; s++) {
+            long v = in.next();
+            head[s] = (short) (v >> 16);
+            tail[s] = (short) v;
+        }
+    }
+}
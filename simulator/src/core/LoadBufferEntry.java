@@ -3,40 +3,47 @@ package core;
 public class LoadBufferEntry {
 
     private final String name;   // e.g. "L0", "L1"
+    private final int tag;       // this buffer's producer tag
+    private final ProducerTags tags;
 
     private boolean busy;
 
     // Address computation
     private long address;        // effective address when known
-    private String addressQ;     // RS name if address depends on some result
+    private int addressQ;        // producer tag if address depends on some result
     private int baseRegIndex;    // R index for base
     private long offset;         // offset
 
     // Execution
     private int remainingCycles; // >0 when executing
-    private Instruction instruction;
+    private DynamicInstruction instruction;
+    private int robTag;          // reorder buffer entry (speculative mode), else NONE
 
-    private String destReg;      // "R5" or "F0" for the loaded value
+    private int destReg;         // RegisterId of R5 / F0 etc. for the loaded value
     private long value;          // value loaded from memory
 
-    public LoadBufferEntry(String name) {
+    public LoadBufferEntry(String name, ProducerTags tags) {
         this.name = name;
+        this.tags = tags;
+        this.tag = tags.register(name, this);
         clear();
     }
 
     public void clear() {
         busy = false;
         address = 0;
-        addressQ = null;
+        addressQ = ProducerTags.NONE;
         baseRegIndex = -1;
         offset = 0;
         remainingCycles = 0;
         instruction = null;
-        destReg = null;
+        robTag = ProducerTags.NONE;
+        destReg = RegisterId.NONE;
         value = 0;
     }
 
     public String getName() { return name; }
+    public int getTag() { return tag; }
 
     public boolean isBusy() { return busy; }
     public void setBusy(boolean busy) { this.busy = busy; }
@@ -44,8 +51,9 @@ public class LoadBufferEntry {
     public long getAddress() { return address; }
     public void setAddress(long address) { this.address = address; }
 
-    public String getAddressQ() { return addressQ; }
-    public void setAddressQ(String addressQ) { this.addressQ = addressQ; }
+    public int getAddressQTag() { return addressQ; }
+    public void setAddressQTag(int addressQ) { this.addressQ = addressQ; }
+    public String getAddressQ() { return tags.nameOf(addressQ); }
 
     public int getBaseRegIndex() { return baseRegIndex; }
     public void setBaseRegIndex(int baseRegIndex) { this.baseRegIndex = baseRegIndex; }
@@ -56,21 +64,56 @@ public class LoadBufferEntry {
     public int getRemainingCycles() { return remainingCycles; }
     public void setRemainingCycles(int remainingCycles) { this.remainingCycles = remainingCycles; }
 
-    public Instruction getInstruction() { return instruction; }
-    public void setInstruction(Instruction instruction) { this.instruction = instruction; }
+    public DynamicInstruction getInstruction() { return instruction; }
+    public void setInstruction(DynamicInstruction instruction) { this.instruction = instruction; }
 
-    public String getDestReg() { return destReg; }
-    public void setDestReg(String destReg) { this.destReg = destReg; }
+    public int getRobTag() { return robTag; }
+    public void setRobTag(int robTag) { this.robTag = robTag; }
+
+    /** Tag this entry broadcasts on the CDB: its ROB entry when speculating, else its own. */
+    public int getProducerTag() { return robTag != ProducerTags.NONE ? robTag : tag; }
+
+    public int getDestRegId() { return destReg; }
+    public void setDestRegId(int destReg) { this.destReg = destReg; }
+    public String getDestReg() { return RegisterId.toString(destReg); }
 
     public long getValue() { return value; }
     public void setValue(long value) { this.value = value; }
 
     public boolean isAddressReady() {
-        return addressQ == null;
+        return addressQ == ProducerTags.NONE;
     }
 
     public boolean isExecuting() {
         // THIS is what the engine expects:
         return busy && remainingCycles > 0;
     }
+
+    // ---------- history ----------
+
+    void saveState(StateVector out) {
+        out.putBoolean(busy);
+        out.put(address);
+        out.put(addressQ);
+        out.put(baseRegIndex);
+        out.put(offset);
+        out.put(remainingCycles);
+        out.put(instruction == null ? -1 : instruction.getSeq());
+        out.put(robTag);
+        out.put(destReg);
+        out.put(value);
+    }
+
+    void restoreState(StateVector in, TimingLog log) {
+        busy = in.nextBoolean();
+        address = in.next();
+        addressQ = in.nextInt();
+        baseRegIndex = in.nextInt();
+        offset = in.next();
+        remainingCycles = in.nextInt();
+        instruction = log.find(in.next());
+        robTag = in.nextInt();
+        destReg = in.nextInt();
+        value = in.next();
+    }
 }
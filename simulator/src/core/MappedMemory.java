@@ -0,0 +1,323 @@
+package core;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Memory whose contents come from binary image files mapped into the
+ * address space with {@link FileChannel#map}, without copying them.
+ *
+ * Each image occupies [base, base + file length). Images are mapped
+ * read-only, so a read-only data set can be used directly. The first store
+ * to a 4 KB page of an image copies that page out of the mapping
+ * (copy-on-write); later accesses to the page use the copy. reset() drops
+ * the copies, so every run starts from the original data, and the file is
+ * never modified. Addresses outside every image go to a second backend
+ * (sparse paged memory by default). Use {@link Memory#snapshot} to write
+ * the final contents to a file.
+ *
+ * Image bytes are big-endian like the rest of the simulated memory. A
+ * mapping larger than 1 GB is split into several buffers.
+ */
+public class MappedMemory implements MemoryBackend {
+
+    private static final int CHUNK_BITS = 30; // 1 GB per MappedByteBuffer
+    private static final long CHUNK_SIZE = 1L << CHUNK_BITS;
+    private static final int PAGE_BITS = 12;  // copy-on-write granularity
+    private static final int PAGE_SIZE = 1 << PAGE_BITS;
+
+    private static final class Region {
+        final Path file;
+        final long base;
+        final long length;
+        MappedByteBuffer[] chunks; // read-only mapping
+        ByteBuffer[] pages;        // copies of the pages stored to (null until the first store)
+
+        Region(Path file, long base, long length) {
+            this.file = file;
+            this.base = base;
+            this.length = length;
+        }
+
+        boolean contains(long address, int size) {
+            long offset = address - base;
+            return offset >= 0 && offset <= length - size;
+        }
+
+        MappedByteBuffer chunk(long off) {
+            return chunks[(int) (off >>> CHUNK_BITS)];
+        }
+
+        /** Copy of the page holding offset off, or null while it is unmodified. */
+        ByteBuffer copyOf(long off) {
+            return pages == null ? null : pages[(int) (off >>> PAGE_BITS)];
+        }
+
+        /** Copy of the page holding offset off, made on the first store to it. */
+        ByteBuffer writablePage(long off) {
+            if (pages == null) pages = new ByteBuffer[(int) ((length + PAGE_SIZE - 1) >>> PAGE_BITS)];
+            int p = (int) (off >>> PAGE_BITS);
+            if (pages[p] == null) {
+                long start = (long) p << PAGE_BITS;
+                ByteBuffer original = chunk(start).duplicate();
+                original.position(chunkOffset(start));
+                original.limit(chunkOffset(start) + (int) Math.min(PAGE_SIZE, length - start));
+                ByteBuffer copy = ByteBuffer.allocate(PAGE_SIZE); // big-endian like the mapping
+                copy.put(original);
+                pages[p] = copy;
+            }
+            return pages[p];
+        }
+    }
+
+    private final MemoryBackend rest;
+    private final List<Region> regions = new ArrayList<>();
+    private Region last; // region of the previous access
+
+    public MappedMemory() {
+        this(new PagedMemory());
+    }
+
+    /** @param rest backend for every address not covered by an image */
+    public MappedMemory(MemoryBackend rest) {
+        if (rest == null) throw new IllegalArgumentException("rest must not be null");
+        this.rest = rest;
+    }
+
+    /**
+     * Map an image file at base. Images must not overlap each other.
+     * @throws IOException if the file cannot be mapped
+     */
+    public void map(Path image, long base) throws IOException {
+        try (FileChannel ch = FileChannel.open(image, StandardOpenOption.READ)) {
+            long length = ch.size();
+            if (length == 0) return;
+            if (base + length - 1 < base) {
+                throw new IllegalArgumentException("Image " + image + " does not fit at base " + base);
+            }
+            for (Region r : regions) {
+                if (base < r.base + r.length && r.base < base + length) {
+                    throw new IllegalArgumentException("Image " + image + " overlaps " + r.file);
+                }
+            }
+            Region region = new Region(image, base, length);
+            int n = (int) ((length + CHUNK_SIZE - 1) >>> CHUNK_BITS);
+            region.chunks = new MappedByteBuffer[n];
+            for (int i = 0; i < n; i++) {
+                long pos = (long) i << CHUNK_BITS;
+                // default byte order is big-endian
+                region.chunks[i] = ch.map(FileChannel.MapMode.READ_ONLY, pos, Math.min(CHUNK_SIZE, length - pos));
+            }
+            regions.add(region);
+        }
+    }
+
+    /** Number of mapped images. */
+    public int getImageCount() {
+        return regions.size();
+    }
+
+    public MemoryBackend getRest() {
+        return rest;
+    }
+
+    /** Back to the original image contents; everything else reads zero. */
+    @Override
+    public void reset() {
+        rest.reset();
+        for (Region r : regions) r.pages = null;
+    }
+
+    @Override
+    public long getExtent() {
+        long extent = rest.getExtent();
+        for (Region r : regions) {
+            if (r.base >= 0) extent = Math.max(extent, r.base + r.length);
+        }
+        return extent;
+    }
+
+    /** Region holding all size bytes at address, or null. */
+    private Region regionOf(long address, int size) {
+        if (last != null && last.contains(address, size)) return last;
+        for (Region r : regions) {
+            if (r.contains(address, size)) {
+                last = r;
+                return r;
+            }
+        }
+        return null;
+    }
+
+    /** True if some byte of [address, address + size) is inside an image. */
+    private boolean touchesImage(long address, int size) {
+        for (Region r : regions) {
+            if (address < r.base + r.length && r.base < address + size) return true;
+        }
+        return false;
+    }
+
+    /** An access inside one page is also inside one chunk. */
+    private static boolean samePage(long offset, int size) {
+        return (offset >>> PAGE_BITS) == ((offset + size - 1) >>> PAGE_BITS);
+    }
+
+    private static int pageOffset(long offset) {
+        return (int) (offset & (PAGE_SIZE - 1));
+    }
+
+    private static int chunkOffset(long offset) {
+        return (int) (offset & (CHUNK_SIZE - 1));
+    }
+
+    // ---------- accesses ----------
+
+    @Override
+    public long loadWord(long address) {
+        Region r = regionOf(address, 4);
+        if (r != null) {
+            long off = address - r.base;
+            if (samePage(off, 4)) {
+                ByteBuffer page = r.copyOf(off);
+                return page != null ? page.getInt(pageOffset(off)) : r.chunk(off).getInt(chunkOffset(off));
+            }
+        } else if (!touchesImage(address, 4)) {
+            return rest.loadWord(address);
+        }
+        return (int) loadBytes(address, 4);
+    }
+
+    @Override
+    public void storeWord(long address, long value) {
+        Region r = regionOf(address, 4);
+        if (r != null) {
+            long off = address - r.base;
+            if (samePage(off, 4)) {
+                r.writablePage(off).putInt(pageOffset(off), (int) value);
+                return;
+            }
+        } else if (!touchesImage(address, 4)) {
+            rest.storeWord(address, value);
+            return;
+        }
+        storeBytes(address, 4, value);
+    }
+
+    @Override
+    public long loadDouble(long address) {
+        Region r = regionOf(address, 8);
+        if (r != null) {
+            long off = address - r.base;
+            if (samePage(off, 8)) {
+                ByteBuffer page = r.copyOf(off);
+                return page != null ? page.getLong(pageOffset(off)) : r.chunk(off).getLong(chunkOffset(off));
+            }
+        } else if (!touchesImage(address, 8)) {
+            return rest.loadDouble(address);
+        }
+        return loadBytes(address, 8);
+    }
+
+    @Override
+    public void storeDouble(long address, long value) {
+        Region r = regionOf(address, 8);
+        if (r != null) {
+            long off = address - r.base;
+            if (samePage(off, 8)) {
+                r.writablePage(off).putLong(pageOffset(off), value);
+                return;
+            }
+        } else if (!touchesImage(address, 8)) {
+            rest.storeDouble(address, value);
+            return;
+        }
+        storeBytes(address, 8, value);
+    }
+
+    // accesses that straddle an image edge or a page edge go byte by byte
+
+    private long loadBytes(long address, int size) {
+        byte[] b = new byte[size];
+        readBytes(address, b, 0, size);
+        long v = 0;
+        for (int i = 0; i < size; i++) v = (v << 8) | (b[i] & 0xFFL);
+        return v;
+    }
+
+    private void storeBytes(long address, int size, long value) {
+        byte[] b = new byte[size];
+        for (int i = 0; i < size; i++) b[i] = (byte) (value >>> (8 * (size - 1 - i)));
+        writeBytes(address, b, 0, size);
+    }
+
+    @Override
+    public void readBytes(long address, byte[] dst, int offset, int len) {
+        int done = 0;
+        while (done < len) {
+            long a = address + done;
+            int n = segment(a, len - done);
+            Region r = regionOf(a, 1);
+            if (r == null) {
+                rest.readBytes(a, dst, offset + done, n);
+            } else {
+                readView(r, a - r.base).get(dst, offset + done, n);
+            }
+            done += n;
+        }
+    }
+
+    @Override
+    public void writeBytes(long address, byte[] src, int offset, int len) {
+        int done = 0;
+        while (done < len) {
+            long a = address + done;
+            int n = segment(a, len - done);
+            Region r = regionOf(a, 1);
+            if (r == null) {
+                rest.writeBytes(a, src, offset + done, n);
+            } else {
+                long off = a - r.base;
+                ByteBuffer view = r.writablePage(off).duplicate();
+                view.position(pageOffset(off));
+                view.put(src, offset + done, n);
+            }
+            done += n;
+        }
+    }
+
+    /**
+     * View of the page copy or mapping holding image offset off, positioned
+     * at it, for a relative bulk get (the absolute bulk methods need Java 13).
+     */
+    private static ByteBuffer readView(Region r, long off) {
+        ByteBuffer page = r.copyOf(off);
+        ByteBuffer view = page != null ? page.duplicate() : r.chunk(off).duplicate();
+        view.position(page != null ? pageOffset(off) : chunkOffset(off));
+        return view;
+    }
+
+    /**
+     * Length of the run starting at address (at most max bytes) that stays
+     * inside one image page, or outside every image.
+     */
+    private int segment(long address, int max) {
+        long n = max;
+        Region r = regionOf(address, 1);
+        if (r != null) {
+            long off = address - r.base;
+            long pageEnd = Math.min(r.length, ((off >>> PAGE_BITS) + 1) << PAGE_BITS);
+            n = Math.min(n, pageEnd - off);
+        } else {
+            for (Region other : regions) {
+                if (other.base > address) n = Math.min(n, other.base - address);
+            }
+        }
+        return (int) n;
+    }
+}
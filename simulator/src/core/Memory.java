@@ -1,88 +1,229 @@
 package core;
 
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Simulated data memory: big-endian words (4 bytes) and doubles (8 bytes)
+ * at byte addresses.
+ *
+ * The bytes live in a {@link MemoryBackend}: by default a flat 4 KB array
+ * ({@link FlatMemory}); {@link VarHandleMemory} is the same array accessed
+ * through VarHandle views, {@link PagedMemory} covers the whole 64-bit address
+ * space sparsely and {@link MappedMemory} maps binary image files into it.
+ * While cycle history is on, every store is logged to the journal (old and
+ * new value) before it reaches the backend.
+ *
+ * Images are loaded with {@link #loadImage} and contents leave through
+ * {@link #exportTo} / {@link #snapshot}, which stream in fixed-size chunks
+ * instead of copying the whole memory into one array.
+ */
 public class Memory {
 
-    private static final int MEM_SIZE = 4096; // 4 KB
-    private final byte[] data = new byte[MEM_SIZE];
+    private static final int CHUNK = 64 * 1024; // export / image copy buffer
+
+    private final MemoryBackend backend;
+
+    // stores are logged here while cycle history is on (null = off)
+    private MemoryJournal journal;
 
     public Memory() {
-        reset();
+        this(new FlatMemory());
     }
 
-    public void reset() {
-        for (int i = 0; i < MEM_SIZE; i++) {
-            data[i] = 0;
-        }
+    public Memory(MemoryBackend backend) {
+        if (backend == null) throw new IllegalArgumentException("backend must not be null");
+        this.backend = backend;
     }
 
-    private void checkAddress(long address, int size) {
-        if (address < 0 || address + size > MEM_SIZE) {
-            throw new IllegalArgumentException("Memory access out of bounds at address " + address);
+    /**
+     * Memory for a config name: "flat" (size bytes), "varhandle" (size
+     * bytes, VarHandle accesses), "paged" (pages of
+     * 2^pageBits bytes over the full address space) or "mapped" (paged, with
+     * images mapped from files).
+     */
+    public static Memory create(String kind, int size, int pageBits) {
+        switch (kind) {
+            case "flat": return new Memory(new FlatMemory(size));
+            case "varhandle": return new Memory(new VarHandleMemory(size));
+            case "paged": return new Memory(new PagedMemory(pageBits));
+            case "mapped": return new Memory(new MappedMemory(new PagedMemory(pageBits)));
+            default:
+                throw new IllegalArgumentException("Unknown memory kind: " + kind);
         }
     }
 
+    public MemoryBackend getBackend() {
+        return backend;
+    }
+
+    public void reset() {
+        backend.reset();
+    }
+
+    public void setJournal(MemoryJournal journal) {
+        this.journal = journal;
+    }
+
+    public MemoryJournal getJournal() {
+        return journal;
+    }
+
     // ---------- 4-byte word (for LW, SW, L.S, S.S) ----------
 
     public long loadWord(long address) {
-        // assume naturally aligned (multiple of 4)
-        checkAddress(address, 4);
-        int addr = (int) address;
-        int b0 = (data[addr]     & 0xFF);
-        int b1 = (data[addr + 1] & 0xFF);
-        int b2 = (data[addr + 2] & 0xFF);
-        int b3 = (data[addr + 3] & 0xFF);
-
-        // treat as signed 32-bit then extend to 64-bit
-        int value = (b0 << 24) | (b1 << 16) | (b2 << 8) | b3;
-        return (long) value;
+        return backend.loadWord(address);
     }
 
     public void storeWord(long address, long value) {
-        checkAddress(address, 4);
-        int addr = (int) address;
-        int v = (int) value; // low 32 bits
-        data[addr]     = (byte) ((v >>> 24) & 0xFF);
-        data[addr + 1] = (byte) ((v >>> 16) & 0xFF);
-        data[addr + 2] = (byte) ((v >>> 8)  & 0xFF);
-        data[addr + 3] = (byte) (v & 0xFF);
+        if (journal != null) journal.record(address, 4, backend.loadWord(address), value);
+        backend.storeWord(address, value);
     }
 
     // ---------- 8-byte double/64-bit (for LD, SD, L.D, S.D) ----------
 
     public long loadDouble(long address) {
-        // assume naturally aligned (multiple of 8)
-        checkAddress(address, 8);
-        int addr = (int) address;
+        return backend.loadDouble(address);
+    }
+
+    public void storeDouble(long address, long value) {
+        if (journal != null) journal.record(address, 8, backend.loadDouble(address), value);
+        backend.storeDouble(address, value);
+    }
 
-        long b0 = (data[addr]     & 0xFFL);
-        long b1 = (data[addr + 1] & 0xFFL);
-        long b2 = (data[addr + 2] & 0xFFL);
-        long b3 = (data[addr + 3] & 0xFFL);
-        long b4 = (data[addr + 4] & 0xFFL);
-        long b5 = (data[addr + 5] & 0xFFL);
-        long b6 = (data[addr + 6] & 0xFFL);
-        long b7 = (data[addr + 7] & 0xFFL);
+    // ---------- bulk ----------
 
-        return (b0 << 56) | (b1 << 48) | (b2 << 40) | (b3 << 32)
-             | (b4 << 24) | (b5 << 16) | (b6 << 8)  | b7;
+    public void readBytes(long address, byte[] dst, int offset, int len) {
+        backend.readBytes(address, dst, offset, len);
     }
 
-    public void storeDouble(long address, long value) {
-        checkAddress(address, 8);
-        int addr = (int) address;
+    public void writeBytes(long address, byte[] src, int offset, int len) {
+        if (journal != null) record(address, src, offset, len);
+        backend.writeBytes(address, src, offset, len);
+    }
 
-        data[addr]     = (byte) ((value >>> 56) & 0xFF);
-        data[addr + 1] = (byte) ((value >>> 48) & 0xFF);
-        data[addr + 2] = (byte) ((value >>> 40) & 0xFF);
-        data[addr + 3] = (byte) ((value >>> 32) & 0xFF);
-        data[addr + 4] = (byte) ((value >>> 24) & 0xFF);
-        data[addr + 5] = (byte) ((value >>> 16) & 0xFF);
-        data[addr + 6] = (byte) ((value >>> 8)  & 0xFF);
-        data[addr + 7] = (byte) (value & 0xFF);
+    /** Set length bytes starting at address to value. */
+    public void fill(long address, long length, byte value) {
+        if (journal == null) {
+            backend.fill(address, length, value);
+            return;
+        }
+        if (length < 0) throw new IllegalArgumentException("Negative length: " + length);
+        byte[] buf = new byte[(int) Math.min(CHUNK, length)];
+        Arrays.fill(buf, value);
+        for (long done = 0; done < length; ) {
+            int n = (int) Math.min(buf.length, length - done);
+            writeBytes(address + done, buf, 0, n);
+            done += n;
+        }
     }
 
-    // For cache fills / debugging
+    /** Copy length bytes from one address to another (overlap-safe, like memmove). */
+    public void copy(long from, long to, long length) {
+        if (journal == null) {
+            backend.copy(from, to, length);
+            return;
+        }
+        if (length < 0) throw new IllegalArgumentException("Negative length: " + length);
+        byte[] buf = new byte[(int) Math.min(CHUNK, length)];
+        boolean backwards = to > from && to - from < length;
+        for (long done = 0; done < length; ) {
+            int n = (int) Math.min(buf.length, length - done);
+            long off = backwards ? length - done - n : done;
+            backend.readBytes(from + off, buf, 0, n);
+            writeBytes(to + off, buf, 0, n);
+            done += n;
+        }
+    }
+
+    /** Journal a bulk write as 8-byte entries plus single bytes for the tail. */
+    private void record(long address, byte[] src, int offset, int len) {
+        byte[] old = new byte[len];
+        backend.readBytes(address, old, 0, len);
+        int i = 0;
+        for (; i + 8 <= len; i += 8) {
+            journal.record(address + i, 8, bigEndian(old, i, 8), bigEndian(src, offset + i, 8));
+        }
+        for (; i < len; i++) {
+            journal.record(address + i, 1, old[i], src[offset + i]);
+        }
+    }
+
+    private static long bigEndian(byte[] b, int from, int size) {
+        long v = 0;
+        for (int i = 0; i < size; i++) v = (v << 8) | (b[from + i] & 0xFFL);
+        return v;
+    }
+
+    // ---------- images ----------
+
+    /**
+     * Put the contents of a binary image file at base. A mapped backend maps
+     * the file (no copy; reset() returns to the image); any other backend
+     * gets the bytes copied in, and loses them on reset(). Not journaled.
+     */
+    public void loadImage(Path image, long base) throws IOException {
+        if (backend instanceof MappedMemory) {
+            ((MappedMemory) backend).map(image, base);
+            return;
+        }
+        byte[] buf = new byte[CHUNK];
+        long address = base;
+        try (InputStream in = Files.newInputStream(image)) {
+            int n;
+            while ((n = in.read(buf)) > 0) {
+                backend.writeBytes(address, buf, 0, n);
+                address += n;
+            }
+        }
+    }
+
+    /** Write length bytes starting at address to out, big-endian as stored. */
+    public void exportTo(OutputStream out, long address, long length) throws IOException {
+        if (length < 0) throw new IllegalArgumentException("Negative length: " + length);
+        byte[] buf = new byte[(int) Math.min(CHUNK, length)];
+        for (long done = 0; done < length; ) {
+            int n = (int) Math.min(buf.length, length - done);
+            backend.readBytes(address + done, buf, 0, n);
+            out.write(buf, 0, n);
+            done += n;
+        }
+    }
+
+    /** Write bytes [0, extent) to out. */
+    public void exportTo(OutputStream out) throws IOException {
+        exportTo(out, 0, backend.getExtent());
+    }
+
+    /** Save length bytes starting at address as an image file. */
+    public void snapshot(Path file, long address, long length) throws IOException {
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(file))) {
+            exportTo(out, address, length);
+        }
+    }
+
+    /** Save bytes [0, extent) as an image file (loadable again at base 0). */
+    public void snapshot(Path file) throws IOException {
+        snapshot(file, 0, backend.getExtent());
+    }
+
+    /**
+     * Bytes [0, extent) of the backend in one array.
+     * @deprecated copies the whole memory; use {@link #exportTo} to stream it
+     */
+    @Deprecated
     public byte[] getRawDataCopy() {
-        return data.clone();
+        long extent = backend.getExtent();
+        if (extent > Integer.MAX_VALUE - 8) {
+            throw new IllegalStateException("Memory contents too large to copy: " + extent + " bytes");
+        }
+        byte[] copy = new byte[(int) extent];
+        backend.readBytes(0, copy, 0, copy.length);
+        return copy;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,69 @@
+package core;
+
+import java.util.Arrays;
+
+/**
+ * Storage behind {@link Memory}: big-endian 4- and 8-byte accesses at byte
+ * addresses. Memory adds the store journal on top; a backend only stores bytes.
+ */
+public interface MemoryBackend {
+
+    /** Sign-extended 32-bit value at address. */
+    long loadWord(long address);
+
+    void storeWord(long address, long value);
+
+    long loadDouble(long address);
+
+    void storeDouble(long address, long value);
+
+    /** Zero the whole contents. */
+    void reset();
+
+    /**
+     * One past the highest address that may hold a non-zero byte, counting
+     * from 0 (everything at or above it reads as zero).
+     */
+    long getExtent();
+
+    /**
+     * Copy len bytes starting at address into dst; bytes that were never
+     * written read as zero.
+     */
+    void readBytes(long address, byte[] dst, int offset, int len);
+
+    /** Copy len bytes from src into memory starting at address. */
+    void writeBytes(long address, byte[] src, int offset, int len);
+
+    /** Set length bytes starting at address to value. */
+    default void fill(long address, long length, byte value) {
+        if (length < 0) throw new IllegalArgumentException("Negative length: " + length);
+        byte[] buf = new byte[(int) Math.min(BULK_CHUNK, length)];
+        if (value != 0) Arrays.fill(buf, value);
+        for (long done = 0; done < length; ) {
+            int n = (int) Math.min(buf.length, length - done);
+            writeBytes(address + done, buf, 0, n);
+            done += n;
+        }
+    }
+
+    /**
+     * Copy length bytes from one address to another; overlapping ranges
+     * behave as if the source were copied out first (like memmove).
+     */
+    default void copy(long from, long to, long length) {
+        if (length < 0) throw new IllegalArgumentException("Negative length: " + length);
+        byte[] buf = new byte[(int) Math.min(BULK_CHUNK, length)];
+        boolean backwards = to > from && to - from < length; // dst overlaps the end of src
+        for (long done = 0; done < length; ) {
+            int n = (int) Math.min(buf.length, length - done);
+            long off = backwards ? length - done - n : done;
+            readBytes(from + off, buf, 0, n);
+            writeBytes(to + off, buf, 0, n);
+            done += n;
+        }
+    }
+
+    /** Buffer size of the default fill / copy. */
+    int BULK_CHUNK = 64 * 1024;
+}
@@ -0,0 +1,84 @@
+package core;
+
+/**
+ * Compares the memory backends on the access patterns the engine produces:
+ * aligned double and word loads / stores sweeping a buffer (load write-back,
+ * store commit), plus bulk fill and copy against the equivalent loop of
+ * single stores.
+ *
+ * Each case runs a warm-up pass for the JIT and then the timed repeats; the
+ * result printed is nanoseconds per access (lower is better). A checksum of
+ * everything loaded is printed so the loads cannot be optimised away.
+ *
+ * Usage: java -cp bin/classes core.MemoryBenchmark [bytes] [repeats]
+ */
+public class MemoryBenchmark {
+
+    private static final String[] NAMES = {"flat", "varhandle", "paged"};
+
+    private static long sink;
+
+    public static void main(String[] args) {
+        int bytes = (args != null && args.length > 0) ? Integer.parseInt(args[0]) : 1 << 20;
+        int repeats = (args != null && args.length > 1) ? Integer.parseInt(args[1]) : 20;
+
+        System.out.println("backend   | ld.d ns | sd.d ns | lw ns | sw ns | fill ns/B | copy ns/B | store-loop ns/B");
+        for (String name : NAMES) {
+            MemoryBackend m = create(name, bytes);
+            for (int pass = 0; pass < 2; pass++) { // pass 0 warms up
+                int r = pass == 0 ? Math.max(1, repeats / 4) : repeats;
+                double sd = time(r, bytes / 8, () -> storeDoubles(m, bytes));
+                double ld = time(r, bytes / 8, () -> loadDoubles(m, bytes));
+                double sw = time(r, bytes / 4, () -> storeWords(m, bytes));
+                double lw = time(r, bytes / 4, () -> loadWords(m, bytes));
+                double fill = time(r, bytes, () -> m.fill(0, bytes, (byte) 0x5A));
+                double copy = time(r, bytes / 2, () -> m.copy(0, bytes / 2, bytes / 2));
+                double loop = time(r, bytes, () -> fillByStores(m, bytes));
+                if (pass == 1) {
+                    System.out.printf("%-9s | %7.2f | %7.2f | %5.2f | %5.2f | %9.3f | %9.3f | %15.3f%n",
+                            name, ld, sd, lw, sw, fill, copy, loop);
+                }
+            }
+        }
+        System.out.println("checksum " + sink);
+    }
+
+    private static MemoryBackend create(String name, int size) {
+        switch (name) {
+            case "flat": return new FlatMemory(size);
+            case "varhandle": return new VarHandleMemory(size);
+            default: return new PagedMemory();
+        }
+    }
+
+    /** Nanoseconds per unit of work over the given repeats. */
+    private static double time(int repeats, int units, Runnable body) {
+        long start = System.nanoTime();
+        for (int r = 0; r < repeats; r++) body.run();
+        return (double) (System.nanoTime() - start) / repeats / units;
+    }
+
+    private static void storeDoubles(MemoryBackend m, int bytes) {
+        for (int a = 0; a < bytes; a += 8) m.storeDouble(a, a * 0x9E3779B97F4A7C15L);
+    }
+
+    private static void loadDoubles(MemoryBackend m, int bytes) {
+        long s = 0;
+        for (int a = 0; a < bytes; a += 8) s += m.loadDouble(a);
+        sink += s;
+    }
+
+    private static void storeWords(MemoryBackend m, int bytes) {
+        for (int a = 0; a < bytes; a += 4) m.storeWord(a, a + 1);
+    }
+
+    private static void loadWords(MemoryBackend m, int bytes) {
+        long s = 0;
+        for (int a = 0; a < bytes; a += 4) s += m.loadWord(a);
+        sink += s;
+    }
+
+    private static void fillByStores(MemoryBackend m, int bytes) {
+        for (int a = 0; a < bytes; a += 8) m.storeDouble(a, 0x5A5A5A5A5A5A5A5AL);
+    }
+}
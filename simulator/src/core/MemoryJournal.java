@@ -0,0 +1,51 @@
+package core;
+
+import java.util.Arrays;
+
+/**
+ * Log of memory stores made during one cycle, as (address, size, old, new)
+ * quadruples, so CycleHistory can undo or redo them without copying memory.
+ * Sizes are 4 and 8 for single stores; bulk writes also log single bytes.
+ */
+public class MemoryJournal {
+
+    private long[] entries = new long[64];
+    private int size; // in longs
+
+    public void record(long address, int bytes, long oldValue, long newValue) {
+        if (size + 4 > entries.length) entries = Arrays.copyOf(entries, entries.length * 2);
+        entries[size++] = address;
+        entries[size++] = bytes;
+        entries[size++] = oldValue;
+        entries[size++] = newValue;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    /** Entries recorded since the last clear(), or null if there are none. */
+    public long[] drain() {
+        if (size == 0) return null;
+        long[] out = Arrays.copyOf(entries, size);
+        size = 0;
+        return out;
+    }
+
+    /** Write back the old values of a drained entry array, newest first. */
+    static void undo(long[] log, Memory memory) {
+        for (int i = log.length - 4; i >= 0; i -= 4) {
+            write(memory, log[i], (int) log[i + 1], log[i + 2]);
+        }
+    }
+
+    private static void write(Memory memory, long address, int bytes, long value) {
+        if (bytes == 8) memory.storeDouble(address, value);
+        else if (bytes == 4) memory.storeWord(address, value);
+        else memory.writeBytes(address, new byte[] {(byte) value}, 0, 1); // bulk write tail
+    }
+}
@@ -0,0 +1,243 @@
+package core;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Checks the memory backends against each other: the same random mix of
+ * word / double stores must read back identically from the flat array, its
+ * VarHandle variant and the sparse paged memory, bulk fill / copy must agree
+ * across backends (and undo through the journal), and the paged memory must
+ * handle far addresses,
+ * page-straddling accesses and reset. Mapped images must read like copied
+ * ones, never write back to their file, and come back on reset; a snapshot
+ * must load back to the same contents.
+ *
+ * Usage (from the simulator directory): java -cp bin/classes core.MemoryTest
+ */
+public class MemoryTest {
+
+    public static void main(String[] args) throws Exception {
+        try {
+            testPagedMatchesFlat();
+            testFarAddresses();
+            testPageStraddle();
+            testReset();
+            testBulkFillCopy();
+            testMappedImage();
+            testSnapshotRoundTrip();
+            System.out.println("ALL MEMORY TESTS PASSED");
+        } catch (AssertionError e) {
+            System.err.println("TEST FAILED: " + e.getMessage());
+            System.exit(2);
+        }
+    }
+
+    private static void assertEquals(long a, long b, String msg) {
+        if (a != b) throw new AssertionError(msg + ": expected=" + b + " got=" + a);
+    }
+
+    private static void assertTrue(boolean c, String msg) {
+        if (!c) throw new AssertionError(msg);
+    }
+
+    private static void testPagedMatchesFlat() throws IOException {
+        Memory flat = new Memory();
+        Memory paged = new Memory(new PagedMemory(8)); // small pages: many boundaries
+        Memory view = new Memory(new VarHandleMemory());
+        Random rnd = new Random(42);
+        for (int i = 0; i < 20_000; i++) {
+            long value = rnd.nextBoolean() ? rnd.nextLong() : 0;
+            boolean aligned = i % 4 != 0; // every 4th access is unaligned
+            if (rnd.nextBoolean()) {
+                long addr = aligned ? 8L * rnd.nextInt(FlatMemory.DEFAULT_SIZE / 8) : rnd.nextInt(FlatMemory.DEFAULT_SIZE - 7);
+                flat.storeDouble(addr, value);
+                paged.storeDouble(addr, value);
+                view.storeDouble(addr, value);
+            } else {
+                long addr = aligned ? 4L * rnd.nextInt(FlatMemory.DEFAULT_SIZE / 4) : rnd.nextInt(FlatMemory.DEFAULT_SIZE - 3);
+                flat.storeWord(addr, value);
+                paged.storeWord(addr, value);
+                view.storeWord(addr, value);
+            }
+            long probe = 4L * rnd.nextInt(FlatMemory.DEFAULT_SIZE / 4);
+            assertEquals(paged.loadWord(probe), flat.loadWord(probe), "word at " + probe);
+            assertEquals(view.loadWord(probe), flat.loadWord(probe), "varhandle word at " + probe);
+        }
+        for (long a = 0; a < FlatMemory.DEFAULT_SIZE; a += 8) {
+            assertEquals(paged.loadDouble(a), flat.loadDouble(a), "double at " + a);
+            assertEquals(view.loadDouble(a), flat.loadDouble(a), "varhandle double at " + a);
+        }
+        assertTrue(Arrays.equals(export(paged), export(flat)), "exported contents differ");
+        assertTrue(Arrays.equals(export(view), export(flat)), "varhandle contents differ");
+        for (long bad : new long[] {-1, FlatMemory.DEFAULT_SIZE - 4, Long.MIN_VALUE}) {
+            try {
+                view.loadDouble(bad);
+                throw new AssertionError("out-of-bounds double accepted at " + bad);
+            } catch (IllegalArgumentException expected) {
+                // ok
+            }
+        }
+        try {
+            new Memory(new VarHandleMemory(4)).loadDouble(0); // access wider than the whole memory
+            throw new AssertionError("double accepted in a 4-byte memory");
+        } catch (IllegalArgumentException expected) {
+            // ok
+        }
+        System.out.println("testPagedMatchesFlat passed");
+    }
+
+    private static byte[] export(Memory mem) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        mem.exportTo(out);
+        return out.toByteArray();
+    }
+
+    private static void testFarAddresses() {
+        PagedMemory pages = new PagedMemory();
+        Memory mem = new Memory(pages);
+        long[] addrs = {0, 1L << 32, 300L << 20, Long.MAX_VALUE - 7, -8, Long.MIN_VALUE};
+        for (int i = 0; i < addrs.length; i++) {
+            mem.storeDouble(addrs[i], 0x1111111111111111L * (i + 1));
+        }
+        for (int i = 0; i < addrs.length; i++) {
+            assertEquals(mem.loadDouble(addrs[i]), 0x1111111111111111L * (i + 1), "far double " + addrs[i]);
+        }
+        assertEquals(pages.getPageCount(), addrs.length, "one page per far address");
+        assertEquals(mem.loadDouble(1L << 40), 0, "untouched memory reads zero");
+        assertEquals(pages.getPageCount(), addrs.length, "reads do not allocate");
+        mem.storeDouble(1L << 41, 0);
+        assertEquals(pages.getPageCount(), addrs.length, "zero stores to untouched pages do not allocate");
+
+        // 100 MB footprint only costs the pages touched
+        for (long a = 0; a < 100L << 20; a += 1 << 20) mem.storeWord((5L << 40) + a, -1);
+        assertEquals(mem.loadWord((5L << 40) + (7L << 20)), -1, "sign-extended word");
+        assertEquals(pages.getPageCount(), addrs.length + 100, "sparse footprint");
+        System.out.println("testFarAddresses passed");
+    }
+
+    private static void testPageStraddle() {
+        Memory mem = new Memory(new PagedMemory(4)); // 16-byte pages
+        mem.storeDouble(12, 0x0102030405060708L);
+        assertEquals(mem.loadDouble(12), 0x0102030405060708L, "straddling double");
+        assertEquals(mem.loadWord(12), 0x01020304L, "first half");
+        assertEquals(mem.loadWord(16), 0x05060708L, "second half");
+        mem.storeWord(14, 0xAABBCCDDL);
+        assertEquals(mem.loadWord(14), (int) 0xAABBCCDDL, "straddling word");
+        System.out.println("testPageStraddle passed");
+    }
+
+    private static void testReset() {
+        PagedMemory pages = new PagedMemory();
+        Memory mem = new Memory(pages);
+        for (int i = 0; i < 5000; i++) mem.storeDouble((long) i << 20, i + 1);
+        mem.reset();
+        assertEquals(pages.getPageCount(), 0, "reset drops pages");
+        assertEquals(mem.loadDouble(3L << 20), 0, "reset memory reads zero");
+        mem.storeDouble(3L << 20, 7);
+        assertEquals(mem.loadDouble(3L << 20), 7, "usable after reset");
+        System.out.println("testReset passed");
+    }
+
+    private static void testBulkFillCopy() throws IOException {
+        Memory[] mems = {new Memory(), new Memory(new VarHandleMemory()),
+                new Memory(new PagedMemory(4)), new Memory(new MappedMemory())};
+        for (Memory mem : mems) {
+            for (int a = 0; a < 256; a += 8) mem.storeDouble(a, 0x0101010101010101L * (a / 8 + 1));
+        }
+        for (Memory mem : mems) {
+            mem.fill(37, 50, (byte) 0x7F);
+            mem.copy(10, 30, 100); // overlapping, destination above source
+            mem.copy(120, 101, 64); // overlapping, destination below source
+            mem.fill(200, 20, (byte) 0);
+        }
+        byte[] expected = export(mems[0]);
+        for (Memory mem : mems) {
+            byte[] got = new byte[expected.length];
+            mem.readBytes(0, got, 0, got.length);
+            assertTrue(Arrays.equals(got, expected), "bulk result of " + mem.getBackend().getClass().getSimpleName());
+        }
+
+        // bulk writes are journaled and can be undone
+        Memory mem = new Memory(new VarHandleMemory());
+        for (int a = 0; a < 64; a += 8) mem.storeDouble(a, a + 1);
+        byte[] before = export(mem);
+        MemoryJournal journal = new MemoryJournal();
+        mem.setJournal(journal);
+        mem.fill(3, 21, (byte) 9);
+        mem.copy(0, 13, 30);
+        mem.setJournal(null);
+        MemoryJournal.undo(journal.drain(), mem);
+        assertTrue(Arrays.equals(export(mem), before), "journaled bulk writes undo");
+        System.out.println("testBulkFillCopy passed");
+    }
+
+    private static void testMappedImage() throws IOException {
+        Path image = Files.createTempFile("memtest", ".mem");
+        try {
+            byte[] bytes = new byte[5000]; // not a multiple of 8: last double straddles the end
+            new Random(7).nextBytes(bytes);
+            Files.write(image, bytes);
+            image.toFile().setReadOnly(); // images are mapped read-only, stores go to page copies
+            long base = 1L << 36;
+
+            MappedMemory mapped = new MappedMemory();
+            Memory mem = new Memory(mapped);
+            mem.loadImage(image, base);
+            Memory copied = new Memory(new PagedMemory());
+            copied.loadImage(image, base);
+            for (long a = base - 16; a < base + bytes.length + 16; a += 4) {
+                assertEquals(mem.loadWord(a), copied.loadWord(a), "image word at " + a);
+            }
+
+            long edge = base + bytes.length - 4; // half in the image, half outside
+            mem.storeDouble(edge, 0x0102030405060708L);
+            mem.storeDouble(base + 8, -1);
+            mem.storeDouble(5, 42);
+            mem.storeDouble(base + 4092, 0x1112131415161718L); // across the first page edge
+            assertEquals(mem.loadDouble(edge), 0x0102030405060708L, "double across image end");
+            assertEquals(mem.loadDouble(base + 8), -1, "store into image");
+            assertEquals(mem.loadDouble(base + 4092), 0x1112131415161718L, "double across a page edge");
+            assertEquals(mem.loadWord(base + 16), copied.loadWord(base + 16), "copied page keeps the image bytes");
+            assertEquals(mem.loadDouble(5), 42, "store outside image");
+            assertTrue(Arrays.equals(Files.readAllBytes(image), bytes), "image file unchanged");
+
+            mem.reset();
+            assertEquals(mem.loadDouble(base + 8), copied.loadDouble(base + 8), "reset restores image");
+            assertEquals(mem.loadDouble(base + 4092), copied.loadDouble(base + 4092), "reset restores the page edge");
+            assertEquals(mem.loadDouble(5), 0, "reset clears the rest");
+            try {
+                mapped.map(image, base + 100);
+                throw new AssertionError("overlapping image accepted");
+            } catch (IllegalArgumentException expected) {
+                // ok
+            }
+        } finally {
+            image.toFile().setWritable(true);
+            Files.deleteIfExists(image);
+        }
+        System.out.println("testMappedImage passed");
+    }
+
+    private static void testSnapshotRoundTrip() throws IOException {
+        Path file = Files.createTempFile("memtest", ".mem");
+        try {
+            Memory mem = new Memory();
+            Random rnd = new Random(3);
+            for (int i = 0; i < 200; i++) mem.storeDouble(8L * rnd.nextInt(512), rnd.nextLong());
+            mem.snapshot(file);
+            assertEquals(Files.size(file), FlatMemory.DEFAULT_SIZE, "snapshot covers the extent");
+
+            Memory back = new Memory(new MappedMemory());
+            back.loadImage(file, 0);
+            assertTrue(Arrays.equals(export(back), export(mem)), "snapshot loads back");
+        } finally {
+            Files.deleteIfExists(file);
+        }
+        System.out.println("testSnapshotRoundTrip passed");
+    }
+}
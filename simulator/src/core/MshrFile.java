@@ -0,0 +1,169 @@
+package core;
+
+import java.util.Arrays;
+
+/**
+ * Miss status holding registers of the L1 data cache.
+ *
+ * Each register tracks one block being fetched: its block number and the
+ * cycle its data arrives. A load (or allocating store) that misses takes a
+ * free register and pays the full miss latency (a primary miss). A later
+ * miss to a block that is already in flight merges with its register
+ * instead (a secondary miss) and only waits for the data that is already
+ * on its way. When every register is taken a new primary miss cannot
+ * start; the engine retries it next cycle.
+ *
+ * The engine frees a register once its data has arrived and no access to
+ * the block is left in the load / store buffers, i.e. when the block has
+ * been written into the cache. Registers are kept in primitive arrays; the
+ * file also counts primary misses, merges, stalled requests and occupancy.
+ */
+public class MshrFile {
+
+    private final long[] block;
+    private final int[] readyCycle;
+    private final boolean[] busy;
+    private int occupied;
+
+    // statistics
+    private long primaryMisses;
+    private long merges;
+    private long stalls;       // request-cycles refused because the file was full
+    private long fullCycles;   // cycles that ended with every register taken
+    private long cycles;
+    private long occupancySum; // occupied registers summed over cycles
+    private int peak;
+
+    /** @param entries number of registers (at least 1) */
+    public MshrFile(int entries) {
+        if (entries < 1) throw new IllegalArgumentException("MSHR count must be positive: " + entries);
+        block = new long[entries];
+        readyCycle = new int[entries];
+        busy = new boolean[entries];
+    }
+
+    public int getEntries() {
+        return busy.length;
+    }
+
+    /** Registers currently tracking a block. */
+    public int getOccupied() {
+        return occupied;
+    }
+
+    /** Register tracking blockNumber, or -1. */
+    public int find(long blockNumber) {
+        for (int i = 0; i < busy.length; i++) {
+            if (busy[i] && block[i] == blockNumber) return i;
+        }
+        return -1;
+    }
+
+    public boolean isFull() {
+        return occupied == busy.length;
+    }
+
+    /** Take a free register for a primary miss whose data arrives at ready. */
+    public int allocate(long blockNumber, int ready) {
+        for (int i = 0; i < busy.length; i++) {
+            if (!busy[i]) {
+                busy[i] = true;
+                block[i] = blockNumber;
+                readyCycle[i] = ready;
+                occupied++;
+                primaryMisses++;
+                peak = Math.max(peak, occupied);
+                return i;
+            }
+        }
+        throw new IllegalStateException("No free MSHR");
+    }
+
+    /** A primary miss could not start because every register was taken. */
+    public void stall() {
+        stalls++;
+    }
+
+    /** A secondary miss joined a register already in flight. */
+    public void merge() {
+        merges++;
+    }
+
+    public boolean isBusy(int i) { return busy[i]; }
+    public long getBlock(int i) { return block[i]; }
+    public int getReadyCycle(int i) { return readyCycle[i]; }
+
+    public void free(int i) {
+        if (!busy[i]) return;
+        busy[i] = false;
+        occupied--;
+    }
+
+    /** Drop every register (engine reset). */
+    public void clear() {
+        Arrays.fill(busy, false);
+        occupied = 0;
+    }
+
+    /** Account one cycle of occupancy. */
+    public void endCycle() {
+        cycles++;
+        occupancySum += occupied;
+        if (occupied == busy.length) fullCycles++;
+    }
+
+    // ---------- statistics ----------
+
+    public void resetStats() {
+        primaryMisses = 0;
+        merges = 0;
+        stalls = 0;
+        fullCycles = 0;
+        cycles = 0;
+        occupancySum = 0;
+        peak = 0;
+    }
+
+    public long getPrimaryMisses() { return primaryMisses; }
+    public long getMerges() { return merges; }
+    public long getStalls() { return stalls; }
+    public long getFullCycles() { return fullCycles; }
+    public int getPeak() { return peak; }
+
+    /** Mean number of registers in use per cycle. */
+    public double getAverageOccupancy() {
+        return cycles > 0 ? (double) occupancySum / cycles : 0.0;
+    }
+
+    void saveState(StateVector out) {
+        for (int i = 0; i < busy.length; i++) {
+            out.putBoolean(busy[i]);
+            out.put(block[i]);
+            out.put(readyCycle[i]);
+        }
+        out.put(primaryMisses);
+        out.put(merges);
+        out.put(stalls);
+        out.put(fullCycles);
+        out.put(cycles);
+        out.put(occupancySum);
+        out.put(peak);
+    }
+
+    void restoreState(StateVector in) {
+        occupied = 0;
+        for (int i = 0; i < busy.length; i++) {
+            busy[i] = in.nextBoolean();
+            block[i] = in.next();
+            readyCycle[i] = in.nextInt();
+            if (busy[i]) occupied++;
+        }
+        primaryMisses = in.next();
+        merges = in.next();
+        stalls = in.next();
+        fullCycles = in.next();
+        cycles = in.next();
+        occupancySum = in.next();
+        peak = in.nextInt();
+    }
+}
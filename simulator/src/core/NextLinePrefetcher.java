@@ -0,0 +1,41 @@
+package core;
+
+/**
+ * Tagged next-line prefetching (Smith, 1982): a demand miss, or the first
+ * use of a block that was itself prefetched, requests the blocks distance
+ * to distance + degree - 1 after it. The tag lets a sequential walk stay
+ * ahead once the first prefetch was useful. It keeps no table.
+ */
+public class NextLinePrefetcher implements Prefetcher {
+
+    private final int blockSize;
+    private final int degree;
+    private final int distance;
+
+    public NextLinePrefetcher(int blockSize, int degree, int distance) {
+        this.blockSize = blockSize;
+        this.degree = degree;
+        this.distance = distance;
+    }
+
+    @Override
+    public int observe(int pc, long address, boolean miss, boolean prefetchHit, long[] out) {
+        if (!miss && !prefetchHit) return 0;
+        long block = Math.floorDiv(address, (long) blockSize);
+        for (int i = 0; i < degree; i++) out[i] = (block + distance + i) * blockSize;
+        return degree;
+    }
+
+    @Override public int getDegree() { return degree; }
+    @Override public int getDistance() { return distance; }
+
+    @Override public void reset() { }
+
+    @Override
+    public String getName() {
+        return "nextline";
+    }
+
+    @Override public void saveState(StateVector out) { }
+    @Override public void restoreState(StateVector in) { }
+}
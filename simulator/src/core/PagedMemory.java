@@ -0,0 +1,254 @@
+package core;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * Sparse memory over the whole 64-bit address space.
+ *
+ * Fixed-size pages are allocated on the first non-zero store and kept in an
+ * open-addressing map keyed by the page number (a primitive long, so no
+ * boxing on the access path). Untouched addresses read as zero without
+ * allocating anything, so a kernel with a footprint of hundreds of MB spread
+ * over a huge address range only costs the pages it actually writes.
+ * reset() drops the pages, which is O(pages touched), not O(address range).
+ *
+ * Addresses are byte addresses; negative longs are simply the upper half of
+ * the unsigned range. Accesses that straddle a page boundary are split;
+ * the others read and write the page through big-endian VarHandle views.
+ */
+public class PagedMemory implements MemoryBackend {
+
+    public static final int DEFAULT_PAGE_BITS = 12; // 4 KB pages
+
+    private static final VarHandle INT =
+            MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.BIG_ENDIAN);
+    private static final VarHandle LONG =
+            MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+
+    private final int pageBits;
+    private final int pageSize;
+    private final long offsetMask;
+
+    // page number -> page; a slot is empty when its page is null
+    private long[] keys;
+    private byte[][] pages;
+    private int pageCount;
+
+    // last page looked up (most accesses hit the same page repeatedly)
+    private long lastKey;
+    private byte[] lastPage;
+
+    public PagedMemory() {
+        this(DEFAULT_PAGE_BITS);
+    }
+
+    /** @param pageBits log2 of the page size in bytes (3..30) */
+    public PagedMemory(int pageBits) {
+        if (pageBits < 3 || pageBits > 30) {
+            throw new IllegalArgumentException("Page bits out of range (3..30): " + pageBits);
+        }
+        this.pageBits = pageBits;
+        this.pageSize = 1 << pageBits;
+        this.offsetMask = pageSize - 1;
+        this.keys = new long[16];
+        this.pages = new byte[16][];
+    }
+
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    /** Pages currently allocated. */
+    public int getPageCount() {
+        return pageCount;
+    }
+
+    /** Bytes of simulated memory actually allocated. */
+    public long getFootprint() {
+        return (long) pageCount * pageSize;
+    }
+
+    @Override
+    public void reset() {
+        // small tables are cleared in place; a table grown by a big run is dropped
+        if (keys.length > 1024) {
+            keys = new long[16];
+            pages = new byte[16][];
+        } else {
+            Arrays.fill(pages, null);
+        }
+        pageCount = 0;
+        lastPage = null;
+    }
+
+    @Override
+    public long getExtent() {
+        long extent = 0;
+        for (int i = 0; i < pages.length; i++) {
+            if (pages[i] != null && keys[i] >= 0) {
+                long end = (keys[i] + 1) << pageBits;
+                if (end <= 0) return Long.MAX_VALUE; // last page of the positive range
+                extent = Math.max(extent, end);
+            }
+        }
+        return extent;
+    }
+
+    // ---------- page map ----------
+
+    private int slot(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & (keys.length - 1);
+    }
+
+    /** Page holding the address, or null if it was never written. */
+    private byte[] find(long address) {
+        long key = address >> pageBits;
+        if (lastPage != null && key == lastKey) return lastPage;
+        int mask = keys.length - 1;
+        for (int i = slot(key); pages[i] != null; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                lastKey = key;
+                lastPage = pages[i];
+                return lastPage;
+            }
+        }
+        return null;
+    }
+
+    private byte[] findOrCreate(long address) {
+        byte[] page = find(address);
+        if (page != null) return page;
+        if ((pageCount + 1) * 4 > keys.length * 3) grow();
+        long key = address >> pageBits;
+        int mask = keys.length - 1;
+        int i = slot(key);
+        while (pages[i] != null) i = (i + 1) & mask;
+        keys[i] = key;
+        pages[i] = page = new byte[pageSize];
+        pageCount++;
+        lastKey = key;
+        lastPage = page;
+        return page;
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        byte[][] oldPages = pages;
+        keys = new long[oldKeys.length * 2];
+        pages = new byte[oldKeys.length * 2][];
+        int mask = keys.length - 1;
+        for (int j = 0; j < oldPages.length; j++) {
+            if (oldPages[j] == null) continue;
+            int i = slot(oldKeys[j]);
+            while (pages[i] != null) i = (i + 1) & mask;
+            keys[i] = oldKeys[j];
+            pages[i] = oldPages[j];
+        }
+    }
+
+    // ---------- accesses ----------
+
+    private boolean crossesPage(long address, int size) {
+        return (address & offsetMask) + size > pageSize;
+    }
+
+    private long loadBytes(long address, int size) {
+        long v = 0;
+        for (int i = 0; i < size; i++) {
+            byte[] page = find(address + i);
+            int b = page == null ? 0 : page[(int) ((address + i) & offsetMask)] & 0xFF;
+            v = (v << 8) | b;
+        }
+        return v;
+    }
+
+    private void storeBytes(long address, int size, long value) {
+        for (int i = 0; i < size; i++) {
+            byte b = (byte) (value >>> (8 * (size - 1 - i)));
+            long a = address + i;
+            byte[] page = b == 0 ? find(a) : findOrCreate(a);
+            if (page != null) page[(int) (a & offsetMask)] = b;
+        }
+    }
+
+    @Override
+    public long loadWord(long address) {
+        if (crossesPage(address, 4)) return (int) loadBytes(address, 4);
+        byte[] page = find(address);
+        if (page == null) return 0;
+        return (int) INT.get(page, (int) (address & offsetMask));
+    }
+
+    @Override
+    public void storeWord(long address, long value) {
+        if (crossesPage(address, 4)) {
+            storeBytes(address, 4, value);
+            return;
+        }
+        byte[] page = (int) value == 0 ? find(address) : findOrCreate(address);
+        if (page == null) return; // zero into an untouched page
+        INT.set(page, (int) (address & offsetMask), (int) value);
+    }
+
+    @Override
+    public long loadDouble(long address) {
+        if (crossesPage(address, 8)) return loadBytes(address, 8);
+        byte[] page = find(address);
+        if (page == null) return 0;
+        return (long) LONG.get(page, (int) (address & offsetMask));
+    }
+
+    @Override
+    public void storeDouble(long address, long value) {
+        if (crossesPage(address, 8)) {
+            storeBytes(address, 8, value);
+            return;
+        }
+        byte[] page = value == 0 ? find(address) : findOrCreate(address);
+        if (page == null) return;
+        LONG.set(page, (int) (address & offsetMask), value);
+    }
+
+    @Override
+    public void readBytes(long address, byte[] dst, int offset, int len) {
+        int done = 0;
+        while (done < len) {
+            long a = address + done;
+            int p = (int) (a & offsetMask);
+            int n = Math.min(len - done, pageSize - p);
+            byte[] page = find(a);
+            if (page == null) Arrays.fill(dst, offset + done, offset + done + n, (byte) 0);
+            else System.arraycopy(page, p, dst, offset + done, n);
+            done += n;
+        }
+    }
+
+    @Override
+    public void writeBytes(long address, byte[] src, int offset, int len) {
+        int done = 0;
+        while (done < len) {
+            long a = address + done;
+            int p = (int) (a & offsetMask);
+            int n = Math.min(len - done, pageSize - p);
+            System.arraycopy(src, offset + done, findOrCreate(a), p, n);
+            done += n;
+        }
+    }
+
+    @Override
+    public void fill(long address, long length, byte value) {
+        if (length < 0) throw new IllegalArgumentException("Negative length: " + length);
+        for (long done = 0; done < length; ) {
+            long a = address + done;
+            int p = (int) (a & offsetMask);
+            int n = (int) Math.min(length - done, pageSize - p);
+            byte[] page = value == 0 ? find(a) : findOrCreate(a); // zeroing untouched pages is free
+            if (page != null) Arrays.fill(page, p, p + n, value);
+            done += n;
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package core;
+
+/**
+ * Hardware prefetcher attached to a cache (Cache.setPrefetcher).
+ *
+ * The cache shows it every demand access from the processor: the
+ * instruction's program index (-1 when the caller has none), the byte
+ * address, whether the access missed, and whether it was the first use of
+ * a block a prefetch brought in. The prefetcher answers with the addresses
+ * it wants fetched, written into a buffer owned by the cache, so observing
+ * an access allocates nothing. The cache drops candidates that are already
+ * present and fills the rest without counting them as demand accesses.
+ *
+ * Degree is the number of blocks requested per trigger and distance how far
+ * ahead of the current access the first of them lies (in blocks for
+ * next-line and stream, in strides for the stride prefetcher). Prefetchers
+ * keep their tables in primitive arrays and are part of the history.
+ */
+public interface Prefetcher {
+
+    /**
+     * A demand access reached the cache.
+     * @param pc program index of the instruction, or -1
+     * @param prefetchHit the access hit a prefetched block for the first time
+     * @param out receives the addresses to prefetch (length getDegree())
+     * @return number of addresses written to out
+     */
+    int observe(int pc, long address, boolean miss, boolean prefetchHit, long[] out);
+
+    /** Most addresses one observe() returns. */
+    int getDegree();
+
+    int getDistance();
+
+    /** Back to empty tables. */
+    void reset();
+
+    /** Short name used in configs and reports ("nextline", ...). */
+    String getName();
+
+    void saveState(StateVector out);
+
+    void restoreState(StateVector in);
+
+    /** Names accepted by {@link #create}; "none" means no prefetcher. */
+    String[] NAMES = {"none", "nextline", "stride", "stream"};
+
+    /**
+     * Build a prefetcher by name for a cache with the given block size.
+     * @return null for "none"
+     */
+    static Prefetcher create(String name, int blockSize, int degree, int distance) {
+        if (degree < 1) throw new IllegalArgumentException("Prefetch degree must be positive: " + degree);
+        if (distance < 1) throw new IllegalArgumentException("Prefetch distance must be positive: " + distance);
+        switch (name) {
+            case "none": return null;
+            case "nextline": return new NextLinePrefetcher(blockSize, degree, distance);
+            case "stride": return new StridePrefetcher(degree, distance);
+            case "stream": return new StreamPrefetcher(blockSize, degree, distance);
+            default:
+                throw new IllegalArgumentException("Unknown prefetcher: " + name);
+        }
+    }
+}
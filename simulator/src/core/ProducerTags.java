@@ -0,0 +1,47 @@
+package core;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compact integer tag space for producers (reservation stations, load
+ * buffers) and other issue slots (store buffers).
+ *
+ * The engine only compares and indexes with the int tag; the human-readable
+ * name ("A0", "L1", ...) is kept here for display in the GUI tables.
+ * Tag 0 ({@link #NONE}) means "no producer / value ready".
+ */
+public class ProducerTags {
+
+    public static final int NONE = 0;
+
+    private final List<String> names = new ArrayList<>();
+    private final List<Object> owners = new ArrayList<>();
+
+    public ProducerTags() {
+        names.add(null);   // slot 0 is NONE
+        owners.add(null);
+    }
+
+    /** Allocate the next tag for a station / buffer. */
+    public int register(String name, Object owner) {
+        names.add(name);
+        owners.add(owner);
+        return names.size() - 1;
+    }
+
+    public String nameOf(int tag) {
+        if (tag <= NONE || tag >= names.size()) return null;
+        return names.get(tag);
+    }
+
+    /** Station / buffer object that owns this tag (null for NONE). */
+    public Object ownerOf(int tag) {
+        return owners.get(tag);
+    }
+
+    /** Number of tags in use including NONE, i.e. the bound for tag-indexed arrays. */
+    public int size() {
+        return names.size();
+    }
+}
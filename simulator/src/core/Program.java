@@ -3,6 +3,10 @@ package core;
 import java.util.List;
 import java.util.Map;
 
+/**
+ * Parsed program. Engines only read it (per-issue timing lives in
+ * DynamicInstruction), so one Program can be shared by concurrent runs.
+ */
 public class Program {
     private final List<Instruction> instructions;
     private final Map<String, Integer> labelToPcIndex;
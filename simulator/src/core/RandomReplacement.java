@@ -0,0 +1,64 @@
+package core;
+
+/**
+ * Random replacement from a seeded SplitMix64 sequence. The victim of a set
+ * is a hash of the generator state and the set number; the state advances
+ * on every fill, so probing the victim is free of side effects and the same
+ * seed always gives the same run.
+ */
+public class RandomReplacement implements ReplacementPolicy {
+
+    private final int ways;
+    private final long seed;
+    private long state;
+
+    public RandomReplacement(int sets, int ways, long seed) {
+        if (sets <= 0 || ways <= 0) {
+            throw new IllegalArgumentException("Bad cache geometry: " + sets + " sets of " + ways + " ways");
+        }
+        this.ways = ways;
+        this.seed = seed;
+        this.state = seed;
+    }
+
+    /** SplitMix64 finaliser. */
+    static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    @Override
+    public void reset() {
+        state = seed;
+    }
+
+    @Override
+    public int victim(int set) {
+        return (int) Long.remainderUnsigned(mix(state + set * 0x9E3779B97F4A7C15L), ways);
+    }
+
+    @Override public void onHit(int set, int way) { }
+
+    @Override
+    public void onFill(int set, int way) {
+        state += 0x9E3779B97F4A7C15L;
+    }
+
+    @Override public void onInvalidate(int set, int way) { }
+
+    @Override
+    public String getName() {
+        return "random";
+    }
+
+    @Override
+    public void saveState(StateVector out) {
+        out.put(state);
+    }
+
+    @Override
+    public void restoreState(StateVector in) {
+        state = in.next();
+    }
+}
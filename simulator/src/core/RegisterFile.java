@@ -62,4 +62,15 @@ public class RegisterFile {
     public long[] getFpRegsCopy() {
         return fpRegs.clone();
     }
+
+    // For cycle history
+    void saveState(StateVector out) {
+        for (long v : intRegs) out.put(v);
+        for (long v : fpRegs) out.put(v);
+    }
+
+    void restoreState(StateVector in) {
+        for (int i = 0; i < 32; i++) intRegs[i] = in.next();
+        for (int i = 0; i < 32; i++) fpRegs[i] = in.next();
+    }
 }
\ No newline at end of file
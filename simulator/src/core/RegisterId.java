@@ -0,0 +1,32 @@
+package core;
+
+/**
+ * Numeric destination-register encoding used on the engine's hot paths
+ * instead of strings like "R5" / "F2".
+ *
+ *   0..31  -> R0..R31
+ *   32..63 -> F0..F31
+ *   -1     -> no destination (branches, stores)
+ */
+public final class RegisterId {
+
+    public static final int NONE = -1;
+
+    private static final int FP_BASE = 32;
+
+    private RegisterId() { }
+
+    public static int intReg(int index) { return index; }
+
+    public static int fpReg(int index) { return FP_BASE + index; }
+
+    public static boolean isFp(int id) { return id >= FP_BASE; }
+
+    public static int index(int id) { return isFp(id) ? id - FP_BASE : id; }
+
+    /** Display name ("R5", "F2") or null for NONE. */
+    public static String toString(int id) {
+        if (id == NONE) return null;
+        return (isFp(id) ? "F" : "R") + index(id);
+    }
+}
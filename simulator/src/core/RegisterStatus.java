@@ -58,52 +58,86 @@ import java.util.Arrays;
 
 public class RegisterStatus {
 
-    // For integer registers R0..R31: which RS / LB is producing it ("I0", "L1", etc.)
-    private final String[] intOwners;
+    // For integer registers R0..R31: tag of the RS / LB producing it (ProducerTags.NONE if ready)
+    private final int[] intOwners;
 
-    // For FP registers F0..F31: which RS / LB is producing it
-    private final String[] fpOwners;
+    // For FP registers F0..F31: tag of the RS / LB producing it
+    private final int[] fpOwners;
+
+    // tag -> display name ("I0", "L1", ...), bound by the engine
+    private ProducerTags tagNames;
 
     public RegisterStatus() {
-        intOwners = new String[32];
-        fpOwners = new String[32];
+        intOwners = new int[32];
+        fpOwners = new int[32];
         reset();
     }
 
     public void reset() {
-        Arrays.fill(intOwners, null);
-        Arrays.fill(fpOwners, null);
+        Arrays.fill(intOwners, ProducerTags.NONE);
+        Arrays.fill(fpOwners, ProducerTags.NONE);
+    }
+
+    public void setTagNames(ProducerTags tagNames) {
+        this.tagNames = tagNames;
     }
 
     // ---------- INT REGISTERS ----------
 
-    public String getIntOwner(int regIndex) {
+    public int getIntOwnerTag(int regIndex) {
         if (regIndex < 0 || regIndex >= intOwners.length) {
             throw new IllegalArgumentException("Bad int reg index: " + regIndex);
         }
         return intOwners[regIndex];
     }
 
-    public void setIntOwner(int regIndex, String owner) {
+    public void setIntOwnerTag(int regIndex, int tag) {
         if (regIndex < 0 || regIndex >= intOwners.length) {
             throw new IllegalArgumentException("Bad int reg index: " + regIndex);
         }
-        intOwners[regIndex] = owner;
+        intOwners[regIndex] = tag;
+    }
+
+    /** Display name of the producer, or null if the register is ready. */
+    public String getIntOwner(int regIndex) {
+        return nameOf(getIntOwnerTag(regIndex));
     }
 
     // ---------- FP REGISTERS ----------
 
-    public String getFpOwner(int regIndex) {
+    public int getFpOwnerTag(int regIndex) {
         if (regIndex < 0 || regIndex >= fpOwners.length) {
             throw new IllegalArgumentException("Bad FP reg index: " + regIndex);
         }
         return fpOwners[regIndex];
     }
 
-    public void setFpOwner(int regIndex, String owner) {
+    public void setFpOwnerTag(int regIndex, int tag) {
         if (regIndex < 0 || regIndex >= fpOwners.length) {
             throw new IllegalArgumentException("Bad FP reg index: " + regIndex);
         }
-        fpOwners[regIndex] = owner;
+        fpOwners[regIndex] = tag;
+    }
+
+    /** Display name of the producer, or null if the register is ready. */
+    public String getFpOwner(int regIndex) {
+        return nameOf(getFpOwnerTag(regIndex));
+    }
+
+    private String nameOf(int tag) {
+        if (tag == ProducerTags.NONE) return null;
+        return tagNames != null ? tagNames.nameOf(tag) : "#" + tag;
+    }
+
+    // ---------- history ----------
+
+    void saveState(StateVector out) {
+        for (int owner : intOwners) out.put(owner);
+        for (int owner : fpOwners) out.put(owner);
+    }
+
+    void restoreState(StateVector in) {
+        for (int i = 0; i < intOwners.length; i++) intOwners[i] = in.nextInt();
+        for (int i = 0; i < fpOwners.length; i++) fpOwners[i] = in.nextInt();
     }
 }
@@ -0,0 +1,110 @@
+package core;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Circular reorder buffer for the speculative engine mode.
+ *
+ * Entries are allocated at issue in program order, receive their result on
+ * the CDB and leave from the head in order (commit). Register status points
+ * at entry tags, so a squash only has to drop the youngest entries and
+ * rebuild the register status from the ones that remain.
+ */
+public class ReorderBuffer {
+
+    private final List<ReorderBufferEntry> entries;
+    private final ProducerTags tags;
+    private int head;   // oldest entry
+    private int count;
+
+    public ReorderBuffer(int size, ProducerTags tags) {
+        if (size < 1) {
+            throw new IllegalArgumentException("Reorder buffer needs at least one entry");
+        }
+        this.tags = tags;
+        this.entries = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            entries.add(new ReorderBufferEntry("ROB" + i, tags));
+        }
+    }
+
+    public void clear() {
+        for (ReorderBufferEntry e : entries) e.clear();
+        head = 0;
+        count = 0;
+    }
+
+    public int capacity() { return entries.size(); }
+    public int size() { return count; }
+    public boolean isEmpty() { return count == 0; }
+    public boolean isFull() { return count == entries.size(); }
+
+    /** Allocate the tail entry for a newly issued instruction. */
+    public ReorderBufferEntry allocate(DynamicInstruction instr) {
+        if (isFull()) {
+            throw new IllegalStateException("Reorder buffer full");
+        }
+        ReorderBufferEntry e = entries.get((head + count) % entries.size());
+        e.clear();
+        e.setBusy(true);
+        e.setInstruction(instr);
+        count++;
+        return e;
+    }
+
+    /** Oldest entry, or null if empty. */
+    public ReorderBufferEntry head() {
+        return count == 0 ? null : entries.get(head);
+    }
+
+    /** Remove the head entry (after it has committed). */
+    public void retireHead() {
+        entries.get(head).clear();
+        head = (head + 1) % entries.size();
+        count--;
+    }
+
+    /** Youngest entry, or null if empty. */
+    public ReorderBufferEntry tail() {
+        return count == 0 ? null : get(count - 1);
+    }
+
+    /** Remove the youngest entry (squash). */
+    public void dropTail() {
+        get(count - 1).clear();
+        count--;
+    }
+
+    /** i-th entry in program order (0 = head). */
+    public ReorderBufferEntry get(int i) {
+        return entries.get((head + i) % entries.size());
+    }
+
+    /** Entry owning a producer tag, or null if the tag is not a ROB tag. */
+    public ReorderBufferEntry entryOf(int tag) {
+        Object owner = tag == ProducerTags.NONE ? null : tags.ownerOf(tag);
+        return owner instanceof ReorderBufferEntry ? (ReorderBufferEntry) owner : null;
+    }
+
+    /** Entries in program order, for the GUI. */
+    public List<ReorderBufferEntry> inOrder() {
+        List<ReorderBufferEntry> list = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) list.add(get(i));
+        return list;
+    }
+
+    // ---------- history ----------
+
+    void saveState(StateVector out) {
+        out.put(head);
+        out.put(count);
+        for (ReorderBufferEntry e : entries) e.saveState(out);
+    }
+
+    void restoreState(StateVector in, TimingLog log) {
+        head = in.nextInt();
+        count = in.nextInt();
+        for (ReorderBufferEntry e : entries) e.restoreState(in, log);
+    }
+}
@@ -0,0 +1,104 @@
+package core;
+
+public class ReorderBufferEntry {
+
+    private final String name;   // e.g. "ROB0", "ROB1"
+    private final int tag;       // producer tag renamed registers point to
+    private final ProducerTags tags;
+
+    private boolean busy;
+    private DynamicInstruction instruction;
+
+    private int dest;            // RegisterId written at commit (RegisterId.NONE for stores / branches)
+    private long value;          // result, valid once ready
+    private boolean ready;       // result written back (store: address and value known)
+
+    private boolean predictedTaken; // branches: direction fetch followed
+    private boolean taken;          // branches: resolved direction, trained at commit
+    private long lookup;            // branches: BranchPredictor.lookup() word from issue
+    private boolean faulted;        // loads: the memory access failed, raised only if this commits
+    private long faultAddress;
+
+    public ReorderBufferEntry(String name, ProducerTags tags) {
+        this.name = name;
+        this.tags = tags;
+        this.tag = tags.register(name, this);
+        clear();
+    }
+
+    public void clear() {
+        busy = false;
+        instruction = null;
+        dest = RegisterId.NONE;
+        value = 0;
+        ready = false;
+        predictedTaken = false;
+        taken = false;
+        lookup = 0;
+        faulted = false;
+        faultAddress = 0;
+    }
+
+    public String getName() { return name; }
+    public int getTag() { return tag; }
+
+    public boolean isBusy() { return busy; }
+    public void setBusy(boolean busy) { this.busy = busy; }
+
+    public DynamicInstruction getInstruction() { return instruction; }
+    public void setInstruction(DynamicInstruction instruction) { this.instruction = instruction; }
+
+    public int getDestId() { return dest; }
+    public void setDestId(int dest) { this.dest = dest; }
+    public String getDest() { return RegisterId.toString(dest); }
+
+    public long getValue() { return value; }
+    public void setValue(long value) { this.value = value; }
+
+    public boolean isReady() { return ready; }
+    public void setReady(boolean ready) { this.ready = ready; }
+
+    public boolean isPredictedTaken() { return predictedTaken; }
+    public void setPredictedTaken(boolean predictedTaken) { this.predictedTaken = predictedTaken; }
+
+    public boolean isTaken() { return taken; }
+    public void setTaken(boolean taken) { this.taken = taken; }
+
+    public long getLookup() { return lookup; }
+    public void setLookup(long lookup) { this.lookup = lookup; }
+
+    public boolean isFaulted() { return faulted; }
+    public long getFaultAddress() { return faultAddress; }
+    public void setFault(long address) {
+        faulted = true;
+        faultAddress = address;
+    }
+
+    // ---------- history ----------
+
+    void saveState(StateVector out) {
+        out.putBoolean(busy);
+        out.put(instruction == null ? -1 : instruction.getSeq());
+        out.put(dest);
+        out.put(value);
+        out.putBoolean(ready);
+        out.putBoolean(predictedTaken);
+        out.putBoolean(taken);
+        out.put(lookup);
+        out.putBoolean(faulted);
+        out.put(faultAddress);
+    }
+
+    void restoreState(StateVector in, TimingLog log) {
+        busy = in.nextBoolean();
+        instruction = log.find(in.next());
+        dest = in.nextInt();
+        value = in.next();
+        ready = in.nextBoolean();
+        predictedTaken = in.nextBoolean();
+        taken = in.nextBoolean();
+        lookup = in.next();
+        faulted = in.nextBoolean();
+        faultAddress = in.next();
+    }
+}
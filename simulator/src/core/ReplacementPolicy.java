@@ -0,0 +1,62 @@
+package core;
+
+/**
+ * Chooses which way of a full cache set a fill replaces.
+ *
+ * The cache always fills an invalid way first; the policy is asked for a
+ * victim only when every way of the set is valid. It is told about every
+ * hit, fill and invalidation so it can keep its own per-set metadata, which
+ * implementations hold in flat primitive arrays indexed by set * ways + way
+ * (no per-line objects). Hits and victim selection are O(1) for LRU, FIFO
+ * and random, O(log ways) for the PLRU tree and a scan of one byte per way
+ * for RRIP.
+ *
+ * victim() must not change anything: the engine probes the victim for
+ * latency before the access that actually replaces it. Policies with
+ * randomness advance their seeded generator on fills only, so a run is
+ * reproducible and a probe sees the same victim as the fill that follows.
+ */
+public interface ReplacementPolicy {
+
+    /** Way to replace in a set whose ways are all valid. No side effects. */
+    int victim(int set);
+
+    /** A valid line was hit. */
+    void onHit(int set, int way);
+
+    /** A new block was installed in way (after a victim or an invalid way). */
+    void onFill(int set, int way);
+
+    /** The line in way was invalidated (back-invalidation, exclusive move-up). */
+    void onInvalidate(int set, int way);
+
+    /** Back to the initial metadata and seed. */
+    void reset();
+
+    /** Short name used in configs and reports ("lru", "plru", ...). */
+    String getName();
+
+    void saveState(StateVector out);
+
+    void restoreState(StateVector in);
+
+    /** Names accepted by {@link #create}. */
+    String[] NAMES = {"lru", "plru", "fifo", "random", "srrip", "brrip"};
+
+    /**
+     * Build a policy by name for a cache of the given geometry.
+     * @param seed seeds the generator of "random" and "brrip" (ignored by the others)
+     */
+    static ReplacementPolicy create(String name, int sets, int ways, long seed) {
+        switch (name) {
+            case "lru": return new ListReplacement(ListReplacement.Mode.LRU, sets, ways);
+            case "plru": return new TreePlruReplacement(sets, ways);
+            case "fifo": return new ListReplacement(ListReplacement.Mode.FIFO, sets, ways);
+            case "random": return new RandomReplacement(sets, ways, seed);
+            case "srrip": return new RripReplacement(false, sets, ways, seed);
+            case "brrip": return new RripReplacement(true, sets, ways, seed);
+            default:
+                throw new IllegalArgumentException("Unknown replacement policy: " + name);
+        }
+    }
+}
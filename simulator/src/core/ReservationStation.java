@@ -4,26 +4,31 @@ public class ReservationStation {
 
     private final String name;      // e.g. "A0", "M1", "I2"
     private final RSCategory category;
+    private final int tag;          // this station's producer tag
+    private final ProducerTags tags; // for display names of Qj / Qk
 
     private boolean busy;
     private InstructionType op;
 
     private long Vj;
     private long Vk;
-    private String Qj;              // RS name that will produce Vj (null if ready)
-    private String Qk;              // RS name that will produce Vk (null if ready)
+    private int Qj;                 // producer tag for Vj (ProducerTags.NONE if ready)
+    private int Qk;                 // producer tag for Vk (ProducerTags.NONE if ready)
 
     private long A;                 // immediate / address offset / misc
-    private String dest;            // destination register like "R5" or "F2" (for CDB commit)
+    private int dest;               // destination register (RegisterId encoding) for CDB commit
 
     private int remainingCycles;    // >0 when executing
     private int executionLatency;   // constant for this op when started
 
-    private Instruction instruction;  // link to original instruction (for timing table)
+    private DynamicInstruction instruction;  // link to issued instance (for timing table)
+    private int robTag;             // reorder buffer entry (speculative mode), else NONE
 
-    public ReservationStation(String name, RSCategory category) {
+    public ReservationStation(String name, RSCategory category, ProducerTags tags) {
         this.name = name;
         this.category = category;
+        this.tags = tags;
+        this.tag = tags.register(name, this);
         clear();
     }
 
@@ -32,19 +37,21 @@ public class ReservationStation {
         op = null;
         Vj = 0;
         Vk = 0;
-        Qj = null;
-        Qk = null;
+        Qj = ProducerTags.NONE;
+        Qk = ProducerTags.NONE;
         A = 0;
-        dest = null;
+        dest = RegisterId.NONE;
         remainingCycles = 0;
         executionLatency = 0;
         instruction = null;
+        robTag = ProducerTags.NONE;
     }
 
     // --------- Getters / setters ----------
 
     public String getName() { return name; }
     public RSCategory getCategory() { return category; }
+    public int getTag() { return tag; }
 
     public boolean isBusy() { return busy; }
     public void setBusy(boolean busy) { this.busy = busy; }
@@ -58,17 +65,23 @@ public class ReservationStation {
     public long getVk() { return Vk; }
     public void setVk(long vk) { Vk = vk; }
 
-    public String getQj() { return Qj; }
-    public void setQj(String qj) { Qj = qj; }
+    public int getQjTag() { return Qj; }
+    public void setQjTag(int qj) { Qj = qj; }
 
-    public String getQk() { return Qk; }
-    public void setQk(String qk) { Qk = qk; }
+    public int getQkTag() { return Qk; }
+    public void setQkTag(int qk) { Qk = qk; }
+
+    // display names for the GUI tables
+    public String getQj() { return tags.nameOf(Qj); }
+    public String getQk() { return tags.nameOf(Qk); }
 
     public long getA() { return A; }
     public void setA(long a) { A = a; }
 
-    public String getDest() { return dest; }
-    public void setDest(String dest) { this.dest = dest; }
+    public int getDestId() { return dest; }
+    public void setDestId(int dest) { this.dest = dest; }
+
+    public String getDest() { return RegisterId.toString(dest); }
 
     public int getRemainingCycles() { return remainingCycles; }
     public void setRemainingCycles(int remainingCycles) { this.remainingCycles = remainingCycles; }
@@ -76,14 +89,53 @@ public class ReservationStation {
     public int getExecutionLatency() { return executionLatency; }
     public void setExecutionLatency(int executionLatency) { this.executionLatency = executionLatency; }
 
-    public Instruction getInstruction() { return instruction; }
-    public void setInstruction(Instruction instruction) { this.instruction = instruction; }
+    public DynamicInstruction getInstruction() { return instruction; }
+    public void setInstruction(DynamicInstruction instruction) { this.instruction = instruction; }
+
+    public int getRobTag() { return robTag; }
+    public void setRobTag(int robTag) { this.robTag = robTag; }
+
+    /** Tag this entry broadcasts on the CDB: its ROB entry when speculating, else its own. */
+    public int getProducerTag() { return robTag != ProducerTags.NONE ? robTag : tag; }
 
     public boolean isReady() {
-        return busy && Qj == null && Qk == null && remainingCycles == 0;
+        return busy && Qj == ProducerTags.NONE && Qk == ProducerTags.NONE && remainingCycles == 0;
     }
 
     public boolean isExecuting() {
         return busy && remainingCycles > 0;
     }
+
+    // ---------- history ----------
+
+    void saveState(StateVector out) {
+        out.putBoolean(busy);
+        out.put(op == null ? -1 : op.ordinal());
+        out.put(Vj);
+        out.put(Vk);
+        out.put(Qj);
+        out.put(Qk);
+        out.put(A);
+        out.put(dest);
+        out.put(remainingCycles);
+        out.put(executionLatency);
+        out.put(instruction == null ? -1 : instruction.getSeq());
+        out.put(robTag);
+    }
+
+    void restoreState(StateVector in, TimingLog log) {
+        busy = in.nextBoolean();
+        int opIndex = in.nextInt();
+        op = opIndex < 0 ? null : InstructionType.values()[opIndex];
+        Vj = in.next();
+        Vk = in.next();
+        Qj = in.nextInt();
+        Qk = in.nextInt();
+        A = in.next();
+        dest = in.nextInt();
+        remainingCycles = in.nextInt();
+        executionLatency = in.nextInt();
+        instruction = log.find(in.next());
+        robTag = in.nextInt();
+    }
 }
@@ -0,0 +1,147 @@
+package core;
+
+import java.util.Arrays;
+
+/**
+ * Exact LRU stack (reuse) distances of a stream of block numbers: for each
+ * access, the number of distinct other blocks touched since the previous
+ * access to the same block, or -1 on the first access (Bennett and Kruskal,
+ * 1975; Olken, 1981).
+ *
+ * A fully-associative LRU cache of C blocks hits exactly the accesses whose
+ * distance is below C (Mattson et al., 1970), so one pass gives the hits of
+ * every such cache size.
+ *
+ * Every block's latest access is marked in a Fenwick tree indexed by access
+ * time; the distance is the number of marks after the block's previous
+ * access, so an access costs O(log n) for n distinct blocks. The last access
+ * time of each block is kept in an open-addressing table of primitive
+ * arrays. When the time axis fills up, the marks are renumbered in order
+ * (doubling the arrays only if more than half of them are live), so memory
+ * stays proportional to the number of distinct blocks and nothing is
+ * allocated per access.
+ */
+public class ReuseDistance {
+
+    private static final long EMPTY = Long.MIN_VALUE; // no block number reaches it (blockSize > 1)
+
+    // block -> time of its latest access (open addressing, linear probing)
+    private long[] keys;
+    private int[] lastTime;
+    private int distinct;
+
+    // Fenwick tree over times 1..capacity, one mark per block's latest access
+    private int[] tree;
+    private long[] blockAt; // block whose latest access happened at time t, EMPTY if superseded
+    private int now;        // last time used
+
+    public ReuseDistance() {
+        keys = new long[64];
+        lastTime = new int[64];
+        Arrays.fill(keys, EMPTY);
+        tree = new int[1025];
+        blockAt = new long[1025];
+    }
+
+    /**
+     * Record an access to block.
+     * @return its reuse distance, or -1 if the block was never accessed
+     */
+    public long access(long block) {
+        int slot = slotOf(block);
+        long distance;
+        if (keys[slot] == block) {
+            int t = lastTime[slot];
+            distance = distinct - prefix(t); // marks after t (t itself is in the prefix)
+            add(t, -1);
+            blockAt[t] = EMPTY;
+        } else {
+            distance = -1;
+            keys[slot] = block;
+            distinct++;
+            if (2 * distinct > keys.length) {
+                grow();
+                slot = slotOf(block);
+            }
+        }
+        if (now + 1 == tree.length) {
+            compact();
+        }
+        now++;
+        add(now, 1);
+        blockAt[now] = block;
+        lastTime[slot] = now;
+        return distance;
+    }
+
+    /** Distinct blocks seen so far. */
+    public int getDistinct() {
+        return distinct;
+    }
+
+    public void reset() {
+        Arrays.fill(keys, EMPTY);
+        distinct = 0;
+        Arrays.fill(tree, 0);
+        Arrays.fill(blockAt, EMPTY);
+        now = 0;
+    }
+
+    private int slotOf(long block) {
+        int mask = keys.length - 1;
+        int i = (int) RandomReplacement.mix(block) & mask;
+        while (keys[i] != EMPTY && keys[i] != block) i = (i + 1) & mask;
+        return i;
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        int[] oldTimes = lastTime;
+        keys = new long[oldKeys.length * 2];
+        lastTime = new int[keys.length];
+        Arrays.fill(keys, EMPTY);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] == EMPTY) continue;
+            int slot = slotOf(oldKeys[i]);
+            keys[slot] = oldKeys[i];
+            lastTime[slot] = oldTimes[i];
+        }
+    }
+
+    /** Renumber the live marks 1..distinct in time order, doubling the time axis if it stays over half full. */
+    private void compact() {
+        int live = 0;
+        for (int t = 1; t <= now; t++) {
+            if (blockAt[t] == EMPTY) continue;
+            long block = blockAt[t];
+            blockAt[++live] = block;
+            lastTime[slotOf(block)] = live;
+        }
+        int capacity = tree.length - 1;
+        if (2 * live > capacity) {
+            capacity *= 2;
+            blockAt = Arrays.copyOf(blockAt, capacity + 1);
+            tree = new int[capacity + 1];
+        } else {
+            Arrays.fill(tree, 0);
+        }
+        Arrays.fill(blockAt, live + 1, blockAt.length, EMPTY);
+        // linear-time Fenwick build over marks 1..live
+        for (int t = 1; t <= capacity; t++) {
+            if (t <= live) tree[t]++;
+            int parent = t + (t & -t);
+            if (parent <= capacity) tree[parent] += tree[t];
+        }
+        now = live;
+    }
+
+    private void add(int t, int delta) {
+        for (; t < tree.length; t += t & -t) tree[t] += delta;
+    }
+
+    private int prefix(int t) {
+        int sum = 0;
+        for (; t > 0; t -= t & -t) sum += tree[t];
+        return sum;
+    }
+}
@@ -0,0 +1,108 @@
+package core;
+
+import java.util.Arrays;
+
+/**
+ * Re-reference interval prediction (Jaleel et al., ISCA 2010) with 2-bit
+ * re-reference prediction values (RRPV) kept in a byte[] per line.
+ *
+ * A hit predicts a near re-reference (RRPV 0). The victim is the first way
+ * predicted furthest away (RRPV 3); when no way is at 3 the whole set is
+ * aged until one is, which here is done in one step at the fill instead of
+ * by repeated scans, so victim() stays read-only. SRRIP inserts new blocks
+ * at RRPV 2, so a scan of blocks used once cannot flush the set. BRRIP
+ * inserts at 3 and only one fill in 32 at 2 (chosen by a seeded
+ * generator), which keeps part of a working set that is larger than the
+ * cache.
+ */
+public class RripReplacement implements ReplacementPolicy {
+
+    private static final byte MAX_RRPV = 3;
+    private static final int BIMODAL_ONE_IN = 32;
+
+    private final boolean bimodal;
+    private final int ways;
+    private final byte[] rrpv;
+    private final long seed;
+    private long state;
+
+    public RripReplacement(boolean bimodal, int sets, int ways, long seed) {
+        if (sets <= 0 || ways <= 0) {
+            throw new IllegalArgumentException("Bad cache geometry: " + sets + " sets of " + ways + " ways");
+        }
+        this.bimodal = bimodal;
+        this.ways = ways;
+        this.rrpv = new byte[sets * ways];
+        this.seed = seed;
+        reset();
+    }
+
+    @Override
+    public void reset() {
+        Arrays.fill(rrpv, MAX_RRPV);
+        state = seed;
+    }
+
+    @Override
+    public int victim(int set) {
+        int base = set * ways;
+        int victim = 0;
+        for (int w = 0; w < ways; w++) {
+            byte v = rrpv[base + w];
+            if (v == MAX_RRPV) return w;
+            if (v > rrpv[base + victim]) victim = w;
+        }
+        return victim;
+    }
+
+    @Override
+    public void onHit(int set, int way) {
+        rrpv[set * ways + way] = 0;
+    }
+
+    @Override
+    public void onFill(int set, int way) {
+        int base = set * ways;
+        // a replaced victim was the oldest way: age the set until it reaches MAX_RRPV
+        int age = MAX_RRPV - rrpv[base + way];
+        if (age > 0) {
+            for (int w = 0; w < ways; w++) rrpv[base + w] += age;
+        }
+        byte insert = MAX_RRPV - 1;
+        if (bimodal) {
+            state += 0x9E3779B97F4A7C15L;
+            if (Long.remainderUnsigned(RandomReplacement.mix(state), BIMODAL_ONE_IN) != 0) insert = MAX_RRPV;
+        }
+        rrpv[base + way] = insert;
+    }
+
+    @Override
+    public void onInvalidate(int set, int way) {
+        rrpv[set * ways + way] = MAX_RRPV;
+    }
+
+    @Override
+    public String getName() {
+        return bimodal ? "brrip" : "srrip";
+    }
+
+    @Override
+    public void saveState(StateVector out) {
+        out.put(state);
+        // eight RRPVs per slot
+        for (int i = 0; i < rrpv.length; i += 8) {
+            long packed = 0;
+            for (int j = i; j < Math.min(i + 8, rrpv.length); j++) packed |= (long) rrpv[j] << (8 * (j - i));
+            out.put(packed);
+        }
+    }
+
+    @Override
+    public void restoreState(StateVector in) {
+        state = in.next();
+        for (int i = 0; i < rrpv.length; i += 8) {
+            long packed = in.next();
+            for (int j = i; j < Math.min(i + 8, rrpv.length); j++) rrpv[j] = (byte) (packed >>> (8 * (j - i)));
+        }
+    }
+}
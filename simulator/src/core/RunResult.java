@@ -0,0 +1,510 @@
+package core;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Outcome of one headless run: configuration, timing, IPC, cache and branch
+ * prediction statistics, with JSON / CSV serialisation for batch jobs.
+ */
+public class RunResult {
+
+    /** One row of the instruction timing table. */
+    public static final class TimingRow {
+        public final long seq;
+        public final int pcIndex;
+        public final String text;
+        public final int issue;
+        public final int startExec;
+        public final int endExec;
+        public final int writeBack;
+        public final int commit;      // -1 unless the run used the reorder buffer
+        public final boolean squashed;
+
+        TimingRow(DynamicInstruction instr) {
+            this.seq = instr.getSeq();
+            this.pcIndex = instr.getPcIndex();
+            this.text = instr.getRawText();
+            this.issue = instr.getIssueCycle();
+            this.startExec = instr.getStartExecCycle();
+            this.endExec = instr.getEndExecCycle();
+            this.writeBack = instr.getWriteBackCycle();
+            this.commit = instr.getCommitCycle();
+            this.squashed = instr.isSquashed();
+        }
+    }
+
+    /** Prediction outcome of one static branch. */
+    public static final class BranchRow {
+        public final int pcIndex;
+        public final long resolved;
+        public final long mispredicted;
+
+        BranchRow(int pcIndex, long resolved, long mispredicted) {
+            this.pcIndex = pcIndex;
+            this.resolved = resolved;
+            this.mispredicted = mispredicted;
+        }
+
+        public double getAccuracy() {
+            return resolved > 0 ? 1.0 - (double) mispredicted / resolved : 1.0;
+        }
+    }
+
+    /** Hits and misses of one cache level (1 = L1). */
+    public static final class LevelRow {
+        public final int level;
+        public final long hits;
+        public final long misses;
+        public final long writebacks;       // dirty blocks written to the level below
+        public final long bytesWrittenBelow;
+        public final long victimHits;            // misses the victim cache turned into hits
+        public final long conflictMissesRemoved; // vs. modulo indexing without victim cache
+
+        LevelRow(Cache cache) {
+            this.level = cache.getLevel();
+            this.hits = cache.getHits();
+            this.misses = cache.getMisses();
+            this.writebacks = cache.getWritebacks();
+            this.bytesWrittenBelow = cache.getBytesWrittenBelow();
+            this.victimHits = cache.getVictimHits();
+            this.conflictMissesRemoved = cache.getConflictMissesRemoved();
+        }
+
+        public double getHitRate() {
+            long total = hits + misses;
+            return total > 0 ? (double) hits / total : 0.0;
+        }
+    }
+
+    /** L1 demand accesses and misses of one instruction (profiling runs). */
+    public static final class MissRow {
+        public final int pcIndex;
+        public final long accesses;
+        public final long misses;
+
+        MissRow(int pcIndex, long accesses, long misses) {
+            this.pcIndex = pcIndex;
+            this.accesses = accesses;
+            this.misses = misses;
+        }
+    }
+
+    /** Activity of one functional unit group. */
+    public static final class UnitRow {
+        public final String kind;
+        public final int count;          // 0 = one per station
+        public final int interval;       // 0 = unpipelined
+        public final long starts;
+        public final double utilisation;
+        public final long stallCycles;
+
+        UnitRow(FunctionalUnit fu, int cycles) {
+            this.kind = fu.getKind().getConfigName();
+            this.count = fu.getCount();
+            this.interval = fu.getInitiationInterval();
+            this.starts = fu.getStarts();
+            this.utilisation = fu.getUtilisation(cycles);
+            this.stallCycles = fu.getStallCycles();
+        }
+    }
+
+    private final String programName;
+    private final SimConfig config;
+    private final boolean drained;
+    private final int cycles;
+    private final long instructions;
+    private final long issued;
+    private final long fastForwarded;     // executed functionally before the detailed run
+    private final long cacheHits;
+    private final long cacheMisses;
+    private final long storeBytes;        // bytes stored by the program
+    private final long memoryWriteBytes;  // bytes the last level wrote to memory
+    private final int mshrs;               // 0 = blocking misses
+    private final long mshrPrimaryMisses;
+    private final long mshrMerges;        // secondary misses merged into an in-flight block
+    private final long mshrStalls;        // miss-cycles refused with every MSHR taken
+    private final int mshrPeak;
+    private final double mshrOccupancy;   // mean MSHRs in use per cycle
+    private final long prefetchesIssued;  // L1 prefetch fills
+    private final long prefetchHits;      // prefetched blocks a demand access used
+    private final long prefetchesUnused;  // prefetched blocks evicted before any use
+    private final long pollutionMisses;   // demand misses to blocks a prefetch evicted
+    private final double prefetchCoverage;
+    private final double prefetchAccuracy;
+    private final boolean profiled;       // L1 profiling on (SimConfig.profile)
+    private final long compulsoryMisses;
+    private final long capacityMisses;
+    private final long conflictMisses;
+    private final long coldAccesses;
+    private final long[] reuseHistogram;  // CacheProfiler buckets up to the last non-empty one
+    private final List<MissRow> missRows;
+    private final long branches;
+    private final long mispredicts;
+    private final long mispredictPenalty;
+    private final double cdbUtilisation;
+    private final long cdbContendedCycles;
+    private final long cdbDeferred;
+    private final int cdbMaxRequests;
+    private final long wallNanos;
+    private final List<TimingRow> timing;
+    private final List<BranchRow> branchRows;
+    private final List<UnitRow> unitRows;
+    private final List<LevelRow> levelRows;
+
+    public RunResult(String programName, SimConfig config, TomasuloEngine engine,
+                     boolean drained, long wallNanos) {
+        this.programName = programName;
+        this.config = config;
+        this.drained = drained;
+        this.cycles = engine.getCurrentCycle();
+        this.instructions = engine.getCompletedInstructions();
+        this.issued = engine.getIssuedInstructions();
+        this.fastForwarded = engine.getFastForwardedInstructions();
+        this.cacheHits = engine.getCache().getHits();
+        this.cacheMisses = engine.getCache().getMisses();
+        this.levelRows = new ArrayList<>();
+        Cache last = engine.getCache();
+        for (Cache c = engine.getCache(); c != null; c = c.getNextLevel()) {
+            levelRows.add(new LevelRow(c));
+            last = c;
+        }
+        this.storeBytes = engine.getCache().getStoreBytes();
+        this.memoryWriteBytes = last.getBytesWrittenBelow();
+        MshrFile mf = engine.getMshrFile();
+        this.mshrs = mf == null ? 0 : mf.getEntries();
+        this.mshrPrimaryMisses = mf == null ? 0 : mf.getPrimaryMisses();
+        this.mshrMerges = mf == null ? 0 : mf.getMerges();
+        this.mshrStalls = mf == null ? 0 : mf.getStalls();
+        this.mshrPeak = mf == null ? 0 : mf.getPeak();
+        this.mshrOccupancy = mf == null ? 0.0 : mf.getAverageOccupancy();
+        Cache l1 = engine.getCache();
+        this.prefetchesIssued = l1.getPrefetchesIssued();
+        this.prefetchHits = l1.getPrefetchHits();
+        this.prefetchesUnused = l1.getPrefetchesUnused();
+        this.pollutionMisses = l1.getPollutionMisses();
+        this.prefetchCoverage = l1.getPrefetchCoverage();
+        this.prefetchAccuracy = l1.getPrefetchAccuracy();
+        CacheProfiler prof = l1.getProfiler();
+        this.profiled = prof != null;
+        this.compulsoryMisses = prof == null ? 0 : prof.getCompulsoryMisses();
+        this.capacityMisses = prof == null ? 0 : prof.getCapacityMisses();
+        this.conflictMisses = prof == null ? 0 : prof.getConflictMisses();
+        this.coldAccesses = prof == null ? 0 : prof.getColdAccesses();
+        this.reuseHistogram = new long[prof == null ? 0 : prof.getUsedBuckets()];
+        for (int b = 0; b < reuseHistogram.length; b++) reuseHistogram[b] = prof.getReuseCount(b);
+        this.missRows = new ArrayList<>();
+        for (int pc = 0; prof != null && pc < prof.getPcLimit(); pc++) {
+            if (prof.getAccesses(pc) > 0) missRows.add(new MissRow(pc, prof.getAccesses(pc), prof.getMisses(pc)));
+        }
+        BranchStats bs = engine.getBranchStats();
+        this.branches = bs.getBranches();
+        this.mispredicts = bs.getMispredicts();
+        this.mispredictPenalty = bs.getPenaltyCycles();
+        CDBArbiter cdb = engine.getCdbArbiter();
+        this.cdbUtilisation = cdb.getUtilisation();
+        this.cdbContendedCycles = cdb.getContendedCycles();
+        this.cdbDeferred = cdb.getDeferred();
+        this.cdbMaxRequests = cdb.getMaxRequests();
+        this.unitRows = new ArrayList<>();
+        for (FunctionalUnit.Kind kind : FunctionalUnit.Kind.values()) {
+            unitRows.add(new UnitRow(engine.getFunctionalUnit(kind), cycles));
+        }
+        this.branchRows = new ArrayList<>();
+        for (int pc : bs.getBranchPcs()) {
+            branchRows.add(new BranchRow(pc, bs.getResolved(pc), bs.getMispredicted(pc)));
+        }
+        this.wallNanos = wallNanos;
+        this.timing = new ArrayList<>();
+        for (DynamicInstruction instr : engine.getTimingLog().getRecords()) {
+            timing.add(new TimingRow(instr));
+        }
+    }
+
+    public String getProgramName() { return programName; }
+    public SimConfig getConfig() { return config; }
+    public boolean isDrained() { return drained; }
+    public int getCycles() { return cycles; }
+    public long getInstructions() { return instructions; }
+    public long getIssued() { return issued; }
+    public long getFastForwarded() { return fastForwarded; }
+    public long getCacheHits() { return cacheHits; }
+    public long getCacheMisses() { return cacheMisses; }
+    public long getBranches() { return branches; }
+    public long getMispredicts() { return mispredicts; }
+    public long getMispredictPenalty() { return mispredictPenalty; }
+    public double getCdbUtilisation() { return cdbUtilisation; }
+    public long getCdbContendedCycles() { return cdbContendedCycles; }
+    public long getCdbDeferred() { return cdbDeferred; }
+    public int getCdbMaxRequests() { return cdbMaxRequests; }
+    public long getWallNanos() { return wallNanos; }
+    public List<TimingRow> getTiming() { return timing; }
+    public List<BranchRow> getBranchRows() { return branchRows; }
+    public List<UnitRow> getUnitRows() { return unitRows; }
+    public List<LevelRow> getLevelRows() { return levelRows; }
+    public long getStoreBytes() { return storeBytes; }
+    public long getMemoryWriteBytes() { return memoryWriteBytes; }
+    public long getMshrPrimaryMisses() { return mshrPrimaryMisses; }
+    public long getMshrMerges() { return mshrMerges; }
+    public long getMshrStalls() { return mshrStalls; }
+    public int getMshrPeak() { return mshrPeak; }
+    public double getMshrOccupancy() { return mshrOccupancy; }
+    public long getPrefetchesIssued() { return prefetchesIssued; }
+    public long getPrefetchHits() { return prefetchHits; }
+    public long getPrefetchesUnused() { return prefetchesUnused; }
+    public long getPollutionMisses() { return pollutionMisses; }
+    public double getPrefetchCoverage() { return prefetchCoverage; }
+    public double getPrefetchAccuracy() { return prefetchAccuracy; }
+    public long getCompulsoryMisses() { return compulsoryMisses; }
+    public long getCapacityMisses() { return capacityMisses; }
+    public long getConflictMisses() { return conflictMisses; }
+    public List<MissRow> getMissRows() { return missRows; }
+
+    /** Memory write traffic avoided compared with writing every store through. */
+    public long getWriteTrafficSaved() {
+        return storeBytes - memoryWriteBytes;
+    }
+
+    public long getWritebacks() {
+        long n = 0;
+        for (LevelRow l : levelRows) n += l.writebacks;
+        return n;
+    }
+
+    /** Counters of the given cache level, or null if the hierarchy is shallower. */
+    public LevelRow getLevelRow(int level) {
+        return level <= levelRows.size() ? levelRows.get(level - 1) : null;
+    }
+
+    /** Structural stall cycles summed over all unit groups. */
+    public long getUnitStallCycles() {
+        long n = 0;
+        for (UnitRow u : unitRows) n += u.stallCycles;
+        return n;
+    }
+
+    public double getIpc() {
+        return cycles > 0 ? (double) instructions / cycles : 0.0;
+    }
+
+    public double getCacheHitRate() {
+        long total = cacheHits + cacheMisses;
+        return total > 0 ? (double) cacheHits / total : 0.0;
+    }
+
+    public double getBranchAccuracy() {
+        return branches > 0 ? 1.0 - (double) mispredicts / branches : 1.0;
+    }
+
+    // ---------- CSV ----------
+
+    public static String csvHeader() {
+        StringBuilder sb = new StringBuilder("program");
+        for (String key : SimConfig.KEYS) sb.append(',').append(key);
+        sb.append(",drained,cycles,instructions,issued,fastForwarded,ipc,cacheHits,cacheMisses,cacheHitRate,"
+                + "l2Hits,l2Misses,l3Hits,l3Misses,victimHits,conflictMissesRemoved,"
+                + "writebacks,memoryWriteBytes,writeTrafficSaved,"
+                + "mshrPrimaryMisses,mshrMerges,mshrStalls,mshrPeak,mshrOccupancy,"
+                + "prefetchesIssued,prefetchHits,prefetchesUnused,pollutionMisses,prefetchCoverage,prefetchAccuracy,"
+                + "compulsoryMisses,capacityMisses,conflictMisses,"
+                + "branches,mispredicts,branchAccuracy,mispredictPenalty,"
+                + "cdbUtilisation,cdbContendedCycles,cdbDeferred,cdbMaxRequests,unitStallCycles,wallMs");
+        return sb.toString();
+    }
+
+    public String toCsvRow() {
+        StringBuilder sb = new StringBuilder(csvField(programName));
+        for (String key : SimConfig.KEYS) sb.append(',').append(config.get(key));
+        sb.append(',').append(drained)
+          .append(',').append(cycles)
+          .append(',').append(instructions)
+          .append(',').append(issued)
+          .append(',').append(fastForwarded)
+          .append(',').append(String.format("%.4f", getIpc()))
+          .append(',').append(cacheHits)
+          .append(',').append(cacheMisses)
+          .append(',').append(String.format("%.4f", getCacheHitRate()));
+        for (int level = 2; level <= 3; level++) {
+            LevelRow l = getLevelRow(level);
+            sb.append(',').append(l == null ? 0 : l.hits).append(',').append(l == null ? 0 : l.misses);
+        }
+        LevelRow l1 = levelRows.get(0);
+        sb.append(',').append(l1.victimHits)
+          .append(',').append(l1.conflictMissesRemoved);
+        sb.append(',').append(getWritebacks())
+          .append(',').append(memoryWriteBytes)
+          .append(',').append(getWriteTrafficSaved());
+        sb.append(',').append(mshrPrimaryMisses)
+          .append(',').append(mshrMerges)
+          .append(',').append(mshrStalls)
+          .append(',').append(mshrPeak)
+          .append(',').append(String.format("%.4f", mshrOccupancy));
+        sb.append(',').append(prefetchesIssued)
+          .append(',').append(prefetchHits)
+          .append(',').append(prefetchesUnused)
+          .append(',').append(pollutionMisses)
+          .append(',').append(String.format("%.4f", prefetchCoverage))
+          .append(',').append(String.format("%.4f", prefetchAccuracy));
+        sb.append(',').append(compulsoryMisses)
+          .append(',').append(capacityMisses)
+          .append(',').append(conflictMisses);
+        sb.append(',').append(branches)
+          .append(',').append(mispredicts)
+          .append(',').append(String.format("%.4f", getBranchAccuracy()))
+          .append(',').append(mispredictPenalty)
+          .append(',').append(String.format("%.4f", cdbUtilisation))
+          .append(',').append(cdbContendedCycles)
+          .append(',').append(cdbDeferred)
+          .append(',').append(cdbMaxRequests)
+          .append(',').append(getUnitStallCycles())
+          .append(',').append(String.format("%.3f", wallNanos / 1e6));
+        return sb.toString();
+    }
+
+    private static String csvField(String s) {
+        if (s.indexOf(',') < 0 && s.indexOf('"') < 0) return s;
+        return '"' + s.replace("\"", "\"\"") + '"';
+    }
+
+    // ---------- JSON ----------
+
+    public String toJson() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("{\n");
+        sb.append("  \"program\": ").append(jsonString(programName)).append(",\n");
+        sb.append("  \"config\": {");
+        for (int i = 0; i < SimConfig.KEYS.length; i++) {
+            if (i > 0) sb.append(", ");
+            String key = SimConfig.KEYS[i];
+            String value = config.get(key);
+            sb.append('"').append(key).append("\": ").append(SimConfig.isStringKey(key) ? jsonString(value) : value);
+        }
+        sb.append("},\n");
+        sb.append("  \"drained\": ").append(drained).append(",\n");
+        sb.append("  \"cycles\": ").append(cycles).append(",\n");
+        sb.append("  \"instructions\": ").append(instructions).append(",\n");
+        sb.append("  \"issued\": ").append(issued).append(",\n");
+        sb.append("  \"fastForwarded\": ").append(fastForwarded).append(",\n");
+        sb.append("  \"ipc\": ").append(String.format("%.4f", getIpc())).append(",\n");
+        sb.append("  \"cache\": {\"hits\": ").append(cacheHits)
+          .append(", \"misses\": ").append(cacheMisses)
+          .append(", \"hitRate\": ").append(String.format("%.4f", getCacheHitRate()))
+          .append(", \"levels\": [");
+        for (int i = 0; i < levelRows.size(); i++) {
+            LevelRow l = levelRows.get(i);
+            if (i > 0) sb.append(", ");
+            sb.append("{\"level\": ").append(l.level)
+              .append(", \"hits\": ").append(l.hits)
+              .append(", \"misses\": ").append(l.misses)
+              .append(", \"hitRate\": ").append(String.format("%.4f", l.getHitRate()))
+              .append(", \"writebacks\": ").append(l.writebacks)
+              .append(", \"bytesWrittenBelow\": ").append(l.bytesWrittenBelow)
+              .append(", \"victimHits\": ").append(l.victimHits)
+              .append(", \"conflictMissesRemoved\": ").append(l.conflictMissesRemoved).append('}');
+        }
+        sb.append("], \"storeBytes\": ").append(storeBytes)
+          .append(", \"memoryWriteBytes\": ").append(memoryWriteBytes)
+          .append(", \"writeTrafficSaved\": ").append(getWriteTrafficSaved()).append("},\n");
+        sb.append("  \"mshr\": {\"entries\": ").append(mshrs)
+          .append(", \"primaryMisses\": ").append(mshrPrimaryMisses)
+          .append(", \"merges\": ").append(mshrMerges)
+          .append(", \"stalls\": ").append(mshrStalls)
+          .append(", \"peak\": ").append(mshrPeak)
+          .append(", \"occupancy\": ").append(String.format("%.4f", mshrOccupancy)).append("},\n");
+        sb.append("  \"prefetch\": {\"issued\": ").append(prefetchesIssued)
+          .append(", \"useful\": ").append(prefetchHits)
+          .append(", \"unused\": ").append(prefetchesUnused)
+          .append(", \"pollutionMisses\": ").append(pollutionMisses)
+          .append(", \"coverage\": ").append(String.format("%.4f", prefetchCoverage))
+          .append(", \"accuracy\": ").append(String.format("%.4f", prefetchAccuracy)).append("},\n");
+        sb.append("  \"profile\": {\"enabled\": ").append(profiled)
+          .append(", \"compulsory\": ").append(compulsoryMisses)
+          .append(", \"capacity\": ").append(capacityMisses)
+          .append(", \"conflict\": ").append(conflictMisses)
+          .append(", \"coldAccesses\": ").append(coldAccesses)
+          .append(", \"reuseHistogram\": [");
+        for (int b = 0; b < reuseHistogram.length; b++) {
+            if (b > 0) sb.append(", ");
+            sb.append("{\"from\": ").append(CacheProfiler.bucketStart(b))
+              .append(", \"below\": ").append(CacheProfiler.bucketLimit(b))
+              .append(", \"count\": ").append(reuseHistogram[b]).append('}');
+        }
+        sb.append("], \"perPc\": [");
+        for (int i = 0; i < missRows.size(); i++) {
+            MissRow m = missRows.get(i);
+            if (i > 0) sb.append(", ");
+            sb.append("{\"pc\": ").append(m.pcIndex)
+              .append(", \"accesses\": ").append(m.accesses)
+              .append(", \"misses\": ").append(m.misses).append('}');
+        }
+        sb.append("]},\n");
+        sb.append("  \"cdb\": {\"utilisation\": ").append(String.format("%.4f", cdbUtilisation))
+          .append(", \"contendedCycles\": ").append(cdbContendedCycles)
+          .append(", \"deferred\": ").append(cdbDeferred)
+          .append(", \"maxRequests\": ").append(cdbMaxRequests).append("},\n");
+        sb.append("  \"units\": [");
+        for (int i = 0; i < unitRows.size(); i++) {
+            UnitRow u = unitRows.get(i);
+            if (i > 0) sb.append(", ");
+            sb.append("{\"kind\": ").append(jsonString(u.kind))
+              .append(", \"count\": ").append(u.count)
+              .append(", \"interval\": ").append(u.interval)
+              .append(", \"starts\": ").append(u.starts)
+              .append(", \"utilisation\": ").append(String.format("%.4f", u.utilisation))
+              .append(", \"stallCycles\": ").append(u.stallCycles).append('}');
+        }
+        sb.append("],\n");
+        sb.append("  \"branches\": {\"resolved\": ").append(branches)
+          .append(", \"mispredicts\": ").append(mispredicts)
+          .append(", \"accuracy\": ").append(String.format("%.4f", getBranchAccuracy()))
+          .append(", \"mispredictPenalty\": ").append(mispredictPenalty)
+          .append(", \"perBranch\": [");
+        for (int i = 0; i < branchRows.size(); i++) {
+            BranchRow b = branchRows.get(i);
+            if (i > 0) sb.append(", ");
+            sb.append("{\"pc\": ").append(b.pcIndex)
+              .append(", \"resolved\": ").append(b.resolved)
+              .append(", \"mispredicts\": ").append(b.mispredicted)
+              .append(", \"accuracy\": ").append(String.format("%.4f", b.getAccuracy())).append('}');
+        }
+        sb.append("]},\n");
+        sb.append("  \"wallMs\": ").append(String.format("%.3f", wallNanos / 1e6)).append(",\n");
+        sb.append("  \"timing\": [\n");
+        for (int i = 0; i < timing.size(); i++) {
+            TimingRow r = timing.get(i);
+            sb.append("    {\"seq\": ").append(r.seq)
+              .append(", \"pc\": ").append(r.pcIndex)
+              .append(", \"text\": ").append(jsonString(r.text))
+              .append(", \"issue\": ").append(r.issue)
+              .append(", \"startExec\": ").append(r.startExec)
+              .append(", \"endExec\": ").append(r.endExec)
+              .append(", \"writeBack\": ").append(r.writeBack)
+              .append(", \"commit\": ").append(r.commit)
+              .append(", \"squashed\": ").append(r.squashed)
+              .append('}');
+            if (i < timing.size() - 1) sb.append(',');
+            sb.append('\n');
+        }
+        sb.append("  ]\n");
+        sb.append("}");
+        return sb.toString();
+    }
+
+    static String jsonString(String s) {
+        StringBuilder sb = new StringBuilder("\"");
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"': sb.append("\\\""); break;
+                case '\\': sb.append("\\\\"); break;
+                case '\n': sb.append("\\n"); break;
+                case '\r': sb.append("\\r"); break;
+                case '\t': sb.append("\\t"); break;
+                default:
+                    if (c < 0x20) sb.append(String.format("\\u%04x", (int) c));
+                    else sb.append(c);
+            }
+        }
+        return sb.append('"').toString();
+    }
+}
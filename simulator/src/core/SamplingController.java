@@ -0,0 +1,194 @@
+package core;
+
+import java.util.Arrays;
+
+/**
+ * SMARTS-style sampled simulation (Wunderlich et al., ISCA 2003) around a
+ * TomasuloEngine: the program is split into periods of a fixed number of
+ * instructions. Each period is
+ *
+ *   functional warming   period - warmup - window instructions run by
+ *                        fastForward (cache and predictor stay warm)
+ *   detailed warm-up     warmup instructions in the detailed engine, to
+ *                        fill the pipeline (not measured)
+ *   measurement          window instructions in the detailed engine; their
+ *                        cycles / instructions is one CPI sample
+ *   drain                no issue until the pipeline is idle again
+ *
+ * The whole-program CPI is estimated as the mean of the samples. The
+ * confidence interval is mean +- z * s / sqrt(n), with s the sample
+ * standard deviation and z the normal quantile of the confidence level.
+ * Samples are taken at a fixed period, so a phase that repeats exactly with
+ * the period would bias them. With fewer than about 30 samples the normal
+ * interval is optimistic.
+ */
+public class SamplingController {
+
+    private final TomasuloEngine engine;
+    private final long period;
+    private final long warmup;
+    private final long window;
+    private double confidence = 0.95;
+
+    private double[] samples = new double[64]; // CPI of each complete measurement window
+    private int count;
+    private long functionalInstructions;
+    private final long detailedBefore;     // engine counts when the controller was created
+    private final long fastForwardedBefore;
+
+    /**
+     * Instruction counts start from the engine's state at construction, so
+     * an initial fast-forward done before is not part of the estimate.
+     * @param period instructions per sampling unit (>= warmup + window)
+     * @param warmup detailed instructions before each measurement
+     * @param window measured instructions per sample (at least 1)
+     */
+    public SamplingController(TomasuloEngine engine, long period, long warmup, long window) {
+        if (window < 1) throw new IllegalArgumentException("Measurement window must be at least 1 instruction: " + window);
+        if (warmup < 0) throw new IllegalArgumentException("Warm-up must not be negative: " + warmup);
+        if (period < warmup + window) {
+            throw new IllegalArgumentException("Sampling period " + period + " is shorter than warm-up + window "
+                    + (warmup + window));
+        }
+        this.engine = engine;
+        this.period = period;
+        this.warmup = warmup;
+        this.window = window;
+        this.detailedBefore = engine.getCompletedInstructions();
+        this.fastForwardedBefore = engine.getFastForwardedInstructions();
+    }
+
+    /** Confidence level of the interval, e.g. 0.95 (default) or 0.997. */
+    public void setConfidence(double confidence) {
+        if (!(confidence > 0 && confidence < 1)) {
+            throw new IllegalArgumentException("Confidence must be between 0 and 1: " + confidence);
+        }
+        this.confidence = confidence;
+    }
+
+    public double getConfidence() {
+        return confidence;
+    }
+
+    /**
+     * Sample the program from the engine's current pc to the end.
+     * @return true if the program finished, false if maxCycles detailed
+     *         cycles were reached first
+     */
+    public boolean run(long maxCycles) {
+        while (true) {
+            functionalInstructions += engine.fastForward(period - warmup - window);
+            if (engine.isDrained()) return true;
+            if (!detailed(warmup, maxCycles)) break;
+            int startCycle = engine.getCurrentCycle();
+            long startCount = engine.getCompletedInstructions();
+            boolean complete = detailed(window, maxCycles);
+            if (complete) {
+                addSample((double) (engine.getCurrentCycle() - startCycle)
+                        / (engine.getCompletedInstructions() - startCount));
+            }
+            if (!engine.drain(maxCycles)) return false;
+            if (!complete) break;
+        }
+        return engine.isDrained();
+    }
+
+    /** Step until instructions more have completed; false at the end of the program or maxCycles. */
+    private boolean detailed(long instructions, long maxCycles) {
+        long target = engine.getCompletedInstructions() + instructions;
+        while (engine.getCompletedInstructions() < target) {
+            if (engine.isDrained() || engine.getCurrentCycle() >= maxCycles) return false;
+            engine.nextCycle();
+        }
+        return true;
+    }
+
+    private void addSample(double cpi) {
+        if (count == samples.length) samples = Arrays.copyOf(samples, 2 * count);
+        samples[count++] = cpi;
+    }
+
+    public long getPeriod() { return period; }
+    public long getWarmup() { return warmup; }
+    public long getWindow() { return window; }
+
+    /** Number of complete measurement windows. */
+    public int getSampleCount() {
+        return count;
+    }
+
+    public double getSample(int i) {
+        return samples[i];
+    }
+
+    /** Instructions run functionally (fast-forward and warming). */
+    public long getFunctionalInstructions() {
+        return functionalInstructions;
+    }
+
+    /** Instructions run in the detailed engine (warm-up, measurement and drain). */
+    public long getDetailedInstructions() {
+        return engine.getCompletedInstructions() - detailedBefore;
+    }
+
+    /** Instructions covered by the sampled run (functional and detailed). */
+    public long getTotalInstructions() {
+        return engine.getFastForwardedInstructions() - fastForwardedBefore + getDetailedInstructions();
+    }
+
+    /** Mean CPI of the samples (NaN without samples). */
+    public double getCpi() {
+        if (count == 0) return Double.NaN;
+        double sum = 0;
+        for (int i = 0; i < count; i++) sum += samples[i];
+        return sum / count;
+    }
+
+    /** Sample standard deviation of the CPI samples (0 with fewer than two). */
+    public double getStandardDeviation() {
+        if (count < 2) return 0.0;
+        double mean = getCpi();
+        double sq = 0;
+        for (int i = 0; i < count; i++) sq += (samples[i] - mean) * (samples[i] - mean);
+        return Math.sqrt(sq / (count - 1));
+    }
+
+    /** Half-width of the confidence interval around getCpi(). */
+    public double getConfidenceHalfWidth() {
+        if (count == 0) return Double.NaN;
+        return zScore(confidence) * getStandardDeviation() / Math.sqrt(count);
+    }
+
+    /** Estimated cycles of a full detailed run: CPI times all instructions. */
+    public double getEstimatedCycles() {
+        return getCpi() * getTotalInstructions();
+    }
+
+    /**
+     * Samples needed for a confidence half-width of relativeError * CPI at
+     * the current coefficient of variation: (z * s / (e * mean))^2.
+     */
+    public long getRequiredSamples(double relativeError) {
+        double cv = getStandardDeviation() / getCpi();
+        double n = zScore(confidence) * cv / relativeError;
+        return (long) Math.ceil(n * n);
+    }
+
+    /** Two-sided standard normal quantile: P(|Z| <= z) = confidence. */
+    static double zScore(double confidence) {
+        double lo = 0, hi = 10;
+        for (int i = 0; i < 100; i++) {
+            double mid = (lo + hi) / 2;
+            if (erf(mid / Math.sqrt(2)) < confidence) lo = mid;
+            else hi = mid;
+        }
+        return (lo + hi) / 2;
+    }
+
+    /** Error function (Abramowitz and Stegun 7.1.26, |error| < 1.5e-7), x >= 0. */
+    private static double erf(double x) {
+        double t = 1 / (1 + 0.3275911 * x);
+        double poly = t * (0.254829592 + t * (-0.284496736 + t * (1.421413741 + t * (-1.453152027 + t * 1.061405429))));
+        return 1 - poly * Math.exp(-x * x);
+    }
+}
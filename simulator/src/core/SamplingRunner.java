@@ -0,0 +1,160 @@
+package core;
+
+import java.io.File;
+
+/**
+ * Headless sampled run: estimates a program's CPI with a SamplingController
+ * instead of simulating every instruction in detail.
+ *
+ * Usage:
+ *   java -cp bin/classes core.SamplingRunner [options] program.txt
+ *
+ * Options:
+ *   --config=FILE        .properties file with any SimConfig keys
+ *   --KEY=VALUE          override one SimConfig key (fastForward skips an
+ *                        initial phase before sampling starts)
+ *   --period=N           instructions per sampling unit (default 10000)
+ *   --warmup=N           detailed warm-up instructions per unit (default 2000)
+ *   --window=N           measured instructions per unit (default 1000)
+ *   --confidence=P       confidence level in percent (default 95)
+ *   --reference          also run the sampled range (after fastForward) in detail
+ *                        and report the error
+ *   --format=text|json   output format (default text)
+ *
+ * maxCycles bounds the detailed cycles. Exit code is 0 when the program
+ * finished, 3 when maxCycles was hit.
+ */
+public class SamplingRunner {
+
+    public static void main(String[] args) throws Exception {
+        String programPath = null;
+        String format = "text";
+        long period = 10_000, warmup = 2_000, window = 1_000;
+        double confidence = 95;
+        boolean reference = false;
+
+        SimConfig config = new SimConfig();
+        for (String arg : args) {
+            if (arg.startsWith("--config=")) {
+                config = SimConfig.load(new File(arg.substring("--config=".length())));
+            }
+        }
+
+        for (String arg : args) {
+            if (arg.startsWith("--config=")) {
+                continue;
+            } else if (arg.startsWith("--period=")) {
+                period = Long.parseLong(arg.substring("--period=".length()));
+            } else if (arg.startsWith("--warmup=")) {
+                warmup = Long.parseLong(arg.substring("--warmup=".length()));
+            } else if (arg.startsWith("--window=")) {
+                window = Long.parseLong(arg.substring("--window=".length()));
+            } else if (arg.startsWith("--confidence=")) {
+                confidence = Double.parseDouble(arg.substring("--confidence=".length()));
+            } else if (arg.equals("--reference")) {
+                reference = true;
+            } else if (arg.startsWith("--format=")) {
+                format = arg.substring("--format=".length());
+            } else if (arg.startsWith("--") && arg.indexOf('=') > 2) {
+                int eq = arg.indexOf('=');
+                config.set(arg.substring(2, eq), arg.substring(eq + 1));
+            } else if (!arg.startsWith("--")) {
+                programPath = arg;
+            } else {
+                usage("Unknown option: " + arg);
+            }
+        }
+        if (programPath == null) usage("No program file given");
+        if (!format.equals("text") && !format.equals("json")) usage("Unknown format: " + format);
+
+        File programFile = new File(programPath);
+        Program program = new Parser().parse(programFile);
+
+        TomasuloEngine engine = config.createEngine(program);
+        engine.setHistoryEnabled(false);
+        long start = System.nanoTime();
+        if (config.fastForward > 0) engine.fastForward(config.fastForward);
+        SamplingController sampler = new SamplingController(engine, period, warmup, window);
+        sampler.setConfidence(confidence / 100);
+        boolean finished = sampler.run(config.maxCycles);
+        long elapsed = System.nanoTime() - start;
+
+        RunResult full = null;
+        if (reference) {
+            // same fastForward, so both CPIs cover the same instructions
+            full = BatchRunner.run(programFile.getName(), program, config);
+        }
+
+        System.out.println(format.equals("json")
+                ? json(programFile.getName(), sampler, confidence, finished, elapsed, full)
+                : text(programFile.getName(), sampler, confidence, finished, elapsed, full));
+        System.exit(finished ? 0 : 3);
+    }
+
+    private static String text(String name, SamplingController s, double confidence, boolean finished,
+                               long elapsed, RunResult full) {
+        StringBuilder sb = new StringBuilder();
+        double cpi = s.getCpi();
+        double half = s.getConfidenceHalfWidth();
+        sb.append(String.format("program:          %s%s%n", name, finished ? "" : " (maxCycles reached)"));
+        sb.append(String.format("samples:          %d (period %d, warm-up %d, window %d)%n",
+                s.getSampleCount(), s.getPeriod(), s.getWarmup(), s.getWindow()));
+        sb.append(String.format("estimated CPI:    %.4f +- %.4f (%s%% confidence, +-%.2f%%)%n",
+                cpi, half, trim(confidence), 100 * half / cpi));
+        sb.append(String.format("estimated cycles: %.0f%n", s.getEstimatedCycles()));
+        sb.append(String.format("instructions:     %d (%d functional, %d detailed)%n",
+                s.getTotalInstructions(), s.getTotalInstructions() - s.getDetailedInstructions(),
+                s.getDetailedInstructions()));
+        sb.append(String.format("wall:             %.1f ms", elapsed / 1e6));
+        if (full != null) {
+            double actual = referenceCpi(full);
+            sb.append(String.format("%nreference CPI:    %.4f (%d cycles, %.1f ms), error %+.2f%%%s",
+                    actual, full.getCycles(), full.getWallNanos() / 1e6, 100 * (cpi - actual) / actual,
+                    Math.abs(cpi - actual) <= half ? ", inside the interval" : ", outside the interval"));
+        }
+        return sb.toString();
+    }
+
+    private static String json(String name, SamplingController s, double confidence, boolean finished,
+                               long elapsed, RunResult full) {
+        StringBuilder sb = new StringBuilder("{\n");
+        sb.append("  \"program\": \"").append(name.replace("\\", "\\\\").replace("\"", "\\\"")).append("\",\n");
+        sb.append("  \"finished\": ").append(finished).append(",\n");
+        sb.append("  \"period\": ").append(s.getPeriod())
+          .append(", \"warmup\": ").append(s.getWarmup())
+          .append(", \"window\": ").append(s.getWindow()).append(",\n");
+        sb.append("  \"samples\": ").append(s.getSampleCount()).append(",\n");
+        sb.append("  \"cpi\": ").append(number(s.getCpi()))
+          .append(", \"stdDev\": ").append(number(s.getStandardDeviation()))
+          .append(", \"confidence\": ").append(trim(confidence))
+          .append(", \"halfWidth\": ").append(number(s.getConfidenceHalfWidth())).append(",\n");
+        sb.append("  \"estimatedCycles\": ").append(number(s.getEstimatedCycles())).append(",\n");
+        sb.append("  \"instructions\": ").append(s.getTotalInstructions())
+          .append(", \"detailedInstructions\": ").append(s.getDetailedInstructions()).append(",\n");
+        if (full != null) {
+            sb.append("  \"referenceCpi\": ").append(number(referenceCpi(full)))
+              .append(", \"referenceCycles\": ").append(full.getCycles()).append(",\n");
+        }
+        sb.append("  \"wallMs\": ").append(String.format("%.3f", elapsed / 1e6)).append("\n}");
+        return sb.toString();
+    }
+
+    private static double referenceCpi(RunResult full) {
+        return full.getInstructions() > 0 ? (double) full.getCycles() / full.getInstructions() : Double.NaN;
+    }
+
+    private static String number(double v) {
+        return Double.isNaN(v) ? "null" : String.format("%.6f", v);
+    }
+
+    private static String trim(double v) {
+        return v == Math.rint(v) ? String.valueOf((long) v) : String.valueOf(v);
+    }
+
+    private static void usage(String error) {
+        System.err.println(error);
+        System.err.println("Usage: java core.SamplingRunner [--config=FILE] [--KEY=VALUE ...] [--period=N] [--warmup=N]"
+                + " [--window=N] [--confidence=P] [--reference] [--format=text|json] program.txt");
+        System.exit(1);
+    }
+}
@@ -0,0 +1,452 @@
+package core;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Paths;
+import java.util.Properties;
+
+/**
+ * Full engine + cache configuration for one simulation run.
+ *
+ * Defaults match the GUI defaults in StateViewModel. Values can be read from
+ * a .properties file (keys as in {@link #KEYS}) and overridden one by one with
+ * {@link #set(String, String)}, which is what the headless runners use for
+ * command-line flags.
+ */
+public class SimConfig {
+
+    // Reservation stations / buffers
+    public int numFpAddRS = 3;
+    public int numFpMulRS = 2;
+    public int numIntAluRS = 3;
+    public int numLoadBuffers = 3;
+    public int numStoreBuffers = 3;
+
+    // Instructions issued per cycle
+    public int issueWidth = 1;
+
+    // Execution units per FunctionalUnit.Kind: count (0 = one per station) and
+    // initiation interval (1 = pipelined, 0 = unpipelined); keys "<kind>Units" / "<kind>II"
+    public final int[] unitCount = new int[FunctionalUnit.Kind.values().length];
+    public final int[] unitInterval = {1, 1, 1, 1, 1, 1};
+
+    // Common data buses (see CDBArbiter)
+    public int cdbBuses = 1;
+    public String cdbPolicy = "dependents"; // one of CDBArbiter.POLICY_NAMES
+    public int cdbReserveEnds = 1;          // hold back starts that would finish in a full cycle
+
+    // Latencies
+    public int fpAddLatency = 2;
+    public int fpMulLatency = 4;
+    public int fpDivLatency = 40;
+    public int intAluLatency = 1;
+    public int loadLatencyBase = 2;
+    public int storeLatencyBase = 2;
+
+    // Cache
+    public int cacheSize = 1024;
+    public int blockSize = 16;
+    public int associativity = 2;
+    public int cacheHitLatency = 1;
+    public int cacheMissPenalty = 10;      // memory latency, paid by the last level
+    public String writePolicy = "writethrough"; // one of Cache.WRITE_POLICY_NAMES (per level)
+    public String replacement = "lru";          // one of ReplacementPolicy.NAMES (per level)
+    public int replacementSeed = 1;             // seeds "random" and "brrip" at every level
+    public int mshrs = 0;                       // L1 miss status holding registers (0 = blocking)
+    public String prefetcher = "none";          // L1 prefetcher, one of Prefetcher.NAMES
+    public int prefetchDegree = 1;              // blocks requested per trigger
+    public int prefetchDistance = 1;            // blocks (strides for "stride") ahead of the access
+    public String setIndex = "modulo";          // one of Cache.SET_INDEXING_NAMES (per level)
+    public int victimCache = 0;                 // L1 victim cache entries (0 = none)
+    public int victimCacheLatency = 1;          // extra cycles of a victim cache hit
+    public int profile = 0;                     // L1 3C / reuse-distance profiling (see CacheProfiler)
+
+    // Lower cache levels (size 0 = level absent; an L3 needs an L2). Inclusion
+    // is one of Cache.INCLUSION_NAMES, relative to the level above.
+    public int l2CacheSize = 0;
+    public int l2BlockSize = 16;
+    public int l2Associativity = 4;
+    public int l2HitLatency = 4;
+    public String l2Inclusion = "nine";
+    public String l2WritePolicy = "writethrough";
+    public String l2Replacement = "lru";
+    public String l2SetIndex = "modulo";
+    public int l3CacheSize = 0;
+    public int l3BlockSize = 16;
+    public int l3Associativity = 8;
+    public int l3HitLatency = 12;
+    public String l3Inclusion = "nine";
+    public String l3WritePolicy = "writethrough";
+    public String l3Replacement = "lru";
+    public String l3SetIndex = "modulo";
+
+    // Speculative issue past branches with a reorder buffer (0 = stall on branches)
+    public int speculative = 0;
+    public int robSize = TomasuloEngine.DEFAULT_ROB_SIZE;
+    public int commitWidth = 0; // ROB entries retired per cycle (0 = issueWidth)
+
+    // Branch predictor used in speculative mode (one of BranchPredictor.NAMES)
+    public String predictor = "btfn";
+    public int predictorTableBits = 10;   // log2 counter table entries
+    public int predictorHistoryBits = 8;  // global history length (gshare, tournament)
+
+    // Data memory: "flat" (memorySize bytes from address 0), "varhandle"
+    // (the same, accessed through VarHandle views), "paged"
+    // (sparse 64-bit address space in pages of 2^memoryPageBits bytes) or
+    // "mapped" (paged, with the image file mapped instead of copied)
+    public String memory = "flat";
+    public int memorySize = FlatMemory.DEFAULT_SIZE;
+    public int memoryPageBits = PagedMemory.DEFAULT_PAGE_BITS;
+
+    // Binary image loaded into data memory at memoryImageBase ("" = none)
+    public String memoryImage = "";
+    public long memoryImageBase = 0;
+
+    // Instructions executed functionally (warming the caches) before detailed simulation
+    public int fastForward = 0;
+
+    // Safety net for programs that never drain (e.g. infinite loops)
+    public int maxCycles = 1_000_000;
+
+    // Retired timing rows kept per run (0 = all)
+    public int timingWindow = TimingLog.DEFAULT_WINDOW;
+
+    /** All configurable keys, in the order they are reported. */
+    public static final String[] KEYS = {
+            "numFpAddRS", "numFpMulRS", "numIntAluRS", "numLoadBuffers", "numStoreBuffers", "issueWidth",
+            "cdbBuses", "cdbPolicy", "cdbReserveEnds",
+            "fpAddUnits", "fpAddII", "fpMulUnits", "fpMulII", "fpDivUnits", "fpDivII",
+            "intAluUnits", "intAluII", "loadUnits", "loadII", "storeUnits", "storeII",
+            "fpAddLatency", "fpMulLatency", "fpDivLatency", "intAluLatency",
+            "loadLatencyBase", "storeLatencyBase",
+            "cacheSize", "blockSize", "associativity", "cacheHitLatency", "cacheMissPenalty", "writePolicy",
+            "replacement", "replacementSeed", "mshrs", "prefetcher", "prefetchDegree", "prefetchDistance",
+            "setIndex", "victimCache", "victimCacheLatency", "profile",
+            "l2CacheSize", "l2BlockSize", "l2Associativity", "l2HitLatency", "l2Inclusion", "l2WritePolicy",
+            "l2Replacement", "l2SetIndex",
+            "l3CacheSize", "l3BlockSize", "l3Associativity", "l3HitLatency", "l3Inclusion", "l3WritePolicy",
+            "l3Replacement", "l3SetIndex",
+            "speculative", "robSize", "commitWidth", "predictor", "predictorTableBits", "predictorHistoryBits",
+            "memory", "memorySize", "memoryPageBits", "memoryImage", "memoryImageBase",
+            "fastForward", "maxCycles", "timingWindow"
+    };
+
+    /** Keys whose values are names rather than numbers. */
+    public static boolean isStringKey(String key) {
+        return key.equals("predictor") || key.equals("cdbPolicy") || key.equals("memory")
+                || key.equals("memoryImage") || key.equals("l2Inclusion") || key.equals("l3Inclusion")
+                || key.equals("writePolicy") || key.equals("l2WritePolicy") || key.equals("l3WritePolicy")
+                || key.equals("replacement") || key.equals("l2Replacement") || key.equals("l3Replacement")
+                || key.equals("prefetcher")
+                || key.equals("setIndex") || key.equals("l2SetIndex") || key.equals("l3SetIndex");
+    }
+
+    public SimConfig copy() {
+        SimConfig c = new SimConfig();
+        for (String key : KEYS) {
+            c.set(key, get(key));
+        }
+        return c;
+    }
+
+    /** Read every known key present in a .properties file. */
+    public static SimConfig load(File file) throws IOException {
+        Properties props = new Properties();
+        try (Reader r = new FileReader(file)) {
+            props.load(r);
+        }
+        SimConfig c = new SimConfig();
+        for (String name : props.stringPropertyNames()) {
+            c.set(name, props.getProperty(name).trim());
+        }
+        return c;
+    }
+
+    public void set(String key, String value) {
+        if (key.equals("predictor")) {
+            String name = value.trim();
+            // validates the name
+            BranchPredictor.create(name, 0, 0);
+            predictor = name;
+            return;
+        }
+        if (key.equals("memory")) {
+            String name = value.trim();
+            if (!name.equals("flat") && !name.equals("varhandle") && !name.equals("paged") && !name.equals("mapped")) {
+                throw new IllegalArgumentException("Unknown memory kind: " + name);
+            }
+            memory = name;
+            return;
+        }
+        if (key.equals("l2Inclusion") || key.equals("l3Inclusion")) {
+            String name = value.trim();
+            Cache.inclusionOf(name);
+            if (key.equals("l2Inclusion")) l2Inclusion = name;
+            else l3Inclusion = name;
+            return;
+        }
+        if (key.equals("writePolicy") || key.equals("l2WritePolicy") || key.equals("l3WritePolicy")) {
+            String name = value.trim();
+            Cache.writePolicyOf(name);
+            if (key.equals("writePolicy")) writePolicy = name;
+            else if (key.equals("l2WritePolicy")) l2WritePolicy = name;
+            else l3WritePolicy = name;
+            return;
+        }
+        if (key.equals("replacement") || key.equals("l2Replacement") || key.equals("l3Replacement")) {
+            String name = value.trim();
+            // validates the name
+            ReplacementPolicy.create(name, 1, 1, 0);
+            if (key.equals("replacement")) replacement = name;
+            else if (key.equals("l2Replacement")) l2Replacement = name;
+            else l3Replacement = name;
+            return;
+        }
+        if (key.equals("setIndex") || key.equals("l2SetIndex") || key.equals("l3SetIndex")) {
+            String name = value.trim();
+            Cache.setIndexingOf(name);
+            if (key.equals("setIndex")) setIndex = name;
+            else if (key.equals("l2SetIndex")) l2SetIndex = name;
+            else l3SetIndex = name;
+            return;
+        }
+        if (key.equals("prefetcher")) {
+            String name = value.trim();
+            Prefetcher.create(name, 1, 1, 1); // validates the name
+            prefetcher = name;
+            return;
+        }
+        if (key.equals("memoryImage")) {
+            memoryImage = value.trim();
+            return;
+        }
+        if (key.equals("memoryImageBase")) {
+            try {
+                memoryImageBase = Long.decode(value.trim()); // decimal or 0x...
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Bad value for " + key + ": " + value);
+            }
+            return;
+        }
+        if (key.equals("cdbPolicy")) {
+            String name = value.trim();
+            CDBArbiter.policyOf(name);
+            cdbPolicy = name;
+            return;
+        }
+        int v;
+        try {
+            v = Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Bad value for " + key + ": " + value);
+        }
+        FunctionalUnit.Kind kind = unitKindOf(key);
+        if (kind != null) {
+            if (key.endsWith("Units")) unitCount[kind.ordinal()] = v;
+            else unitInterval[kind.ordinal()] = v;
+            return;
+        }
+        switch (key) {
+            case "numFpAddRS": numFpAddRS = v; break;
+            case "numFpMulRS": numFpMulRS = v; break;
+            case "numIntAluRS": numIntAluRS = v; break;
+            case "numLoadBuffers": numLoadBuffers = v; break;
+            case "numStoreBuffers": numStoreBuffers = v; break;
+            case "issueWidth": issueWidth = v; break;
+            case "cdbBuses": cdbBuses = v; break;
+            case "cdbReserveEnds": cdbReserveEnds = v; break;
+            case "fpAddLatency": fpAddLatency = v; break;
+            case "fpMulLatency": fpMulLatency = v; break;
+            case "fpDivLatency": fpDivLatency = v; break;
+            case "intAluLatency": intAluLatency = v; break;
+            case "loadLatencyBase": loadLatencyBase = v; break;
+            case "storeLatencyBase": storeLatencyBase = v; break;
+            case "cacheSize": cacheSize = v; break;
+            case "blockSize": blockSize = v; break;
+            case "associativity": associativity = v; break;
+            case "cacheHitLatency": cacheHitLatency = v; break;
+            case "cacheMissPenalty": cacheMissPenalty = v; break;
+            case "replacementSeed": replacementSeed = v; break;
+            case "mshrs": mshrs = v; break;
+            case "prefetchDegree": prefetchDegree = v; break;
+            case "prefetchDistance": prefetchDistance = v; break;
+            case "victimCache": victimCache = v; break;
+            case "victimCacheLatency": victimCacheLatency = v; break;
+            case "profile": profile = v; break;
+            case "l2CacheSize": l2CacheSize = v; break;
+            case "l2BlockSize": l2BlockSize = v; break;
+            case "l2Associativity": l2Associativity = v; break;
+            case "l2HitLatency": l2HitLatency = v; break;
+            case "l3CacheSize": l3CacheSize = v; break;
+            case "l3BlockSize": l3BlockSize = v; break;
+            case "l3Associativity": l3Associativity = v; break;
+            case "l3HitLatency": l3HitLatency = v; break;
+            case "speculative": speculative = v; break;
+            case "robSize": robSize = v; break;
+            case "commitWidth": commitWidth = v; break;
+            case "predictorTableBits": predictorTableBits = v; break;
+            case "predictorHistoryBits": predictorHistoryBits = v; break;
+            case "memorySize": memorySize = v; break;
+            case "memoryPageBits": memoryPageBits = v; break;
+            case "fastForward": fastForward = v; break;
+            case "maxCycles": maxCycles = v; break;
+            case "timingWindow": timingWindow = v; break;
+            default:
+                throw new IllegalArgumentException("Unknown config key: " + key);
+        }
+    }
+
+    public String get(String key) {
+        FunctionalUnit.Kind kind = unitKindOf(key);
+        if (kind != null) {
+            return String.valueOf(key.endsWith("Units") ? unitCount[kind.ordinal()] : unitInterval[kind.ordinal()]);
+        }
+        switch (key) {
+            case "numFpAddRS": return String.valueOf(numFpAddRS);
+            case "numFpMulRS": return String.valueOf(numFpMulRS);
+            case "numIntAluRS": return String.valueOf(numIntAluRS);
+            case "numLoadBuffers": return String.valueOf(numLoadBuffers);
+            case "numStoreBuffers": return String.valueOf(numStoreBuffers);
+            case "issueWidth": return String.valueOf(issueWidth);
+            case "cdbBuses": return String.valueOf(cdbBuses);
+            case "cdbPolicy": return cdbPolicy;
+            case "cdbReserveEnds": return String.valueOf(cdbReserveEnds);
+            case "fpAddLatency": return String.valueOf(fpAddLatency);
+            case "fpMulLatency": return String.valueOf(fpMulLatency);
+            case "fpDivLatency": return String.valueOf(fpDivLatency);
+            case "intAluLatency": return String.valueOf(intAluLatency);
+            case "loadLatencyBase": return String.valueOf(loadLatencyBase);
+            case "storeLatencyBase": return String.valueOf(storeLatencyBase);
+            case "cacheSize": return String.valueOf(cacheSize);
+            case "blockSize": return String.valueOf(blockSize);
+            case "associativity": return String.valueOf(associativity);
+            case "cacheHitLatency": return String.valueOf(cacheHitLatency);
+            case "cacheMissPenalty": return String.valueOf(cacheMissPenalty);
+            case "writePolicy": return writePolicy;
+            case "l2WritePolicy": return l2WritePolicy;
+            case "l3WritePolicy": return l3WritePolicy;
+            case "replacement": return replacement;
+            case "replacementSeed": return String.valueOf(replacementSeed);
+            case "mshrs": return String.valueOf(mshrs);
+            case "prefetcher": return prefetcher;
+            case "prefetchDegree": return String.valueOf(prefetchDegree);
+            case "prefetchDistance": return String.valueOf(prefetchDistance);
+            case "setIndex": return setIndex;
+            case "victimCache": return String.valueOf(victimCache);
+            case "victimCacheLatency": return String.valueOf(victimCacheLatency);
+            case "profile": return String.valueOf(profile);
+            case "l2Replacement": return l2Replacement;
+            case "l3Replacement": return l3Replacement;
+            case "l2SetIndex": return l2SetIndex;
+            case "l3SetIndex": return l3SetIndex;
+            case "l2CacheSize": return String.valueOf(l2CacheSize);
+            case "l2BlockSize": return String.valueOf(l2BlockSize);
+            case "l2Associativity": return String.valueOf(l2Associativity);
+            case "l2HitLatency": return String.valueOf(l2HitLatency);
+            case "l2Inclusion": return l2Inclusion;
+            case "l3CacheSize": return String.valueOf(l3CacheSize);
+            case "l3BlockSize": return String.valueOf(l3BlockSize);
+            case "l3Associativity": return String.valueOf(l3Associativity);
+            case "l3HitLatency": return String.valueOf(l3HitLatency);
+            case "l3Inclusion": return l3Inclusion;
+            case "speculative": return String.valueOf(speculative);
+            case "robSize": return String.valueOf(robSize);
+            case "commitWidth": return String.valueOf(commitWidth);
+            case "predictor": return predictor;
+            case "predictorTableBits": return String.valueOf(predictorTableBits);
+            case "predictorHistoryBits": return String.valueOf(predictorHistoryBits);
+            case "memory": return memory;
+            case "memorySize": return String.valueOf(memorySize);
+            case "memoryPageBits": return String.valueOf(memoryPageBits);
+            case "memoryImage": return memoryImage;
+            case "memoryImageBase": return String.valueOf(memoryImageBase);
+            case "fastForward": return String.valueOf(fastForward);
+            case "maxCycles": return String.valueOf(maxCycles);
+            case "timingWindow": return String.valueOf(timingWindow);
+            default:
+                throw new IllegalArgumentException("Unknown config key: " + key);
+        }
+    }
+
+    /** Unit kind named by a "<kind>Units" / "<kind>II" key, or null. */
+    private static FunctionalUnit.Kind unitKindOf(String key) {
+        for (FunctionalUnit.Kind kind : FunctionalUnit.Kind.values()) {
+            String name = kind.getConfigName();
+            if (key.equals(name + "Units") || key.equals(name + "II")) return kind;
+        }
+        return null;
+    }
+
+    /** The L1 cache, linked to the configured lower levels. */
+    private Cache createCache(Memory mem) {
+        Cache l1 = new Cache(cacheSize, blockSize, associativity, cacheHitLatency, cacheMissPenalty, mem);
+        l1.setWritePolicy(Cache.writePolicyOf(writePolicy));
+        l1.setReplacementPolicy(replacement, replacementSeed);
+        l1.setPrefetcher(Prefetcher.create(prefetcher, blockSize, prefetchDegree, prefetchDistance));
+        l1.setSetIndexing(Cache.setIndexingOf(setIndex));
+        l1.setVictimCache(victimCache, victimCacheLatency);
+        if (profile != 0) l1.enableProfiling();
+        if (l2CacheSize > 0) {
+            Cache l2 = new Cache(l2CacheSize, l2BlockSize, l2Associativity, l2HitLatency, cacheMissPenalty, mem);
+            l2.setInclusion(Cache.inclusionOf(l2Inclusion));
+            l2.setWritePolicy(Cache.writePolicyOf(l2WritePolicy));
+            l2.setReplacementPolicy(l2Replacement, replacementSeed);
+            l2.setSetIndexing(Cache.setIndexingOf(l2SetIndex));
+            l1.setNextLevel(l2);
+            if (l3CacheSize > 0) {
+                Cache l3 = new Cache(l3CacheSize, l3BlockSize, l3Associativity, l3HitLatency, cacheMissPenalty, mem);
+                l3.setInclusion(Cache.inclusionOf(l3Inclusion));
+                l3.setWritePolicy(Cache.writePolicyOf(l3WritePolicy));
+                l3.setReplacementPolicy(l3Replacement, replacementSeed);
+                l3.setSetIndexing(Cache.setIndexingOf(l3SetIndex));
+                l2.setNextLevel(l3);
+            }
+        } else if (l3CacheSize > 0) {
+            throw new IllegalArgumentException("An L3 cache needs an L2 (set l2CacheSize)");
+        }
+        return l1;
+    }
+
+    /**
+     * Build a fresh engine (with its own registers, memory and cache) for
+     * this configuration.
+     */
+    public TomasuloEngine createEngine(Program program) {
+        RegisterFile rf = new RegisterFile();
+        RegisterStatus rs = new RegisterStatus();
+        Memory mem = Memory.create(memory, memorySize, memoryPageBits);
+        Cache cache = createCache(mem);
+
+        TomasuloEngine engine = new TomasuloEngine(
+                program, rf, rs, mem, cache,
+                numFpAddRS, numFpMulRS, numIntAluRS, numLoadBuffers, numStoreBuffers,
+                fpAddLatency, fpMulLatency, fpDivLatency, intAluLatency,
+                loadLatencyBase, storeLatencyBase
+        );
+        engine.setTimingWindow(timingWindow);
+        engine.setIssueWidth(issueWidth);
+        engine.setCommitWidth(commitWidth);
+        CDBArbiter arbiter = new CDBArbiter(cdbBuses, CDBArbiter.policyOf(cdbPolicy));
+        arbiter.setReserveEnds(cdbReserveEnds != 0);
+        engine.setCdbArbiter(arbiter);
+        engine.setMshrs(mshrs);
+        for (FunctionalUnit.Kind k : FunctionalUnit.Kind.values()) {
+            engine.setFunctionalUnit(new FunctionalUnit(k, unitCount[k.ordinal()], unitInterval[k.ordinal()]));
+        }
+        if (speculative != 0) {
+            engine.setSpeculative(true, robSize);
+            engine.setBranchPredictor(BranchPredictor.create(predictor, predictorTableBits, predictorHistoryBits));
+        }
+        // after the engine's own reset, which clears flat and paged memory
+        if (!memoryImage.isEmpty()) {
+            try {
+                mem.loadImage(Paths.get(memoryImage), memoryImageBase);
+            } catch (IOException e) {
+                throw new IllegalArgumentException("Cannot load memory image " + memoryImage + ": " + e.getMessage(), e);
+            }
+        }
+        return engine;
+    }
+}
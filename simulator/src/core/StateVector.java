@@ -0,0 +1,84 @@
+package core;
+
+import java.util.Arrays;
+
+/**
+ * Flat long[] encoding of the machine state, written and read in the same
+ * field order by each component's saveState / restoreState.
+ *
+ * CycleHistory diffs two vectors of the same machine to get a per-cycle
+ * delta, so every component must always write the same number of slots.
+ */
+public class StateVector {
+
+    private long[] data;
+    private int size;
+    private int readPos;
+
+    public StateVector() {
+        this(256);
+    }
+
+    public StateVector(int capacity) {
+        data = new long[Math.max(capacity, 16)];
+    }
+
+    /** Start a new encoding (keeps the backing array). */
+    public void clear() {
+        size = 0;
+        readPos = 0;
+    }
+
+    public void put(long v) {
+        if (size == data.length) data = Arrays.copyOf(data, size * 2);
+        data[size++] = v;
+    }
+
+    public void putBoolean(boolean b) {
+        put(b ? 1 : 0);
+    }
+
+    /** Start reading from the first slot. */
+    public void rewind() {
+        readPos = 0;
+    }
+
+    public long next() {
+        if (readPos >= size) {
+            throw new IllegalStateException("State vector underflow at slot " + readPos);
+        }
+        return data[readPos++];
+    }
+
+    public int nextInt() {
+        return (int) next();
+    }
+
+    public boolean nextBoolean() {
+        return next() != 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long get(int i) {
+        return data[i];
+    }
+
+    public void set(int i, long v) {
+        data[i] = v;
+    }
+
+    public long[] toArray() {
+        return Arrays.copyOf(data, size);
+    }
+
+    /** Replace the contents with a copy of values. */
+    public void load(long[] values) {
+        if (data.length < values.length) data = new long[values.length];
+        System.arraycopy(values, 0, data, 0, values.length);
+        size = values.length;
+        readPos = 0;
+    }
+}
@@ -0,0 +1,40 @@
+package core;
+
+/**
+ * Fixed predictions: always taken, always not taken, or backward taken /
+ * forward not taken (loops taken, forward skips not taken).
+ */
+public class StaticPredictor implements BranchPredictor {
+
+    public enum Mode { TAKEN, NOT_TAKEN, BTFN }
+
+    private final Mode mode;
+
+    public StaticPredictor(Mode mode) {
+        this.mode = mode;
+    }
+
+    @Override
+    public long lookup(int pc, int target) {
+        switch (mode) {
+            case TAKEN: return 1;
+            case NOT_TAKEN: return 0;
+            default: return target <= pc ? 1 : 0;
+        }
+    }
+
+    @Override public void train(int pc, int target, boolean taken, long lookup) { }
+    @Override public void reset() { }
+
+    @Override
+    public String getName() {
+        switch (mode) {
+            case TAKEN: return "taken";
+            case NOT_TAKEN: return "nottaken";
+            default: return "btfn";
+        }
+    }
+
+    @Override public void saveState(StateVector out) { }
+    @Override public void restoreState(StateVector in) { }
+}
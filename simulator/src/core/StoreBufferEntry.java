@@ -3,40 +3,47 @@ package core;
 public class StoreBufferEntry {
 
     private final String name;   // e.g. "S0", "S1"
+    private final int tag;       // slot tag (stores do not produce on the CDB)
+    private final ProducerTags tags;
 
     private boolean busy;
 
     // Address computation
     private long address;
-    private String addressQ;
+    private int addressQ;        // producer tag if base register pending
     private int baseRegIndex;
     private long offset;
 
     // Value to store
     private long value;
-    private String valueQ;       // RS / LB name if value pending
+    private int valueQ;          // RS / LB tag if value pending
 
     private int remainingCycles;
-    private Instruction instruction;
+    private DynamicInstruction instruction;
+    private int robTag;          // reorder buffer entry (speculative mode), else NONE
 
-    public StoreBufferEntry(String name) {
+    public StoreBufferEntry(String name, ProducerTags tags) {
         this.name = name;
+        this.tags = tags;
+        this.tag = tags.register(name, this);
         clear();
     }
 
     public void clear() {
         busy = false;
         address = 0;
-        addressQ = null;
+        addressQ = ProducerTags.NONE;
         baseRegIndex = -1;
         offset = 0;
         value = 0;
-        valueQ = null;
+        valueQ = ProducerTags.NONE;
         remainingCycles = 0;
         instruction = null;
+        robTag = ProducerTags.NONE;
     }
 
     public String getName() { return name; }
+    public int getTag() { return tag; }
 
     public boolean isBusy() { return busy; }
     public void setBusy(boolean busy) { this.busy = busy; }
@@ -44,8 +51,9 @@ public class StoreBufferEntry {
     public long getAddress() { return address; }
     public void setAddress(long address) { this.address = address; }
 
-    public String getAddressQ() { return addressQ; }
-    public void setAddressQ(String addressQ) { this.addressQ = addressQ; }
+    public int getAddressQTag() { return addressQ; }
+    public void setAddressQTag(int addressQ) { this.addressQ = addressQ; }
+    public String getAddressQ() { return tags.nameOf(addressQ); }
 
     public int getBaseRegIndex() { return baseRegIndex; }
     public void setBaseRegIndex(int baseRegIndex) { this.baseRegIndex = baseRegIndex; }
@@ -56,19 +64,51 @@ public class StoreBufferEntry {
     public long getValue() { return value; }
     public void setValue(long value) { this.value = value; }
 
-    public String getValueQ() { return valueQ; }
-    public void setValueQ(String valueQ) { this.valueQ = valueQ; }
+    public int getValueQTag() { return valueQ; }
+    public void setValueQTag(int valueQ) { this.valueQ = valueQ; }
+    public String getValueQ() { return tags.nameOf(valueQ); }
 
     public int getRemainingCycles() { return remainingCycles; }
     public void setRemainingCycles(int remainingCycles) { this.remainingCycles = remainingCycles; }
 
-    public Instruction getInstruction() { return instruction; }
-    public void setInstruction(Instruction instruction) { this.instruction = instruction; }
+    public DynamicInstruction getInstruction() { return instruction; }
+    public void setInstruction(DynamicInstruction instruction) { this.instruction = instruction; }
 
-    public boolean isAddressReady() { return addressQ == null; }
-    public boolean isValueReady() { return valueQ == null; }
+    public int getRobTag() { return robTag; }
+    public void setRobTag(int robTag) { this.robTag = robTag; }
+
+    public boolean isAddressReady() { return addressQ == ProducerTags.NONE; }
+    public boolean isValueReady() { return valueQ == ProducerTags.NONE; }
 
     public boolean isExecuting() {
         return busy && remainingCycles > 0;
     }
+
+    // ---------- history ----------
+
+    void saveState(StateVector out) {
+        out.putBoolean(busy);
+        out.put(address);
+        out.put(addressQ);
+        out.put(baseRegIndex);
+        out.put(offset);
+        out.put(value);
+        out.put(valueQ);
+        out.put(remainingCycles);
+        out.put(instruction == null ? -1 : instruction.getSeq());
+        out.put(robTag);
+    }
+
+    void restoreState(StateVector in, TimingLog log) {
+        busy = in.nextBoolean();
+        address = in.next();
+        addressQ = in.nextInt();
+        baseRegIndex = in.nextInt();
+        offset = in.next();
+        value = in.next();
+        valueQ = in.nextInt();
+        remainingCycles = in.nextInt();
+        instruction = log.find(in.next());
+        robTag = in.nextInt();
+    }
 }
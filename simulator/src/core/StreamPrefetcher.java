@@ -0,0 +1,116 @@
+package core;
+
+import java.util.Arrays;
+
+/**
+ * Stream prefetching over a small table of streams (Jouppi's stream buffers,
+ * as tracked by Palacharla and Kessler, 1994). A demand miss that is not
+ * near any tracked stream starts a new one in training, replacing the least
+ * recently used stream. A second miss within two blocks of it fixes the
+ * direction, up or down. From then on a miss or first use of a prefetched
+ * block inside the stream's window (from its last block up to
+ * distance + degree blocks ahead) moves the stream there. It also requests
+ * the blocks distance to distance + degree - 1 further along.
+ *
+ * Unlike the stride prefetcher it needs no program index. It follows any
+ * run of nearby misses, whichever instructions cause them.
+ */
+public class StreamPrefetcher implements Prefetcher {
+
+    private static final int STREAMS = 8;
+    private static final int TRAIN_WINDOW = 2; // blocks
+
+    private final int blockSize;
+    private final int degree;
+    private final int distance;
+    private final long[] lastBlock = new long[STREAMS];
+    private final int[] direction = new int[STREAMS];   // -1, +1, or 0 while training
+    private final boolean[] valid = new boolean[STREAMS];
+    private final long[] lastUse = new long[STREAMS];
+    private long clock;
+
+    public StreamPrefetcher(int blockSize, int degree, int distance) {
+        this.blockSize = blockSize;
+        this.degree = degree;
+        this.distance = distance;
+    }
+
+    @Override
+    public int observe(int pc, long address, boolean miss, boolean prefetchHit, long[] out) {
+        if (!miss && !prefetchHit) return 0;
+        long block = Math.floorDiv(address, (long) blockSize);
+        clock++;
+        // 1) inside the window of a running stream
+        for (int s = 0; s < STREAMS; s++) {
+            if (!valid[s] || direction[s] == 0) continue;
+            long ahead = (block - lastBlock[s]) * direction[s];
+            if (ahead >= 0 && ahead <= distance + degree) return advance(s, block, out);
+        }
+        // 2) confirms a stream in training
+        for (int s = 0; s < STREAMS; s++) {
+            if (!valid[s] || direction[s] != 0) continue;
+            long d = block - lastBlock[s];
+            if (d != 0 && Math.abs(d) <= TRAIN_WINDOW) {
+                direction[s] = d > 0 ? 1 : -1;
+                return advance(s, block, out);
+            }
+        }
+        // 3) start training a new stream over the least recently used one
+        int victim = 0;
+        for (int s = 0; s < STREAMS; s++) {
+            if (!valid[s]) { victim = s; break; }
+            if (lastUse[s] < lastUse[victim]) victim = s;
+        }
+        valid[victim] = true;
+        lastBlock[victim] = block;
+        direction[victim] = 0;
+        lastUse[victim] = clock;
+        return 0;
+    }
+
+    private int advance(int s, long block, long[] out) {
+        lastBlock[s] = block;
+        lastUse[s] = clock;
+        for (int i = 0; i < degree; i++) out[i] = (block + direction[s] * (long) (distance + i)) * blockSize;
+        return degree;
+    }
+
+    @Override public int getDegree() { return degree; }
+    @Override public int getDistance() { return distance; }
+
+    @Override
+    public void reset() {
+        Arrays.fill(valid, false);
+        Arrays.fill(lastBlock, 0);
+        Arrays.fill(direction, 0);
+        Arrays.fill(lastUse, 0);
+        clock = 0;
+    }
+
+    @Override
+    public String getName() {
+        return "stream";
+    }
+
+    @Override
+    public void saveState(StateVector out) {
+        out.put(clock);
+        for (int s = 0; s < STREAMS; s++) {
+            out.putBoolean(valid[s]);
+            out.put(lastBlock[s]);
+            out.put(direction[s]);
+            out.put(lastUse[s]);
+        }
+    }
+
+    @Override
+    public void restoreState(StateVector in) {
+        clock = in.next();
+        for (int s = 0; s < STREAMS; s++) {
+            valid[s] = in.nextBoolean();
+            lastBlock[s] = in.next();
+            direction[s] = in.nextInt();
+            lastUse[s] = in.next();
+        }
+    }
+}
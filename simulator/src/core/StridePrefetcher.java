@@ -0,0 +1,96 @@
+package core;
+
+import java.util.Arrays;
+
+/**
+ * PC-indexed stride prefetching with a reference prediction table (Chen and
+ * Baer, 1995). Each entry, selected by the low bits of the instruction's
+ * program index, holds that instruction's last address, the stride between
+ * its last two addresses and a 2-bit confidence. A repeated stride raises
+ * the confidence and a different one lowers it, replacing the stride once
+ * the confidence is gone. From a confidence of 1 on, every access requests
+ * address + stride * (distance + i) for i below degree, so a loop walking
+ * an array backwards by 8 bytes prefetches the blocks below it.
+ *
+ * Accesses without a program index (pc -1) are ignored.
+ */
+public class StridePrefetcher implements Prefetcher {
+
+    private static final int TABLE_BITS = 6;
+    private static final int MAX_CONFIDENCE = 3;
+    private static final int PREDICT_AT = 1;
+
+    private final int degree;
+    private final int distance;
+    private final int[] pc = new int[1 << TABLE_BITS];     // -1 = empty
+    private final long[] last = new long[1 << TABLE_BITS];
+    private final long[] stride = new long[1 << TABLE_BITS];
+    private final byte[] confidence = new byte[1 << TABLE_BITS];
+
+    public StridePrefetcher(int degree, int distance) {
+        this.degree = degree;
+        this.distance = distance;
+        reset();
+    }
+
+    @Override
+    public int observe(int pcIndex, long address, boolean miss, boolean prefetchHit, long[] out) {
+        if (pcIndex < 0) return 0;
+        int e = pcIndex & ((1 << TABLE_BITS) - 1);
+        if (pc[e] != pcIndex) {
+            pc[e] = pcIndex;
+            last[e] = address;
+            stride[e] = 0;
+            confidence[e] = 0;
+            return 0;
+        }
+        long s = address - last[e];
+        last[e] = address;
+        if (s == stride[e]) {
+            if (confidence[e] < MAX_CONFIDENCE) confidence[e]++;
+        } else if (confidence[e] > 0) {
+            confidence[e]--;
+        } else {
+            stride[e] = s;
+        }
+        if (confidence[e] < PREDICT_AT || stride[e] == 0) return 0;
+        for (int i = 0; i < degree; i++) out[i] = address + stride[e] * (distance + i);
+        return degree;
+    }
+
+    @Override public int getDegree() { return degree; }
+    @Override public int getDistance() { return distance; }
+
+    @Override
+    public void reset() {
+        Arrays.fill(pc, -1);
+        Arrays.fill(last, 0);
+        Arrays.fill(stride, 0);
+        Arrays.fill(confidence, (byte) 0);
+    }
+
+    @Override
+    public String getName() {
+        return "stride";
+    }
+
+    @Override
+    public void saveState(StateVector out) {
+        for (int e = 0; e < pc.length; e++) {
+            out.put(pc[e]);
+            out.put(last[e]);
+            out.put(stride[e]);
+            out.put(confidence[e]);
+        }
+    }
+
+    @Override
+    public void restoreState(StateVector in) {
+        for (int e = 0; e < pc.length; e++) {
+            pc[e] = in.nextInt();
+            last[e] = in.next();
+            stride[e] = in.next();
+            confidence[e] = (byte) in.nextInt();
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package core;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Parallel design-space exploration: runs every configuration of a
+ * SweepSpec grid to completion on a fork-join pool and prints the runs
+ * ranked by cycles (or IPC).
+ *
+ * Every run gets its own engine, registers, memory and cache and only reads
+ * the shared Program, so runs share nothing mutable and scale with the
+ * number of cores.
+ *
+ * Usage:
+ *   java -cp bin/classes core.SweepRunner [options] program.txt
+ *
+ * Options:
+ *   --spec=FILE          sweep file ("key = values" per line, see SweepSpec)
+ *   --config=FILE        base .properties config for keys that are not swept
+ *   --KEY=VALUES         sweep one SimConfig key, e.g. --numFpAddRS=1..8
+ *                        or --cacheSize=256..4096*2
+ *   --threads=N          pool size (default: available processors)
+ *   --rank=cycles|ipc    ranking order (default cycles)
+ *   --top=N              rows printed to stdout (default 20)
+ *   --out=FILE           write every run as CSV
+ */
+public class SweepRunner {
+
+    public static void main(String[] args) throws Exception {
+        String programPath = null;
+        String outPath = null;
+        String rank = "cycles";
+        int threads = Runtime.getRuntime().availableProcessors();
+        int top = 20;
+
+        SimConfig base = new SimConfig();
+        SweepSpec spec = new SweepSpec();
+
+        for (String arg : args) {
+            if (arg.startsWith("--config=")) {
+                base = SimConfig.load(new File(arg.substring("--config=".length())));
+            } else if (arg.startsWith("--spec=")) {
+                spec = SweepSpec.load(new File(arg.substring("--spec=".length())));
+            }
+        }
+
+        for (String arg : args) {
+            if (arg.startsWith("--config=") || arg.startsWith("--spec=")) {
+                continue;
+            } else if (arg.startsWith("--threads=")) {
+                threads = Integer.parseInt(arg.substring("--threads=".length()));
+            } else if (arg.startsWith("--top=")) {
+                top = Integer.parseInt(arg.substring("--top=".length()));
+            } else if (arg.startsWith("--rank=")) {
+                rank = arg.substring("--rank=".length());
+            } else if (arg.startsWith("--out=")) {
+                outPath = arg.substring("--out=".length());
+            } else if (arg.startsWith("--") && arg.indexOf('=') > 2) {
+                int eq = arg.indexOf('=');
+                spec.put(arg.substring(2, eq), arg.substring(eq + 1));
+            } else if (!arg.startsWith("--")) {
+                programPath = arg;
+            } else {
+                System.err.println("Unknown option: " + arg);
+                System.exit(1);
+            }
+        }
+
+        if (programPath == null) {
+            System.err.println("Usage: java core.SweepRunner [--spec=FILE] [--config=FILE] [--KEY=VALUES ...]"
+                    + " [--threads=N] [--rank=cycles|ipc] [--top=N] [--out=FILE] program.txt");
+            System.exit(1);
+        }
+        if (!rank.equals("cycles") && !rank.equals("ipc")) {
+            System.err.println("Unknown rank order: " + rank);
+            System.exit(1);
+        }
+
+        File programFile = new File(programPath);
+        Program program = new Parser().parse(programFile);
+        List<SimConfig> grid = spec.expandGrid(base);
+
+        System.err.println("Sweeping " + grid.size() + " configurations on " + threads + " threads...");
+        long start = System.nanoTime();
+        ConcurrentLinkedQueue<String> errors = new ConcurrentLinkedQueue<>();
+        List<RunResult> results = runAll(programFile.getName(), program, grid, threads, errors);
+        long elapsed = System.nanoTime() - start;
+
+        results.sort(comparator(rank));
+
+        printTable(results, spec.getVaryingKeys(), top);
+        System.err.printf("%d runs in %.1f ms (%.1f runs/s), %d skipped%n",
+                results.size(), elapsed / 1e6, results.size() / (elapsed / 1e9), errors.size());
+        for (String e : errors) System.err.println("  skipped: " + e);
+
+        if (outPath != null) {
+            try (PrintWriter w = new PrintWriter(new FileWriter(outPath))) {
+                w.println(RunResult.csvHeader());
+                for (RunResult r : results) w.println(r.toCsvRow());
+            }
+        }
+    }
+
+    /**
+     * Run every configuration on a pool of the given size. Configurations
+     * the engine rejects (e.g. impossible cache geometry) are reported in
+     * errors and left out of the result list.
+     */
+    public static List<RunResult> runAll(String programName, Program program, List<SimConfig> grid,
+                                         int threads, ConcurrentLinkedQueue<String> errors) throws Exception {
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            List<Callable<RunResult>> tasks = new ArrayList<>(grid.size());
+            for (SimConfig config : grid) {
+                tasks.add(() -> {
+                    try {
+                        return BatchRunner.run(programName, program, config);
+                    } catch (RuntimeException e) {
+                        errors.add(describe(config) + ": " + e.getMessage());
+                        return null;
+                    }
+                });
+            }
+            List<RunResult> results = new ArrayList<>(grid.size());
+            for (Future<RunResult> f : pool.invokeAll(tasks)) {
+                RunResult r = f.get();
+                if (r != null) results.add(r);
+            }
+            return results;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /** Drained runs first; then fewest cycles (or highest IPC). */
+    static Comparator<RunResult> comparator(String rank) {
+        Comparator<RunResult> drainedFirst = Comparator.comparing(r -> !r.isDrained());
+        Comparator<RunResult> byCycles = Comparator.comparingInt(RunResult::getCycles);
+        Comparator<RunResult> byIpc = Comparator.comparingDouble(RunResult::getIpc).reversed();
+        return rank.equals("ipc")
+                ? drainedFirst.thenComparing(byIpc).thenComparing(byCycles)
+                : drainedFirst.thenComparing(byCycles).thenComparing(byIpc);
+    }
+
+    private static void printTable(List<RunResult> results, List<String> keys, int top) {
+        StringBuilder header = new StringBuilder(String.format("%4s %8s %7s %7s", "rank", "cycles", "ipc", "hit%"));
+        for (String key : keys) header.append(String.format(" %" + Math.max(6, key.length()) + "s", key));
+        System.out.println(header);
+
+        int n = Math.min(top, results.size());
+        for (int i = 0; i < n; i++) {
+            RunResult r = results.get(i);
+            StringBuilder row = new StringBuilder(String.format("%4d %8s %7.3f %6.1f%%",
+                    i + 1, r.isDrained() ? String.valueOf(r.getCycles()) : ">" + r.getCycles(),
+                    r.getIpc(), 100.0 * r.getCacheHitRate()));
+            for (String key : keys) {
+                row.append(String.format(" %" + Math.max(6, key.length()) + "s", r.getConfig().get(key)));
+            }
+            System.out.println(row);
+        }
+    }
+
+    private static String describe(SimConfig config) {
+        StringBuilder sb = new StringBuilder();
+        for (String key : SimConfig.KEYS) {
+            if (sb.length() > 0) sb.append(' ');
+            sb.append(key).append('=').append(config.get(key));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,132 @@
+package core;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Parameter ranges for a design-space sweep over SimConfig keys.
+ *
+ * Each key maps to a list of values; the sweep is the cartesian product of
+ * all lists applied on top of a base config. Value syntax:
+ *
+ *   4               single value
+ *   1,2,4,8         explicit list
+ *   1..8            inclusive range, step 1
+ *   2..16:2         inclusive range, additive step
+ *   256..4096*2     inclusive range, geometric step (256, 512, ..., 4096)
+ *
+ * List items may themselves be ranges ("1..3,8,16").
+ * A spec file has one "key = values" line per parameter; '#' starts a comment.
+ */
+public class SweepSpec {
+
+    private final Map<String, List<String>> ranges = new LinkedHashMap<>();
+
+    public static SweepSpec load(File file) throws IOException {
+        SweepSpec spec = new SweepSpec();
+        try (BufferedReader br = new BufferedReader(new FileReader(file))) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                int hash = line.indexOf('#');
+                if (hash != -1) line = line.substring(0, hash);
+                line = line.trim();
+                if (line.isEmpty()) continue;
+                int eq = line.indexOf('=');
+                if (eq == -1) {
+                    throw new IllegalArgumentException("Bad sweep line (expected key = values): " + line);
+                }
+                spec.put(line.substring(0, eq).trim(), line.substring(eq + 1).trim());
+            }
+        }
+        return spec;
+    }
+
+    /** Set the values for one key, replacing any previous range. */
+    public void put(String key, String values) {
+        // validates the key against SimConfig
+        new SimConfig().get(key);
+        ranges.put(key, expand(values));
+    }
+
+    public Map<String, List<String>> getRanges() {
+        return ranges;
+    }
+
+    /** Keys that actually vary (more than one value). */
+    public List<String> getVaryingKeys() {
+        List<String> keys = new ArrayList<>();
+        for (Map.Entry<String, List<String>> e : ranges.entrySet()) {
+            if (e.getValue().size() > 1) keys.add(e.getKey());
+        }
+        return keys;
+    }
+
+    public long gridSize() {
+        long n = 1;
+        for (List<String> values : ranges.values()) n *= values.size();
+        return n;
+    }
+
+    /** Cartesian product of every range applied to copies of base. */
+    public List<SimConfig> expandGrid(SimConfig base) {
+        List<SimConfig> grid = new ArrayList<>();
+        grid.add(base.copy());
+        for (Map.Entry<String, List<String>> e : ranges.entrySet()) {
+            List<SimConfig> next = new ArrayList<>(grid.size() * e.getValue().size());
+            for (SimConfig c : grid) {
+                for (String v : e.getValue()) {
+                    SimConfig copy = c.copy();
+                    copy.set(e.getKey(), v);
+                    next.add(copy);
+                }
+            }
+            grid = next;
+        }
+        return grid;
+    }
+
+    static List<String> expand(String spec) {
+        List<String> out = new ArrayList<>();
+        for (String part : spec.split(",")) {
+            part = part.trim();
+            if (part.isEmpty()) continue;
+            int dots = part.indexOf("..");
+            if (dots == -1) {
+                out.add(part);
+                continue;
+            }
+            String lo = part.substring(0, dots);
+            String rest = part.substring(dots + 2);
+            long step = 1;
+            boolean geometric = false;
+            int mul = rest.indexOf('*');
+            int colon = rest.indexOf(':');
+            if (mul != -1) {
+                step = Long.parseLong(rest.substring(mul + 1).trim());
+                rest = rest.substring(0, mul);
+                geometric = true;
+            } else if (colon != -1) {
+                step = Long.parseLong(rest.substring(colon + 1).trim());
+                rest = rest.substring(0, colon);
+            }
+            long from = Long.parseLong(lo.trim());
+            long to = Long.parseLong(rest.trim());
+            if (geometric ? (step < 2 || from < 1) : step < 1) {
+                throw new IllegalArgumentException("Bad range step in: " + part);
+            }
+            for (long v = from; v <= to; v = geometric ? v * step : v + step) {
+                out.add(String.valueOf(v));
+            }
+        }
+        if (out.isEmpty()) {
+            throw new IllegalArgumentException("Empty value list: " + spec);
+        }
+        return out;
+    }
+}
@@ -1,28 +1,22 @@
 package core;
 
 import java.io.*;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 public class TestLoopEngine {
     public static void main(String[] args) throws Exception {
         Parser p = new Parser();
-        String progPath = "src/test_loop.txt";
-        Program prog = p.parse(new File(progPath));
+        Program prog = p.parse(testFile("test_loop.txt").toFile());
 
         RegisterFile rf = new RegisterFile();
         RegisterStatus rs = new RegisterStatus();
-        Memory mem = new Memory();
-        
-        // Initialize memory with test data
-        mem.storeDouble(0, 100);
-        mem.storeDouble(8, 200);
-        mem.storeDouble(16, 300);
-        mem.storeDouble(24, 400);
-        mem.storeDouble(32, 500);
-        mem.storeDouble(44, 600);
-        
-        System.out.println("=== Memory Initialization ===");
-        System.out.println("mem[0] = " + mem.loadDouble(0));
-        System.out.println("mem[8] = " + mem.loadDouble(8));
-        System.out.println();
+        // Test data (doubles 100..500 at 0..32, 600 at 44) comes from a
+        // binary image mapped into memory; reset() returns to the image, so
+        // the data survives the engine's own reset.
+        Memory mem = new Memory(new MappedMemory());
+        mem.loadImage(testFile("test_loop.mem"), 0);
         
         Cache cache = new Cache(1024, 16, 2, 1, 10, mem);
 
@@ -37,6 +31,11 @@ public class TestLoopEngine {
             2   // storeLatencyBase
         );
 
+        System.out.println("=== Memory Initialization ===");
+        System.out.println("mem[0] = " + mem.loadDouble(0));
+        System.out.println("mem[8] = " + mem.loadDouble(8));
+        System.out.println();
+
         for (int i = 0; i < 50; i++) {
             System.out.println("\n===== Cycle " + engine.getCurrentCycle()
                     + " PC=" + engine.getPc()
@@ -55,4 +54,20 @@ public class TestLoopEngine {
         System.out.println("F2 = " + rf.getFp(2));
         System.out.println("F4 = " + rf.getFp(4));
     }
+
+    /**
+     * A file of the src folder: on the classpath (Eclipse copies it to bin),
+     * else in the src folder above the class output directory (bin/classes
+     * from the scripts), so the working directory does not matter.
+     */
+    private static Path testFile(String name) throws Exception {
+        URL url = TestLoopEngine.class.getResource("/" + name);
+        if (url != null) return Paths.get(url.toURI());
+        Path dir = Paths.get(TestLoopEngine.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+        for (; dir != null; dir = dir.getParent()) {
+            Path candidate = dir.resolve("src").resolve(name);
+            if (Files.exists(candidate)) return candidate;
+        }
+        throw new FileNotFoundException(name + " is neither on the classpath nor in a src folder above it");
+    }
 }
@@ -0,0 +1,127 @@
+package core;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Dynamic instruction records in issue order, i.e. the rows of the timing
+ * table.
+ *
+ * At most {@code window} retired records are kept; older retired records are
+ * dropped from the front. When recycling is on (no snapshots hold on to the
+ * records) dropped records are reused for later issues, so long runs use
+ * bounded memory. In-flight records are never dropped, and neither are
+ * records that retired after {@link #setKeepRetiredAfter} so cycle history
+ * can still step back to a cycle where they were in flight.
+ */
+public class TimingLog {
+
+    public static final int DEFAULT_WINDOW = 10_000;
+
+    private final ArrayDeque<DynamicInstruction> records = new ArrayDeque<>();
+    private final ArrayDeque<DynamicInstruction> free = new ArrayDeque<>();
+
+    private int window = DEFAULT_WINDOW;
+    private boolean recycle;
+    private int keepRetiredAfter = Integer.MAX_VALUE;
+    private long nextSeq;
+
+    public void clear() {
+        records.clear();
+        free.clear();
+        nextSeq = 0;
+    }
+
+    /** Max retired records kept (0 = unbounded). */
+    public void setWindow(int window) {
+        this.window = window;
+        trim();
+    }
+
+    public int getWindow() {
+        return window;
+    }
+
+    /** Reuse dropped records; only safe when no snapshot references them. */
+    public void setRecycle(boolean recycle) {
+        this.recycle = recycle;
+        if (!recycle) free.clear();
+    }
+
+    /** Records that retired after this cycle are kept even beyond the window. */
+    public void setKeepRetiredAfter(int cycle) {
+        this.keepRetiredAfter = cycle;
+    }
+
+    /** Create the record for a newly issued instruction. */
+    public DynamicInstruction issue(Instruction instr, int cycle) {
+        DynamicInstruction d = free.pollFirst();
+        if (d == null) d = new DynamicInstruction();
+        d.init(nextSeq++, instr, cycle);
+        records.addLast(d);
+        trim();
+        return d;
+    }
+
+    /** Drop retired records beyond the window from the front. */
+    public void trim() {
+        if (window <= 0) return;
+        while (records.size() > window) {
+            DynamicInstruction head = records.peekFirst();
+            if (!head.isRetired() || head.getRetireCycle() > keepRetiredAfter) break;
+            records.pollFirst();
+            if (recycle) free.addLast(head);
+        }
+    }
+
+    /**
+     * Roll the log back to the end of the given cycle: drop records issued
+     * later and clear timing stamps made later. Every stamp is the cycle it
+     * was made in, so no per-cycle log is needed.
+     */
+    public void rewind(int cycle) {
+        while (!records.isEmpty() && records.peekLast().getIssueCycle() > cycle) {
+            nextSeq = records.pollLast().getSeq();
+        }
+        for (DynamicInstruction d : records) d.clearAfter(cycle);
+    }
+
+    /** Live record with the given sequence number, or null (also for seq -1). */
+    public DynamicInstruction find(long seq) {
+        if (seq < 0) return null;
+        Iterator<DynamicInstruction> it = records.descendingIterator();
+        while (it.hasNext()) {
+            DynamicInstruction d = it.next();
+            if (d.getSeq() == seq) return d;
+            if (d.getSeq() < seq) break;
+        }
+        return null;
+    }
+
+    public int size() {
+        return records.size();
+    }
+
+    public long getIssuedCount() {
+        return nextSeq;
+    }
+
+    /** Live records in issue order (timing still changes for in-flight ones). */
+    public List<DynamicInstruction> getRecords() {
+        return new ArrayList<>(records);
+    }
+
+    /**
+     * Snapshot rows: retired records are shared (their timing is final and
+     * they are not recycled while snapshots exist), in-flight ones are copied.
+     */
+    public List<DynamicInstruction> snapshot() {
+        List<DynamicInstruction> rows = new ArrayList<>(records.size());
+        for (DynamicInstruction d : records) {
+            rows.add(d.isRetired() ? d : d.copy());
+        }
+        return rows;
+    }
+}
@@ -63,6 +63,50 @@ import java.util.List;
  *   - See canLoadExecute() for disambiguation logic
  * 
  * ============================================================================
+ * FUNCTIONAL UNITS (setFunctionalUnit):
+ * ============================================================================
+ * By default each station executes on its own unit. A FunctionalUnit group
+ * limits how many units of a kind exist (FP add, FP mul, FP div, int ALU,
+ * load / store ports) and how often each accepts an operation (pipelined
+ * with an initiation interval, or unpipelined). Ready stations that find
+ * every unit busy wait; those cycles are counted as structural stalls.
+ * 
+ * ============================================================================
+ * COMMON DATA BUSES (setCdbArbiter):
+ * ============================================================================
+ * Up to K producers write back per cycle, one per bus. The CDBArbiter picks
+ * them among the finished stations / load buffers (most dependents first by
+ * default; oldest-first, category priority and round-robin are available)
+ * and counts how often producers had to wait for a bus.
+ * 
+ * ============================================================================
+ * NON-BLOCKING CACHE (setMshrs):
+ * ============================================================================
+ * By default every load miss pays the full miss latency on its own, even
+ * when another miss to the same block is already outstanding. With miss
+ * status holding registers (MshrFile) a miss to a block in flight merges
+ * with it and completes when that block arrives; a miss to a new block
+ * needs a free register and otherwise waits. Stores take part when the
+ * write policy allocates on a store miss. Loads that hit are never held up
+ * by outstanding misses (hit under miss).
+ * 
+ * ============================================================================
+ * SPECULATIVE MODE (setSpeculative):
+ * ============================================================================
+ * By default fetch stalls at every BEQ / BNE until the branch writes back.
+ * In speculative mode every issued instruction also gets a reorder buffer
+ * entry and register status points at ROB tags instead of station tags:
+ * 
+ *   - Branches are predicted at issue by the BranchPredictor (default
+ *     backward taken, forward not taken) and fetch continues down the
+ *     predicted path; the predictor is trained when the branch resolves
+ *   - Results go to the ROB on the CDB; registers and memory are only
+ *     written when the entry commits from the ROB head, in program order
+ *   - A mispredicted branch squashes every younger entry at write-back:
+ *     their stations / buffers are freed, register status is rebuilt from
+ *     the surviving ROB entries and fetch restarts on the correct path
+ * 
+ * ============================================================================
  */
 public class TomasuloEngine {
 
@@ -80,11 +124,53 @@ public class TomasuloEngine {
     private final List<LoadBufferEntry> loadBuffers;
     private final List<StoreBufferEntry> storeBuffers;
 
+    // int tag <-> station / buffer (names kept for display only)
+    private final ProducerTags tags = new ProducerTags();
+
+    // producer tag -> operand slots waiting on it (filled at issue, drained by the CDB)
+    private final WakeupIndex wakeup = new WakeupIndex();
+
+    // write-back arbitration over the common data buses
+    private CDBArbiter cdb = new CDBArbiter(1, CDBArbiter.Policy.MOST_DEPENDENTS);
+
+    // outstanding L1 misses (null = blocking: every miss pays in full)
+    private MshrFile mshrs;
+    private final List<Object> cdbCandidates = new ArrayList<>(); // indexed like cdb offers
+
+    // execution units the ready stations compete for, indexed by FunctionalUnit.Kind
+    private final FunctionalUnit[] units = new FunctionalUnit[FunctionalUnit.Kind.values().length];
+
+    // one timing record per issued instruction (loop iterations get their own rows)
+    private final TimingLog timingLog = new TimingLog();
+
+    // speculative mode: in-order commit through the ROB, fetch past branches
+    private boolean speculative;
+    private ReorderBuffer rob;
+    private BranchPredictor predictor = BranchPredictor.create("btfn", 0, 0);
+    private final BranchStats branchStats;
+    private long squashedCount;
+
+    // instructions issued per cycle (in order, group ends at a stall or branch)
+    private int issueWidth = 1;
+    private long issuedInstructions;
+    // ROB entries retired per cycle in speculative mode (0 = issueWidth)
+    private int commitWidth;
+
     private boolean fetchStalled; 
     private int pc;               // index into program
     private int currentCycle;
 
-    private final List<CycleState> history;
+    // per-cycle deltas + checkpoints for previousCycle() (bounded window)
+    private final CycleHistory history;
+    private boolean historyEnabled = true; // headless runs skip history recording
+
+    // instructions that have written back (or committed, for stores)
+    private long completedInstructions;
+
+    // functional fast-forward (fastForward) and pipeline draining (drain)
+    private FunctionalSimulator functional; // decoded on the first fastForward
+    private long fastForwarded;
+    private boolean draining;               // issue held until the pipeline is idle
 
     // Config (latencies, sizes, etc.)
     private final int fpAddLatency;
@@ -94,6 +180,8 @@ public class TomasuloEngine {
     private final int loadLatencyBase;  // we�ll combine with cache latency
     private final int storeLatencyBase;
 
+    public static final int DEFAULT_ROB_SIZE = 16;
+
         public TomasuloEngine(
             Program program,
             RegisterFile registers,
@@ -132,22 +220,31 @@ public class TomasuloEngine {
         this.storeBuffers = new ArrayList<>();
 
         for (int i = 0; i < numFpAddRS; i++) {
-            fpAddStations.add(new ReservationStation("A" + i, RSCategory.FP_ADD));
+            fpAddStations.add(new ReservationStation("A" + i, RSCategory.FP_ADD, tags));
         }
         for (int i = 0; i < numFpMulRS; i++) {
-            fpMulStations.add(new ReservationStation("M" + i, RSCategory.FP_MUL));
+            fpMulStations.add(new ReservationStation("M" + i, RSCategory.FP_MUL, tags));
         }
         for (int i = 0; i < numIntAluRS; i++) {
-            intAluStations.add(new ReservationStation("I" + i, RSCategory.INT_ALU));
+            intAluStations.add(new ReservationStation("I" + i, RSCategory.INT_ALU, tags));
         }
         for (int i = 0; i < numLoadBuffers; i++) {
-            loadBuffers.add(new LoadBufferEntry("L" + i));
+            loadBuffers.add(new LoadBufferEntry("L" + i, tags));
         }
         for (int i = 0; i < numStoreBuffers; i++) {
-            storeBuffers.add(new StoreBufferEntry("S" + i));
+            storeBuffers.add(new StoreBufferEntry("S" + i, tags));
         }
+        this.rob = new ReorderBuffer(DEFAULT_ROB_SIZE, tags);
+        this.branchStats = new BranchStats(program.size());
+        for (FunctionalUnit.Kind kind : FunctionalUnit.Kind.values()) {
+            units[kind.ordinal()] = new FunctionalUnit(kind, 0, 1); // one unit per station
+        }
+        regStatus.setTagNames(tags);
 
-        this.history = new ArrayList<>();
+        this.history = new CycleHistory(new CycleHistory.Machine() {
+            @Override public void saveState(StateVector out) { TomasuloEngine.this.saveState(out); }
+            @Override public void restoreState(StateVector in) { TomasuloEngine.this.restoreState(in); }
+        }, memory);
 
         reset();
     }
@@ -156,6 +253,19 @@ public class TomasuloEngine {
         pc = 0;
         currentCycle = 0;
         fetchStalled = false;
+        completedInstructions = 0;
+        issuedInstructions = 0;
+        fastForwarded = 0;
+        draining = false;
+        branchStats.reset();
+        predictor.reset();
+        cdb.resetStats();
+        for (FunctionalUnit fu : units) fu.reset();
+        if (mshrs != null) {
+            mshrs.clear();
+            mshrs.resetStats();
+        }
+        squashedCount = 0;
 
         registers.reset();
         regStatus.reset();
@@ -167,9 +277,11 @@ public class TomasuloEngine {
         for (ReservationStation rs : intAluStations) rs.clear();
         for (LoadBufferEntry lb : loadBuffers) lb.clear();
         for (StoreBufferEntry sb : storeBuffers) sb.clear();
+        rob.clear();
+        wakeup.clear();
+        timingLog.clear();
 
-        history.clear();
-        history.add(takeSnapshot());
+        if (historyEnabled) startHistory();
     }
 
     public int getCurrentCycle() {
@@ -180,8 +292,284 @@ public class TomasuloEngine {
         return pc;
     }
 
+    /** View of the live machine state for the GUI. */
     public CycleState getCurrentState() {
-        return history.get(history.size() - 1);
+        return takeSnapshot();
+    }
+
+    /**
+     * Turn cycle history on/off. Batch runs switch it off to skip the
+     * per-cycle state diff; previousCycle() is then a no-op.
+     */
+    public void setHistoryEnabled(boolean enabled) {
+        if (enabled == historyEnabled) return;
+        this.historyEnabled = enabled;
+        // without history nobody else holds timing records, so they can be reused
+        timingLog.setRecycle(!enabled);
+        if (enabled) {
+            startHistory();
+        } else {
+            history.stop();
+            timingLog.setKeepRetiredAfter(Integer.MAX_VALUE);
+        }
+    }
+
+    public boolean isHistoryEnabled() {
+        return historyEnabled;
+    }
+
+    /** Max cycles previousCycle() can go back (0 = unbounded). */
+    public void setHistoryWindow(int cycles) {
+        history.setWindow(cycles);
+    }
+
+    /** Cycles between full history checkpoints. */
+    public void setHistoryCheckpointInterval(int cycles) {
+        history.setCheckpointInterval(cycles);
+    }
+
+    /** Oldest cycle that restoreCycle() can still reach. */
+    public int getOldestRestorableCycle() {
+        return historyEnabled ? history.getOldestCycle() : currentCycle;
+    }
+
+    public Program getProgram() { return program; }
+    public RegisterFile getRegisterFile() { return registers; }
+    public Memory getMemory() { return memory; }
+    public Cache getCache() { return cache; }
+
+    public TimingLog getTimingLog() {
+        return timingLog;
+    }
+
+    /** Number of retired timing rows kept (0 = unbounded). */
+    public void setTimingWindow(int window) {
+        timingLog.setWindow(window);
+    }
+
+    /**
+     * Switch between the stalling engine and the speculative ROB engine.
+     * Resets the machine, so call it before running.
+     */
+    public void setSpeculative(boolean enabled, int robSize) {
+        this.speculative = enabled;
+        if (robSize != rob.capacity()) {
+            rob = new ReorderBuffer(robSize, tags);
+        }
+        reset();
+    }
+
+    public boolean isSpeculative() {
+        return speculative;
+    }
+
+    public ReorderBuffer getReorderBuffer() {
+        return rob;
+    }
+
+    /**
+     * Direction predictor used for BEQ / BNE in speculative mode (default:
+     * backward taken / forward not taken). Resets the machine.
+     */
+    public void setBranchPredictor(BranchPredictor predictor) {
+        if (predictor == null) throw new IllegalArgumentException("predictor must not be null");
+        this.predictor = predictor;
+        reset();
+    }
+
+    public BranchPredictor getBranchPredictor() {
+        return predictor;
+    }
+
+    /**
+     * Common data buses: how many results can write back per cycle and which
+     * finished producers get them. Resets the machine.
+     */
+    public void setCdbArbiter(CDBArbiter arbiter) {
+        if (arbiter == null) throw new IllegalArgumentException("arbiter must not be null");
+        this.cdb = arbiter;
+        reset();
+    }
+
+    /**
+     * Replace the execution units of one kind (count, pipelining). By default
+     * every station has its own unit. Resets the machine.
+     */
+    public void setFunctionalUnit(FunctionalUnit unit) {
+        if (unit == null) throw new IllegalArgumentException("unit must not be null");
+        units[unit.getKind().ordinal()] = unit;
+        reset();
+    }
+
+    public FunctionalUnit getFunctionalUnit(FunctionalUnit.Kind kind) {
+        return units[kind.ordinal()];
+    }
+
+    private FunctionalUnit unit(FunctionalUnit.Kind kind) {
+        return units[kind.ordinal()];
+    }
+
+    /**
+     * Number of miss status holding registers of the L1 data cache, or 0 for
+     * blocking misses (the default). Resets the machine.
+     */
+    public void setMshrs(int count) {
+        if (count < 0) throw new IllegalArgumentException("MSHR count must not be negative: " + count);
+        this.mshrs = count > 0 ? new MshrFile(count) : null;
+        reset();
+    }
+
+    /** The MSHRs and their counters, or null with blocking misses. */
+    public MshrFile getMshrFile() {
+        return mshrs;
+    }
+
+    /** The CDB arbiter, including its per-cycle contention counters. */
+    public CDBArbiter getCdbArbiter() {
+        return cdb;
+    }
+
+    /** Global and per-branch accuracy and mispredict penalty (speculative mode). */
+    public BranchStats getBranchStats() {
+        return branchStats;
+    }
+
+    /** Branches resolved so far (speculative mode). */
+    public long getBranchCount() {
+        return branchStats.getBranches();
+    }
+
+    public long getMispredictCount() {
+        return branchStats.getMispredicts();
+    }
+
+    /** Instructions thrown away by mispredict recovery. */
+    public long getSquashedCount() {
+        return squashedCount;
+    }
+
+    /**
+     * Max instructions issued per cycle. Each one is renamed through
+     * RegisterStatus before the next is looked at, so later instructions of
+     * the same group see their in-group producers.
+     */
+    public void setIssueWidth(int width) {
+        if (width < 1) throw new IllegalArgumentException("Issue width must be at least 1: " + width);
+        this.issueWidth = width;
+    }
+
+    public int getIssueWidth() {
+        return issueWidth;
+    }
+
+    /**
+     * Max ROB entries retired per cycle in speculative mode; 0 (default)
+     * follows the issue width, so commit does not cap IPC below it.
+     */
+    public void setCommitWidth(int width) {
+        if (width < 0) throw new IllegalArgumentException("Commit width must not be negative: " + width);
+        this.commitWidth = width;
+    }
+
+    public int getCommitWidth() {
+        return commitWidth > 0 ? commitWidth : issueWidth;
+    }
+
+    public long getIssuedInstructions() {
+        return issuedInstructions;
+    }
+
+    /** Completed (committed, in speculative mode) instructions per cycle so far. */
+    public double getIpc() {
+        return currentCycle > 0 ? (double) completedInstructions / currentCycle : 0.0;
+    }
+
+    public long getCompletedInstructions() {
+        return completedInstructions;
+    }
+
+    /**
+     * True once the program has run to completion: PC is past the last
+     * instruction, no branch is pending, and every station / buffer is idle.
+     */
+    public boolean isDrained() {
+        return pc >= program.size() && isIdle();
+    }
+
+    /**
+     * True when no instruction is in flight: no branch is pending and every
+     * station / buffer (and the ROB) is empty. Registers and memory then hold
+     * the architectural state of everything before pc.
+     */
+    public boolean isIdle() {
+        if (fetchStalled) return false;
+        for (ReservationStation rs : fpAddStations) if (rs.isBusy()) return false;
+        for (ReservationStation rs : fpMulStations) if (rs.isBusy()) return false;
+        for (ReservationStation rs : intAluStations) if (rs.isBusy()) return false;
+        for (LoadBufferEntry lb : loadBuffers) if (lb.isBusy()) return false;
+        for (StoreBufferEntry sb : storeBuffers) if (sb.isBusy()) return false;
+        return rob.isEmpty();
+    }
+
+    /**
+     * Step until the pipeline drains or maxCycles is reached.
+     * @return true if the program drained
+     */
+    public boolean runUntilDrained(long maxCycles) {
+        while (!isDrained()) {
+            if (currentCycle >= maxCycles) return false;
+            nextCycle();
+        }
+        return true;
+    }
+
+    /**
+     * Stop issuing and step until the instructions in flight have finished
+     * (see isIdle), or maxCycles is reached. In speculative mode wrong-path
+     * instructions are squashed as usual, so pc ends up on the correct path.
+     * @return true if the pipeline is idle
+     */
+    public boolean drain(long maxCycles) {
+        draining = true;
+        try {
+            while (!isIdle()) {
+                if (currentCycle >= maxCycles) return false;
+                nextCycle();
+            }
+            return true;
+        } finally {
+            draining = false;
+        }
+    }
+
+    /**
+     * Execute up to instructions instructions from pc functionally (see
+     * FunctionalSimulator), without advancing the cycle count: registers and
+     * memory are updated, the cache is warmed with the data accesses, and in
+     * speculative mode the branch predictor is trained with every branch.
+     * Detailed simulation continues from the new pc with the next cycle.
+     *
+     * The pipeline must be idle (drain it first). Fast-forwarded instructions
+     * are counted apart from completed ones, so IPC covers detailed cycles
+     * only. The cycle history restarts here: stepping back stops at the
+     * fast-forward point.
+     * @return the number of instructions executed (fewer at the end of the program)
+     */
+    public long fastForward(long instructions) {
+        if (!isIdle()) throw new IllegalStateException("Fast-forward needs an idle pipeline; drain it first");
+        if (functional == null) functional = new FunctionalSimulator(program, registers, memory, cache);
+        functional.setBranchPredictor(speculative ? predictor : null);
+        functional.setPc(pc);
+        long n = functional.run(instructions);
+        pc = functional.getPc();
+        fastForwarded += n;
+        if (historyEnabled) startHistory();
+        return n;
+    }
+
+    /** Instructions executed by fastForward since the last reset. */
+    public long getFastForwardedInstructions() {
+        return fastForwarded;
     }
 
     // Expose register status for GUI
@@ -190,71 +578,98 @@ public class TomasuloEngine {
     }
 
     public void nextCycle() {
+        if (historyEnabled) history.beginCycle();
+
         // Advance global cycle counter
         currentCycle++;
 
+        // Stage 0: Commit (speculative mode only)
+        // 0) Retire up to the commit width of ROB head entries whose results were written in an earlier cycle
+        if (speculative) {
+            for (int i = getCommitWidth(); i > 0 && commitHead(); i--) { }
+        }
+
         // Stage 1: Write Result (CDB broadcast from previous cycle's completed executions)
         // 1) Commit any finished stores (stores don't use CDB but must write to memory
         //    before next cycle's operations)
         completeFinishedStores();
 
-        // 2) Do one CDB broadcast this cycle (for instructions that completed execution in previous cycles)
+        // 2) One broadcast per CDB this cycle, chosen by the CDBArbiter
+        //    (for instructions that completed execution in previous cycles)
         //    Values broadcast here will be available for execution start THIS cycle (after broadcast)
         //    This also FREES the RS/LB that broadcasts
         handleWriteBack();
 
         // Stage 2: Execute
         // 3) Start execution for any RS / loads / stores that are now ready
-        //    (values from THIS cycle's CDB broadcast, or from registers)
+        //    (values from THIS cycle's CDB broadcast, or from registers),
+        //    after freeing the MSHRs whose blocks have been filled
+        if (mshrs != null) releaseMshrs();
         startReadyExecutions();
+        if (mshrs != null) mshrs.endCycle();
 
         // 4) Decrement remainingCycles for all executing RS / loads / stores
         //    and mark execute-complete when remaining reaches 0 (this cycle)
         advanceExecuting();
 
         // Stage 3: Issue
-        // 5) Issue at most one new instruction (respecting branch stall)
+        // 5) Issue up to issueWidth new instructions in order
+        //    (respecting branch stall and structural hazards)
         issueInstruction();
 
-        // 6) Save snapshot for GUI / debugging
-        history.add(takeSnapshot());
+        // 6) Record this cycle's delta for previousCycle()
+        if (historyEnabled) {
+            history.endCycle(currentCycle);
+            timingLog.setKeepRetiredAfter(history.getOldestCycle());
+        }
     }
 
 
+    /** Step back one cycle, restoring the whole machine (no-op at the window edge). */
     public void previousCycle() {
-        if (history.size() <= 1) {
-            return;
-        }
-        // Pop last snapshot
-        history.remove(history.size() - 1);
-        CycleState prev = history.get(history.size() - 1);
-        currentCycle = prev.getCycleNumber();
-        pc = prev.getPc();
-        // We don�t restore full internal state yet � we will later
+        if (historyEnabled) history.stepBack();
+    }
+
+    /**
+     * Restore the whole machine to the end of the given cycle; later cycles
+     * are forgotten.
+     * @return false if history is off or the cycle is outside the window
+     */
+    public boolean restoreCycle(int cycle) {
+        return historyEnabled && history.restore(cycle);
     }
     
     private void completeFinishedStores() {
         for (StoreBufferEntry sb : storeBuffers) {
             if (!sb.isBusy()) continue;
             // Only commit stores that actually finished execution this cycle
-            Instruction sbInstr = sb.getInstruction();
+            DynamicInstruction sbInstr = sb.getInstruction();
             if (sbInstr == null) continue;
             // commit only stores that finished execution in a previous cycle
             if (sbInstr.getEndExecCycle() == -1 || sbInstr.getEndExecCycle() >= currentCycle) continue;
 
-            Instruction instr = sbInstr;
+            DynamicInstruction instr = sbInstr;
             if (instr.getWriteBackCycle() != -1) continue; // already committed
 
+            if (speculative) {
+                // address and value are known: the ROB entry is ready, but
+                // memory is written (and the buffer freed) only at commit
+                rob.entryOf(sb.getRobTag()).setReady(true);
+                instr.setWriteBackCycle(currentCycle);
+                continue;
+            }
+
             // Perform the actual memory write via cache (write-through/no-allocate)
             InstructionType t = instr.getType();
             boolean isD = isDouble(t);
             long addr = sb.getAddress();
             long val = sb.getValue();
 
-            cache.storeNoLatency(addr, val, isD);
+            cache.storeNoLatency(addr, val, isD, instr.getPcIndex());
 
             // Mark WB cycle for timing table
             instr.setWriteBackCycle(currentCycle);
+            completedInstructions++;
 
             // Free this store buffer entry
             sb.clear();
@@ -263,141 +678,90 @@ public class TomasuloEngine {
 
     
     private void handleWriteBack() {
-        // ---- 1) Collect RS candidates (finished this cycle, not yet WB) ----
-        List<ReservationStation> rsCandidates = new ArrayList<>();
-        // FP add
-        for (ReservationStation rs : fpAddStations) {
-                if (rs.isBusy()
-                    && rs.getOp() != null
-                    && rs.getInstruction() != null
-                    && rs.getInstruction().getWriteBackCycle() == -1
-                    // only consider producers that completed execution in a previous cycle
-                    && rs.getInstruction().getEndExecCycle() != -1
-                    && rs.getInstruction().getEndExecCycle() < currentCycle) {
-                rsCandidates.add(rs);
-            }
-        }
-        // FP mul
-        for (ReservationStation rs : fpMulStations) {
-                if (rs.isBusy()
-                    && rs.getOp() != null
-                    && rs.getInstruction() != null
-                    && rs.getInstruction().getWriteBackCycle() == -1
-                    && rs.getInstruction().getEndExecCycle() != -1
-                    && rs.getInstruction().getEndExecCycle() < currentCycle) {
-                rsCandidates.add(rs);
-            }
-        }
-        // INT ALU
-        for (ReservationStation rs : intAluStations) {
-                if (rs.isBusy()
-                    && rs.getOp() != null
-                    && rs.getInstruction() != null
-                    && rs.getInstruction().getWriteBackCycle() == -1
-                    && rs.getInstruction().getEndExecCycle() != -1
-                    && rs.getInstruction().getEndExecCycle() < currentCycle) {
-                rsCandidates.add(rs);
+        // ---- 1) Offer every producer that finished execution in an earlier
+        //         cycle and has not written back yet ----
+        cdb.beginCycle();
+        cdbCandidates.clear();
+        for (List<ReservationStation> group : List.of(fpAddStations, fpMulStations, intAluStations)) {
+            for (ReservationStation rs : group) {
+                if (rs.isBusy() && rs.getOp() != null && finishedBeforeThisCycle(rs.getInstruction())) {
+                    offerToCdb(rs, rs.getTag(), rs.getProducerTag(), rs.getInstruction(), rs.getCategory());
+                }
             }
         }
-
-        // ---- 2) Collect LOAD buffer candidates (finished this cycle, not yet WB) ----
-        List<LoadBufferEntry> loadCandidates = new ArrayList<>();
         for (LoadBufferEntry lb : loadBuffers) {
-            if (lb.isBusy()
-                    && lb.getInstruction() != null
-                    && lb.getInstruction().getWriteBackCycle() == -1
-                    // only loads that finished execution in an earlier cycle
-                    && lb.getInstruction().getEndExecCycle() != -1
-                    && lb.getInstruction().getEndExecCycle() < currentCycle) {
-                loadCandidates.add(lb);
+            if (lb.isBusy() && finishedBeforeThisCycle(lb.getInstruction())) {
+                offerToCdb(lb, lb.getTag(), lb.getProducerTag(), lb.getInstruction(), RSCategory.LOAD);
             }
         }
 
-        // If nothing finished this cycle, nothing to broadcast
-        if (rsCandidates.isEmpty() && loadCandidates.isEmpty()) {
-            return;
-        }
+        // ---- 2) The arbiter picks up to one producer per bus ----
+        int granted = cdb.arbitrate();
 
-        // ---- 3) Choose the best producer for the single CDB this cycle ----
-        String bestName = null;
-        Instruction bestInstr = null;
-
-        boolean bestIsRS = false;
-        ReservationStation bestRS = null;
-        LoadBufferEntry bestLB = null;
-
-        int bestScore = -1;
-        int bestStartCycle = Integer.MAX_VALUE;
-
-        // 3a) Check RS producers
-        for (ReservationStation rs : rsCandidates) {
-            String name = rs.getName();
-            Instruction instr = rs.getInstruction();
-            int score = countDependents(name);           // how many wait on this producer
-            int start = instr.getStartExecCycle();       // tie-breaker: earliest start
-            if (start == -1) start = instr.getIssueCycle(); // fallback
-
-            if (score > bestScore || (score == bestScore && start < bestStartCycle)) {
-                bestScore = score;
-                bestStartCycle = start;
-                bestName = name;
-                bestInstr = instr;
-                bestIsRS = true;
-                bestRS = rs;
-                bestLB = null;
+        // ---- 3) Perform the write-back for each winner, highest priority first ----
+        for (int i = 0; i < granted; i++) {
+            Object winner = cdbCandidates.get(cdb.winner(i));
+            if (winner instanceof ReservationStation) {
+                ReservationStation rs = (ReservationStation) winner;
+                // an earlier winner (a mispredicted branch) may have squashed it
+                if (!rs.isBusy()) continue;
+                writeBackStation(rs, rs.getInstruction());
+            } else {
+                LoadBufferEntry lb = (LoadBufferEntry) winner;
+                if (!lb.isBusy()) continue;
+                writeBackLoad(lb, lb.getInstruction());
             }
         }
+    }
 
-        // 3b) Check LOAD producers
-        for (LoadBufferEntry lb : loadCandidates) {
-            String name = lb.getName();
-            Instruction instr = lb.getInstruction();
-            int score = countDependents(name);
-            int start = instr.getStartExecCycle();
-            if (start == -1) start = instr.getIssueCycle();
-
-            if (score > bestScore || (score == bestScore && start < bestStartCycle)) {
-                bestScore = score;
-                bestStartCycle = start;
-                bestName = name;
-                bestInstr = instr;
-                bestIsRS = false;
-                bestRS = null;
-                bestLB = lb;
-            }
-        }
+    private boolean finishedBeforeThisCycle(DynamicInstruction instr) {
+        return instr != null
+                && instr.getWriteBackCycle() == -1
+                // only producers that completed execution in a previous cycle
+                && instr.getEndExecCycle() != -1
+                && instr.getEndExecCycle() < currentCycle;
+    }
+
+    private void offerToCdb(Object producer, int slot, int producerTag, DynamicInstruction instr, RSCategory category) {
+        int start = instr.getStartExecCycle();       // tie-breaker: earliest start
+        if (start == -1) start = instr.getIssueCycle(); // fallback
+        cdb.offer(slot, instr.getSeq(), start, countDependents(producerTag), category);
+        cdbCandidates.add(producer);
+    }
 
-        if (bestInstr == null) {
-            return; // should not happen, but safe guard
+    private void writeBackStation(ReservationStation rs, DynamicInstruction instr) {
+        // with a ROB, instructions count as completed when they commit
+        if (!speculative) completedInstructions++;
+
+        InstructionType op = rs.getOp();
+        if (op == InstructionType.BEQ || op == InstructionType.BNE) {
+            // Branch: resolve, set PC, unstall fetch
+            handleBranchWriteBack(rs, instr);
+        } else if (rs.getCategory() == RSCategory.INT_ALU) {
+            // Integer ALU result
+            handleIntAluWriteBack(rs, instr);
+        } else {
+            // FP add/mul result
+            handleFpWriteBack(rs, instr);
         }
 
-        // ---- 4) Actually perform the write-back for the chosen producer ----
-        if (bestIsRS) {
-            InstructionType op = bestRS.getOp();
+        instr.setWriteBackCycle(currentCycle);
+        if (speculative) rob.entryOf(rs.getRobTag()).setReady(true);
+        rs.clear();
+    }
 
-            if (op == InstructionType.BEQ || op == InstructionType.BNE) {
-                // Branch: resolve, set PC, unstall fetch
-                handleBranchWriteBack(bestRS, bestInstr);
-            } else if (bestRS.getCategory() == RSCategory.INT_ALU) {
-                // Integer ALU result
-                handleIntAluWriteBack(bestRS, bestInstr);
-            } else {
-                // FP add/mul result
-                handleFpWriteBack(bestRS, bestInstr);
-            }
+    private void writeBackLoad(LoadBufferEntry lb, DynamicInstruction instr) {
+        if (!speculative) completedInstructions++;
 
-            bestInstr.setWriteBackCycle(currentCycle);
-            bestRS.clear();
-        } else {
-            // Load result: write loaded value to dest reg + broadcast
-            handleLoadWriteBack(bestLB, bestInstr);
+        // Load result: write loaded value to dest reg + broadcast
+        handleLoadWriteBack(lb, instr);
 
-            bestInstr.setWriteBackCycle(currentCycle);
-            bestLB.clear();
-        }
+        instr.setWriteBackCycle(currentCycle);
+        if (speculative) rob.entryOf(lb.getRobTag()).setReady(true);
+        lb.clear();
     }
 
-    private void handleFpWriteBack(ReservationStation rs, Instruction instr) {
+    private void handleFpWriteBack(ReservationStation rs, DynamicInstruction instr) {
         long result = 0;
         InstructionType op = rs.getOp();
 
@@ -421,44 +785,43 @@ public class TomasuloEngine {
         }
 
         // 1) Write back to destination FP register if still owned by this RS
-        String dest = rs.getDest();
-        if (dest != null && dest.startsWith("F")) {
-            int idx = Integer.parseInt(dest.substring(1));
-            if (regStatus.getFpOwner(idx) != null && regStatus.getFpOwner(idx).equals(rs.getName())) {
-                registers.setFp(idx, result);
-                regStatus.setFpOwner(idx, null);
-            }
-        }
+        writeDest(rs.getDestId(), rs.getProducerTag(), result);
 
         // 2) Broadcast to waiting RS / buffers
-        broadcastToWaiters(rs.getName(), result);
+        broadcastToWaiters(rs.getProducerTag(), result);
     }
 
-    private int countDependents(String producerName) {
-        int count = 0;
-
-        for (ReservationStation rs : fpAddStations) {
-            if (producerName.equals(rs.getQj()) || producerName.equals(rs.getQk())) count++;
-        }
-        for (ReservationStation rs : fpMulStations) {
-            if (producerName.equals(rs.getQj()) || producerName.equals(rs.getQk())) count++;
-        }
-        for (ReservationStation rs : intAluStations) {
-            if (producerName.equals(rs.getQj()) || producerName.equals(rs.getQk())) count++;
-        }
+    private int countDependents(int producerTag) {
+        return wakeup.countDependents(producerTag);
+    }
 
-        for (LoadBufferEntry lb : loadBuffers) {
-            if (producerName.equals(lb.getAddressQ())) count++;
+    /**
+     * Write a CDB result into its destination register, but only if the
+     * register is still owned by this producer (a younger writer may have
+     * renamed it since). In speculative mode the result only goes into the
+     * ROB entry; the register is written at commit.
+     */
+    private void writeDest(int destId, int producerTag, long result) {
+        if (speculative) {
+            rob.entryOf(producerTag).setValue(result);
+            return;
         }
-        for (StoreBufferEntry sb : storeBuffers) {
-            if (producerName.equals(sb.getAddressQ())
-                    || producerName.equals(sb.getValueQ())) count++;
+        if (destId == RegisterId.NONE) return;
+        int idx = RegisterId.index(destId);
+        if (RegisterId.isFp(destId)) {
+            if (regStatus.getFpOwnerTag(idx) == producerTag) {
+                registers.setFp(idx, result);
+                regStatus.setFpOwnerTag(idx, ProducerTags.NONE);
+            }
+        } else {
+            if (idx != 0 && regStatus.getIntOwnerTag(idx) == producerTag) {
+                registers.setInt(idx, result);
+                regStatus.setIntOwnerTag(idx, ProducerTags.NONE);
+            }
         }
-
-        return count;
     }
 
-    private void handleIntAluWriteBack(ReservationStation rs, Instruction instr) {
+    private void handleIntAluWriteBack(ReservationStation rs, DynamicInstruction instr) {
         long result = 0;
         InstructionType op = rs.getOp();
 
@@ -471,68 +834,46 @@ public class TomasuloEngine {
         }
 
         // 1) Broadcast to registers if this RS owns a dest
-        String dest = rs.getDest();
-        if (dest != null) {
-            if (dest.startsWith("R")) {
-                int idx = Integer.parseInt(dest.substring(1));
-                if (regStatus.getIntOwner(idx) != null
-                        && regStatus.getIntOwner(idx).equals(rs.getName())) {
-                    registers.setInt(idx, result);
-                    regStatus.setIntOwner(idx, null);
-                }
-            } else if (dest.startsWith("F")) {
-                int idx = Integer.parseInt(dest.substring(1));
-                if (regStatus.getFpOwner(idx) != null
-                        && regStatus.getFpOwner(idx).equals(rs.getName())) {
-                    registers.setFp(idx, result);
-                    regStatus.setFpOwner(idx, null);
-                }
-            }
-        }
+        writeDest(rs.getDestId(), rs.getProducerTag(), result);
 
         // 2) Broadcast to waiting RS / buffers
-        broadcastToWaiters(rs.getName(), result);
+        broadcastToWaiters(rs.getProducerTag(), result);
     }
 
-    private void handleLoadWriteBack(LoadBufferEntry lb, Instruction instr) {
+    private void handleLoadWriteBack(LoadBufferEntry lb, DynamicInstruction instr) {
         // 1) Compute the value from memory *now* (after stores have committed this cycle)
         long addr = lb.getAddress();
         InstructionType t = instr.getType();
         boolean isD = isDouble(t);
         // use cache to update state and obtain the value (latency already accounted for)
-        long result = cache.loadNoLatency(addr, isD);
-
-        String dest = lb.getDestReg();
+        long result;
+        if (speculative) {
+            // the load may be on a wrong path: an invalid address only faults if it commits
+            try {
+                result = cache.loadNoLatency(addr, isD, instr.getPcIndex());
+            } catch (IllegalArgumentException e) {
+                rob.entryOf(lb.getRobTag()).setFault(addr);
+                result = 0;
+            }
+        } else {
+            result = cache.loadNoLatency(addr, isD, instr.getPcIndex());
+        }
 
         // DEBUG (optional):
         // System.out.println("handleLoadWriteBack: LB=" + lb.getName()
-        //         + " dest=" + dest + " addr=" + addr + " result=" + result);
+        //         + " dest=" + lb.getDestReg() + " addr=" + addr + " result=" + result);
 
         // 2) Write result into the destination register (if still owned by this load)
-        if (dest != null) {
-            if (dest.startsWith("R")) {
-                int idx = Integer.parseInt(dest.substring(1));
-                if (idx != 0 && lb.getName().equals(regStatus.getIntOwner(idx))) {
-                    registers.setInt(idx, result);
-                    regStatus.setIntOwner(idx, null);
-                }
-            } else if (dest.startsWith("F")) {
-                int idx = Integer.parseInt(dest.substring(1));
-                if (lb.getName().equals(regStatus.getFpOwner(idx))) {
-                    registers.setFp(idx, result);
-                    regStatus.setFpOwner(idx, null);
-                }
-            }
-        }
+        writeDest(lb.getDestRegId(), lb.getProducerTag(), result);
 
         // 3) Broadcast load result on CDB to wake up any dependents
-        broadcastToWaiters(lb.getName(), result);
+        broadcastToWaiters(lb.getProducerTag(), result);
     }
 
 
     
     
-    private void handleBranchWriteBack(ReservationStation rs, Instruction instr) {
+    private void handleBranchWriteBack(ReservationStation rs, DynamicInstruction instr) {
         long vj = rs.getVj();
         long vk = rs.getVk();
         boolean taken;
@@ -543,6 +884,19 @@ public class TomasuloEngine {
             taken = (vj != vk);
         }
 
+        if (speculative) {
+            // fetch followed the prediction; recover only if it was wrong
+            ReorderBufferEntry entry = rob.entryOf(rs.getRobTag());
+            boolean mispredict = taken != entry.isPredictedTaken();
+            // the predictor and stats see the outcome at commit: this branch may itself be on a wrong path
+            entry.setTaken(taken);
+            if (mispredict) {
+                squashYoungerThan(entry);
+                pc = taken ? (int) rs.getA() : instr.getPcIndex() + 1;
+            }
+            return;
+        }
+
         if (taken) {
             // A holds absolute target PC index
             pc = (int) rs.getA();
@@ -553,115 +907,104 @@ public class TomasuloEngine {
         fetchStalled = false;
     }
 
-    private void broadcastToWaiters(String producerName, long value) {
-        // RS (all categories)
-        for (ReservationStation rs : fpAddStations) {
-            if (producerName.equals(rs.getQj())) {
-                rs.setQj(null);
-                rs.setVj(value);
-            }
-            if (producerName.equals(rs.getQk())) {
-                rs.setQk(null);
-                rs.setVk(value);
-            }
-        }
-        for (ReservationStation rs : fpMulStations) {
-            if (producerName.equals(rs.getQj())) {
-                rs.setQj(null);
-                rs.setVj(value);
-            }
-            if (producerName.equals(rs.getQk())) {
-                rs.setQk(null);
-                rs.setVk(value);
-            }
-        }
-        for (ReservationStation rs : intAluStations) {
-            if (producerName.equals(rs.getQj())) {
-                rs.setQj(null);
-                rs.setVj(value);
-            }
-            if (producerName.equals(rs.getQk())) {
-                rs.setQk(null);
-                rs.setVk(value);
-            }
-        }
-
-        // Load buffers (for address dependencies)
-     // Load buffers (for address dependencies)
-        for (LoadBufferEntry lb : loadBuffers) {
-            if (producerName.equals(lb.getAddressQ())) {
-                lb.setAddressQ(null);
-                // base register value + offset
-                long base = registers.getInt(lb.getBaseRegIndex());
-                lb.setAddress(base + lb.getOffset());
-            }
-        }
-
-        // Store buffers (for address and value deps)
-        for (StoreBufferEntry sb : storeBuffers) {
-            if (producerName.equals(sb.getAddressQ())) {
-                sb.setAddressQ(null);
-                long base = registers.getInt(sb.getBaseRegIndex());
-                sb.setAddress(base + sb.getOffset());
-            }
-            if (producerName.equals(sb.getValueQ())) {
-                sb.setValueQ(null);
-                sb.setValue(value);
+    private void broadcastToWaiters(int producerTag, long value) {
+        // Only the slots registered at issue time are waiting on this producer
+        int n = wakeup.size(producerTag);
+        for (int i = 0; i < n; i++) {
+            Object consumer = tags.ownerOf(wakeup.consumerAt(producerTag, i));
+            switch (wakeup.kindAt(producerTag, i)) {
+                case WakeupIndex.RS_J: {
+                    ReservationStation rs = (ReservationStation) consumer;
+                    rs.setQjTag(ProducerTags.NONE);
+                    rs.setVj(value);
+                    break;
+                }
+                case WakeupIndex.RS_K: {
+                    ReservationStation rs = (ReservationStation) consumer;
+                    rs.setQkTag(ProducerTags.NONE);
+                    rs.setVk(value);
+                    break;
+                }
+                case WakeupIndex.LOAD_ADDRESS: {
+                    // base register value (just broadcast) + offset
+                    LoadBufferEntry lb = (LoadBufferEntry) consumer;
+                    lb.setAddressQTag(ProducerTags.NONE);
+                    lb.setAddress(value + lb.getOffset());
+                    break;
+                }
+                case WakeupIndex.STORE_ADDRESS: {
+                    StoreBufferEntry sb = (StoreBufferEntry) consumer;
+                    sb.setAddressQTag(ProducerTags.NONE);
+                    sb.setAddress(value + sb.getOffset());
+                    break;
+                }
+                case WakeupIndex.STORE_VALUE: {
+                    StoreBufferEntry sb = (StoreBufferEntry) consumer;
+                    sb.setValueQTag(ProducerTags.NONE);
+                    sb.setValue(value);
+                    break;
+                }
+                default:
+                    break;
             }
         }
+        wakeup.release(producerTag);
     }
     
     private void startReadyExecutions() {
-        // Build a set of end cycles already reserved by currently executing units.
+        // Collect the end cycles already reserved by currently executing units.
         // For an executing unit with remainingCycles R, its predicted end cycle
-        // (before this cycle's decrement) is currentCycle + R - 1.
-        java.util.Set<Integer> reservedEnds = new java.util.HashSet<>();
+        // (before this cycle's decrement) is currentCycle + R - 1. A new start
+        // is held back if its end cycle already has one finisher per CDB.
+        cdb.clearReservations();
         for (ReservationStation rs : fpAddStations) {
             if (rs.isExecuting()) {
                 int predictedEnd = currentCycle + rs.getRemainingCycles() - 1;
-                reservedEnds.add(predictedEnd);
+                cdb.holdEnd(predictedEnd);
             }
         }
         for (ReservationStation rs : fpMulStations) {
             if (rs.isExecuting()) {
                 int predictedEnd = currentCycle + rs.getRemainingCycles() - 1;
-                reservedEnds.add(predictedEnd);
+                cdb.holdEnd(predictedEnd);
             }
         }
         for (ReservationStation rs : intAluStations) {
             if (rs.isExecuting()) {
                 int predictedEnd = currentCycle + rs.getRemainingCycles() - 1;
-                reservedEnds.add(predictedEnd);
+                cdb.holdEnd(predictedEnd);
             }
         }
         for (LoadBufferEntry lb : loadBuffers) {
             if (lb.isExecuting()) {
                 int predictedEnd = currentCycle + lb.getRemainingCycles() - 1;
-                reservedEnds.add(predictedEnd);
+                cdb.holdEnd(predictedEnd);
             }
         }
         for (StoreBufferEntry sb : storeBuffers) {
             if (sb.isExecuting()) {
                 int predictedEnd = currentCycle + sb.getRemainingCycles() - 1;
-                reservedEnds.add(predictedEnd);
+                cdb.holdEnd(predictedEnd);
             }
         }
 
         // ---------- FP ADD/SUB ----------
         for (ReservationStation rs : fpAddStations) {
             if (rs.isBusy() && !rs.isExecuting() && rs.isReady()) {
+                FunctionalUnit fu = unit(FunctionalUnit.Kind.FP_ADD);
+                if (!fu.isAvailable(currentCycle)) continue; // every adder busy
                 int lat = fpAddLatency;
                 int intendedEnd = currentCycle + lat - 1;
-                if (reservedEnds.contains(intendedEnd)) {
+                if (!cdb.tryReserveEnd(intendedEnd)) {
                     // Skip starting this RS now to avoid end-cycle collision
                     continue;
                 }
-                // Reserve the end cycle and start execution
-                reservedEnds.add(intendedEnd);
+                // Reserved the end cycle: start execution
+                fu.start(currentCycle, lat);
                 rs.setExecutionLatency(lat);
                 rs.setRemainingCycles(lat);
 
-                Instruction instr = rs.getInstruction();
+                DynamicInstruction instr = rs.getInstruction();
                 if (instr != null && instr.getStartExecCycle() == -1) {
                     instr.setStartExecCycle(currentCycle);
                 }
@@ -672,17 +1015,19 @@ public class TomasuloEngine {
         for (ReservationStation rs : fpMulStations) {
             if (rs.isBusy() && !rs.isExecuting() && rs.isReady()) {
                 InstructionType op = rs.getOp();
-                int lat = fpMulLatency;
-                if (op == InstructionType.DIV_S || op == InstructionType.DIV_D) lat = fpDivLatency;
+                boolean isDiv = op == InstructionType.DIV_S || op == InstructionType.DIV_D;
+                FunctionalUnit fu = unit(isDiv ? FunctionalUnit.Kind.FP_DIV : FunctionalUnit.Kind.FP_MUL);
+                if (!fu.isAvailable(currentCycle)) continue;
+                int lat = isDiv ? fpDivLatency : fpMulLatency;
                 int intendedEnd = currentCycle + lat - 1;
-                if (reservedEnds.contains(intendedEnd)) {
+                if (!cdb.tryReserveEnd(intendedEnd)) {
                     continue;
                 }
-                reservedEnds.add(intendedEnd);
+                fu.start(currentCycle, lat);
                 rs.setExecutionLatency(lat);
                 rs.setRemainingCycles(lat);
 
-                Instruction instr = rs.getInstruction();
+                DynamicInstruction instr = rs.getInstruction();
                 if (instr != null && instr.getStartExecCycle() == -1) {
                     instr.setStartExecCycle(currentCycle);
                 }
@@ -692,16 +1037,18 @@ public class TomasuloEngine {
         // ---------- INT ALU: DADDI, DSUBI, BEQ, BNE ----------
         for (ReservationStation rs : intAluStations) {
             if (rs.isBusy() && !rs.isExecuting() && rs.isReady()) {
+                FunctionalUnit fu = unit(FunctionalUnit.Kind.INT_ALU);
+                if (!fu.isAvailable(currentCycle)) continue;
                 int lat = intAluLatency;
                 int intendedEnd = currentCycle + lat - 1;
-                if (reservedEnds.contains(intendedEnd)) {
+                if (!cdb.tryReserveEnd(intendedEnd)) {
                     continue;
                 }
-                reservedEnds.add(intendedEnd);
+                fu.start(currentCycle, lat);
                 rs.setExecutionLatency(lat);
                 rs.setRemainingCycles(lat);
 
-                Instruction instr = rs.getInstruction();
+                DynamicInstruction instr = rs.getInstruction();
                 if (instr != null && instr.getStartExecCycle() == -1) {
                     instr.setStartExecCycle(currentCycle);
                 }
@@ -714,24 +1061,39 @@ public class TomasuloEngine {
             if (lb.isExecuting()) continue;
             if (!lb.isAddressReady()) continue;
             if (!canLoadExecute(lb)) continue; // respect older stores to same address
+            FunctionalUnit fu = unit(FunctionalUnit.Kind.LOAD);
+            if (!fu.isAvailable(currentCycle)) continue; // no free load port
 
             // Determine intended end and avoid collisions
-            Instruction instr = lb.getInstruction();
+            DynamicInstruction instr = lb.getInstruction();
             InstructionType t = instr == null ? null : instr.getType();
             boolean isD = isDouble(t);
             long addr = lb.getAddress();
             
             // Cache-aware timing: probe if this address will hit or miss
             // On HIT: use base latency (cache provides data)
-            // On MISS: add miss penalty to base latency (need to fetch from memory)
+            // On MISS: add miss penalty to base latency (need to fetch from memory,
+            // or from the lower cache levels: the probe walks the whole hierarchy)
             int cachePenalty = cache.probeMissPenalty(addr, isD, false);
             int lat = loadLatencyBase + cachePenalty;
+
+            // With MSHRs: merge with a miss to the same block, or need a free register
+            int inFlight = -1;
+            boolean primaryMiss = false;
+            if (mshrs != null && !cache.contains(addr)) {
+                inFlight = mshrs.find(blockOf(addr));
+                if (inFlight >= 0) lat = mergedLatency(inFlight, loadLatencyBase);
+                else if (mshrs.isFull()) { mshrs.stall(); continue; }
+                else primaryMiss = true;
+            }
             
             int intendedEnd = currentCycle + lat - 1;
-            if (reservedEnds.contains(intendedEnd)) {
+            if (!cdb.tryReserveEnd(intendedEnd)) {
                 continue; // postpone starting this load this cycle
             }
-            reservedEnds.add(intendedEnd);
+            if (primaryMiss) mshrs.allocate(blockOf(addr), intendedEnd);
+            else if (inFlight >= 0) mshrs.merge();
+            fu.start(currentCycle, lat);
             lb.setRemainingCycles(lat);
 
             if (instr != null && instr.getStartExecCycle() == -1) {
@@ -746,7 +1108,11 @@ public class TomasuloEngine {
             if (!sb.isAddressReady()) continue;
             if (!sb.isValueReady()) continue;
 
-            Instruction instr = sb.getInstruction();
+            DynamicInstruction instr = sb.getInstruction();
+            // speculative stores stay in the buffer until commit: run them once
+            if (instr != null && instr.getEndExecCycle() != -1) continue;
+            FunctionalUnit fu = unit(FunctionalUnit.Kind.STORE);
+            if (!fu.isAvailable(currentCycle)) continue; // no free store port
             InstructionType t = instr == null ? null : instr.getType();
             boolean isD = isDouble(t);
             long addr = sb.getAddress();
@@ -755,12 +1121,25 @@ public class TomasuloEngine {
             // Write-through + no-write-allocate: stores don't fetch on miss
             int cachePenalty = cache.probeMissPenalty(addr, isD, true);
             int lat = storeLatencyBase + cachePenalty;
+
+            // only a store miss that fetches the block needs an MSHR
+            int inFlight = -1;
+            boolean primaryMiss = false;
+            if (mshrs != null && cache.getWritePolicy() != Cache.WritePolicy.WRITE_THROUGH
+                    && !cache.contains(addr)) {
+                inFlight = mshrs.find(blockOf(addr));
+                if (inFlight >= 0) lat = mergedLatency(inFlight, storeLatencyBase);
+                else if (mshrs.isFull()) { mshrs.stall(); continue; }
+                else primaryMiss = true;
+            }
             
             int intendedEnd = currentCycle + lat - 1;
-            if (reservedEnds.contains(intendedEnd)) {
+            if (!cdb.tryReserveEnd(intendedEnd)) {
                 continue;
             }
-            reservedEnds.add(intendedEnd);
+            if (primaryMiss) mshrs.allocate(blockOf(addr), intendedEnd);
+            else if (inFlight >= 0) mshrs.merge();
+            fu.start(currentCycle, lat);
             sb.setRemainingCycles(lat);
 
             if (instr != null && instr.getStartExecCycle() == -1) {
@@ -769,27 +1148,88 @@ public class TomasuloEngine {
         }
     }
 
+    /** L1 block number of a data address. */
+    private long blockOf(long addr) {
+        return Math.floorDiv(addr, (long) cache.getBlockSize());
+    }
+
+    /** Latency of a secondary miss: a hit, or until the in-flight block arrives. */
+    private int mergedLatency(int mshr, int baseLatency) {
+        int untilReady = mshrs.getReadyCycle(mshr) - currentCycle + 1;
+        return Math.max(baseLatency + cache.getHitLatency(), untilReady);
+    }
+
+    /**
+     * Free the MSHRs whose data has arrived once no started access to their
+     * block is still waiting to write back (that write-back fills the cache).
+     */
+    private void releaseMshrs() {
+        for (int i = 0; i < mshrs.getEntries(); i++) {
+            if (!mshrs.isBusy(i) || mshrs.getReadyCycle(i) >= currentCycle) continue;
+            long block = mshrs.getBlock(i);
+            boolean pending = false;
+            for (LoadBufferEntry lb : loadBuffers) {
+                if (lb.isBusy() && started(lb.getInstruction()) && blockOf(lb.getAddress()) == block) pending = true;
+            }
+            for (StoreBufferEntry sb : storeBuffers) {
+                // an executed speculative store only waits for commit, which may wait for this register
+                if (speculative && sb.isBusy() && sb.getInstruction().getEndExecCycle() != -1) continue;
+                if (sb.isBusy() && started(sb.getInstruction()) && blockOf(sb.getAddress()) == block) pending = true;
+            }
+            if (!pending) mshrs.free(i);
+        }
+    }
+
+    private static boolean started(DynamicInstruction instr) {
+        return instr != null && instr.getStartExecCycle() != -1;
+    }
+
     
     private void issueInstruction() {
-        if (pc >= program.size()) return;
-        if (fetchStalled) return;
+        if (draining) return;
+        for (int slot = 0; slot < issueWidth; slot++) {
+            if (pc >= program.size()) return;
+            InstructionType type = program.getInstruction(pc).getType();
+            if (!issueOne()) return; // structural hazard or branch stall: in-order issue stops here
+            issuedInstructions++;
+            if (type == InstructionType.BEQ || type == InstructionType.BNE) return; // a branch ends the group
+        }
+    }
+
+    /** Issue the instruction at pc if it can go this cycle. */
+    private boolean issueOne() {
+        if (pc >= program.size()) return false;
+        if (fetchStalled) return false;
+        if (speculative && rob.isFull()) return false; // every instruction needs a ROB entry
 
         Instruction instr = program.getInstruction(pc);
         InstructionType type = instr.getType();
 
+        boolean issued = false;
         switch (type) {
             case DADDI:
             case DSUBI:
-                if (issueIntAluImmediate(instr)) {
+                issued = issueIntAluImmediate(instr);
+                if (issued) {
                     pc++; // normal sequential issue
                 }
                 break;
 
             case BEQ:
             case BNE:
-                if (issueBranch(instr)) {
-                    pc++;          // temporary next
-                    fetchStalled = true; // stop issuing until branch resolved
+                issued = issueBranch(instr);
+                if (issued) {
+                    if (speculative) {
+                        // keep fetching down the predicted path
+                        long lookup = predictor.lookup(instr.getPcIndex(), (int) instr.getImmediate());
+                        boolean taken = (lookup & 1) != 0;
+                        rob.tail().setPredictedTaken(taken);
+                        rob.tail().setLookup(lookup);
+                        pc = taken ? (int) instr.getImmediate() : pc + 1;
+                    } else {
+                        pc++;          // temporary next
+                        fetchStalled = true; // stop issuing until branch resolved
+                    }
                 }
                 break;
                 
@@ -797,7 +1237,8 @@ public class TomasuloEngine {
             case LD:
             case L_S:
             case L_D:
-                if (issueLoad(instr)) {
+                issued = issueLoad(instr);
+                if (issued) {
                     pc++;
                 }
                 break;
@@ -805,7 +1246,8 @@ public class TomasuloEngine {
             // FP add/sub
             case ADD_S: case ADD_D:
             case SUB_S: case SUB_D:
-                if (issueFpOp(instr)) {
+                issued = issueFpOp(instr);
+                if (issued) {
                     pc++;
                 }
                 break;
@@ -813,7 +1255,8 @@ public class TomasuloEngine {
             // FP mul/div
             case MUL_S: case MUL_D:
             case DIV_S: case DIV_D:
-                if (issueFpOp(instr)) {
+                issued = issueFpOp(instr);
+                if (issued) {
                     pc++;
                 }
                 break;
@@ -822,7 +1265,8 @@ public class TomasuloEngine {
             case SD:
             case S_S:
             case S_D:
-                if (issueStore(instr)) {
+                issued = issueStore(instr);
+                if (issued) {
                     pc++;
                 }
                 break;
@@ -831,6 +1275,7 @@ public class TomasuloEngine {
                 // other types not implemented yet
                 break;
         }
+        return issued;
     }
 
     private boolean issueIntAluImmediate(Instruction instr) {
@@ -839,37 +1284,36 @@ public class TomasuloEngine {
 
         free.setBusy(true);
         free.setOp(instr.getType());
-        free.setInstruction(instr);
+        free.setInstruction(timingLog.issue(instr, currentCycle));
+        free.setRobTag(allocateRob(free.getInstruction()));
 
         int rd = instr.getRd();
         int rsIdx = instr.getRs();
         long imm = instr.getImmediate();
 
         // source operand Rrs - follow rule: never have both V and Q filled
-        String owner = regStatus.getIntOwner(rsIdx);
-        if (owner == null) {
-            free.setQj(null);
-            free.setVj(registers.getInt(rsIdx));
+        int owner = intSourceTag(rsIdx);
+        if (owner == ProducerTags.NONE) {
+            free.setQjTag(ProducerTags.NONE);
+            free.setVj(intSourceValue(rsIdx));
         } else {
-            free.setQj(owner);
+            free.setQjTag(owner);
             free.setVj(0); // Vj ignored when Qj is set
+            wakeup.add(owner, free.getTag(), WakeupIndex.RS_J);
         }
         // Immediate goes in Vk (always ready)
-        free.setQk(null);
+        free.setQkTag(ProducerTags.NONE);
         free.setVk(imm);
 
         free.setA(imm);
 
         // destination Rrd
-        String destReg = "R" + rd;
-        free.setDest(destReg);
+        free.setDestId(RegisterId.intReg(rd));
+        setRobDest(free.getRobTag(), RegisterId.intReg(rd));
         if (rd != 0) { // ignore R0 ownership
-            regStatus.setIntOwner(rd, free.getName());
+            regStatus.setIntOwnerTag(rd, free.getProducerTag());
         }
 
-        // timing
-        instr.setIssueCycle(currentCycle);
-
         return true;
     }
 
@@ -879,40 +1323,164 @@ public class TomasuloEngine {
 
         free.setBusy(true);
         free.setOp(instr.getType());
-        free.setInstruction(instr);
+        free.setInstruction(timingLog.issue(instr, currentCycle));
+        free.setRobTag(allocateRob(free.getInstruction()));
 
         int rsIdx = instr.getRs();
         int rtIdx = instr.getRt();
         long targetIndex = instr.getImmediate(); // we stored absolute PC index here in parser pass2
 
         // source rs - follow rule: never have both V and Q filled
-        String ownerRs = regStatus.getIntOwner(rsIdx);
-        if (ownerRs == null) {
-            free.setQj(null);
-            free.setVj(registers.getInt(rsIdx));
+        int ownerRs = intSourceTag(rsIdx);
+        if (ownerRs == ProducerTags.NONE) {
+            free.setQjTag(ProducerTags.NONE);
+            free.setVj(intSourceValue(rsIdx));
         } else {
-            free.setQj(ownerRs);
+            free.setQjTag(ownerRs);
             free.setVj(0); // Vj ignored when Qj is set
+            wakeup.add(ownerRs, free.getTag(), WakeupIndex.RS_J);
         }
 
         // source rt - follow rule: never have both V and Q filled
-        String ownerRt = regStatus.getIntOwner(rtIdx);
-        if (ownerRt == null) {
-            free.setQk(null);
-            free.setVk(registers.getInt(rtIdx));
+        int ownerRt = intSourceTag(rtIdx);
+        if (ownerRt == ProducerTags.NONE) {
+            free.setQkTag(ProducerTags.NONE);
+            free.setVk(intSourceValue(rtIdx));
         } else {
-            free.setQk(ownerRt);
+            free.setQkTag(ownerRt);
             free.setVk(0); // Vk ignored when Qk is set
+            wakeup.add(ownerRt, free.getTag(), WakeupIndex.RS_K);
         }
 
         free.setA(targetIndex); // branch target
-        free.setDest(null);     // no destination register
+        free.setDestId(RegisterId.NONE); // no destination register
+
+
+        return true;
+    }
+
+    // ---------- Speculation (reorder buffer) ----------
+
+    /** ROB tag for a newly issued instance, or NONE when not speculating. */
+    private int allocateRob(DynamicInstruction instr) {
+        if (!speculative) return ProducerTags.NONE;
+        instr.setInRob(true);
+        return rob.allocate(instr).getTag();
+    }
+
+    private void setRobDest(int robTag, int destId) {
+        if (robTag != ProducerTags.NONE) rob.entryOf(robTag).setDestId(destId);
+    }
+
+    /**
+     * Producer a source register waits on, or NONE if its value can be read
+     * now (from the register file, or from a ROB entry that already has it).
+     */
+    private int intSourceTag(int idx) {
+        int owner = regStatus.getIntOwnerTag(idx);
+        if (speculative && owner != ProducerTags.NONE && rob.entryOf(owner).isReady()) return ProducerTags.NONE;
+        return owner;
+    }
 
-        instr.setIssueCycle(currentCycle);
+    private long intSourceValue(int idx) {
+        int owner = regStatus.getIntOwnerTag(idx);
+        if (speculative && owner != ProducerTags.NONE) return rob.entryOf(owner).getValue();
+        return registers.getInt(idx);
+    }
+
+    private int fpSourceTag(int idx) {
+        int owner = regStatus.getFpOwnerTag(idx);
+        if (speculative && owner != ProducerTags.NONE && rob.entryOf(owner).isReady()) return ProducerTags.NONE;
+        return owner;
+    }
+
+    private long fpSourceValue(int idx) {
+        int owner = regStatus.getFpOwnerTag(idx);
+        if (speculative && owner != ProducerTags.NONE) return rob.entryOf(owner).getValue();
+        return registers.getFp(idx);
+    }
+
+    /**
+     * Retire the ROB head if its result was written back in an earlier cycle:
+     * registers and memory only change here, in program order.
+     * @return false if the head was not ready to retire
+     */
+    private boolean commitHead() {
+        ReorderBufferEntry head = rob.head();
+        if (head == null || !head.isReady()) return false;
+        DynamicInstruction instr = head.getInstruction();
+        if (instr.getWriteBackCycle() >= currentCycle) return false;
+
+        if (head.isFaulted()) {
+            // a faulting load reached commit, so it is on the architectural path: repeat the access to raise its error
+            cache.loadNoLatency(head.getFaultAddress(), isDouble(instr.getType()), instr.getPcIndex());
+            throw new IllegalStateException("Load at " + head.getFaultAddress() + " faulted speculatively but not at commit");
+        }
+
+        if (instr.getType() == InstructionType.BEQ || instr.getType() == InstructionType.BNE) {
+            boolean taken = head.isTaken();
+            predictor.train(instr.getPcIndex(), (int) instr.getInstruction().getImmediate(), taken, head.getLookup());
+            branchStats.record(instr.getPcIndex(), taken != head.isPredictedTaken(),
+                    instr.getWriteBackCycle() - instr.getIssueCycle());
+        } else if (isStore(instr.getType())) {
+            StoreBufferEntry sb = storeBufferOf(head.getTag());
+            cache.storeNoLatency(sb.getAddress(), sb.getValue(), isDouble(instr.getType()), instr.getPcIndex());
+            sb.clear();
+        } else if (head.getDestId() != RegisterId.NONE) {
+            int destId = head.getDestId();
+            int idx = RegisterId.index(destId);
+            if (RegisterId.isFp(destId)) {
+                registers.setFp(idx, head.getValue());
+                if (regStatus.getFpOwnerTag(idx) == head.getTag()) regStatus.setFpOwnerTag(idx, ProducerTags.NONE);
+            } else if (idx != 0) {
+                registers.setInt(idx, head.getValue());
+                if (regStatus.getIntOwnerTag(idx) == head.getTag()) regStatus.setIntOwnerTag(idx, ProducerTags.NONE);
+            }
+        }
 
+        instr.setCommitCycle(currentCycle);
+        completedInstructions++;
+        rob.retireHead();
         return true;
     }
 
+    /**
+     * Mispredict recovery: drop every ROB entry younger than the branch, free
+     * the stations / buffers they hold and rebuild register status and the
+     * wakeup index from what is left.
+     */
+    private void squashYoungerThan(ReorderBufferEntry branch) {
+        while (rob.tail() != branch) {
+            ReorderBufferEntry victim = rob.tail();
+            int robTag = victim.getTag();
+            for (List<ReservationStation> group : List.of(fpAddStations, fpMulStations, intAluStations)) {
+                for (ReservationStation rs : group) if (rs.getRobTag() == robTag) rs.clear();
+            }
+            for (LoadBufferEntry lb : loadBuffers) if (lb.getRobTag() == robTag) lb.clear();
+            for (StoreBufferEntry sb : storeBuffers) if (sb.getRobTag() == robTag) sb.clear();
+            victim.getInstruction().setSquashCycle(currentCycle);
+            squashedCount++;
+            rob.dropTail();
+        }
+
+        // youngest surviving writer of each register owns it
+        regStatus.reset();
+        for (int i = 0; i < rob.size(); i++) {
+            ReorderBufferEntry e = rob.get(i);
+            int destId = e.getDestId();
+            if (destId == RegisterId.NONE || isStore(e.getInstruction().getType())) continue;
+            int idx = RegisterId.index(destId);
+            if (RegisterId.isFp(destId)) regStatus.setFpOwnerTag(idx, e.getTag());
+            else if (idx != 0) regStatus.setIntOwnerTag(idx, e.getTag());
+        }
+        rebuildWakeup();
+    }
+
+    private StoreBufferEntry storeBufferOf(int robTag) {
+        for (StoreBufferEntry sb : storeBuffers) if (sb.getRobTag() == robTag) return sb;
+        throw new IllegalStateException("No store buffer for ROB tag " + tags.nameOf(robTag));
+    }
+
     private ReservationStation findFreeIntAluRS() {
         for (ReservationStation rs : intAluStations) {
             if (!rs.isBusy()) return rs;
@@ -979,6 +1547,85 @@ public class TomasuloEngine {
         }
     }
 
+    // ---------- Cycle history ----------
+
+    private void startHistory() {
+        history.start(currentCycle);
+        timingLog.setKeepRetiredAfter(history.getOldestCycle());
+    }
+
+    /** Encode everything the next cycle depends on (timing log and wakeup index are rebuilt). */
+    private void saveState(StateVector out) {
+        out.put(pc);
+        out.put(currentCycle);
+        out.putBoolean(fetchStalled);
+        out.put(completedInstructions);
+        out.put(issuedInstructions);
+        out.put(squashedCount);
+        branchStats.saveState(out);
+        predictor.saveState(out);
+        cdb.saveState(out);
+        for (FunctionalUnit fu : units) fu.saveState(out);
+        registers.saveState(out);
+        regStatus.saveState(out);
+        for (ReservationStation rs : fpAddStations) rs.saveState(out);
+        for (ReservationStation rs : fpMulStations) rs.saveState(out);
+        for (ReservationStation rs : intAluStations) rs.saveState(out);
+        for (LoadBufferEntry lb : loadBuffers) lb.saveState(out);
+        for (StoreBufferEntry sb : storeBuffers) sb.saveState(out);
+        rob.saveState(out);
+        cache.saveState(out);
+        if (mshrs != null) mshrs.saveState(out);
+    }
+
+    private void restoreState(StateVector in) {
+        pc = in.nextInt();
+        currentCycle = in.nextInt();
+        fetchStalled = in.nextBoolean();
+        completedInstructions = in.next();
+        issuedInstructions = in.next();
+        squashedCount = in.next();
+        branchStats.restoreState(in);
+        predictor.restoreState(in);
+        cdb.restoreState(in);
+        for (FunctionalUnit fu : units) fu.restoreState(in);
+        // drop instances issued later first, so stations resolve their records
+        timingLog.rewind(currentCycle);
+        registers.restoreState(in);
+        regStatus.restoreState(in);
+        for (ReservationStation rs : fpAddStations) rs.restoreState(in, timingLog);
+        for (ReservationStation rs : fpMulStations) rs.restoreState(in, timingLog);
+        for (ReservationStation rs : intAluStations) rs.restoreState(in, timingLog);
+        for (LoadBufferEntry lb : loadBuffers) lb.restoreState(in, timingLog);
+        for (StoreBufferEntry sb : storeBuffers) sb.restoreState(in, timingLog);
+        rob.restoreState(in, timingLog);
+        cache.restoreState(in);
+        if (mshrs != null) mshrs.restoreState(in);
+        rebuildWakeup();
+    }
+
+    /** Re-register every pending operand with the wakeup index. */
+    private void rebuildWakeup() {
+        wakeup.clear();
+        for (List<ReservationStation> group : List.of(fpAddStations, fpMulStations, intAluStations)) {
+            for (ReservationStation rs : group) {
+                if (!rs.isBusy()) continue;
+                if (rs.getQjTag() != ProducerTags.NONE) wakeup.add(rs.getQjTag(), rs.getTag(), WakeupIndex.RS_J);
+                if (rs.getQkTag() != ProducerTags.NONE) wakeup.add(rs.getQkTag(), rs.getTag(), WakeupIndex.RS_K);
+            }
+        }
+        for (LoadBufferEntry lb : loadBuffers) {
+            if (lb.isBusy() && !lb.isAddressReady()) {
+                wakeup.add(lb.getAddressQTag(), lb.getTag(), WakeupIndex.LOAD_ADDRESS);
+            }
+        }
+        for (StoreBufferEntry sb : storeBuffers) {
+            if (!sb.isBusy()) continue;
+            if (!sb.isAddressReady()) wakeup.add(sb.getAddressQTag(), sb.getTag(), WakeupIndex.STORE_ADDRESS);
+            if (!sb.isValueReady()) wakeup.add(sb.getValueQTag(), sb.getTag(), WakeupIndex.STORE_VALUE);
+        }
+    }
+
     private CycleState takeSnapshot() {
         // Shallow copies for RS and buffers (ok for now)
         List<ReservationStation> fpAddCopy = new ArrayList<>(fpAddStations);
@@ -992,7 +1639,7 @@ public class TomasuloEngine {
 
         CacheLine[][] cacheCopy = cache.getSets(); // later we can deep copy if needed
 
-        List<Instruction> instrCopy = program.getInstructions(); // timing fields live in Instruction
+        List<DynamicInstruction> instrCopy = timingLog.snapshot(); // one row per issued instance
 
         return new CycleState(
                 currentCycle,
@@ -1041,39 +1688,41 @@ public class TomasuloEngine {
         if (free == null) return false;
 
         free.setBusy(true);
-        free.setInstruction(instr);
+        free.setInstruction(timingLog.issue(instr, currentCycle));
+        free.setRobTag(allocateRob(free.getInstruction()));
 
         // dest register (R or F based on parsed operand)
         int rd = instr.getRd();
         boolean isFp = instr.isMemRegFp();
 
-        String destReg = (isFp ? "F" : "R") + rd;
-        free.setDestReg(destReg);
-
-        if (isFp) {
-            regStatus.setFpOwner(rd, free.getName());
-        } else {
-            if (rd != 0) {
-                regStatus.setIntOwner(rd, free.getName());
-            }
-        }
+        free.setDestRegId(isFp ? RegisterId.fpReg(rd) : RegisterId.intReg(rd));
+        setRobDest(free.getRobTag(), free.getDestRegId());
 
-        // base register + offset
+        // base register + offset (read before renaming the destination, so
+        // LW R1,0(R1) waits on the previous producer of R1, not on itself)
         int base = instr.getRs();
         long offset = instr.getImmediate();
         free.setBaseRegIndex(base);
         free.setOffset(offset);
 
-        String owner = regStatus.getIntOwner(base);
-        if (owner == null) {
-            free.setAddressQ(null);
-            long baseVal = registers.getInt(base);
+        int owner = intSourceTag(base);
+        if (owner == ProducerTags.NONE) {
+            free.setAddressQTag(ProducerTags.NONE);
+            long baseVal = intSourceValue(base);
             free.setAddress(baseVal + offset);
         } else {
-            free.setAddressQ(owner);
+            free.setAddressQTag(owner);
+            wakeup.add(owner, free.getTag(), WakeupIndex.LOAD_ADDRESS);
+        }
+
+        if (isFp) {
+            regStatus.setFpOwnerTag(rd, free.getProducerTag());
+        } else {
+            if (rd != 0) {
+                regStatus.setIntOwnerTag(rd, free.getProducerTag());
+            }
         }
 
-        instr.setIssueCycle(currentCycle);
         return true;
     }
 
@@ -1092,37 +1741,39 @@ public class TomasuloEngine {
 
         free.setBusy(true);
         free.setOp(instr.getType());
-        free.setInstruction(instr);
+        free.setInstruction(timingLog.issue(instr, currentCycle));
+        free.setRobTag(allocateRob(free.getInstruction()));
 
         int rd = instr.getRd();
         int rsIdx = instr.getRs();
         int rtIdx = instr.getRt();
 
         // sources are FP regs - follow rule: never have both V and Q filled
-        String ownerJ = regStatus.getFpOwner(rsIdx);
-        if (ownerJ == null) { 
-            free.setQj(null); 
-            free.setVj(registers.getFp(rsIdx)); 
+        int ownerJ = fpSourceTag(rsIdx);
+        if (ownerJ == ProducerTags.NONE) { 
+            free.setQjTag(ProducerTags.NONE); 
+            free.setVj(fpSourceValue(rsIdx)); 
         } else { 
-            free.setQj(ownerJ); 
+            free.setQjTag(ownerJ); 
             free.setVj(0); // Vj ignored when Qj is set
+            wakeup.add(ownerJ, free.getTag(), WakeupIndex.RS_J);
         }
 
-        String ownerK = regStatus.getFpOwner(rtIdx);
-        if (ownerK == null) { 
-            free.setQk(null); 
-            free.setVk(registers.getFp(rtIdx)); 
+        int ownerK = fpSourceTag(rtIdx);
+        if (ownerK == ProducerTags.NONE) { 
+            free.setQkTag(ProducerTags.NONE); 
+            free.setVk(fpSourceValue(rtIdx)); 
         } else { 
-            free.setQk(ownerK); 
+            free.setQkTag(ownerK); 
             free.setVk(0); // Vk ignored when Qk is set
+            wakeup.add(ownerK, free.getTag(), WakeupIndex.RS_K);
         }
 
         // dest
-        String dest = "F" + rd;
-        free.setDest(dest);
-        regStatus.setFpOwner(rd, free.getName());
+        free.setDestId(RegisterId.fpReg(rd));
+        setRobDest(free.getRobTag(), RegisterId.fpReg(rd));
+        regStatus.setFpOwnerTag(rd, free.getProducerTag());
 
-        instr.setIssueCycle(currentCycle);
         return true;
     }
 
@@ -1139,7 +1790,8 @@ public class TomasuloEngine {
         if (free == null) return false;
 
         free.setBusy(true);
-        free.setInstruction(instr);
+        free.setInstruction(timingLog.issue(instr, currentCycle));
+        free.setRobTag(allocateRob(free.getInstruction()));
 
         // base + offset
         int base = instr.getRs();
@@ -1147,13 +1799,14 @@ public class TomasuloEngine {
         free.setBaseRegIndex(base);
         free.setOffset(offset);
 
-        String ownerBase = regStatus.getIntOwner(base);
-        if (ownerBase == null) {
-            free.setAddressQ(null);
-            long baseVal = registers.getInt(base);
+        int ownerBase = intSourceTag(base);
+        if (ownerBase == ProducerTags.NONE) {
+            free.setAddressQTag(ProducerTags.NONE);
+            long baseVal = intSourceValue(base);
             free.setAddress(baseVal + offset);
         } else {
-            free.setAddressQ(ownerBase);
+            free.setAddressQTag(ownerBase);
+            wakeup.add(ownerBase, free.getTag(), WakeupIndex.STORE_ADDRESS);
         }
 
         // value to store comes from rd (R or F depending on original operand)
@@ -1161,24 +1814,25 @@ public class TomasuloEngine {
         boolean isFp = instr.isMemRegFp();
 
         if (isFp) {
-            String ownerVal = regStatus.getFpOwner(srcRegIndex);
-            if (ownerVal == null) {
-                free.setValueQ(null);
-                free.setValue(registers.getFp(srcRegIndex));
+            int ownerVal = fpSourceTag(srcRegIndex);
+            if (ownerVal == ProducerTags.NONE) {
+                free.setValueQTag(ProducerTags.NONE);
+                free.setValue(fpSourceValue(srcRegIndex));
             } else {
-                free.setValueQ(ownerVal);
+                free.setValueQTag(ownerVal);
+                wakeup.add(ownerVal, free.getTag(), WakeupIndex.STORE_VALUE);
             }
         } else {
-            String ownerVal = regStatus.getIntOwner(srcRegIndex);
-            if (ownerVal == null) {
-                free.setValueQ(null);
-                free.setValue(registers.getInt(srcRegIndex));
+            int ownerVal = intSourceTag(srcRegIndex);
+            if (ownerVal == ProducerTags.NONE) {
+                free.setValueQTag(ProducerTags.NONE);
+                free.setValue(intSourceValue(srcRegIndex));
             } else {
-                free.setValueQ(ownerVal);
+                free.setValueQTag(ownerVal);
+                wakeup.add(ownerVal, free.getTag(), WakeupIndex.STORE_VALUE);
             }
         }
 
-        instr.setIssueCycle(currentCycle);
         return true;
     }
 
@@ -1205,19 +1859,19 @@ public class TomasuloEngine {
      * @return true if load can execute, false if must wait
      */
     private boolean canLoadExecute(LoadBufferEntry lb) {
-        Instruction loadInstr = lb.getInstruction();
+        DynamicInstruction loadInstr = lb.getInstruction();
         if (loadInstr == null) return false;
 
-        int loadPc = loadInstr.getPcIndex();
+        long loadSeq = loadInstr.getSeq();
 
         // Check all store buffers for address conflicts
         for (StoreBufferEntry sb : storeBuffers) {
             if (!sb.isBusy()) continue;
-            Instruction storeInstr = sb.getInstruction();
+            DynamicInstruction storeInstr = sb.getInstruction();
             if (storeInstr == null) continue;
 
             // Only check stores that are older (earlier in program order)
-            if (storeInstr.getPcIndex() < loadPc) {
+            if (storeInstr.getSeq() < loadSeq) {
                 // ADDRESS CLASH DETECTION:
                 if (!sb.isAddressReady()) {
                     // Conservative: block load if older store address unknown
@@ -31,7 +31,7 @@ public class TomasuloTimingTest {
         boolean ok = true;
         StringBuilder errors = new StringBuilder();
 
-        for (Instruction instr : prog.getInstructions()) {
+        for (DynamicInstruction instr : engine.getTimingLog().getRecords()) {
             int s = instr.getStartExecCycle();
             int e = instr.getEndExecCycle();
             int w = instr.getWriteBackCycle();
@@ -0,0 +1,62 @@
+package core;
+
+/**
+ * Tournament predictor: a bimodal and a gshare component with a table of
+ * 2-bit choosers (indexed by pc) that learns which one to trust per branch.
+ * Chooser values 2..3 select gshare.
+ */
+public class TournamentPredictor implements BranchPredictor {
+
+    private final BimodalPredictor bimodal;
+    private final GSharePredictor gshare;
+    private final CounterTable chooser;
+
+    public TournamentPredictor(int tableBits, int historyBits) {
+        this.bimodal = new BimodalPredictor(tableBits);
+        this.gshare = new GSharePredictor(tableBits, historyBits);
+        this.chooser = new CounterTable(tableBits, CounterTable.WEAKLY_NOT_TAKEN);
+    }
+
+    /** Bit 0: the prediction, bit 1: bimodal's, above: gshare's lookup word. */
+    @Override
+    public long lookup(int pc, int target) {
+        long b = bimodal.lookup(pc, target);
+        long g = gshare.lookup(pc, target);
+        long taken = chooser.predictsTaken(pc) ? g & 1 : b & 1;
+        return (g << 2) | (b << 1) | taken;
+    }
+
+    @Override
+    public void train(int pc, int target, boolean taken, long lookup) {
+        // train the chooser only when the components disagreed at lookup
+        long g = lookup >>> 2;
+        boolean bTaken = (lookup & 2) != 0;
+        boolean gTaken = (g & 1) != 0;
+        if (bTaken != gTaken) chooser.train(pc, gTaken == taken);
+        bimodal.train(pc, target, taken, bTaken ? 1 : 0);
+        gshare.train(pc, target, taken, g);
+    }
+
+    @Override
+    public void reset() {
+        bimodal.reset();
+        gshare.reset();
+        chooser.reset();
+    }
+
+    @Override public String getName() { return "tournament"; }
+
+    @Override
+    public void saveState(StateVector out) {
+        bimodal.saveState(out);
+        gshare.saveState(out);
+        chooser.saveState(out);
+    }
+
+    @Override
+    public void restoreState(StateVector in) {
+        bimodal.restoreState(in);
+        gshare.restoreState(in);
+        chooser.restoreState(in);
+    }
+}
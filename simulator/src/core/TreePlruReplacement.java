@@ -0,0 +1,85 @@
+package core;
+
+import java.util.Arrays;
+
+/**
+ * Tree pseudo-LRU: each set keeps ways - 1 bits arranged as a binary tree
+ * over its ways, every bit pointing toward the half that was used less
+ * recently. The victim is found by following the bits from the root, and a
+ * hit or fill flips the bits on the way's path to point away from it, so
+ * both cost log2(ways) steps.
+ *
+ * The tree of a set is packed into one long (node i at bit i, root at 1),
+ * so associativity must be a power of two and at most 64.
+ */
+public class TreePlruReplacement implements ReplacementPolicy {
+
+    private final int ways;
+    private final long[] bits; // per set
+
+    public TreePlruReplacement(int sets, int ways) {
+        if (sets <= 0 || ways <= 0 || ways > 64 || Integer.bitCount(ways) != 1) {
+            throw new IllegalArgumentException("Tree PLRU needs a power-of-two associativity up to 64: " + ways);
+        }
+        this.ways = ways;
+        this.bits = new long[sets];
+    }
+
+    @Override
+    public void reset() {
+        Arrays.fill(bits, 0);
+    }
+
+    @Override
+    public int victim(int set) {
+        long b = bits[set];
+        int node = 1;
+        while (node < ways) node = 2 * node + (int) ((b >>> node) & 1);
+        return node - ways;
+    }
+
+    @Override
+    public void onHit(int set, int way) {
+        pointAway(set, way);
+    }
+
+    @Override
+    public void onFill(int set, int way) {
+        pointAway(set, way);
+    }
+
+    @Override
+    public void onInvalidate(int set, int way) {
+        // point the path at the freed way so it is the next victim
+        long b = bits[set];
+        for (int node = way + ways; node > 1; node >>>= 1) {
+            int parent = node >>> 1;
+            if ((node & 1) != 0) b |= 1L << parent; else b &= ~(1L << parent);
+        }
+        bits[set] = b;
+    }
+
+    private void pointAway(int set, int way) {
+        long b = bits[set];
+        for (int node = way + ways; node > 1; node >>>= 1) {
+            int parent = node >>> 1;
+            if ((node & 1) != 0) b &= ~(1L << parent); else b |= 1L << parent;
+        }
+        bits[set] = b;
+    }
+
+    @Override
+    public String getName() {
+        return "plru";
+    }
+
+    @Override
+    public void saveState(StateVector out) {
+        for (long b : bits) out.put(b);
+    }
+
+    @Override
+    public void restoreState(StateVector in) {
+        for (int s = 0; s < bits.length; s++) bits[s] = in.next();
+    }
+}
@@ -0,0 +1,112 @@
+package core;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * Flat memory like {@link FlatMemory}, but 4- and 8-byte values are read and
+ * written through big-endian {@link VarHandle} views of the byte array
+ * instead of being assembled from single bytes. The JIT turns each access
+ * into one (byte-swapped) load or store; aligned addresses are the fast
+ * case, unaligned ones still work. Bounds are checked with a single
+ * unsigned compare per access.
+ *
+ * Bulk {@link #fill} and {@link #copy} go straight to Arrays.fill and
+ * System.arraycopy. Contents are byte-for-byte identical to FlatMemory, so
+ * the two are interchangeable; {@link MemoryBenchmark} compares them.
+ */
+public class VarHandleMemory implements MemoryBackend {
+
+    private static final VarHandle INT =
+            MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.BIG_ENDIAN);
+    private static final VarHandle LONG =
+            MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+
+    private final byte[] data;
+
+    public VarHandleMemory() {
+        this(FlatMemory.DEFAULT_SIZE);
+    }
+
+    public VarHandleMemory(int size) {
+        if (size <= 0) throw new IllegalArgumentException("Memory size must be positive: " + size);
+        this.data = new byte[size];
+    }
+
+    public int getSize() {
+        return data.length;
+    }
+
+    @Override
+    public void reset() {
+        Arrays.fill(data, (byte) 0);
+    }
+
+    @Override
+    public long getExtent() {
+        return data.length;
+    }
+
+    /**
+     * Array index of address; negative addresses fail the unsigned compare
+     * too. A memory smaller than the access is rejected first, since its
+     * negative bound would pass the unsigned compare.
+     */
+    private int index(long address, int size) {
+        if (size > data.length || Long.compareUnsigned(address, data.length - size) > 0) {
+            throw new IllegalArgumentException("Memory access out of bounds at address " + address);
+        }
+        return (int) address;
+    }
+
+    @Override
+    public long loadWord(long address) {
+        return (int) INT.get(data, index(address, 4)); // sign-extended
+    }
+
+    @Override
+    public void storeWord(long address, long value) {
+        INT.set(data, index(address, 4), (int) value);
+    }
+
+    @Override
+    public long loadDouble(long address) {
+        return (long) LONG.get(data, index(address, 8));
+    }
+
+    @Override
+    public void storeDouble(long address, long value) {
+        LONG.set(data, index(address, 8), value);
+    }
+
+    @Override
+    public void readBytes(long address, byte[] dst, int offset, int len) {
+        System.arraycopy(data, index(address, len), dst, offset, len);
+    }
+
+    @Override
+    public void writeBytes(long address, byte[] src, int offset, int len) {
+        System.arraycopy(src, offset, data, index(address, len), len);
+    }
+
+    @Override
+    public void fill(long address, long length, byte value) {
+        int from = index(address, checkLength(length));
+        Arrays.fill(data, from, from + (int) length, value);
+    }
+
+    @Override
+    public void copy(long from, long to, long length) {
+        int len = checkLength(length);
+        System.arraycopy(data, index(from, len), data, index(to, len), len);
+    }
+
+    private int checkLength(long length) {
+        if (length < 0 || length > data.length) {
+            throw new IllegalArgumentException("Bad length: " + length);
+        }
+        return (int) length;
+    }
+}
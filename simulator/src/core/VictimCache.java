@@ -0,0 +1,127 @@
+package core;
+
+import java.util.Arrays;
+
+/**
+ * Small fully-associative buffer of blocks recently evicted from a cache
+ * (Jouppi, ISCA 1990), attached with Cache.setVictimCache.
+ *
+ * Every block the cache replaces moves here instead of leaving the level. A
+ * miss that finds its block here swaps it back into the cache for a few
+ * cycles instead of fetching it from below. Only blocks evicted from this
+ * buffer (least recently inserted or hit first) really leave the level and
+ * are written back if dirty. Entries hold block numbers and dirty flags in
+ * primitive arrays, searched linearly (victim caches have a handful of
+ * entries).
+ */
+public class VictimCache {
+
+    private final long[] block;
+    private final boolean[] valid;
+    private final boolean[] dirty;
+    private final long[] lastUse;
+    private final int latency;
+    private long clock;
+
+    // statistics
+    private long hits;
+    private long insertions;
+
+    /**
+     * @param entries number of blocks (at least 1)
+     * @param latency extra cycles of a hit here over a hit in the cache
+     */
+    public VictimCache(int entries, int latency) {
+        if (entries < 1) throw new IllegalArgumentException("Victim cache needs at least one entry: " + entries);
+        if (latency < 0) throw new IllegalArgumentException("Victim cache latency must not be negative: " + latency);
+        this.block = new long[entries];
+        this.valid = new boolean[entries];
+        this.dirty = new boolean[entries];
+        this.lastUse = new long[entries];
+        this.latency = latency;
+    }
+
+    public int getEntries() { return block.length; }
+    public int getLatency() { return latency; }
+
+    /** Entry holding blockNumber, or -1. */
+    public int find(long blockNumber) {
+        for (int i = 0; i < block.length; i++) {
+            if (valid[i] && block[i] == blockNumber) return i;
+        }
+        return -1;
+    }
+
+    /** Entry the next insertion replaces: a free one, else the oldest. */
+    public int victim() {
+        int victim = 0;
+        for (int i = 0; i < block.length; i++) {
+            if (!valid[i]) return i;
+            if (lastUse[i] < lastUse[victim]) victim = i;
+        }
+        return victim;
+    }
+
+    public boolean isValid(int i) { return valid[i]; }
+    public boolean isDirty(int i) { return dirty[i]; }
+    public long getBlock(int i) { return block[i]; }
+
+    public void setDirty(int i) {
+        dirty[i] = true;
+    }
+
+    /** Store a block evicted from the cache in entry i (see victim()). */
+    public void put(int i, long blockNumber, boolean isDirty) {
+        valid[i] = true;
+        block[i] = blockNumber;
+        dirty[i] = isDirty;
+        lastUse[i] = ++clock;
+        insertions++;
+    }
+
+    /** The block in entry i moves back into the cache. */
+    public void take(int i) {
+        valid[i] = false;
+        hits++;
+    }
+
+    /** Drop entry i (back-invalidation). */
+    public void remove(int i) {
+        valid[i] = false;
+    }
+
+    public long getHits() { return hits; }
+    public long getInsertions() { return insertions; }
+
+    public void reset() {
+        Arrays.fill(valid, false);
+        Arrays.fill(dirty, false);
+        clock = 0;
+        hits = 0;
+        insertions = 0;
+    }
+
+    void saveState(StateVector out) {
+        out.put(clock);
+        out.put(hits);
+        out.put(insertions);
+        for (int i = 0; i < block.length; i++) {
+            out.putBoolean(valid[i]);
+            out.putBoolean(dirty[i]);
+            out.put(block[i]);
+            out.put(lastUse[i]);
+        }
+    }
+
+    void restoreState(StateVector in) {
+        clock = in.next();
+        hits = in.next();
+        insertions = in.next();
+        for (int i = 0; i < block.length; i++) {
+            valid[i] = in.nextBoolean();
+            dirty[i] = in.nextBoolean();
+            block[i] = in.next();
+            lastUse[i] = in.next();
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package core;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Measures simulated cycles per second as the number of reservation stations
+ * and buffers grows. Uses a synthetic straight-line program with long DIV.D
+ * chains so that most stations are busy waiting on a producer, which is the
+ * case the CDB wakeup index is meant to speed up.
+ *
+ * Usage: java -cp bin/classes core.WakeupBenchmark [instructions] [repeats]
+ */
+public class WakeupBenchmark {
+
+    private static final int[] STATION_COUNTS = {4, 16, 64, 128, 256};
+
+    public static void main(String[] args) {
+        int numInstructions = (args != null && args.length > 0) ? Integer.parseInt(args[0]) : 4000;
+        int repeats = (args != null && args.length > 1) ? Integer.parseInt(args[1]) : 5;
+
+        System.out.println("stations | cycles | ms/run | cycles/sec");
+        for (int stations : STATION_COUNTS) {
+            // warm-up run (JIT) before timing
+            runOnce(numInstructions, stations);
+
+            long totalCycles = 0;
+            long start = System.nanoTime();
+            for (int r = 0; r < repeats; r++) {
+                totalCycles += runOnce(numInstructions, stations);
+            }
+            long elapsed = System.nanoTime() - start;
+
+            double ms = elapsed / 1e6 / repeats;
+            double cyclesPerSec = totalCycles / (elapsed / 1e9);
+            System.out.printf("%8d | %6d | %6.1f | %.0f%n",
+                    stations, totalCycles / repeats, ms, cyclesPerSec);
+        }
+    }
+
+    private static int runOnce(int numInstructions, int stations) {
+        Program prog = syntheticProgram(numInstructions);
+        RegisterFile rf = new RegisterFile();
+        RegisterStatus rs = new RegisterStatus();
+        Memory mem = new Memory();
+        Cache cache = new Cache(1024, 16, 2, 1, 10, mem);
+
+        TomasuloEngine engine = new TomasuloEngine(
+                prog, rf, rs, mem, cache,
+                stations, stations, stations, stations, stations,
+                2, 4, 40, 1, 2, 2
+        );
+
+        engine.setHistoryEnabled(false);
+        engine.runUntilDrained((long) numInstructions * 50);
+        return engine.getCurrentCycle();
+    }
+
+    /**
+     * Repeating block: a long-latency divide whose result feeds many adds,
+     * multiplies, stores and integer updates, so consumers pile up behind it.
+     */
+    private static Program syntheticProgram(int numInstructions) {
+        List<Instruction> list = new ArrayList<>();
+        int pc = 0;
+        while (pc < numInstructions) {
+            int k = (pc / 16) % 8;
+            pc = add(list, rrr(InstructionType.DIV_D, "DIV.D", 0, 2, 4, pc));
+            for (int i = 0; i < 6 && pc < numInstructions; i++) {
+                int fd = 6 + 2 * ((i + k) % 10);
+                pc = add(list, rrr(i % 2 == 0 ? InstructionType.ADD_D : InstructionType.MUL_D,
+                        i % 2 == 0 ? "ADD.D" : "MUL.D", fd, 0, fd, pc));
+            }
+            if (pc < numInstructions) pc = add(list, mem(InstructionType.S_D, "S.D", 0, 1, 8 * k, pc));
+            if (pc < numInstructions) pc = add(list, mem(InstructionType.L_D, "L.D", 2, 1, 8 * k + 64, pc));
+            if (pc < numInstructions) pc = add(list, rri(InstructionType.DADDI, "DADDI", 3, 3, 1, pc));
+            if (pc < numInstructions) pc = add(list, rri(InstructionType.DSUBI, "DSUBI", 3, 3, 1, pc));
+        }
+        return new Program(list, new HashMap<>());
+    }
+
+    private static int add(List<Instruction> list, Instruction instr) {
+        list.add(instr);
+        return instr.getPcIndex() + 1;
+    }
+
+    private static Instruction rrr(InstructionType t, String mnemonic, int rd, int rs, int rt, int pc) {
+        Instruction instr = new Instruction(t, mnemonic + " F" + rd + ",F" + rs + ",F" + rt, pc);
+        instr.setRd(rd);
+        instr.setRs(rs);
+        instr.setRt(rt);
+        return instr;
+    }
+
+    private static Instruction rri(InstructionType t, String mnemonic, int rd, int rs, long imm, int pc) {
+        Instruction instr = new Instruction(t, mnemonic + " R" + rd + ",R" + rs + "," + imm, pc);
+        instr.setRd(rd);
+        instr.setRs(rs);
+        instr.setImmediate(imm);
+        return instr;
+    }
+
+    private static Instruction mem(InstructionType t, String mnemonic, int fd, int base, long offset, int pc) {
+        Instruction instr = new Instruction(t, mnemonic + " F" + fd + "," + offset + "(R" + base + ")", pc);
+        instr.setRd(fd);
+        instr.setRs(base);
+        instr.setImmediate(offset);
+        instr.setMemRegIsFp(true);
+        return instr;
+    }
+}
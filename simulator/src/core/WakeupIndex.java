@@ -0,0 +1,93 @@
+package core;
+
+import java.util.Arrays;
+
+/**
+ * Producer -> consumer wakeup index for the CDB.
+ *
+ * Every time an operand is issued with a pending producer (Qj / Qk in a
+ * reservation station, addressQ in a load buffer, addressQ / valueQ in a
+ * store buffer) the waiting slot is registered here under the producer's
+ * tag. A CDB broadcast then only visits the slots that are really waiting
+ * on that producer instead of scanning every station and buffer.
+ *
+ * Waiters are packed into ints as (consumerTag << 3 | slotKind) and kept in
+ * per-producer arrays that are reused, so issue and broadcast do not allocate.
+ */
+public class WakeupIndex {
+
+    // slot kinds
+    public static final int RS_J = 0;
+    public static final int RS_K = 1;
+    public static final int LOAD_ADDRESS = 2;
+    public static final int STORE_ADDRESS = 3;
+    public static final int STORE_VALUE = 4;
+
+    private static final int KIND_BITS = 3;
+    private static final int KIND_MASK = (1 << KIND_BITS) - 1;
+
+    private int[][] waiters = new int[0][];
+    private int[] counts = new int[0];
+
+    public void clear() {
+        Arrays.fill(counts, 0);
+    }
+
+    /** Register consumer slot (consumerTag, kind) as waiting on producer. */
+    public void add(int producer, int consumerTag, int kind) {
+        ensureCapacity(producer);
+        int[] list = waiters[producer];
+        int n = counts[producer];
+        if (n == list.length) {
+            list = Arrays.copyOf(list, Math.max(4, n * 2));
+            waiters[producer] = list;
+        }
+        list[n] = (consumerTag << KIND_BITS) | kind;
+        counts[producer] = n + 1;
+    }
+
+    /**
+     * Number of stations / buffers currently waiting on this producer.
+     * A station waiting on the same producer for both operands counts once,
+     * which matches the old full-scan countDependents().
+     */
+    public int countDependents(int producer) {
+        if (producer >= counts.length) return 0;
+        int[] list = waiters[producer];
+        int n = counts[producer];
+        int count = 0;
+        int last = -1;
+        for (int i = 0; i < n; i++) {
+            int consumer = list[i] >>> KIND_BITS;
+            if (consumer != last) count++;
+            last = consumer;
+        }
+        return count;
+    }
+
+    public int size(int producer) {
+        return producer < counts.length ? counts[producer] : 0;
+    }
+
+    public int consumerAt(int producer, int i) {
+        return waiters[producer][i] >>> KIND_BITS;
+    }
+
+    public int kindAt(int producer, int i) {
+        return waiters[producer][i] & KIND_MASK;
+    }
+
+    /** Drop every waiter of this producer (after its broadcast). */
+    public void release(int producer) {
+        if (producer < counts.length) counts[producer] = 0;
+    }
+
+    private void ensureCapacity(int producer) {
+        if (producer < counts.length) return;
+        int n = Math.max(producer + 1, counts.length * 2);
+        int old = waiters.length;
+        waiters = Arrays.copyOf(waiters, n);
+        counts = Arrays.copyOf(counts, n);
+        for (int i = old; i < n; i++) waiters[i] = new int[4];
+    }
+}
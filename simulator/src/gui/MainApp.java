@@ -281,7 +281,7 @@ public class MainApp extends Application {
 
         // Instructions
         instrList.getItems().clear();
-        for (core.Instruction instr : s.getInstructionsWithTiming()) {
+        for (core.DynamicInstruction instr : s.getInstructionsWithTiming()) {
             instrList.getItems().add(instr.getPcIndex() + ": " + instr.getRawText()
                     + "  [I=" + instr.getIssueCycle()
                     + ", S=" + instr.getStartExecCycle()
@@ -31,7 +31,7 @@ public class ModernSwingGUI {
     private JList<String> instrList;
     
     // Parameter controls
-    private JSpinner spFpAddRS, spFpMulRS, spIntAluRS, spLoadBuf, spStoreBuf;
+    private JSpinner spFpAddRS, spFpMulRS, spIntAluRS, spLoadBuf, spStoreBuf, spIssueWidth;
     private JSpinner spFpAddLat, spFpMulLat, spFpDivLat, spIntAluLat, spLoadLat, spStoreLat;
     private JSpinner spCacheSize, spBlockSize, spAssoc, spCacheHitLat, spCacheMissPen;
     
@@ -430,6 +430,7 @@ public class ModernSwingGUI {
         rsConfig.add(createSpinnerRow("Integer ALU Stations:", spIntAluRS = createSpinner(3, 1, 16)));
         rsConfig.add(createSpinnerRow("Load Buffers:", spLoadBuf = createSpinner(3, 1, 16)));
         rsConfig.add(createSpinnerRow("Store Buffers:", spStoreBuf = createSpinner(3, 1, 16)));
+        rsConfig.add(createSpinnerRow("Issue Width:", spIssueWidth = createSpinner(1, 1, 8)));
         configContent.add(rsConfig);
         configContent.add(Box.createVerticalStrut(15));
         
@@ -813,7 +814,7 @@ public class ModernSwingGUI {
         panel.setBackground(BG_WHITE);
         
         // RS Configuration
-        JPanel rsPanel = new JPanel(new GridLayout(5, 2, 5, 2));
+        JPanel rsPanel = new JPanel(new GridLayout(6, 2, 5, 2));
         rsPanel.setBackground(BG_WHITE);
         rsPanel.setBorder(new TitledBorder(new LineBorder(new Color(189, 195, 199), 1), "Reservation Stations",
             TitledBorder.LEFT, TitledBorder.TOP, new Font("Segoe UI", Font.BOLD, 11), TEXT_PRIMARY));
@@ -828,6 +829,8 @@ public class ModernSwingGUI {
         rsPanel.add(spLoadBuf = createCompactSpinner(3, 1, 16));
         rsPanel.add(createCompactLabel("Store Buf:"));
         rsPanel.add(spStoreBuf = createCompactSpinner(3, 1, 16));
+        rsPanel.add(createCompactLabel("Issue Width:"));
+        rsPanel.add(spIssueWidth = createCompactSpinner(1, 1, 8));
         
         // Latency Configuration
         JPanel latPanel = new JPanel(new GridLayout(6, 2, 5, 2));
@@ -1069,6 +1072,7 @@ public class ModernSwingGUI {
         viewModel.numIntAluRS = (Integer) spIntAluRS.getValue();
         viewModel.numLoadBuffers = (Integer) spLoadBuf.getValue();
         viewModel.numStoreBuffers = (Integer) spStoreBuf.getValue();
+        viewModel.issueWidth = (Integer) spIssueWidth.getValue();
         
         viewModel.fpAddLatency = (Integer) spFpAddLat.getValue();
         viewModel.fpMulLatency = (Integer) spFpMulLat.getValue();
@@ -1275,7 +1279,7 @@ public class ModernSwingGUI {
     private void updateInstructionList(CycleState s) {
         DefaultListModel<String> model = new DefaultListModel<>();
         
-        for (Instruction instr : s.getInstructionsWithTiming()) {
+        for (DynamicInstruction instr : s.getInstructionsWithTiming()) {
             model.addElement(String.format("%d: %-30s [I=%d, S=%d, E=%d, W=%d]",
                 instr.getPcIndex(),
                 instr.getRawText(),
@@ -1294,7 +1298,7 @@ public class ModernSwingGUI {
             public boolean isCellEditable(int row, int col) { return false; }
         };
         
-        for (Instruction instr : s.getInstructionsWithTiming()) {
+        for (DynamicInstruction instr : s.getInstructionsWithTiming()) {
             model.addRow(new Object[]{
                 (instr.getPcIndex() + 1) + ". " + instr.getRawText(),
                 instr.getIssueCycle() > 0 ? instr.getIssueCycle() : "-",
@@ -1350,16 +1354,18 @@ public class ModernSwingGUI {
         // Calculate instruction completion
         int total = s.getInstructionsWithTiming().size();
         int completed = 0;
-        for (Instruction instr : s.getInstructionsWithTiming()) {
+        for (DynamicInstruction instr : s.getInstructionsWithTiming()) {
             if (instr.getWriteBackCycle() > 0 && instr.getWriteBackCycle() <= s.getCycleNumber()) {
                 completed++;
             }
         }
         completedInstrLabel.setText(completed + " / " + total);
         
-        // Calculate IPC
+        // IPC from the engine's own count (the timing table is windowed and
+        // also holds squashed rows)
         int cycles = s.getCycleNumber();
-        double ipc = cycles > 0 ? ((double) completed / cycles) : 0.0;
+        TomasuloEngine engine = viewModel.getEngine();
+        double ipc = engine != null ? engine.getIpc() : 0.0;
         ipcLabel.setText(String.format("%.2f", ipc));
         
         // Total cycles
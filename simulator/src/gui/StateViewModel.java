@@ -22,6 +22,7 @@ public class StateViewModel {
 	public int numIntAluRS = 3;
 	public int numLoadBuffers = 3;
 	public int numStoreBuffers = 3;
+	public int issueWidth = 1;
 
 	public int fpAddLatency = 2;
 	public int fpMulLatency = 4;
@@ -70,6 +71,7 @@ public class StateViewModel {
 				loadLatencyBase,
 				storeLatencyBase
 		);
+		engine.setIssueWidth(issueWidth);
 	}
 
 	public TomasuloEngine getEngine() {
@@ -95,4 +97,14 @@ public class StateViewModel {
 		if (engine == null) return null;
 		return engine.getRegisterStatus();
 	}
+
+	public RegisterFile getRegisterFile() {
+		if (engine == null) return null;
+		return engine.getRegisterFile();
+	}
+
+	public Cache getCache() {
+		if (engine == null) return null;
+		return engine.getCache();
+	}
 }
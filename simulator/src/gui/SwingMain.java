@@ -453,7 +453,7 @@ public class SwingMain {
         DefaultTableModel summaryModel = new DefaultTableModel(summaryCols, 0) {
             public boolean isCellEditable(int row, int col) { return false; }
         };
-        for (core.Instruction instr : s.getInstructionsWithTiming()) {
+        for (core.DynamicInstruction instr : s.getInstructionsWithTiming()) {
             String issueStr = instr.getIssueCycle() > 0 ? String.valueOf(instr.getIssueCycle()) : "-";
             String startStr = instr.getStartExecCycle() > 0 ? String.valueOf(instr.getStartExecCycle()) : "-";
             String endStr = instr.getEndExecCycle() > 0 ? String.valueOf(instr.getEndExecCycle()) : "-";
@@ -476,7 +476,7 @@ public class SwingMain {
 
         // Instructions
         DefaultListModel<String> lm = new DefaultListModel<>();
-        for (core.Instruction instr : s.getInstructionsWithTiming()) {
+        for (core.DynamicInstruction instr : s.getInstructionsWithTiming()) {
             lm.addElement(instr.getPcIndex() + ": " + instr.getRawText() + "  [I=" + instr.getIssueCycle() + ", S=" + instr.getStartExecCycle() + ", E=" + instr.getEndExecCycle() + ", W=" + instr.getWriteBackCycle() + "]");
         }
         instrList.setModel(lm);